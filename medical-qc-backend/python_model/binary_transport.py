@@ -0,0 +1,143 @@
+"""
+WebSocket 二进制帧传输工具。
+
+与 Java 端 BinaryFrameTransport 对应：
+1. 上行：文本头帧里的 binary_upload 声明文件清单，随后的二进制帧按顺序拼成临时文件，
+   请求中的 binary://fN 引用替换为临时文件路径。
+2. 下行：结果中的大数值数组抽出为小端二进制块，与 JSON 头一起编码成单个二进制帧。
+"""
+
+from __future__ import annotations
+
+import json
+import shutil
+import struct
+import tempfile
+from pathlib import Path
+
+import numpy as np
+
+UPLOAD_KEY = "binary_upload"
+BINARY_RESULTS_KEY = "binary_results"
+BINARY_FIELDS_KEY = "binary_fields"
+REFERENCE_PREFIX = "binary://"
+PATH_KEYS = ("image_path", "volume_path", "input_path")
+# 元素数低于该值的数组仍走 JSON，避免小数组反而多一次解码。
+BINARY_RESULT_MIN_SIZE = 256
+
+
+class PendingUpload:
+    """单个请求的上传状态，按清单顺序把二进制帧写入临时目录。"""
+
+    def __init__(self, payload: dict[str, object]) -> None:
+        self.payload = payload
+        self.files = list(payload.pop(UPLOAD_KEY) or [])
+        self.directory = Path(tempfile.mkdtemp(prefix="qc-upload-"))
+        self.paths: dict[str, str] = {}
+        self.cancelled = False
+        self._index = 0
+        self._received = 0
+        self._handle = None
+        self._open_next()
+
+    @property
+    def complete(self) -> bool:
+        return self._index >= len(self.files)
+
+    def write(self, data: bytes) -> None:
+        """写入一个二进制帧；一帧只属于当前文件，Java 端按文件边界切块。"""
+        if self.complete:
+            raise ValueError("Unexpected binary frame after upload completed")
+        self._handle.write(data)
+        self._received += len(data)
+        if self._received >= int(self.files[self._index]["size"]):
+            self._handle.close()
+            self._handle = None
+            self._index += 1
+            self._open_next()
+
+    def resolve_payload(self) -> dict[str, object]:
+        """把请求及批量子项中的 binary:// 引用替换为临时文件路径。"""
+        resolve_references(self.payload, self.paths)
+        for item in self.payload.get("batch") or []:
+            if isinstance(item, dict):
+                resolve_references(item, self.paths)
+        return self.payload
+
+    def cleanup(self) -> None:
+        if self._handle is not None:
+            self._handle.close()
+            self._handle = None
+        shutil.rmtree(self.directory, ignore_errors=True)
+
+    def _open_next(self) -> None:
+        # 空文件没有对应的二进制帧，直接落盘后跳过。
+        while not self.complete:
+            entry = self.files[self._index]
+            # 保留原文件名后缀，.nii.gz / .zip 等格式依赖扩展名识别。
+            target = self.directory / f"{entry['ref']}_{Path(str(entry['name'])).name}"
+            self.paths[str(entry["ref"])] = str(target)
+            self._received = 0
+            self._handle = open(target, "wb")
+            if int(entry["size"]) > 0:
+                return
+            self._handle.close()
+            self._handle = None
+            self._index += 1
+
+
+def resolve_references(payload: dict[str, object], paths: dict[str, str]) -> None:
+    """替换单个请求体里的路径引用。"""
+    for key in PATH_KEYS:
+        value = payload.get(key)
+        if isinstance(value, str) and value.startswith(REFERENCE_PREFIX):
+            payload[key] = paths[value[len(REFERENCE_PREFIX):]]
+
+
+def _extract_arrays(result: dict[str, object], item: int | None, fields: list, blobs: list, offset: int) -> int:
+    """把结果里的大数值数组替换为二进制块描述，返回新的偏移量。"""
+    for key in list(result.keys()):
+        value = result[key]
+        if not isinstance(value, list) or not value:
+            continue
+        try:
+            array = np.asarray(value)
+        except ValueError:
+            # 不规则嵌套列表无法表示为矩阵，保持 JSON。
+            continue
+        if array.size < BINARY_RESULT_MIN_SIZE or array.dtype.kind not in "biuf":
+            continue
+        if array.dtype.kind == "b":
+            dtype = "u1"
+        elif array.dtype.kind in "iu":
+            dtype = "i4"
+        else:
+            dtype = "f4"
+        blob = np.ascontiguousarray(array, dtype=np.dtype(dtype).newbyteorder("<")).tobytes()
+        fields.append({
+            "key": key,
+            "item": item,
+            "dtype": dtype,
+            "shape": list(array.shape),
+            "offset": offset,
+            "length": len(blob),
+        })
+        blobs.append(blob)
+        offset += len(blob)
+        del result[key]
+    return offset
+
+
+def encode_binary_result(result: dict[str, object]) -> bytes | None:
+    """结果中含大数组时编码为二进制帧，否则返回 None 由调用方继续发送 JSON。"""
+    fields: list[dict[str, object]] = []
+    blobs: list[bytes] = []
+    offset = _extract_arrays(result, None, fields, blobs, 0)
+    for index, item_result in enumerate(result.get("results") or []):
+        if isinstance(item_result, dict):
+            offset = _extract_arrays(item_result, index, fields, blobs, offset)
+    if not fields:
+        return None
+    result[BINARY_FIELDS_KEY] = fields
+    header = json.dumps(result, ensure_ascii=False).encode("utf-8")
+    return struct.pack(">I", len(header)) + header + b"".join(blobs)
@@ -13,7 +13,9 @@ import asyncio
 import json
 import os
 import time
+from concurrent.futures import ThreadPoolExecutor
 from pathlib import Path
+from typing import Callable
 
 import torch
 import websockets
@@ -26,7 +28,9 @@ from head_ct_plain_qc.inference import load_checkpoint as load_head_qc_checkpoin
 from head_ct_plain_qc.inference import run_inference as run_head_qc_inference
 from hemorrhage_detection.inference import load_checkpoint as load_hemorrhage_checkpoint
 from hemorrhage_detection.inference import run_inference as run_hemorrhage_inference
+from binary_transport import BINARY_RESULTS_KEY, UPLOAD_KEY, PendingUpload, encode_binary_result
 from medical_volume_utils import enrich_result_with_medical_input, prepare_volume_input
+from priority_gate import PRIORITY_KEY, PriorityGate
 
 
 hemorrhage_model = None
@@ -42,6 +46,38 @@ cuda_index = int(os.environ.get("PYTHON_MODEL_CUDA_INDEX", "0"))
 device = torch.device(f"cuda:{cuda_index}")
 print(f"Using CUDA device: {torch.cuda.get_device_name(cuda_index)}")
 
+# 推理放到单线程执行器中串行执行：GPU 仍按顺序使用，但事件循环保持响应 ping 和其他连接的消息。
+inference_executor = ThreadPoolExecutor(max_workers=1, thread_name_prefix="inference")
+# 执行器前的优先级闸门：交互请求先于批量积压进入推理线程，等待过久的请求不论优先级优先放行。
+inference_gate = PriorityGate(float(os.environ.get("PYTHON_MODEL_STARVATION_SECONDS", "10")))
+
+# Java 端订阅中间事件时在请求里带上该标记；未带标记的请求只回最终结果，与旧协议一致。
+STREAM_PROGRESS_KEY = "stream_progress"
+ProgressCallback = Callable[[dict[str, object]], None]
+
+
+def ignore_progress(_event: dict[str, object]) -> None:
+    """未订阅中间事件时的空回调。"""
+
+
+def report_stage(progress: ProgressCallback, stage: str, percent: int) -> None:
+    """上报推理阶段进度。"""
+    progress({"event": "progress", "stage": stage, "progress": percent})
+
+
+def report_qc_items(progress: ProgressCallback, result: dict[str, object]) -> None:
+    """逐条上报已得出的质控项，最终结果仍以完整响应为准。"""
+    qc_items = result.get("qcItems") if isinstance(result, dict) else None
+    if not isinstance(qc_items, list) or not qc_items:
+        return
+    for index, qc_item in enumerate(qc_items):
+        progress({
+            "event": "partial",
+            "stage": "qc_items",
+            "progress": 80 + int(15 * (index + 1) / len(qc_items)),
+            "qc_item": qc_item,
+        })
+
 
 def load_models() -> None:
     """加载当前服务承载的全部模型。"""
@@ -66,8 +102,8 @@ def load_models() -> None:
         print(f"Chest non contrast QC model unavailable: {exc}")
 
 
-def analyze_request(payload: dict[str, object]) -> dict[str, object]:
-    """根据 task_type 将请求分发到对应模型。"""
+def analyze_request(payload: dict[str, object], progress: ProgressCallback = ignore_progress) -> dict[str, object]:
+    """根据 task_type 将请求分发到对应模型；体数据任务在各阶段通过 progress 回调上报进度。"""
     task_type = str(payload.get("task_type") or "hemorrhage").strip().lower()
     if task_type == "hemorrhage":
         image_path = Path(str(payload.get("image_path", "")))
@@ -80,14 +116,17 @@ def analyze_request(payload: dict[str, object]) -> dict[str, object]:
     if task_type == "head":
         if head_qc_model is None or head_qc_thresholds is None:
             return {"error": "Head CT plain QC model not loaded"}
+        report_stage(progress, "prepare_input", 10)
         managed_input = prepare_volume_input(str(payload.get("volume_path", "") or payload.get("input_path", "")))
         try:
+            report_stage(progress, "inference", 30)
             result = run_head_qc_inference(
                 managed_input.analysis_path,
                 device=device,
                 model=head_qc_model,
                 thresholds=head_qc_thresholds,
             )
+            report_qc_items(progress, result)
             return enrich_result_with_medical_input(result, managed_input, "head")
         finally:
             managed_input.cleanup()
@@ -95,30 +134,39 @@ def analyze_request(payload: dict[str, object]) -> dict[str, object]:
     if task_type == "chest-non-contrast":
         if chest_qc_model is None or chest_qc_thresholds is None:
             return {"error": "Chest non contrast QC model not loaded"}
+        report_stage(progress, "prepare_input", 10)
         managed_input = prepare_volume_input(str(payload.get("volume_path", "") or payload.get("input_path", "")))
         try:
+            report_stage(progress, "inference", 30)
             result = run_chest_qc_inference(
                 managed_input.analysis_path,
                 model=chest_qc_model,
                 thresholds=chest_qc_thresholds,
                 device=device,
             )
+            report_qc_items(progress, result)
             return enrich_result_with_medical_input(result, managed_input, "chest-non-contrast")
         finally:
             managed_input.cleanup()
 
     if task_type == "chest-contrast":
+        report_stage(progress, "prepare_input", 10)
         managed_input = prepare_volume_input(str(payload.get("volume_path", "") or payload.get("input_path", "")))
         try:
+            report_stage(progress, "inference", 30)
             result = run_chest_contrast_qc_inference(managed_input.analysis_path, metadata=payload)
+            report_qc_items(progress, result)
             return enrich_result_with_medical_input(result, managed_input, "chest-contrast")
         finally:
             managed_input.cleanup()
 
     if task_type == "coronary-cta":
+        report_stage(progress, "prepare_input", 10)
         managed_input = prepare_volume_input(str(payload.get("volume_path", "") or payload.get("input_path", "")))
         try:
+            report_stage(progress, "inference", 30)
             result = run_coronary_cta_qc_inference(managed_input.analysis_path, metadata=payload)
+            report_qc_items(progress, result)
             return enrich_result_with_medical_input(result, managed_input, "coronary-cta")
         finally:
             managed_input.cleanup()
@@ -126,62 +174,206 @@ def analyze_request(payload: dict[str, object]) -> dict[str, object]:
     return {"error": f"Unsupported task_type: {task_type}"}
 
 
+def analyze_batch(payload: dict[str, object], progress: ProgressCallback = ignore_progress) -> dict[str, object]:
+    """处理 Java 端合并发送的批量请求，结果按请求顺序返回；中间事件带 batch_index 标明所属子项。"""
+    task_type = payload.get("task_type")
+    results: list[dict[str, object]] = []
+    for index, item in enumerate(payload.get("batch") or []):
+        item_payload = {"task_type": task_type, **item}
+        start_time = time.time()
+
+        def item_progress(event: dict[str, object], batch_index: int = index) -> None:
+            progress({**event, "batch_index": batch_index})
+
+        # 单条失败只影响自己，不拖垮同批其他请求。
+        try:
+            result = analyze_request(item_payload, item_progress)
+        except Exception as exc:
+            result = {"error": str(exc)}
+        if "error" not in result:
+            result["analysis_duration"] = round((time.time() - start_time) * 1000, 2)
+            result["device"] = torch.cuda.get_device_name(cuda_index)
+        results.append(result)
+    return {"results": results}
+
+
+def build_health_payload(request_id: object) -> dict[str, object]:
+    """组装健康检查响应。"""
+    # 健康检查只把三条真实模型链路纳入“模型已加载”语义。
+    real_models = {
+        "hemorrhage": hemorrhage_model is not None,
+        "head": head_qc_model is not None,
+        "chest-non-contrast": chest_qc_model is not None,
+    }
+    mock_capabilities = {
+        "chest-contrast": True,
+        "coronary-cta": True,
+    }
+    return {
+        "status": "ok",
+        # 统一服务仅以三条真实链路是否全部可用作为整体健康信号。
+        "model_loaded": all(real_models.values()),
+        "device": torch.cuda.get_device_name(cuda_index),
+        # 为兼容旧排查脚本，models 字段仍保留，但 mock 链路明确标记为 false。
+        "models": {
+            **real_models,
+            "chest-contrast": False,
+            "coronary-cta": False,
+        },
+        "realModels": real_models,
+        "mockCapabilities": mock_capabilities,
+        "scheduler": {
+            "queueDepth": inference_gate.queue_depth,
+            "granted": dict(inference_gate.granted),
+            "promotedByAging": inference_gate.promoted,
+        },
+        "request_id": request_id,
+    }
+
+
+async def send_result(
+    websocket: websockets.WebSocketServerProtocol,
+    result: dict[str, object],
+    binary_results: bool,
+) -> None:
+    """回写推理结果；二进制传输模式下大数组结果编码为单个二进制帧。"""
+    if binary_results:
+        frame = encode_binary_result(result)
+        if frame is not None:
+            await websocket.send(frame)
+            return
+    await websocket.send(json.dumps(result, ensure_ascii=False))
+
+
+def create_progress_sender(
+    websocket: websockets.WebSocketServerProtocol,
+    loop: asyncio.AbstractEventLoop,
+    request_id: object,
+) -> ProgressCallback:
+    """创建在推理线程中调用的进度回调，消息投递回事件循环按调用顺序发送。"""
+
+    def send_progress(event: dict[str, object]) -> None:
+        message = json.dumps({**event, "request_id": request_id}, ensure_ascii=False)
+        # 中间事件尽力而为，连接断开时发送失败由最终结果的发送路径处理。
+        asyncio.run_coroutine_threadsafe(websocket.send(message), loop)
+
+    return send_progress
+
+
+async def run_inference_request(
+    websocket: websockets.WebSocketServerProtocol,
+    payload: dict[str, object],
+    request_id: object,
+    upload: PendingUpload | None = None,
+) -> None:
+    """在推理线程中执行单个请求，并把结果回写到原连接。"""
+    binary_results = bool(payload.pop(BINARY_RESULTS_KEY, False))
+    stream_progress = bool(payload.pop(STREAM_PROGRESS_KEY, False))
+    priority = payload.pop(PRIORITY_KEY, None)
+    try:
+        start_time = time.time()
+        loop = asyncio.get_running_loop()
+        progress = create_progress_sender(websocket, loop, request_id) if stream_progress else ignore_progress
+        if "batch" in payload:
+            # 批量请求整体占用一次推理线程，逐条耗时已在 analyze_batch 内填充。
+            result = await inference_gate.run_in_executor(
+                priority, inference_executor, analyze_batch, payload, progress)
+            result["request_id"] = request_id
+            await send_result(websocket, result, binary_results)
+            return
+        result = await inference_gate.run_in_executor(
+            priority, inference_executor, analyze_request, payload, progress)
+        if "error" not in result:
+            result["analysis_duration"] = round((time.time() - start_time) * 1000, 2)
+            result["device"] = torch.cuda.get_device_name(cuda_index)
+        result["request_id"] = request_id
+        await send_result(websocket, result, binary_results)
+    except asyncio.CancelledError:
+        # 被 Java 端取消的请求不再回包；已开始的推理跑完后闸门才放行下一个请求。
+        print(f"Request cancelled: {request_id}")
+        raise
+    except websockets.exceptions.ConnectionClosed:
+        return
+    except Exception as exc:
+        await websocket.send(json.dumps({"error": str(exc), "request_id": request_id}))
+    finally:
+        # 二进制上传落盘的临时文件只服务于本次请求。
+        if upload is not None:
+            upload.cleanup()
+
+
 async def handle_connection(websocket: websockets.WebSocketServerProtocol) -> None:
-    """处理 Java 后端发来的健康检查或推理请求。"""
+    """处理 Java 后端发来的健康检查、推理或取消请求。"""
     print(f"New connection from {websocket.remote_address}")
+    # 同一连接上的推理以独立任务运行，读循环可以继续接收 cancel 消息。
+    pending_tasks: dict[object, asyncio.Task] = {}
+    # 二进制传输模式下正在接收文件内容的请求；Java 端保证同一连接上的上传不会交错。
+    current_upload: PendingUpload | None = None
+
+    def start_task(task_payload: dict[str, object], task_request_id: object, upload: PendingUpload | None) -> None:
+        task = asyncio.create_task(run_inference_request(websocket, task_payload, task_request_id, upload))
+        if task_request_id is not None:
+            pending_tasks[task_request_id] = task
+            task.add_done_callback(lambda _task, key=task_request_id: pending_tasks.pop(key, None))
+
     try:
         async for message in websocket:
+            if isinstance(message, bytes):
+                if current_upload is None:
+                    print("Ignored binary frame without pending upload")
+                    continue
+                current_upload.write(message)
+                if current_upload.complete:
+                    upload, current_upload = current_upload, None
+                    if upload.cancelled:
+                        upload.cleanup()
+                    else:
+                        start_task(upload.resolve_payload(), upload.payload.get("request_id"), upload)
+                continue
+
             payload = json.loads(message)
+            # Java 端连接池按 request_id 关联响应，所有回包都原样带回。
+            request_id = payload.get("request_id")
+
+            if payload.get("cancel"):
+                task = pending_tasks.pop(request_id, None)
+                if task is not None:
+                    task.cancel()
+                elif current_upload is not None and current_upload.payload.get("request_id") == request_id:
+                    # 上传尚未结束的请求被取消时，收完剩余分块后直接丢弃。
+                    current_upload.cancelled = True
+                continue
 
             if payload.get("health_check"):
-                # 健康检查只把三条真实模型链路纳入“模型已加载”语义。
-                real_models = {
-                    "hemorrhage": hemorrhage_model is not None,
-                    "head": head_qc_model is not None,
-                    "chest-non-contrast": chest_qc_model is not None,
-                }
-                mock_capabilities = {
-                    "chest-contrast": True,
-                    "coronary-cta": True,
-                }
-                await websocket.send(
-                    json.dumps(
-                        {
-                            "status": "ok",
-                            # 统一服务仅以三条真实链路是否全部可用作为整体健康信号。
-                            "model_loaded": all(real_models.values()),
-                            "device": torch.cuda.get_device_name(cuda_index),
-                            # 为兼容旧排查脚本，models 字段仍保留，但 mock 链路明确标记为 false。
-                            "models": {
-                                **real_models,
-                                "chest-contrast": False,
-                                "coronary-cta": False,
-                            },
-                            "realModels": real_models,
-                            "mockCapabilities": mock_capabilities,
-                        }
-                    )
-                )
+                await websocket.send(json.dumps(build_health_payload(request_id)))
+                continue
+
+            if payload.get(UPLOAD_KEY):
+                current_upload = PendingUpload(payload)
+                if current_upload.complete:
+                    upload, current_upload = current_upload, None
+                    start_task(upload.resolve_payload(), request_id, upload)
                 continue
 
-            try:
-                start_time = time.time()
-                result = analyze_request(payload)
-                if "error" not in result:
-                    result["analysis_duration"] = round((time.time() - start_time) * 1000, 2)
-                    result["device"] = torch.cuda.get_device_name(cuda_index)
-                await websocket.send(json.dumps(result, ensure_ascii=False))
-            except Exception as exc:
-                await websocket.send(json.dumps({"error": str(exc)}))
+            start_task(payload, request_id, None)
     except websockets.exceptions.ConnectionClosed:
         print("Connection closed")
+    finally:
+        # 连接断开后 Java 端已无法接收结果，剩余请求全部取消。
+        for task in list(pending_tasks.values()):
+            task.cancel()
+        if current_upload is not None:
+            current_upload.cleanup()
 
 
 async def main() -> None:
     """启动统一推理 WebSocket 服务。"""
     load_models()
-    async with websockets.serve(handle_connection, "localhost", 8765):
-        print("Unified WebSocket inference server started on ws://localhost:8765")
+    # Java 端按连续端口拉起多个 worker 时通过环境变量指定监听地址，单实例默认仍为 localhost:8765。
+    host = os.environ.get("MODEL_SERVER_HOST", "localhost")
+    port = int(os.environ.get("MODEL_SERVER_PORT", "8765"))
+    async with websockets.serve(handle_connection, host, port):
+        print(f"Unified WebSocket inference server started on ws://{host}:{port}")
         await asyncio.Future()
 
 
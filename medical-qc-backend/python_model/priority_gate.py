@@ -0,0 +1,133 @@
+"""
+推理优先级闸门。
+
+推理执行器只有一个工作线程，直接 run_in_executor 时请求按到达顺序排队，
+批量重跑的积压会让医生同步等待的请求排在最后。闸门放在执行器前面：
+同一时刻只放行一个请求进入执行器，其余请求按严格优先级等待，同级按到达顺序；
+等待超过饥饿阈值的请求不论优先级优先放行。
+
+这里不做加权公平：Java 端的加权公平队列已经按权重决定了各优先级请求的发送节奏，
+到达本服务的请求数受其并发许可约束，闸门只负责让已到达的高优先级请求先进入执行器。
+
+许可保持到执行器中的调用真正结束。请求被取消时已经开始的推理无法中断，
+若提前归还许可，后续请求会在执行器内部按到达顺序排队，绕过优先级。
+"""
+
+from __future__ import annotations
+
+import asyncio
+import itertools
+import time
+from concurrent.futures import Executor
+from typing import Callable, TypeVar
+
+PRIORITY_KEY = "priority"
+# 数值越小越先放行，未知优先级按 normal 处理。
+PRIORITY_RANKS = {"interactive": 0, "normal": 1, "bulk": 2}
+DEFAULT_PRIORITY = "normal"
+
+T = TypeVar("T")
+
+
+def normalize_priority(value: object) -> str:
+    """把请求里的优先级字段规范为已知取值。"""
+    text = str(value).strip().lower() if value is not None else ""
+    return text if text in PRIORITY_RANKS else DEFAULT_PRIORITY
+
+
+class _Waiter:
+    __slots__ = ("priority", "sequence", "enqueued_at", "future")
+
+    def __init__(self, priority: str, sequence: int, future: asyncio.Future) -> None:
+        self.priority = priority
+        self.sequence = sequence
+        self.enqueued_at = time.monotonic()
+        self.future = future
+
+
+class PriorityGate:
+    """单许可的优先级闸门，只在事件循环线程内使用。"""
+
+    def __init__(self, starvation_threshold_seconds: float = 10.0) -> None:
+        self.starvation_threshold_seconds = starvation_threshold_seconds
+        self._busy = False
+        self._waiters: list[_Waiter] = []
+        self._sequence = itertools.count()
+        self.granted = {priority: 0 for priority in PRIORITY_RANKS}
+        self.promoted = 0
+
+    @property
+    def queue_depth(self) -> int:
+        return len(self._waiters)
+
+    async def run_in_executor(
+        self,
+        priority: object,
+        executor: Executor,
+        func: Callable[..., T],
+        *args: object,
+    ) -> T:
+        """轮到当前请求后把 func 提交到执行器，执行器中的调用结束时才放行下一个。"""
+        await self._acquire(priority)
+        loop = asyncio.get_running_loop()
+        try:
+            future = executor.submit(func, *args)
+        except BaseException:
+            self._release()
+            raise
+
+        def release_on_loop(_: object) -> None:
+            try:
+                loop.call_soon_threadsafe(self._release)
+            except RuntimeError:
+                # 事件循环已关闭，服务正在退出。
+                pass
+
+        # 取消只会撤销尚未开始的调用；已开始的调用跑完后由回调归还许可。
+        future.add_done_callback(release_on_loop)
+        return await asyncio.wrap_future(future)
+
+    async def _acquire(self, priority: object) -> None:
+        """等待轮到当前请求。"""
+        normalized = normalize_priority(priority)
+        if not self._busy and not self._waiters:
+            self._busy = True
+            self.granted[normalized] += 1
+            return
+        waiter = _Waiter(normalized, next(self._sequence), asyncio.get_running_loop().create_future())
+        self._waiters.append(waiter)
+        try:
+            await waiter.future
+        except asyncio.CancelledError:
+            if waiter in self._waiters:
+                self._waiters.remove(waiter)
+            elif waiter.future.done() and not waiter.future.cancelled():
+                # 许可已经交给本请求但请求随即被取消，直接转交下一个。
+                self._release()
+            raise
+
+    def _release(self) -> None:
+        while self._waiters:
+            waiter = self._select_next()
+            self._waiters.remove(waiter)
+            if waiter.future.done():
+                # 已取消的等待者跳过。
+                continue
+            self.granted[waiter.priority] += 1
+            waiter.future.set_result(None)
+            return
+        self._busy = False
+
+    def _select_next(self) -> _Waiter:
+        now = time.monotonic()
+        starving = [
+            waiter for waiter in self._waiters
+            if now - waiter.enqueued_at >= self.starvation_threshold_seconds
+        ]
+        by_priority = min(self._waiters, key=lambda waiter: (PRIORITY_RANKS[waiter.priority], waiter.sequence))
+        if starving:
+            oldest = min(starving, key=lambda waiter: waiter.sequence)
+            if oldest is not by_priority:
+                self.promoted += 1
+            return oldest
+        return by_priority
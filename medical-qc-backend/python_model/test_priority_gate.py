@@ -0,0 +1,83 @@
+"""
+推理优先级闸门测试。
+
+校验按优先级放行，以及被取消的请求在执行器中跑完之前不会放行后续请求。
+运行：python -m unittest test_priority_gate
+"""
+
+from __future__ import annotations
+
+import asyncio
+import threading
+import unittest
+from concurrent.futures import ThreadPoolExecutor
+
+from priority_gate import PriorityGate
+
+
+class PriorityGateTest(unittest.IsolatedAsyncioTestCase):
+    def setUp(self) -> None:
+        self.executor = ThreadPoolExecutor(max_workers=1)
+        self.gate = PriorityGate(starvation_threshold_seconds=60.0)
+        self.order: list[str] = []
+
+    def tearDown(self) -> None:
+        self.executor.shutdown(wait=True)
+
+    def record(self, name: str) -> str:
+        self.order.append(name)
+        return name
+
+    async def test_interactive_request_should_run_before_queued_bulk_request(self) -> None:
+        started = threading.Event()
+        unblock = threading.Event()
+
+        def blocker() -> str:
+            started.set()
+            unblock.wait(5)
+            return self.record("running")
+
+        running = asyncio.create_task(self.gate.run_in_executor("bulk", self.executor, blocker))
+        await asyncio.to_thread(started.wait, 5)
+        bulk = asyncio.create_task(self.gate.run_in_executor("bulk", self.executor, self.record, "bulk"))
+        interactive = asyncio.create_task(
+            self.gate.run_in_executor("interactive", self.executor, self.record, "interactive"))
+        await asyncio.sleep(0)
+        unblock.set()
+
+        await asyncio.gather(running, bulk, interactive)
+        self.assertEqual(["running", "interactive", "bulk"], self.order)
+
+    async def test_cancelled_running_request_should_hold_gate_until_executor_finishes(self) -> None:
+        started = threading.Event()
+        unblock = threading.Event()
+
+        def blocker() -> str:
+            started.set()
+            unblock.wait(5)
+            return self.record("cancelled")
+
+        running = asyncio.create_task(self.gate.run_in_executor("bulk", self.executor, blocker))
+        await asyncio.to_thread(started.wait, 5)
+        bulk = asyncio.create_task(self.gate.run_in_executor("bulk", self.executor, self.record, "bulk"))
+        await asyncio.sleep(0)
+
+        # Java 端取消正在推理的请求：执行器里的调用仍在运行，闸门不能放行排队中的 bulk 请求。
+        running.cancel()
+        with self.assertRaises(asyncio.CancelledError):
+            await running
+        await asyncio.sleep(0.05)
+        self.assertEqual(1, self.gate.queue_depth)
+
+        interactive = asyncio.create_task(
+            self.gate.run_in_executor("interactive", self.executor, self.record, "interactive"))
+        await asyncio.sleep(0)
+        unblock.set()
+
+        await asyncio.gather(bulk, interactive)
+        self.assertEqual(["cancelled", "interactive", "bulk"], self.order)
+        self.assertEqual(0, self.gate.queue_depth)
+
+
+if __name__ == "__main__":
+    unittest.main()
@@ -3,6 +3,7 @@ package com.medical.qc.common.exception;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -72,6 +73,17 @@ public class GlobalExceptionHandler {
                 .body(Collections.singletonMap("detail", e.getMessage()));
     }
 
+    /**
+     * 处理限流与积压超限异常，通过 Retry-After 告知客户端何时重试。
+     */
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<Map<String, String>> handleTooManyRequestsException(TooManyRequestsException e) {
+        logger.warn("Too many requests: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(Collections.singletonMap("detail", e.getMessage()));
+    }
+
     /**
      * 处理参数非法异常。
      */
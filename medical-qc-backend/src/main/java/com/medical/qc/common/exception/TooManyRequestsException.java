@@ -0,0 +1,18 @@
+package com.medical.qc.common.exception;
+
+/**
+ * 请求过于频繁异常。
+ * 用于统一表达“请求超出限流或积压上限，需要稍后重试”的场景，携带建议的重试等待秒数。
+ */
+public class TooManyRequestsException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = Math.max(1L, retryAfterSeconds);
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
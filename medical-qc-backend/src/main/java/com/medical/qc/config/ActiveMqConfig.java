@@ -1,7 +1,9 @@
 package com.medical.qc.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.activemq.RedeliveryPolicy;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jms.activemq.ActiveMQConnectionFactoryCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.jms.annotation.EnableJms;
@@ -26,5 +28,26 @@ public class ActiveMqConfig {
         converter.setObjectMapper(objectMapper);
         return converter;
     }
+
+    @Bean
+    public ActiveMQConnectionFactoryCustomizer redeliveryPolicyCustomizer(ActiveMqProperties activeMqProperties) {
+        // 消费失败回滚的消息按退避重新投递，默认不限次数，避免任务消息进入死信队列后任务永远停在 PENDING。
+        return connectionFactory -> connectionFactory.setRedeliveryPolicy(
+                createRedeliveryPolicy(activeMqProperties.getRedelivery()));
+    }
+
+    static RedeliveryPolicy createRedeliveryPolicy(ActiveMqProperties.RedeliveryProperties properties) {
+        RedeliveryPolicy redeliveryPolicy = new RedeliveryPolicy();
+        long initialDelayMs = Math.max(0L, properties.getInitialDelayMs());
+        redeliveryPolicy.setInitialRedeliveryDelay(initialDelayMs);
+        redeliveryPolicy.setRedeliveryDelay(initialDelayMs);
+        redeliveryPolicy.setUseExponentialBackOff(properties.getBackOffMultiplier() > 1.0D);
+        redeliveryPolicy.setBackOffMultiplier(Math.max(1.0D, properties.getBackOffMultiplier()));
+        redeliveryPolicy.setMaximumRedeliveryDelay(Math.max(initialDelayMs, properties.getMaxDelayMs()));
+        redeliveryPolicy.setMaximumRedeliveries(properties.getMaxRedeliveries() < 0
+                ? RedeliveryPolicy.NO_MAXIMUM_REDELIVERIES
+                : properties.getMaxRedeliveries());
+        return redeliveryPolicy;
+    }
 }
 
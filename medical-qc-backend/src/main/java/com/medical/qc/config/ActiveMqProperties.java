@@ -3,6 +3,9 @@ package com.medical.qc.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * ActiveMQ 业务配置。
  */
@@ -19,6 +22,12 @@ public class ActiveMqProperties {
     private long startupTimeoutMs = 60000L;
     // 各业务消息主题/队列名称。
     private final QueueProperties queue = new QueueProperties();
+    // 质控任务消费者并发与预取配置。
+    private final ConsumerProperties consumer = new ConsumerProperties();
+    // 任务投递 outbox 中继配置。
+    private final OutboxProperties outbox = new OutboxProperties();
+    // 消费失败回滚后的重新投递配置。
+    private final RedeliveryProperties redelivery = new RedeliveryProperties();
 
     // 以下访问器供配置绑定和生命周期管理器读取。
     public boolean isEnabled() {
@@ -57,6 +66,18 @@ public class ActiveMqProperties {
         return queue;
     }
 
+    public ConsumerProperties getConsumer() {
+        return consumer;
+    }
+
+    public OutboxProperties getOutbox() {
+        return outbox;
+    }
+
+    public RedeliveryProperties getRedelivery() {
+        return redelivery;
+    }
+
     /**
      * 队列名称配置。
      */
@@ -83,5 +104,154 @@ public class ActiveMqProperties {
             this.mockQualityTask = mockQualityTask;
         }
     }
-}
 
+    /**
+     * 质控任务消费者配置。
+     *
+     * <p>任务类型在 {@link #concurrency} 中单独配置时，按 {@code taskType} 消息头选择器拥有独立的消费者组；
+     * 未单独配置的任务类型共用默认消费者组。并发写作 {@code 最小-最大}，监听容器在积压时扩容、空闲时回落。</p>
+     */
+    public static class ConsumerProperties {
+        // 未单独配置的任务类型共用的并发。
+        private String defaultConcurrency = "1-2";
+        // 按任务类型配置的并发，例如 head=4-8、coronary-cta=2-4。
+        private Map<String, String> concurrency = new LinkedHashMap<>();
+        // 每个消费者的预取条数；取 1 让积压消息留在 broker，由新扩出的消费者分摊。
+        private int prefetch = 1;
+        // 消费者连续空闲多少次接收后回收，用于积压消失后缩容。
+        private int idleTaskExecutionLimit = 5;
+
+        // 以下访问器供配置绑定和监听容器注册读取。
+        public String getDefaultConcurrency() {
+            return defaultConcurrency;
+        }
+
+        public void setDefaultConcurrency(String defaultConcurrency) {
+            this.defaultConcurrency = defaultConcurrency;
+        }
+
+        public Map<String, String> getConcurrency() {
+            return concurrency;
+        }
+
+        public void setConcurrency(Map<String, String> concurrency) {
+            this.concurrency = concurrency;
+        }
+
+        public int getPrefetch() {
+            return prefetch;
+        }
+
+        public void setPrefetch(int prefetch) {
+            this.prefetch = prefetch;
+        }
+
+        public int getIdleTaskExecutionLimit() {
+            return idleTaskExecutionLimit;
+        }
+
+        public void setIdleTaskExecutionLimit(int idleTaskExecutionLimit) {
+            this.idleTaskExecutionLimit = idleTaskExecutionLimit;
+        }
+    }
+
+    /**
+     * 任务投递 outbox 中继配置。
+     *
+     * <p>任务提交时只在数据库写 outbox 记录，由中继线程批量投递到 broker；投递失败的记录保留重试，
+     * 超过 {@link #localFallbackAfterMs} 仍未投递成功时转交本地执行引擎。</p>
+     */
+    public static class OutboxProperties {
+        // 中继轮询间隔；提交事务完成后也会立即唤醒一次。
+        private long pollIntervalMs = 1000L;
+        // 每轮最多投递的记录数。
+        private int batchSize = 100;
+        // 记录写入后超过该时长仍未投递成功，改由本地执行引擎处理。
+        private long localFallbackAfterMs = 5000L;
+        // 已投递记录的保留时长，超过后清理。
+        private long retentionHours = 24L;
+
+        // 以下访问器供配置绑定和 outbox 中继读取。
+        public long getPollIntervalMs() {
+            return pollIntervalMs;
+        }
+
+        public void setPollIntervalMs(long pollIntervalMs) {
+            this.pollIntervalMs = pollIntervalMs;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public long getLocalFallbackAfterMs() {
+            return localFallbackAfterMs;
+        }
+
+        public void setLocalFallbackAfterMs(long localFallbackAfterMs) {
+            this.localFallbackAfterMs = localFallbackAfterMs;
+        }
+
+        public long getRetentionHours() {
+            return retentionHours;
+        }
+
+        public void setRetentionHours(long retentionHours) {
+            this.retentionHours = retentionHours;
+        }
+    }
+
+    /**
+     * 重新投递配置。
+     *
+     * <p>监听方法抛出异常（如流水线准入超时）时事务会话回滚，消息按指数退避重新投递。
+     * 默认不限次数：broker 默认的 6 次上限会把消息转入死信队列，而任务仍停留在 PENDING，恢复扫描不会再处理。</p>
+     */
+    public static class RedeliveryProperties {
+        // 首次重新投递前的等待时长。
+        private long initialDelayMs = 1000L;
+        // 每次重新投递后等待时长的倍数。
+        private double backOffMultiplier = 2.0D;
+        // 等待时长上限。
+        private long maxDelayMs = 60_000L;
+        // 最大重新投递次数，-1 表示不限。
+        private int maxRedeliveries = -1;
+
+        // 以下访问器供配置绑定和连接工厂定制读取。
+        public long getInitialDelayMs() {
+            return initialDelayMs;
+        }
+
+        public void setInitialDelayMs(long initialDelayMs) {
+            this.initialDelayMs = initialDelayMs;
+        }
+
+        public double getBackOffMultiplier() {
+            return backOffMultiplier;
+        }
+
+        public void setBackOffMultiplier(double backOffMultiplier) {
+            this.backOffMultiplier = backOffMultiplier;
+        }
+
+        public long getMaxDelayMs() {
+            return maxDelayMs;
+        }
+
+        public void setMaxDelayMs(long maxDelayMs) {
+            this.maxDelayMs = maxDelayMs;
+        }
+
+        public int getMaxRedeliveries() {
+            return maxRedeliveries;
+        }
+
+        public void setMaxRedeliveries(int maxRedeliveries) {
+            this.maxRedeliveries = maxRedeliveries;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.medical.qc.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * PACS 批量质控作业配置。
+ *
+ * <p>作业按检查日期范围分块扫描 PACS 缓存表并创建质控任务；每轮派发量受模型服务容量约束，
+ * 未完成任务数达到上限时暂停派发，作业断点随任务同事务推进，节点重启后从断点继续。</p>
+ */
+@Component
+@ConfigurationProperties(prefix = "app.batch-qc")
+public class BatchQcJobProperties {
+    // 是否启用批量质控作业调度。
+    private boolean enabled = true;
+    // 调度间隔，每轮最多推进一块检查。
+    private long scanIntervalMs = 5000L;
+    // 每块从 PACS 缓存表读取的检查数上限。
+    private int chunkSize = 50;
+    // 模型服务每个并发推理名额对应的未完成任务数，保留少量排队避免模型服务空闲。
+    private int outstandingPerInferenceSlot = 2;
+    // 未完成（PENDING / PROCESSING）任务总数上限；模型服务未给出容量时直接使用该值。
+    private int maxOutstandingTasks = 32;
+    // 作业执行租约时长；节点失联超过该时长后作业可由其他节点接管。
+    private long leaseMs = 60_000L;
+    // 单个用户可查看的作业列表长度上限。
+    private int listLimit = 50;
+
+    // 以下访问器供配置绑定和批量作业调度器读取。
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getScanIntervalMs() {
+        return scanIntervalMs;
+    }
+
+    public void setScanIntervalMs(long scanIntervalMs) {
+        this.scanIntervalMs = scanIntervalMs;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public int getOutstandingPerInferenceSlot() {
+        return outstandingPerInferenceSlot;
+    }
+
+    public void setOutstandingPerInferenceSlot(int outstandingPerInferenceSlot) {
+        this.outstandingPerInferenceSlot = outstandingPerInferenceSlot;
+    }
+
+    public int getMaxOutstandingTasks() {
+        return maxOutstandingTasks;
+    }
+
+    public void setMaxOutstandingTasks(int maxOutstandingTasks) {
+        this.maxOutstandingTasks = maxOutstandingTasks;
+    }
+
+    public long getLeaseMs() {
+        return leaseMs;
+    }
+
+    public void setLeaseMs(long leaseMs) {
+        this.leaseMs = leaseMs;
+    }
+
+    public int getListLimit() {
+        return listLimit;
+    }
+
+    public void setListLimit(int listLimit) {
+        this.listLimit = listLimit;
+    }
+}
@@ -0,0 +1,33 @@
+package com.medical.qc.config;
+
+import java.net.URI;
+
+/**
+ * 本机模型服务进程的启动、探活与回收操作。
+ *
+ * <p>由 {@link PythonModelRunner} 实现，{@link PythonModelSupervisor} 只负责决定何时切换和重启。</p>
+ */
+interface ModelServerProcessControl {
+
+    /**
+     * 在指定地址拉起模型服务进程。
+     *
+     * @return 新进程；地址上已有健康实例或启动失败时返回 null
+     */
+    Process start(URI serverUri);
+
+    /**
+     * 单次健康检查，要求模型已加载完成。
+     */
+    boolean isHealthy(URI serverUri);
+
+    /**
+     * 轮询等待模型服务通过健康检查。
+     */
+    boolean awaitReady(URI serverUri, long timeoutMs);
+
+    /**
+     * 回收进程及其子进程。
+     */
+    void stop(Process process);
+}
@@ -1,6 +1,7 @@
 package com.medical.qc.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medical.qc.shared.ai.ModelServerProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.DisposableBean;
@@ -16,6 +17,7 @@ import java.io.InputStreamReader;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -30,31 +32,41 @@ import java.util.regex.Pattern;
  *
  * 作用:
  * - 在后端启动时按配置自动启动 python_model/inference_server.py
+ * - 配置多个本机模型服务地址（urls 或 workers）时，每个端口各拉起一个 worker 进程
  * - 在后端停止时尽最大努力回收 Python 进程及其子进程，避免端口占用导致 Connection refused
+ * - 启用 python.model_server.supervisor 时，把本机实例交给 {@link PythonModelSupervisor} 做热备切换与退避重启
  *
  * 配置:
  * - python.model.autostart: 是否自动启动模型服务
+ * - python.model_server.url / urls / workers: 需要托管的模型服务地址，非本机地址不自动启动
  */
-public class PythonModelRunner implements CommandLineRunner, DisposableBean {
+public class PythonModelRunner implements CommandLineRunner, DisposableBean, ModelServerProcessControl {
 
     private static final Logger logger = LoggerFactory.getLogger(PythonModelRunner.class);
     private static final String MODEL_SERVER_SCRIPT = "inference_server.py";
     // 用于从 netstat 输出中解析监听端口对应的 PID。
     private static final Pattern NETSTAT_PID_PATTERN = Pattern.compile("(\\d+)\\s*$");
-    // 当前由后端托管的 Python 模型进程句柄。
-    private Process pythonProcess;
+    // 当前由后端托管的 Python 模型进程句柄，每个端口一个。
+    private final List<Process> pythonProcesses = new ArrayList<>();
     // 健康检查 JSON 的读写都通过 Jackson 完成。
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     @Value("${python.model.autostart:true}")
     private boolean autoStart;
 
-    @Value("${python.model_server.url:ws://localhost:8765}")
-    private String modelServerUrl;
+    // 模型服务地址统一从配置类解析，与 AI 网关的路由列表保持一致。
+    private final ModelServerProperties modelServerProperties;
+    // 本机实例的热备切换与失败重启。
+    private final PythonModelSupervisor modelSupervisor;
 
     @Value("${python.executable:}")
     private String pythonExecutable;
 
+    public PythonModelRunner(ModelServerProperties modelServerProperties, PythonModelSupervisor modelSupervisor) {
+        this.modelServerProperties = modelServerProperties;
+        this.modelSupervisor = modelSupervisor;
+    }
+
     /**
      * Spring Boot 启动完成后回调。
      *
@@ -68,24 +80,97 @@ public class PythonModelRunner implements CommandLineRunner, DisposableBean {
             return;
         }
 
-        URI serverUri;
+        List<URI> serverUris = new ArrayList<>();
         try {
-            serverUri = new URI(modelServerUrl);
+            for (String endpointUrl : modelServerProperties.resolveEndpointUrls()) {
+                serverUris.add(new URI(endpointUrl));
+            }
         } catch (Exception e) {
-            logger.error("Invalid python.model_server.url: {}", modelServerUrl, e);
+            logger.error("Invalid python.model_server.url: {}", modelServerProperties.getUrl(), e);
             return;
         }
 
+        // 先逐个拉起进程，再统一等待就绪，多个 worker 的模型加载可以并行进行。
+        Map<URI, Process> startedProcesses = new LinkedHashMap<>();
+        for (URI serverUri : serverUris) {
+            Process process = startModelServerIfNeeded(serverUri);
+            if (process != null) {
+                startedProcesses.put(serverUri, process);
+            }
+        }
+
+        startedProcesses.forEach((serverUri, process) -> {
+            // 启动成功后持续轮询健康检查，直到模型真正 ready。
+            if (!waitForWebSocketReady(serverUri, 120_000, 1_000)) {
+                logger.error("Python Model Server did not become ready on {} within timeout.", serverUri);
+                try {
+                    process.destroyForcibly();
+                } catch (Exception ignore) {
+                }
+            }
+        });
+
+        if (modelSupervisor.isEnabled()) {
+            // 复用的已有实例没有进程句柄，失效时由 startModelServerIfNeeded 按端口清理后重启。
+            Map<URI, Process> supervisedProcesses = new LinkedHashMap<>();
+            for (URI serverUri : serverUris) {
+                if (isLocalHost(serverUri.getHost() == null ? "localhost" : serverUri.getHost())) {
+                    supervisedProcesses.put(serverUri, startedProcesses.get(serverUri));
+                }
+            }
+            modelSupervisor.start(this, supervisedProcesses);
+        }
+    }
+
+    @Override
+    public Process start(URI serverUri) {
+        return startModelServerIfNeeded(serverUri);
+    }
+
+    @Override
+    public boolean isHealthy(URI serverUri) {
+        return isWebSocketHealthy(serverUri, 2);
+    }
+
+    @Override
+    public boolean awaitReady(URI serverUri, long timeoutMs) {
+        return waitForWebSocketReady(serverUri, timeoutMs, 1_000);
+    }
+
+    @Override
+    public void stop(Process process) {
+        synchronized (pythonProcesses) {
+            pythonProcesses.remove(process);
+        }
+        try {
+            stopProcess(process);
+        } catch (Exception e) {
+            logger.warn("Failed to stop Python Model Server PID={}", process.pid(), e);
+        }
+    }
+
+    /**
+     * 检查单个模型服务地址，必要时清理旧进程并拉起新的 worker。
+     *
+     * @param serverUri 模型服务地址
+     * @return 新拉起的进程；已健康、非本机地址或启动失败时返回 null
+     */
+    private Process startModelServerIfNeeded(URI serverUri) {
         String host = serverUri.getHost() == null ? "localhost" : serverUri.getHost();
         int port = serverUri.getPort();
         if (port <= 0) {
             port = "wss".equalsIgnoreCase(serverUri.getScheme()) ? 443 : 80;
         }
 
+        if (!isLocalHost(host)) {
+            logger.info("Python Model Server {} is not on this host, skip autostart.", serverUri);
+            return null;
+        }
+
         // 若模型服务已健康可用，直接复用，不重复拉起新进程。
         if (isWebSocketHealthy(serverUri, 2)) {
             logger.info("Python Model Server is already listening on {}:{}, skip autostart.", host, port);
-            return;
+            return null;
         }
 
         logger.info("Detected unhealthy Python Model Server on {}:{}, attempting cleanup and restart.", host, port);
@@ -94,17 +179,17 @@ public class PythonModelRunner implements CommandLineRunner, DisposableBean {
         // 清理后再次探活，若旧进程已恢复则不再重复启动。
         if (isWebSocketHealthy(serverUri, 2)) {
             logger.info("Python Model Server recovered before autostart on {}:{}, skip creating a new process.", host, port);
-            return;
+            return null;
         }
 
         List<Long> listeningProcessIds = findListeningProcessIds(port);
         if (!listeningProcessIds.isEmpty()) {
             logger.warn("Port {} is still occupied by PID(s) {} after cleanup, skip Python Model Server autostart.",
                     port, listeningProcessIds);
-            return;
+            return null;
         }
 
-        logger.info("Starting Python Model Server...");
+        logger.info("Starting Python Model Server on port {}...", port);
 
         // Determine the location of the python_model directory
         // Check current directory and subdirectories
@@ -121,7 +206,7 @@ public class PythonModelRunner implements CommandLineRunner, DisposableBean {
 
         if (!scriptDir.exists() || !scriptDir.isDirectory()) {
             logger.error("Python model directory not found. Searched in: {} and subdirectories.", projectDir);
-            return;
+            return null;
         }
 
         logger.info("Found Python model directory at: {}", scriptDir.getAbsolutePath());
@@ -134,17 +219,24 @@ public class PythonModelRunner implements CommandLineRunner, DisposableBean {
         pb.redirectErrorStream(true); // Merge stderr into stdout
         Map<String, String> env = pb.environment();
         env.putIfAbsent("PYTHONUNBUFFERED", "1");
+        // 监听地址通过环境变量传给 inference_server.py，多个 worker 各占一个端口。
+        env.put("MODEL_SERVER_HOST", host);
+        env.put("MODEL_SERVER_PORT", String.valueOf(port));
 
         try {
-            pythonProcess = pb.start();
+            Process pythonProcess = pb.start();
+            synchronized (pythonProcesses) {
+                pythonProcesses.add(pythonProcess);
+            }
 
             // 独立线程持续消费 Python 输出，避免缓冲区写满导致进程阻塞。
+            int workerPort = port;
             Thread outputReader = new Thread(() -> {
                 try (BufferedReader reader = new BufferedReader(
                         new InputStreamReader(pythonProcess.getInputStream()))) {
                     String line;
                     while ((line = reader.readLine()) != null) {
-                        logger.info("[Python Model]: {}", line);
+                        logger.info("[Python Model:{}]: {}", workerPort, line);
                     }
                 } catch (Exception e) {
                     // Process likely ended
@@ -153,19 +245,11 @@ public class PythonModelRunner implements CommandLineRunner, DisposableBean {
             outputReader.setDaemon(true);
             outputReader.start();
 
-            logger.info("Python Model Server process started with PID: {}", pythonProcess.pid());
-
-            // 启动成功后持续轮询健康检查，直到模型真正 ready。
-            if (!waitForWebSocketReady(serverUri, 120_000, 1_000)) {
-                logger.error("Python Model Server did not become ready on {}:{} within timeout.", host, port);
-                try {
-                    pythonProcess.destroyForcibly();
-                } catch (Exception ignore) {
-                }
-            }
-
+            logger.info("Python Model Server process started on port {} with PID: {}", port, pythonProcess.pid());
+            return pythonProcess;
         } catch (Exception e) {
-            logger.error("Failed to start Python Model Server", e);
+            logger.error("Failed to start Python Model Server on port {}", port, e);
+            return null;
         }
     }
 
@@ -176,8 +260,27 @@ public class PythonModelRunner implements CommandLineRunner, DisposableBean {
      */
     @Override
     public void destroy() throws Exception {
-        if (pythonProcess != null && pythonProcess.isAlive()) {
-            logger.info("Stopping Python Model Server...");
+        // 先停止监督，避免把正常回收误判为故障再次拉起。
+        modelSupervisor.stop();
+        List<Process> processes;
+        synchronized (pythonProcesses) {
+            processes = new ArrayList<>(pythonProcesses);
+            pythonProcesses.clear();
+        }
+        for (Process pythonProcess : processes) {
+            stopProcess(pythonProcess);
+        }
+    }
+
+    /**
+     * 回收单个托管的 Python 模型进程及其子进程。
+     *
+     * @param pythonProcess 进程句柄
+     * @throws Exception 进程销毁等待时可能抛出
+     */
+    private void stopProcess(Process pythonProcess) throws Exception {
+        if (pythonProcess.isAlive()) {
+            logger.info("Stopping Python Model Server PID={}...", pythonProcess.pid());
 
             // 先清理子进程，避免 Python 派生出的 worker 残留占端口。
             pythonProcess.descendants().forEach(ph -> {
@@ -194,7 +297,7 @@ public class PythonModelRunner implements CommandLineRunner, DisposableBean {
                 pythonProcess.destroyForcibly();
             }
             logger.info("Python Model Server stopped.");
-        } else if (pythonProcess != null) {
+        } else {
             // Even if the main process is dead, descendants might be alive
             pythonProcess.descendants().forEach(ph -> {
                 logger.info("Cleaning up orphaned descendant process: {}", ph.pid());
@@ -395,6 +498,18 @@ public class PythonModelRunner implements CommandLineRunner, DisposableBean {
         return pidList;
     }
 
+    /**
+     * 只有本机地址才由后端托管进程，远程实例由其所在主机自行启动。
+     */
+    private boolean isLocalHost(String host) {
+        String normalizedHost = host.toLowerCase(Locale.ROOT);
+        return "localhost".equals(normalizedHost)
+                || "127.0.0.1".equals(normalizedHost)
+                || "0.0.0.0".equals(normalizedHost)
+                || "[::1]".equals(normalizedHost)
+                || "::1".equals(normalizedHost);
+    }
+
     private String resolvePythonExecutable(String projectDir) {
         if (pythonExecutable != null && !pythonExecutable.isBlank()) {
             return pythonExecutable;
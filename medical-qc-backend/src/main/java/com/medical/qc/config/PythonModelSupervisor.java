@@ -0,0 +1,354 @@
+package com.medical.qc.config;
+
+import com.medical.qc.shared.ai.ModelServerProperties;
+import com.medical.qc.shared.ai.ModelServerRouteTable;
+import com.medical.qc.shared.metrics.RuntimeMetricsSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本机模型服务进程监督器。
+ *
+ * <p>启用后额外保持一个模型已预加载的热备进程，并周期性检查主实例与热备实例：</p>
+ * <ul>
+ *     <li>主实例连续健康检查失败时，通过 {@link ModelServerRouteTable} 把该逻辑地址的流量原子切换到热备实例，
+ *     不再等待整套模型重新加载</li>
+ *     <li>失效进程在后台按指数退避重启，就绪后成为新的热备实例</li>
+ *     <li>没有可用热备时原地重启失效实例，期间由负载均衡摘除与熔断器兜底</li>
+ * </ul>
+ * <p>切换耗时（从首次检查失败到路由切换完成）与重启耗时（从拉起进程到模型就绪）计入运行指标。</p>
+ */
+@Component
+public class PythonModelSupervisor implements RuntimeMetricsSource, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(PythonModelSupervisor.class);
+
+    private final ModelServerProperties.SupervisorProperties supervisorProperties;
+    private final ModelServerRouteTable routeTable;
+    // 以下状态都在 this 锁内读写：逻辑地址 -> 当前承载流量的进程槽位，以及当前热备槽位。
+    private final Map<URI, Slot> activeSlots = new LinkedHashMap<>();
+    private Slot standbySlot;
+    private ModelServerProcessControl processControl;
+    private ScheduledExecutorService healthScheduler;
+    // 重启会阻塞到模型加载完成，放在独立线程上执行，不影响健康检查节奏。
+    private ExecutorService restartExecutor;
+    private volatile boolean running;
+    // 切换与重启指标。
+    private final AtomicLong failovers = new AtomicLong();
+    private final AtomicLong lastFailoverMs = new AtomicLong();
+    private final AtomicLong maxFailoverMs = new AtomicLong();
+    private final AtomicLong restarts = new AtomicLong();
+    private final AtomicLong restartFailures = new AtomicLong();
+    private final AtomicLong lastRestartMs = new AtomicLong();
+    private final AtomicLong totalRestartMs = new AtomicLong();
+
+    public PythonModelSupervisor(ModelServerProperties modelServerProperties, ModelServerRouteTable routeTable) {
+        this.supervisorProperties = modelServerProperties.getSupervisor();
+        this.routeTable = routeTable;
+    }
+
+    public boolean isEnabled() {
+        return supervisorProperties.isEnabled();
+    }
+
+    /**
+     * 开始监督已就绪的主实例，并在后台拉起热备实例。
+     *
+     * @param control 进程操作
+     * @param primaryProcesses 逻辑地址与对应进程；复用已有实例时进程为 null
+     */
+    synchronized void start(ModelServerProcessControl control, Map<URI, Process> primaryProcesses) {
+        if (running || primaryProcesses.isEmpty()) {
+            return;
+        }
+        this.processControl = control;
+        primaryProcesses.forEach((logicalUri, process) ->
+                activeSlots.put(logicalUri, new Slot(logicalUri, process, SlotState.ACTIVE)));
+
+        healthScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "model-server-supervisor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        restartExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "model-server-restart");
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+
+        URI standbyUri = resolveStandbyUri();
+        if (standbyUri != null) {
+            standbySlot = new Slot(standbyUri, null, SlotState.RESTARTING);
+            scheduleRestart(standbySlot, SlotState.STANDBY);
+        }
+        long intervalMs = Math.max(100L, supervisorProperties.getHealthCheckIntervalMs());
+        healthScheduler.scheduleWithFixedDelay(this::checkHealth, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        logger.info("Python Model Server supervisor started, primaries={}, standby={}",
+                primaryProcesses.keySet(), standbyUri == null ? "none" : standbyUri);
+    }
+
+    /**
+     * 停止监督；应用关闭时先于进程回收调用，避免把正常退出当作故障重启。
+     */
+    public void stop() {
+        ExecutorService scheduler;
+        ExecutorService restarter;
+        synchronized (this) {
+            running = false;
+            scheduler = healthScheduler;
+            restarter = restartExecutor;
+        }
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (restarter != null) {
+            restarter.shutdownNow();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        stop();
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "modelServerSupervisor";
+    }
+
+    @Override
+    public synchronized Map<String, Object> getMetricsSnapshot() {
+        List<Map<String, Object>> slotMetrics = new ArrayList<>();
+        activeSlots.forEach((logicalUri, slot) -> {
+            Map<String, Object> metrics = slot.toMetrics();
+            metrics.put("logicalEndpoint", logicalUri.toString());
+            slotMetrics.add(metrics);
+        });
+
+        long restartCount = restarts.get();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", supervisorProperties.isEnabled());
+        metrics.put("running", running);
+        metrics.put("active", slotMetrics);
+        metrics.put("standby", standbySlot == null ? null : standbySlot.toMetrics());
+        metrics.put("routes", routeTable.snapshot());
+        metrics.put("failovers", failovers.get());
+        metrics.put("lastFailoverMs", lastFailoverMs.get());
+        metrics.put("maxFailoverMs", maxFailoverMs.get());
+        metrics.put("restarts", restartCount);
+        metrics.put("restartFailures", restartFailures.get());
+        metrics.put("lastRestartMs", lastRestartMs.get());
+        metrics.put("averageRestartMs", restartCount == 0 ? 0L : totalRestartMs.get() / restartCount);
+        return metrics;
+    }
+
+    /**
+     * 逐个检查主实例与热备实例，连续失败达到阈值时切换或重启。
+     */
+    private void checkHealth() {
+        if (!running) {
+            return;
+        }
+        Map<URI, Slot> slots;
+        Slot standby;
+        synchronized (this) {
+            slots = new LinkedHashMap<>(activeSlots);
+            standby = standbySlot;
+        }
+        slots.forEach((logicalUri, slot) -> {
+            if (slot.state == SlotState.ACTIVE && recordProbe(slot)) {
+                handleActiveFailure(logicalUri, slot);
+            }
+        });
+        if (standby != null && standby.state == SlotState.STANDBY && recordProbe(standby)) {
+            logger.warn("Standby Python Model Server {} failed health checks, restarting.", standby.uri);
+            synchronized (this) {
+                standby.state = SlotState.RESTARTING;
+            }
+            scheduleRestart(standby, SlotState.STANDBY);
+        }
+    }
+
+    /**
+     * 执行一次探活并更新连续失败计数。
+     *
+     * @return true 表示已达到失效阈值
+     */
+    private boolean recordProbe(Slot slot) {
+        if (processControl.isHealthy(slot.uri)) {
+            slot.consecutiveFailures = 0;
+            slot.firstFailureAtNanos = 0L;
+            return false;
+        }
+        if (slot.consecutiveFailures++ == 0) {
+            slot.firstFailureAtNanos = System.nanoTime();
+        }
+        return slot.consecutiveFailures >= Math.max(1, supervisorProperties.getFailureThreshold());
+    }
+
+    /**
+     * 主实例失效：有热备时先切流量再后台重启，失效进程就绪后成为新的热备；否则原地重启。
+     */
+    private void handleActiveFailure(URI logicalUri, Slot failedSlot) {
+        Slot promotedSlot = null;
+        synchronized (this) {
+            if (!running || activeSlots.get(logicalUri) != failedSlot) {
+                return;
+            }
+            failedSlot.state = SlotState.RESTARTING;
+            if (standbySlot != null && standbySlot.state == SlotState.STANDBY) {
+                promotedSlot = standbySlot;
+                promotedSlot.state = SlotState.ACTIVE;
+                activeSlots.put(logicalUri, promotedSlot);
+                standbySlot = failedSlot;
+            }
+        }
+
+        if (promotedSlot != null) {
+            routeTable.switchRoute(logicalUri, promotedSlot.uri);
+            long failoverMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - failedSlot.firstFailureAtNanos);
+            failovers.incrementAndGet();
+            lastFailoverMs.set(failoverMs);
+            maxFailoverMs.accumulateAndGet(failoverMs, Math::max);
+            logger.warn("Python Model Server {} failed health checks, traffic for {} switched to standby {} in {} ms.",
+                    failedSlot.uri, logicalUri, promotedSlot.uri, failoverMs);
+            scheduleRestart(failedSlot, SlotState.STANDBY);
+            return;
+        }
+
+        logger.warn("Python Model Server {} failed health checks and no standby is ready, restarting in place.",
+                failedSlot.uri);
+        scheduleRestart(failedSlot, SlotState.ACTIVE);
+    }
+
+    private void scheduleRestart(Slot slot, SlotState readyState) {
+        try {
+            restartExecutor.execute(() -> restart(slot, readyState));
+        } catch (RejectedExecutionException ignore) {
+            // 监督器已停止。
+        }
+    }
+
+    /**
+     * 回收旧进程并重新拉起，失败时按指数退避重试，直到就绪或监督器停止。
+     */
+    private void restart(Slot slot, SlotState readyState) {
+        Process previousProcess = slot.process;
+        if (previousProcess != null) {
+            processControl.stop(previousProcess);
+            slot.process = null;
+        }
+
+        int attempt = 0;
+        while (running) {
+            long startedAt = System.nanoTime();
+            Process process = processControl.start(slot.uri);
+            // 地址上已有健康实例时不会返回新进程，探活通过即可直接复用。
+            if (processControl.awaitReady(slot.uri, Math.max(1L, supervisorProperties.getReadyTimeoutMs()))) {
+                long restartMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+                restarts.incrementAndGet();
+                lastRestartMs.set(restartMs);
+                totalRestartMs.addAndGet(restartMs);
+                synchronized (this) {
+                    slot.process = process;
+                    slot.consecutiveFailures = 0;
+                    slot.firstFailureAtNanos = 0L;
+                    slot.state = running ? readyState : SlotState.STOPPED;
+                }
+                logger.info("Python Model Server {} is ready as {} after {} ms.", slot.uri, readyState, restartMs);
+                return;
+            }
+
+            restartFailures.incrementAndGet();
+            if (process != null) {
+                processControl.stop(process);
+            }
+            long backoffMs = backoffMs(attempt++);
+            logger.warn("Python Model Server {} did not become ready, retrying in {} ms.", slot.uri, backoffMs);
+            try {
+                Thread.sleep(backoffMs);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private long backoffMs(int attempt) {
+        long initialMs = Math.max(1L, supervisorProperties.getRestartInitialBackoffMs());
+        long maxMs = Math.max(initialMs, supervisorProperties.getRestartMaxBackoffMs());
+        return Math.min(maxMs, initialMs << Math.min(attempt, 20));
+    }
+
+    /**
+     * 解析热备地址；未配置或与主实例重复时不启用热备。
+     */
+    private URI resolveStandbyUri() {
+        String standbyUrl = supervisorProperties.getStandbyUrl();
+        if (standbyUrl == null || standbyUrl.isBlank()) {
+            return null;
+        }
+        try {
+            URI standbyUri = new URI(standbyUrl.trim());
+            if (activeSlots.containsKey(standbyUri)) {
+                logger.warn("python.model_server.supervisor.standby-url {} duplicates a primary endpoint, standby disabled.",
+                        standbyUri);
+                return null;
+            }
+            return standbyUri;
+        } catch (Exception exception) {
+            logger.warn("Invalid python.model_server.supervisor.standby-url: {}", standbyUrl, exception);
+            return null;
+        }
+    }
+
+    private enum SlotState {
+        ACTIVE,
+        STANDBY,
+        RESTARTING,
+        STOPPED
+    }
+
+    /**
+     * 一个本机模型服务端口及其进程；主备切换后槽位在“承载流量”和“热备”之间轮换。
+     */
+    private static final class Slot {
+        private final URI uri;
+        private volatile Process process;
+        private volatile SlotState state;
+        // 由健康检查线程累计，重启线程在实例就绪后清零。
+        private volatile int consecutiveFailures;
+        private volatile long firstFailureAtNanos;
+
+        private Slot(URI uri, Process process, SlotState state) {
+            this.uri = uri;
+            this.process = process;
+            this.state = state;
+        }
+
+        private Map<String, Object> toMetrics() {
+            Process currentProcess = process;
+            Map<String, Object> metrics = new LinkedHashMap<>();
+            metrics.put("endpoint", uri.toString());
+            metrics.put("state", state.name());
+            metrics.put("pid", currentProcess == null ? null : currentProcess.pid());
+            metrics.put("consecutiveFailures", consecutiveFailures);
+            return metrics;
+        }
+    }
+}
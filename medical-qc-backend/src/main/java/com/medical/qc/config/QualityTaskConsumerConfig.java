@@ -0,0 +1,223 @@
+package com.medical.qc.config;
+
+import com.medical.qc.messaging.MockQualityTaskConsumer;
+import com.medical.qc.messaging.MockQualityTaskMessage;
+import com.medical.qc.shared.metrics.RuntimeMetricsSource;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jms.DefaultJmsListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jms.annotation.JmsListenerConfigurer;
+import org.springframework.jms.config.DefaultJmsListenerContainerFactory;
+import org.springframework.jms.config.JmsListenerEndpointRegistrar;
+import org.springframework.jms.config.JmsListenerEndpointRegistry;
+import org.springframework.jms.config.SimpleJmsListenerEndpoint;
+import org.springframework.jms.listener.DefaultMessageListenerContainer;
+import org.springframework.jms.listener.MessageListenerContainer;
+import org.springframework.jms.support.JmsUtils;
+import org.springframework.jms.support.converter.MessageConverter;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+
+/**
+ * 质控任务消费者注册。
+ *
+ * <p>生产端在消息头 {@code taskType} 写入任务类型；这里为 {@code app.messaging.activemq.consumer.concurrency}
+ * 中配置的每个任务类型注册一个带选择器的监听端点，其余任务类型由默认端点兜底。
+ * 各端点的监听容器按 {@code 最小-最大} 并发在积压时扩出消费者、空闲后回收，预取条数通过目标地址参数下发给 broker。</p>
+ *
+ * <p>监听方法把任务交给异步流水线后即返回，监听并发本身限制不了在途任务数；
+ * 每个端点另有一组与最大并发相同的在途名额，任务进入终态后才归还，名额耗尽时监听线程停止取消息。</p>
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "app.messaging.activemq", name = "enabled", havingValue = "true")
+public class QualityTaskConsumerConfig implements JmsListenerConfigurer, RuntimeMetricsSource {
+    static final String ENDPOINT_ID_PREFIX = "qc-mock-quality-task-";
+    static final String DEFAULT_GROUP = "default";
+    // 每个消费者任务最多接收的次数；有限值才能让空闲消费者结束任务并被回收。
+    private static final int MAX_MESSAGES_PER_TASK = 10;
+
+    private final ActiveMqProperties activeMqProperties;
+    private final ObjectProvider<ConnectionFactory> connectionFactoryProvider;
+    private final ObjectProvider<DefaultJmsListenerContainerFactoryConfigurer> factoryConfigurerProvider;
+    private final ObjectProvider<JmsListenerEndpointRegistry> endpointRegistryProvider;
+    private final ObjectProvider<MessageConverter> messageConverterProvider;
+    private final ObjectProvider<MockQualityTaskConsumer> consumerProvider;
+    // 各端点的在途名额，键为端点 ID。
+    private final Map<String, Semaphore> inFlightPermits = new ConcurrentHashMap<>();
+
+    public QualityTaskConsumerConfig(ActiveMqProperties activeMqProperties,
+                                     ObjectProvider<ConnectionFactory> connectionFactoryProvider,
+                                     ObjectProvider<DefaultJmsListenerContainerFactoryConfigurer> factoryConfigurerProvider,
+                                     ObjectProvider<JmsListenerEndpointRegistry> endpointRegistryProvider,
+                                     ObjectProvider<MessageConverter> messageConverterProvider,
+                                     ObjectProvider<MockQualityTaskConsumer> consumerProvider) {
+        this.activeMqProperties = activeMqProperties;
+        this.connectionFactoryProvider = connectionFactoryProvider;
+        this.factoryConfigurerProvider = factoryConfigurerProvider;
+        this.endpointRegistryProvider = endpointRegistryProvider;
+        this.messageConverterProvider = messageConverterProvider;
+        this.consumerProvider = consumerProvider;
+    }
+
+    @Override
+    public void configureJmsListeners(JmsListenerEndpointRegistrar registrar) {
+        ConnectionFactory connectionFactory = connectionFactoryProvider.getIfAvailable();
+        MockQualityTaskConsumer consumer = consumerProvider.getIfAvailable();
+        MessageConverter messageConverter = messageConverterProvider.getIfAvailable();
+        if (connectionFactory == null || consumer == null || messageConverter == null) {
+            return;
+        }
+
+        DefaultJmsListenerContainerFactory containerFactory = createContainerFactory(connectionFactory);
+        for (SimpleJmsListenerEndpoint endpoint : buildEndpoints(activeMqProperties)) {
+            Semaphore permits = inFlightPermits.computeIfAbsent(
+                    endpoint.getId(),
+                    id -> new Semaphore(maxConcurrency(endpoint.getConcurrency())));
+            endpoint.setMessageListener(message -> {
+                try {
+                    consumer.consume((MockQualityTaskMessage) messageConverter.fromMessage(message), permits);
+                } catch (JMSException exception) {
+                    throw JmsUtils.convertJmsAccessException(exception);
+                }
+            });
+            registrar.registerEndpoint(endpoint, containerFactory);
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "qualityTaskConsumers";
+    }
+
+    @Override
+    public Map<String, Object> getMetricsSnapshot() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        JmsListenerEndpointRegistry registry = endpointRegistryProvider.getIfAvailable();
+        if (registry == null) {
+            return metrics;
+        }
+        for (SimpleJmsListenerEndpoint endpoint : buildEndpoints(activeMqProperties)) {
+            MessageListenerContainer container = registry.getListenerContainer(endpoint.getId());
+            if (!(container instanceof DefaultMessageListenerContainer listenerContainer)) {
+                continue;
+            }
+            Map<String, Object> groupMetrics = new LinkedHashMap<>();
+            groupMetrics.put("concurrency", endpoint.getConcurrency());
+            groupMetrics.put("running", listenerContainer.isRunning());
+            groupMetrics.put("activeConsumers", listenerContainer.getActiveConsumerCount());
+            groupMetrics.put("scheduledConsumers", listenerContainer.getScheduledConsumerCount());
+            groupMetrics.put("maxConsumers", listenerContainer.getMaxConcurrentConsumers());
+            Semaphore permits = inFlightPermits.get(endpoint.getId());
+            if (permits != null) {
+                groupMetrics.put("inFlight", maxConcurrency(endpoint.getConcurrency()) - permits.availablePermits());
+            }
+            metrics.put(endpoint.getId().substring(ENDPOINT_ID_PREFIX.length()), groupMetrics);
+        }
+        return metrics;
+    }
+
+    /**
+     * 按配置生成监听端点：每个单独配置的任务类型一个端点，最后是兜底端点。
+     */
+    static List<SimpleJmsListenerEndpoint> buildEndpoints(ActiveMqProperties properties) {
+        ActiveMqProperties.ConsumerProperties consumerProperties = properties.getConsumer();
+        String destination = properties.getQueue().getMockQualityTask()
+                + "?consumer.prefetchSize=" + Math.max(0, consumerProperties.getPrefetch());
+
+        Map<String, String> taskTypeConcurrency = new LinkedHashMap<>();
+        consumerProperties.getConcurrency().forEach((taskType, concurrency) -> {
+            if (StringUtils.hasText(taskType) && StringUtils.hasText(concurrency)) {
+                taskTypeConcurrency.put(taskType.trim(), concurrency.trim());
+            }
+        });
+
+        List<SimpleJmsListenerEndpoint> endpoints = new ArrayList<>();
+        taskTypeConcurrency.forEach((taskType, concurrency) -> endpoints.add(createEndpoint(
+                taskType,
+                destination,
+                MockQualityTaskMessage.TASK_TYPE_HEADER + " = " + quote(taskType),
+                concurrency)));
+
+        // 兜底端点接收未单独配置的任务类型，以及未带任务类型消息头的历史消息。
+        String defaultSelector = taskTypeConcurrency.isEmpty()
+                ? null
+                : MockQualityTaskMessage.TASK_TYPE_HEADER + " IS NULL OR "
+                + MockQualityTaskMessage.TASK_TYPE_HEADER + " NOT IN ("
+                + taskTypeConcurrency.keySet().stream()
+                        .map(QualityTaskConsumerConfig::quote)
+                        .collect(Collectors.joining(", "))
+                + ")";
+        endpoints.add(createEndpoint(
+                DEFAULT_GROUP,
+                destination,
+                defaultSelector,
+                StringUtils.hasText(consumerProperties.getDefaultConcurrency())
+                        ? consumerProperties.getDefaultConcurrency().trim()
+                        : "1"));
+        return endpoints;
+    }
+
+    /**
+     * 解析 {@code 最小-最大} 或单值并发配置中的最大并发，作为端点的在途任务上限。
+     */
+    static int maxConcurrency(String concurrency) {
+        if (!StringUtils.hasText(concurrency)) {
+            return 1;
+        }
+        String value = concurrency.trim();
+        int separatorIndex = value.indexOf('-');
+        try {
+            return Math.max(1, Integer.parseInt(separatorIndex < 0 ? value : value.substring(separatorIndex + 1).trim()));
+        } catch (NumberFormatException exception) {
+            return 1;
+        }
+    }
+
+    private DefaultJmsListenerContainerFactory createContainerFactory(ConnectionFactory connectionFactory) {
+        int idleTaskExecutionLimit = Math.max(1, activeMqProperties.getConsumer().getIdleTaskExecutionLimit());
+        DefaultJmsListenerContainerFactory containerFactory = new DefaultJmsListenerContainerFactory() {
+            @Override
+            protected void initializeContainer(DefaultMessageListenerContainer container) {
+                super.initializeContainer(container);
+                container.setIdleTaskExecutionLimit(idleTaskExecutionLimit);
+            }
+        };
+        DefaultJmsListenerContainerFactoryConfigurer factoryConfigurer = factoryConfigurerProvider.getIfAvailable();
+        if (factoryConfigurer != null) {
+            // 沿用 spring.jms.listener.* 配置，其中 auto-startup=false 由 ActiveMqRunner 在 broker 就绪后统一启动。
+            factoryConfigurer.configure(containerFactory, connectionFactory);
+        } else {
+            containerFactory.setConnectionFactory(connectionFactory);
+        }
+        containerFactory.setMaxMessagesPerTask(MAX_MESSAGES_PER_TASK);
+        // 事务会话：监听方法抛出异常（如流水线准入超时）时消息回滚并由 broker 重新投递。
+        containerFactory.setSessionTransacted(true);
+        return containerFactory;
+    }
+
+    private static SimpleJmsListenerEndpoint createEndpoint(String group,
+                                                            String destination,
+                                                            String selector,
+                                                            String concurrency) {
+        SimpleJmsListenerEndpoint endpoint = new SimpleJmsListenerEndpoint();
+        endpoint.setId(ENDPOINT_ID_PREFIX + group);
+        endpoint.setDestination(destination);
+        endpoint.setSelector(selector);
+        endpoint.setConcurrency(concurrency);
+        return endpoint;
+    }
+
+    private static String quote(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+}
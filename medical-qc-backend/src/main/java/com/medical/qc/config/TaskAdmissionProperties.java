@@ -0,0 +1,146 @@
+package com.medical.qc.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 质控任务准入控制配置。
+ *
+ * <p>提交任务前依次检查 PENDING 积压上限和令牌桶限流，令牌桶分提交人、任务类型和全局三个维度；
+ * 容量或补充速率不大于 0 的维度不做限制。</p>
+ */
+@Component
+@ConfigurationProperties(prefix = "app.task-admission")
+public class TaskAdmissionProperties {
+    // 是否启用任务准入控制。
+    private boolean enabled = true;
+    // 是否通过 Redis 在多实例之间共享令牌桶；关闭或 Redis 不可用时按本节点限流。
+    private boolean redisEnabled = false;
+    // 单个提交人的令牌桶容量，即允许的突发提交数。
+    private int userCapacity = 20;
+    // 单个提交人每分钟补充的令牌数。
+    private int userRefillPerMinute = 20;
+    // 单个任务类型的令牌桶容量。
+    private int taskTypeCapacity = 200;
+    // 单个任务类型每分钟补充的令牌数。
+    private int taskTypeRefillPerMinute = 200;
+    // 全局令牌桶容量。
+    private int globalCapacity = 500;
+    // 全局每分钟补充的令牌数。
+    private int globalRefillPerMinute = 500;
+    // 全局 PENDING 任务积压上限，不大于 0 时不限制。
+    private long maxPendingTasks = 2000L;
+    // 单个提交人 PENDING 任务积压上限，不大于 0 时不限制。
+    private long maxPendingPerUser = 50L;
+    // 全局积压数的本地缓存时长，避免每次提交都统计一次。
+    private long pendingCountCacheMs = 2000L;
+    // 积压超限时建议客户端等待的秒数。
+    private long backlogRetryAfterSeconds = 30L;
+    // 本节点令牌桶最多保留的数量，超出后按 LRU 淘汰。
+    private int maxLocalBuckets = 10000;
+
+    // 以下访问器供配置绑定和准入控制读取。
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isRedisEnabled() {
+        return redisEnabled;
+    }
+
+    public void setRedisEnabled(boolean redisEnabled) {
+        this.redisEnabled = redisEnabled;
+    }
+
+    public int getUserCapacity() {
+        return userCapacity;
+    }
+
+    public void setUserCapacity(int userCapacity) {
+        this.userCapacity = userCapacity;
+    }
+
+    public int getUserRefillPerMinute() {
+        return userRefillPerMinute;
+    }
+
+    public void setUserRefillPerMinute(int userRefillPerMinute) {
+        this.userRefillPerMinute = userRefillPerMinute;
+    }
+
+    public int getTaskTypeCapacity() {
+        return taskTypeCapacity;
+    }
+
+    public void setTaskTypeCapacity(int taskTypeCapacity) {
+        this.taskTypeCapacity = taskTypeCapacity;
+    }
+
+    public int getTaskTypeRefillPerMinute() {
+        return taskTypeRefillPerMinute;
+    }
+
+    public void setTaskTypeRefillPerMinute(int taskTypeRefillPerMinute) {
+        this.taskTypeRefillPerMinute = taskTypeRefillPerMinute;
+    }
+
+    public int getGlobalCapacity() {
+        return globalCapacity;
+    }
+
+    public void setGlobalCapacity(int globalCapacity) {
+        this.globalCapacity = globalCapacity;
+    }
+
+    public int getGlobalRefillPerMinute() {
+        return globalRefillPerMinute;
+    }
+
+    public void setGlobalRefillPerMinute(int globalRefillPerMinute) {
+        this.globalRefillPerMinute = globalRefillPerMinute;
+    }
+
+    public long getMaxPendingTasks() {
+        return maxPendingTasks;
+    }
+
+    public void setMaxPendingTasks(long maxPendingTasks) {
+        this.maxPendingTasks = maxPendingTasks;
+    }
+
+    public long getMaxPendingPerUser() {
+        return maxPendingPerUser;
+    }
+
+    public void setMaxPendingPerUser(long maxPendingPerUser) {
+        this.maxPendingPerUser = maxPendingPerUser;
+    }
+
+    public long getPendingCountCacheMs() {
+        return pendingCountCacheMs;
+    }
+
+    public void setPendingCountCacheMs(long pendingCountCacheMs) {
+        this.pendingCountCacheMs = pendingCountCacheMs;
+    }
+
+    public long getBacklogRetryAfterSeconds() {
+        return backlogRetryAfterSeconds;
+    }
+
+    public void setBacklogRetryAfterSeconds(long backlogRetryAfterSeconds) {
+        this.backlogRetryAfterSeconds = backlogRetryAfterSeconds;
+    }
+
+    public int getMaxLocalBuckets() {
+        return maxLocalBuckets;
+    }
+
+    public void setMaxLocalBuckets(int maxLocalBuckets) {
+        this.maxLocalBuckets = maxLocalBuckets;
+    }
+}
@@ -0,0 +1,82 @@
+package com.medical.qc.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 本地质控任务执行配置。
+ *
+ * <p>消息总线未接管任务时，任务交给本地执行引擎处理；这里约束引擎的线程数、排队上限、拒绝策略与停机行为。</p>
+ */
+@Component
+@ConfigurationProperties(prefix = "app.task-executor")
+public class TaskExecutorProperties {
+    // 把任务交给分阶段流水线的线程数；流水线已满时线程阻塞等待。
+    private int threads = 2;
+    // 排队任务上限，超出后按拒绝策略处理。
+    private int queueCapacity = 200;
+    // 拒绝策略：fail 直接把任务标记为失败；defer 延后重新入队。
+    private String rejectionPolicy = "defer";
+    // defer 策略下重新入队的间隔。
+    private long deferDelayMs = 5000L;
+    // 停机时等待排队与执行中任务完成的上限，超时未完成的任务 ID 写入续跑文件。
+    private long shutdownTimeoutMs = 30_000L;
+    // 未完成任务 ID 的续跑文件，下次启动时读取并重新入队。
+    private String journalPath = "runtime/unfinished-quality-tasks.txt";
+
+    // 以下访问器供配置绑定和执行引擎读取。
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public String getRejectionPolicy() {
+        return rejectionPolicy;
+    }
+
+    public void setRejectionPolicy(String rejectionPolicy) {
+        this.rejectionPolicy = rejectionPolicy;
+    }
+
+    public long getDeferDelayMs() {
+        return deferDelayMs;
+    }
+
+    public void setDeferDelayMs(long deferDelayMs) {
+        this.deferDelayMs = deferDelayMs;
+    }
+
+    public long getShutdownTimeoutMs() {
+        return shutdownTimeoutMs;
+    }
+
+    public void setShutdownTimeoutMs(long shutdownTimeoutMs) {
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+    }
+
+    public String getJournalPath() {
+        return journalPath;
+    }
+
+    public void setJournalPath(String journalPath) {
+        this.journalPath = journalPath;
+    }
+
+    /**
+     * 是否采用延后重新入队的拒绝策略。
+     */
+    public boolean isDeferOnReject() {
+        return !"fail".equalsIgnoreCase(rejectionPolicy == null ? "" : rejectionPolicy.trim());
+    }
+}
@@ -0,0 +1,56 @@
+package com.medical.qc.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 质控任务重复提交识别配置。
+ *
+ * <p>提交请求按 Idempotency-Key 请求头，或按检查号、任务类型、来源模式与上传文件内容摘要生成幂等键；
+ * 窗口期内的重复提交直接返回已有任务，不再存储文件、写库和推理。未启用 Redis 时只在本节点内识别。</p>
+ */
+@Component
+@ConfigurationProperties(prefix = "app.task-idempotency")
+public class TaskIdempotencyProperties {
+    // 是否启用重复提交识别。
+    private boolean enabled = true;
+    // 幂等键有效期，覆盖连续点击和网络重试的时间范围。
+    private long windowSeconds = 30L;
+    // 是否把幂等键写入 Redis，供多实例共享。
+    private boolean redisEnabled = false;
+    // 本节点内存中最多保留的幂等键条数。
+    private int maxLocalEntries = 10_000;
+
+    // 以下访问器供配置绑定和幂等索引读取。
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getWindowSeconds() {
+        return windowSeconds;
+    }
+
+    public void setWindowSeconds(long windowSeconds) {
+        this.windowSeconds = windowSeconds;
+    }
+
+    public boolean isRedisEnabled() {
+        return redisEnabled;
+    }
+
+    public void setRedisEnabled(boolean redisEnabled) {
+        this.redisEnabled = redisEnabled;
+    }
+
+    public int getMaxLocalEntries() {
+        return maxLocalEntries;
+    }
+
+    public void setMaxLocalEntries(int maxLocalEntries) {
+        this.maxLocalEntries = maxLocalEntries;
+    }
+}
@@ -0,0 +1,56 @@
+package com.medical.qc.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 质控任务分阶段流水线配置。
+ *
+ * <p>任务依次经过预处理、推理等待和结果落库三个阶段，预处理与落库各用独立线程池；
+ * 流水线中同时存在的任务数有上限，达到上限后提交方阻塞等待，形成背压。</p>
+ */
+@Component
+@ConfigurationProperties(prefix = "app.task-pipeline")
+public class TaskPipelineProperties {
+    // 流水线内同时存在的任务上限，覆盖预处理、推理等待和落库三个阶段。
+    private int maxInFlight = 32;
+    // 预处理阶段线程数，执行文件校验、影像解析与规则分析。
+    private int prepareThreads = 2;
+    // 落库阶段线程数，执行结果装配、任务落库与异常工单同步。
+    private int persistThreads = 4;
+    // 流水线已满时提交方最多等待的时长，超时后任务按失败处理。
+    private long admissionTimeoutMs = 60_000L;
+
+    // 以下访问器供配置绑定和流水线读取。
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    public int getPrepareThreads() {
+        return prepareThreads;
+    }
+
+    public void setPrepareThreads(int prepareThreads) {
+        this.prepareThreads = prepareThreads;
+    }
+
+    public int getPersistThreads() {
+        return persistThreads;
+    }
+
+    public void setPersistThreads(int persistThreads) {
+        this.persistThreads = persistThreads;
+    }
+
+    public long getAdmissionTimeoutMs() {
+        return admissionTimeoutMs;
+    }
+
+    public void setAdmissionTimeoutMs(long admissionTimeoutMs) {
+        this.admissionTimeoutMs = admissionTimeoutMs;
+    }
+}
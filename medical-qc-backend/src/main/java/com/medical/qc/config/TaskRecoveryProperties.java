@@ -0,0 +1,95 @@
+package com.medical.qc.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 质控任务租约与崩溃恢复配置。
+ *
+ * <p>执行节点为运行中的任务定期续租；恢复扫描器按批找出租约过期的 PENDING / PROCESSING 任务并重新派发。</p>
+ */
+@Component
+@ConfigurationProperties(prefix = "app.task-recovery")
+public class TaskRecoveryProperties {
+    // 是否启用租约续租与过期任务恢复。
+    private boolean enabled = true;
+    // 执行租约时长；节点失联超过该时长后任务视为过期。
+    private long leaseMs = 60_000L;
+    // 续租间隔，应明显小于租约时长。
+    private long heartbeatIntervalMs = 20_000L;
+    // 未登记租约的 PROCESSING 任务（开启租约前已开始执行），创建后超过该时长视为过期；PENDING 任务不按时间恢复。
+    private long unleasedTimeoutMs = 600_000L;
+    // 过期任务扫描间隔。
+    private long scanIntervalMs = 60_000L;
+    // 每批从数据库取出的过期任务数。
+    private int batchSize = 50;
+    // 单次扫描最多恢复的任务数，避免节点恢复后瞬间重派大量任务。
+    private int maxRecoveriesPerScan = 200;
+    // 单个任务最多被恢复重派的次数，超过后标记为失败。
+    private int maxAttempts = 3;
+
+    // 以下访问器供配置绑定和恢复扫描器读取。
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getLeaseMs() {
+        return leaseMs;
+    }
+
+    public void setLeaseMs(long leaseMs) {
+        this.leaseMs = leaseMs;
+    }
+
+    public long getHeartbeatIntervalMs() {
+        return heartbeatIntervalMs;
+    }
+
+    public void setHeartbeatIntervalMs(long heartbeatIntervalMs) {
+        this.heartbeatIntervalMs = heartbeatIntervalMs;
+    }
+
+    public long getUnleasedTimeoutMs() {
+        return unleasedTimeoutMs;
+    }
+
+    public void setUnleasedTimeoutMs(long unleasedTimeoutMs) {
+        this.unleasedTimeoutMs = unleasedTimeoutMs;
+    }
+
+    public long getScanIntervalMs() {
+        return scanIntervalMs;
+    }
+
+    public void setScanIntervalMs(long scanIntervalMs) {
+        this.scanIntervalMs = scanIntervalMs;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getMaxRecoveriesPerScan() {
+        return maxRecoveriesPerScan;
+    }
+
+    public void setMaxRecoveriesPerScan(int maxRecoveriesPerScan) {
+        this.maxRecoveriesPerScan = maxRecoveriesPerScan;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+}
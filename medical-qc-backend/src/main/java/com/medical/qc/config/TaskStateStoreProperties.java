@@ -0,0 +1,66 @@
+package com.medical.qc.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 质控任务运行期状态存储配置。
+ *
+ * <p>执行节点把任务状态与推理进度写入状态存储，任意节点的状态轮询直接读取，不再访问数据库。
+ * 未启用 Redis 时状态只保存在本节点内存中。</p>
+ */
+@Component
+@ConfigurationProperties(prefix = "app.task-state")
+public class TaskStateStoreProperties {
+    // 是否把任务状态同步到 Redis，供其他节点读取。
+    private boolean redisEnabled = false;
+    // 未进入终态的任务状态有效期。
+    private long activeTtlSeconds = 86_400L;
+    // 终态任务状态有效期，过期后轮询回退到数据库。
+    private long terminalTtlSeconds = 600L;
+    // 启用 Redis 时，本节点近端缓存的有效期；执行节点写入的状态始终以本地为准。
+    private long nearCacheTtlMs = 1_000L;
+    // 本节点内存中最多保留的任务状态条数。
+    private int maxLocalEntries = 10_000;
+
+    // 以下访问器供配置绑定和状态存储读取。
+    public boolean isRedisEnabled() {
+        return redisEnabled;
+    }
+
+    public void setRedisEnabled(boolean redisEnabled) {
+        this.redisEnabled = redisEnabled;
+    }
+
+    public long getActiveTtlSeconds() {
+        return activeTtlSeconds;
+    }
+
+    public void setActiveTtlSeconds(long activeTtlSeconds) {
+        this.activeTtlSeconds = activeTtlSeconds;
+    }
+
+    public long getTerminalTtlSeconds() {
+        return terminalTtlSeconds;
+    }
+
+    public void setTerminalTtlSeconds(long terminalTtlSeconds) {
+        this.terminalTtlSeconds = terminalTtlSeconds;
+    }
+
+    public long getNearCacheTtlMs() {
+        return nearCacheTtlMs;
+    }
+
+    public void setNearCacheTtlMs(long nearCacheTtlMs) {
+        this.nearCacheTtlMs = nearCacheTtlMs;
+    }
+
+    public int getMaxLocalEntries() {
+        return maxLocalEntries;
+    }
+
+    public void setMaxLocalEntries(int maxLocalEntries) {
+        this.maxLocalEntries = maxLocalEntries;
+    }
+}
@@ -0,0 +1,67 @@
+package com.medical.qc.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 体数据统计缓存配置。
+ *
+ * <p>规则分析按文件路径、大小与修改时间复用已计算的体数据统计，重跑和多次规则评估不再重复读取体素。
+ * 内存层按 LRU 保留有限条数；附属文件层把统计写在影像文件旁，服务重启后仍可命中。
+ * 统计模式默认按采样步长统计，切换为 exact 后由分层并行统计引擎统计全部体素。</p>
+ */
+@Component
+@ConfigurationProperties(prefix = "app.volume-stats-cache")
+public class VolumeStatsCacheProperties {
+    // 是否启用体数据统计缓存。
+    private boolean enabled = true;
+    // 内存中最多保留的体数据统计条数。
+    private int maxEntries = 512;
+    // 是否把统计写入影像文件旁的附属文件。
+    private boolean sidecarEnabled = true;
+    // 统计模式：sampled 按采样步长统计，exact 统计全部体素。
+    private String mode = "sampled";
+    // 采样统计读取 .nii.gz 时是否在影像旁建立 .gzidx 压缩索引；缓存使每个体数据只读一遍，默认关闭。
+    private boolean gzipIndexEnabled = false;
+
+    // 以下访问器供配置绑定和统计缓存读取。
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public boolean isSidecarEnabled() {
+        return sidecarEnabled;
+    }
+
+    public void setSidecarEnabled(boolean sidecarEnabled) {
+        this.sidecarEnabled = sidecarEnabled;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    public boolean isGzipIndexEnabled() {
+        return gzipIndexEnabled;
+    }
+
+    public void setGzipIndexEnabled(boolean gzipIndexEnabled) {
+        this.gzipIndexEnabled = gzipIndexEnabled;
+    }
+}
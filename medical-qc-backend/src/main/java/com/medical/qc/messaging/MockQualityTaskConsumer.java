@@ -2,11 +2,16 @@ package com.medical.qc.messaging;
 
 import com.medical.qc.modules.qctask.application.MockQualityTaskServiceImpl;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
-import org.springframework.jms.annotation.JmsListener;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
 /**
  * mock 质控异步任务消费者。
+ *
+ * <p>监听端点由 {@link com.medical.qc.config.QualityTaskConsumerConfig} 按任务类型注册，
+ * 每组端点的消息最终都交给 {@link #consume(MockQualityTaskMessage, Semaphore)}，并携带该组的在途名额。</p>
  */
 @Component
 @ConditionalOnProperty(prefix = "app.messaging.activemq", name = "enabled", havingValue = "true")
@@ -17,9 +22,29 @@ public class MockQualityTaskConsumer {
         this.mockQualityTaskService = mockQualityTaskService;
     }
 
-    @JmsListener(destination = "${app.messaging.activemq.queue.mock-quality-task}")
-    public void consume(MockQualityTaskMessage message) {
-        mockQualityTaskService.processTask(message);
+    /**
+     * 在任务类型的在途上限内消费一条消息。
+     *
+     * <p>任务交给流水线后监听线程即返回，但名额要到任务进入终态才归还，
+     * 因此同一任务类型同时在途的任务数不超过名额数；名额耗尽时监听线程在此阻塞，消息留在 broker 中。</p>
+     *
+     * @param inFlightPermits 该任务类型端点的在途名额
+     */
+    public void consume(MockQualityTaskMessage message, Semaphore inFlightPermits) {
+        try {
+            inFlightPermits.acquire();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待质控任务并发名额时被中断", exception);
+        }
+        CompletableFuture<Void> processingFuture;
+        try {
+            // 流水线已满时在此阻塞；等待超时抛出的拒绝异常使会话回滚，任务仍为 PENDING，消息由 broker 重新投递。
+            processingFuture = mockQualityTaskService.processTask(message);
+        } catch (RuntimeException exception) {
+            inFlightPermits.release();
+            throw exception;
+        }
+        processingFuture.whenComplete((ignored, error) -> inFlightPermits.release());
     }
 }
-
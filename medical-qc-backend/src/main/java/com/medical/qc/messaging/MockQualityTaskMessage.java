@@ -19,6 +19,8 @@ import java.util.Map;
 public class MockQualityTaskMessage implements Serializable {
     // 消息体序列化版本号。
     private static final long serialVersionUID = 1L;
+    // JMS 消息头：任务类型，消费者按该属性的选择器分组消费。
+    public static final String TASK_TYPE_HEADER = "taskType";
 
     // 统一任务 ID。
     private String taskId;
@@ -42,6 +44,8 @@ public class MockQualityTaskMessage implements Serializable {
     private Map<String, Object> metadata;
     // 提交时间。
     private LocalDateTime submittedAt;
+    // 推理优先级：interactive / normal / bulk，为空时按 normal 处理。
+    private String priority;
 
     // 无参构造供 JMS / Jackson 反序列化使用。
     public MockQualityTaskMessage() {
@@ -190,5 +194,12 @@ public class MockQualityTaskMessage implements Serializable {
     public void setSubmittedAt(LocalDateTime submittedAt) {
         this.submittedAt = submittedAt;
     }
-}
 
+    public String getPriority() {
+        return priority;
+    }
+
+    public void setPriority(String priority) {
+        this.priority = priority;
+    }
+}
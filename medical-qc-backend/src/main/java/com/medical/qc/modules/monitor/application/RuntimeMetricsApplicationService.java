@@ -0,0 +1,47 @@
+package com.medical.qc.modules.monitor.application;
+
+import com.medical.qc.shared.metrics.RuntimeMetricsSource;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 运行期指标汇总应用服务。
+ */
+@Service
+public class RuntimeMetricsApplicationService {
+    // 所有实现了指标接口的基础组件，由 Spring 自动收集。
+    private final List<RuntimeMetricsSource> metricsSources;
+
+    public RuntimeMetricsApplicationService(List<RuntimeMetricsSource> metricsSources) {
+        this.metricsSources = metricsSources;
+    }
+
+    /**
+     * 按分组名称汇总全部运行指标。
+     */
+    public Map<String, Object> getRuntimeMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metricsSources.stream()
+                .sorted(Comparator.comparing(RuntimeMetricsSource::getMetricsName))
+                .forEach(source -> metrics.put(source.getMetricsName(), source.getMetricsSnapshot()));
+        metrics.put("collectedAt", System.currentTimeMillis());
+        return metrics;
+    }
+
+    /**
+     * 查询单个分组的运行指标。
+     */
+    public Map<String, Object> getRuntimeMetrics(String metricsName) {
+        RuntimeMetricsSource source = metricsSources.stream()
+                .filter(item -> item.getMetricsName().equals(metricsName))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("运行指标分组不存在: " + metricsName));
+        Map<String, Object> metrics = new LinkedHashMap<>(source.getMetricsSnapshot());
+        metrics.put("collectedAt", System.currentTimeMillis());
+        return metrics;
+    }
+}
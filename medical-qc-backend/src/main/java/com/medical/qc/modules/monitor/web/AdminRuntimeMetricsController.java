@@ -0,0 +1,56 @@
+package com.medical.qc.modules.monitor.web;
+
+import com.medical.qc.modules.auth.persistence.entity.User;
+import com.medical.qc.modules.monitor.application.RuntimeMetricsApplicationService;
+import com.medical.qc.support.SessionUserSupport;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * 管理员运行指标控制器。
+ */
+@RestController
+@RequestMapping("/api/v1/admin/runtime-metrics")
+public class AdminRuntimeMetricsController {
+    // 应用服务负责汇总各基础组件的指标快照。
+    private final RuntimeMetricsApplicationService runtimeMetricsApplicationService;
+    // Session 辅助组件负责管理员权限校验。
+    private final SessionUserSupport sessionUserSupport;
+
+    public AdminRuntimeMetricsController(RuntimeMetricsApplicationService runtimeMetricsApplicationService,
+                                         SessionUserSupport sessionUserSupport) {
+        this.runtimeMetricsApplicationService = runtimeMetricsApplicationService;
+        this.sessionUserSupport = sessionUserSupport;
+    }
+
+    /**
+     * 查询运行期指标快照。
+     */
+    @GetMapping
+    public ResponseEntity<?> getRuntimeMetrics(HttpSession session) {
+        requireAdmin(session);
+        return ResponseEntity.ok(runtimeMetricsApplicationService.getRuntimeMetrics());
+    }
+
+    /**
+     * 查询单个分组的运行指标，例如 aiGateway 下的熔断器与并发限制状态。
+     */
+    @GetMapping("/{metricsName}")
+    public ResponseEntity<?> getRuntimeMetrics(@PathVariable String metricsName, HttpSession session) {
+        requireAdmin(session);
+        return ResponseEntity.ok(runtimeMetricsApplicationService.getRuntimeMetrics(metricsName));
+    }
+
+    /**
+     * 校验当前会话属于管理员。
+     */
+    private User requireAdmin(HttpSession session) {
+        User currentUser = sessionUserSupport.requireAuthenticatedUser(session);
+        sessionUserSupport.requireAdmin(currentUser);
+        return currentUser;
+    }
+}
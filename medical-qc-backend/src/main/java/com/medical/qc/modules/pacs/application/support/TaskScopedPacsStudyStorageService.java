@@ -73,6 +73,57 @@ public class TaskScopedPacsStudyStorageService {
         return jdbcTemplate.query(sql, pacsStudyRowMapper());
     }
 
+    /**
+     * 统计检查日期范围内的 PACS 缓存记录数，用于批量质控作业估算总量。
+     */
+    public long countStudiesInRange(String taskType, LocalDate startDate, LocalDate endDate) {
+        String tableName = tableSupport.resolvePacsTable(taskType);
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM ").append(tableName)
+                .append(" WHERE study_date >= ? AND study_date <= ?");
+        appendBatchFileFilter(sql, taskType);
+        Long count = jdbcTemplate.queryForObject(sql.toString(), Long.class, startDate, endDate);
+        return count == null ? 0L : count;
+    }
+
+    /**
+     * 按 (study_date, id) 顺序读取断点之后的一块 PACS 缓存记录，供批量质控作业分块扫描。
+     *
+     * @param afterStudyDate 断点检查日期；为空时从日期范围起点开始
+     * @param afterId 断点记录 ID，与 afterStudyDate 一起构成键集分页的游标
+     */
+    public List<PacsStudyCache> listStudiesAfter(String taskType,
+                                                 LocalDate startDate,
+                                                 LocalDate endDate,
+                                                 LocalDate afterStudyDate,
+                                                 Long afterId,
+                                                 int limit) {
+        String tableName = tableSupport.resolvePacsTable(taskType);
+        StringBuilder sql = new StringBuilder("SELECT * FROM ").append(tableName)
+                .append(" WHERE study_date >= ? AND study_date <= ?");
+        List<Object> params = new ArrayList<>();
+        params.add(startDate);
+        params.add(endDate);
+        if (afterStudyDate != null && afterId != null) {
+            sql.append(" AND (study_date > ? OR (study_date = ? AND id > ?))");
+            params.add(afterStudyDate);
+            params.add(afterStudyDate);
+            params.add(afterId);
+        }
+        appendBatchFileFilter(sql, taskType);
+        sql.append(" ORDER BY study_date ASC, id ASC LIMIT ?");
+        params.add(Math.max(1, limit));
+        return jdbcTemplate.query(sql.toString(), pacsStudyRowMapper(), params.toArray());
+    }
+
+    /**
+     * 头部平扫批量质控同样只处理 NIfTI 体数据。
+     */
+    private void appendBatchFileFilter(StringBuilder sql, String taskType) {
+        if ("head".equals(taskType)) {
+            sql.append(" AND (LOWER(image_file_path) LIKE '%.nii' OR LOWER(image_file_path) LIKE '%.nii.gz')");
+        }
+    }
+
     /**
      * 构建 PACS 行映射器。
      */
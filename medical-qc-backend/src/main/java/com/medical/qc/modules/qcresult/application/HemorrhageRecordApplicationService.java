@@ -8,6 +8,7 @@ import org.springframework.stereotype.Service;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 脑出血质控结果应用服务。
@@ -45,7 +46,7 @@ public class HemorrhageRecordApplicationService {
     /**
      * 执行脑出血检测。
      */
-    public Map<String, Object> analyzeHemorrhage(HemorrhageAnalysisCommand command) throws IOException {
+    public CompletableFuture<Map<String, Object>> analyzeHemorrhage(HemorrhageAnalysisCommand command) throws IOException {
         return qualityService.processHemorrhage(
                 command.file(),
                 command.user(),
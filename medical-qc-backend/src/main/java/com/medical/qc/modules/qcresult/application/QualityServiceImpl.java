@@ -13,14 +13,20 @@ import com.medical.qc.modules.unified.application.support.UnifiedHemorrhageWrite
 import com.medical.qc.shared.ai.AiGateway;
 import com.medical.qc.support.MockQualityAnalysisSupport;
 import com.medical.qc.support.RealInferenceResultValidator;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 脑出血检测服务实现。
@@ -28,7 +34,7 @@ import java.util.Map;
  * <p>统一使用新模型表承接写入与历史查询，对外继续保持原有接口返回结构。</p>
  */
 @Service
-public class QualityServiceImpl {
+public class QualityServiceImpl implements DisposableBean {
     // 异常工单同步调度器，用于把不合格脑出血记录送入异常汇总链路。
     private final HemorrhageIssueSyncDispatcher hemorrhageIssueSyncDispatcher;
     private final ObjectMapper objectMapper;
@@ -39,6 +45,8 @@ public class QualityServiceImpl {
     private final UnifiedHemorrhageWriteService unifiedHemorrhageWriteService;
     private final TaskScopedPatientInfoStorageService taskScopedPatientInfoStorageService;
     private final RealInferenceResultValidator realInferenceResultValidator;
+    // 推理完成后的结果装配与落库线程池，避免在模型服务网络线程上执行数据库操作。
+    private final ExecutorService completionExecutor = Executors.newFixedThreadPool(4);
 
     public QualityServiceImpl(HemorrhageIssueSyncDispatcher hemorrhageIssueSyncDispatcher,
                               ObjectMapper objectMapper,
@@ -84,16 +92,20 @@ public class QualityServiceImpl {
     /**
      * 执行脑出血检测完整链路。
      * 数据链路：输入预处理 -> AI 推理 -> 结果装配 -> 持久化 -> 异常工单同步 -> 响应前端。
+     *
+     * <p>预处理在调用线程完成，推理期间不占用调用线程，结果装配与落库在 completionExecutor 中执行。</p>
+     *
+     * @return 检测结果 future；模型服务异常或落库失败时以异常结束
      */
-    public Map<String, Object> processHemorrhage(MultipartFile file,
-                                                 User user,
-                                                 String patientName,
-                                                 String patientCode,
-                                                 String examId,
-                                                 String gender,
-                                                 Integer age,
-                                                 LocalDate studyDate,
-                                                 String sourceMode) throws IOException {
+    public CompletableFuture<Map<String, Object>> processHemorrhage(MultipartFile file,
+                                                                    User user,
+                                                                    String patientName,
+                                                                    String patientCode,
+                                                                    String examId,
+                                                                    String gender,
+                                                                    Integer age,
+                                                                    LocalDate studyDate,
+                                                                    String sourceMode) throws IOException {
         // 统一处理本地上传/PACS 两种输入模式，并补齐患者与设备上下文。
         HemorrhagePreparedContext preparedContext = hemorrhagePreparationService.prepare(
                 file,
@@ -116,7 +128,31 @@ public class QualityServiceImpl {
                 preparedContext.savedImagePath());
 
         // AI 网关只关心待分析图片绝对路径。
-        Map<String, Object> predictionResult = aiGateway.analyzeHemorrhage(preparedContext.analysisImagePath());
+        return aiGateway.analyzeHemorrhageAsync(preparedContext.analysisImagePath())
+                .thenApplyAsync(predictionResult -> {
+                    try {
+                        return completeHemorrhage(user, examId, sourceMode, preparedContext, predictionResult);
+                    } catch (IOException exception) {
+                        throw new UncheckedIOException(exception);
+                    }
+                }, completionExecutor);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        // 应用关闭时等待结果处理线程池结束，避免检测记录写入中断。
+        completionExecutor.shutdown();
+        completionExecutor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 推理完成后的结果校验、装配与持久化。
+     */
+    private Map<String, Object> completeHemorrhage(User user,
+                                                   String examId,
+                                                   String sourceMode,
+                                                   HemorrhagePreparedContext preparedContext,
+                                                   Map<String, Object> predictionResult) throws IOException {
         try {
             realInferenceResultValidator.validateRawHemorrhageResult(predictionResult);
         } catch (IllegalStateException exception) {
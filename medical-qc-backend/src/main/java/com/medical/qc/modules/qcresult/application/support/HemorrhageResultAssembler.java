@@ -158,6 +158,7 @@ public class HemorrhageResultAssembler {
         String lowerCaseMessage = normalizedMessage.toLowerCase(Locale.ROOT);
 
         if (lowerCaseMessage.contains("failed to connect")
+                || lowerCaseMessage.contains("model server unavailable")
                 || lowerCaseMessage.contains("model not loaded")
                 || lowerCaseMessage.contains("timed out")
                 || lowerCaseMessage.contains("cuda")
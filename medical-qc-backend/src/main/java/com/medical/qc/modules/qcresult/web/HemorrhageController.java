@@ -21,7 +21,7 @@ import java.io.IOException;
 import java.time.LocalDate;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 脑出血检测控制器。
@@ -81,10 +81,10 @@ public class HemorrhageController {
 
     /**
      * 提交脑出血检测请求。
-     * 支持本地上传和 PACS 两种输入模式。
+     * 支持本地上传和 PACS 两种输入模式；推理期间释放 Servlet 线程，结果就绪后再写回响应。
      */
     @PostMapping("/hemorrhage")
-    public ResponseEntity<?> analyzeHemorrhage(
+    public CompletableFuture<ResponseEntity<?>> analyzeHemorrhage(
             @RequestParam(value = "file", required = false) MultipartFile file,
             @RequestParam(value = "patient_name", required = false) String patientName,
             @RequestParam(value = "patient_code", required = false) String patientCode,
@@ -97,7 +97,7 @@ public class HemorrhageController {
             HttpSession session) throws IOException {
         User user = requireDoctorSession(session);
         // 控制器只负责收集表单参数，具体预处理、推理、持久化由应用服务完成。
-        Map<String, Object> result = hemorrhageRecordApplicationService.analyzeHemorrhage(
+        return hemorrhageRecordApplicationService.analyzeHemorrhage(
                 new HemorrhageAnalysisCommand(
                         file,
                         user,
@@ -107,8 +107,8 @@ public class HemorrhageController {
                         gender,
                         age,
                         studyDate,
-                        sourceMode));
-        return ResponseEntity.ok(result);
+                        sourceMode))
+                .thenApply(ResponseEntity::ok);
     }
 
     /**
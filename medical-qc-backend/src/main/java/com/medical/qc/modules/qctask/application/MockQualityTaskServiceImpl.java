@@ -1,8 +1,9 @@
 package com.medical.qc.modules.qctask.application;
 
-import com.medical.qc.config.ActiveMqProperties;
+import com.medical.qc.common.exception.TooManyRequestsException;
 import com.medical.qc.messaging.MockQualityTaskMessage;
 import com.medical.qc.modules.auth.persistence.entity.User;
+import com.medical.qc.modules.pacs.model.PacsStudyCache;
 import com.medical.qc.modules.patient.application.support.TaskScopedPatientInfoStorageService;
 import com.medical.qc.modules.issue.application.IssueServiceImpl;
 import com.medical.qc.modules.qctask.application.support.ChestContrastPreparationService;
@@ -21,9 +22,20 @@ import com.medical.qc.modules.qctask.application.support.HeadQualityPreparedCont
 import com.medical.qc.modules.qctask.application.support.HeadQualityResultAssembler;
 import com.medical.qc.modules.qctask.application.support.MockQualityTaskSnapshot;
 import com.medical.qc.modules.qctask.application.support.MockQualityTaskViewAssembler;
+import com.medical.qc.modules.qctask.application.support.QualityTaskAdmissionControl;
+import com.medical.qc.modules.qctask.application.support.QualityTaskEventPublisher;
+import com.medical.qc.modules.qctask.application.support.QualityTaskExecutionEngine;
+import com.medical.qc.modules.qctask.application.support.QualityTaskIdempotencyIndex;
+import com.medical.qc.modules.qctask.application.support.QualityTaskOutboxRelay;
+import com.medical.qc.modules.qctask.application.support.QualityTaskPipeline;
+import com.medical.qc.modules.qctask.application.support.QualityTaskRecoveryScanner;
+import com.medical.qc.modules.qctask.application.support.QualityTaskState;
+import com.medical.qc.modules.qctask.application.support.QualityTaskStateStore;
 import com.medical.qc.modules.unified.application.support.UnifiedQualityTaskWriteService;
+import com.medical.qc.modules.unified.persistence.entity.UnifiedQcResultAuditLog;
 import com.medical.qc.shared.ai.AiGateway;
-import com.medical.qc.shared.messaging.MessageBus;
+import com.medical.qc.shared.ai.InferencePriority;
+import com.medical.qc.shared.ai.InferenceProgressListener;
 import com.medical.qc.shared.storage.FileStorageGateway;
 import com.medical.qc.shared.storage.StoredFile;
 import com.medical.qc.support.MockQualityAnalysisSupport;
@@ -38,14 +50,20 @@ import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 
 /**
  * 异步质控任务服务实现。
@@ -61,9 +79,7 @@ public class MockQualityTaskServiceImpl implements DisposableBean {
     private static final String STATUS_SUCCESS = "SUCCESS";
     private static final String STATUS_FAILED = "FAILED";
 
-    private final ActiveMqProperties activeMqProperties;
     private final IssueServiceImpl issueService;
-    private final MessageBus messageBus;
     private final FileStorageGateway fileStorageGateway;
     private final MockQualityTaskViewAssembler taskViewAssembler;
     private final UnifiedQualityTaskWriteService unifiedQualityTaskWriteService;
@@ -80,14 +96,26 @@ public class MockQualityTaskServiceImpl implements DisposableBean {
     private final CoronaryCtaResultAssembler coronaryCtaResultAssembler;
     private final TaskScopedPatientInfoStorageService taskScopedPatientInfoStorageService;
     private final RealInferenceResultValidator realInferenceResultValidator;
-    // 当消息总线不可用时，回退到本地线程池异步执行，保证演示链路仍可跑通。
-    private final ExecutorService fallbackExecutor = Executors.newFixedThreadPool(2);
-    // 运行中的任务快照暂存于内存，最终一致性以数据库记录为准。
+    // 任务状态、推理进度和终态通过 SSE 推送给订阅的前端页面。
+    private final QualityTaskEventPublisher taskEventPublisher;
+    // 当消息总线不可用时，回退到本地执行引擎（有界队列、拒绝策略与停机续跑）。
+    private final QualityTaskExecutionEngine taskExecutionEngine;
+    // 任务与 outbox 同事务落库，由中继异步投递到消息总线。
+    private final QualityTaskOutboxRelay taskOutboxRelay;
+    // 执行租约抢占与续租，节点宕机后由恢复扫描器重新派发。
+    private final QualityTaskRecoveryScanner taskRecoveryScanner;
+    // 任务状态与进度写入状态存储，任意节点的状态轮询直接读取。
+    private final QualityTaskStateStore taskStateStore;
+    // 预处理、推理等待与落库分阶段执行，避免在模型服务网络线程上执行数据库操作。
+    private final QualityTaskPipeline taskPipeline;
+    // 窗口期内的重复提交直接返回已有任务，不再存储文件、写库和推理。
+    private final QualityTaskIdempotencyIndex taskIdempotencyIndex;
+    // 按提交人、任务类型与全局令牌桶限流，并限制 PENDING 积压，超限时拒绝提交。
+    private final QualityTaskAdmissionControl taskAdmissionControl;
+    // 本节点执行中的任务快照工作集；跨节点状态查询走 taskStateStore，最终一致性以数据库记录为准。
     private final ConcurrentMap<String, MockQualityTaskSnapshot> taskStore = new ConcurrentHashMap<>();
 
-    public MockQualityTaskServiceImpl(ActiveMqProperties activeMqProperties,
-                                      IssueServiceImpl issueService,
-                                      MessageBus messageBus,
+    public MockQualityTaskServiceImpl(IssueServiceImpl issueService,
                                       FileStorageGateway fileStorageGateway,
                                       MockQualityTaskViewAssembler taskViewAssembler,
                                       UnifiedQualityTaskWriteService unifiedQualityTaskWriteService,
@@ -103,10 +131,16 @@ public class MockQualityTaskServiceImpl implements DisposableBean {
                                        CoronaryCtaRuleAnalyzer coronaryCtaRuleAnalyzer,
                                        CoronaryCtaResultAssembler coronaryCtaResultAssembler,
                                        TaskScopedPatientInfoStorageService taskScopedPatientInfoStorageService,
-                                       RealInferenceResultValidator realInferenceResultValidator) {
-        this.activeMqProperties = activeMqProperties;
+                                       RealInferenceResultValidator realInferenceResultValidator,
+                                       QualityTaskEventPublisher taskEventPublisher,
+                                       QualityTaskExecutionEngine taskExecutionEngine,
+                                       QualityTaskOutboxRelay taskOutboxRelay,
+                                       QualityTaskRecoveryScanner taskRecoveryScanner,
+                                       QualityTaskStateStore taskStateStore,
+                                       QualityTaskPipeline taskPipeline,
+                                       QualityTaskIdempotencyIndex taskIdempotencyIndex,
+                                       QualityTaskAdmissionControl taskAdmissionControl) {
         this.issueService = issueService;
-        this.messageBus = messageBus;
         this.fileStorageGateway = fileStorageGateway;
         this.taskViewAssembler = taskViewAssembler;
         this.unifiedQualityTaskWriteService = unifiedQualityTaskWriteService;
@@ -123,11 +157,67 @@ public class MockQualityTaskServiceImpl implements DisposableBean {
         this.coronaryCtaResultAssembler = coronaryCtaResultAssembler;
         this.taskScopedPatientInfoStorageService = taskScopedPatientInfoStorageService;
         this.realInferenceResultValidator = realInferenceResultValidator;
+        this.taskEventPublisher = taskEventPublisher;
+        this.taskExecutionEngine = taskExecutionEngine;
+        this.taskOutboxRelay = taskOutboxRelay;
+        this.taskRecoveryScanner = taskRecoveryScanner;
+        this.taskStateStore = taskStateStore;
+        this.taskPipeline = taskPipeline;
+        this.taskIdempotencyIndex = taskIdempotencyIndex;
+        this.taskAdmissionControl = taskAdmissionControl;
+        taskExecutionEngine.bind(new QualityTaskExecutionEngine.TaskHandler() {
+            @Override
+            public CompletableFuture<Void> process(MockQualityTaskMessage message) {
+                return processTask(message);
+            }
+
+            @Override
+            public void reject(MockQualityTaskMessage message, String reason) {
+                rejectTask(message, reason);
+            }
+
+            @Override
+            public void recover(String taskId) {
+                recoverTask(taskId, null);
+            }
+        });
+        taskRecoveryScanner.bind(new QualityTaskRecoveryScanner.RecoveryHandler() {
+            @Override
+            public Collection<String> runningTaskIds() {
+                return taskStore.values().stream()
+                        .filter(snapshot -> STATUS_PROCESSING.equals(snapshot.getStatus()))
+                        .map(MockQualityTaskSnapshot::getTaskId)
+                        .toList();
+            }
+
+            @Override
+            public boolean recover(String taskId, BooleanSupplier claim) {
+                // 内存中的快照可能已过时，按数据库状态重新加载后派发。
+                taskStore.remove(taskId);
+                return recoverTask(taskId, claim);
+            }
+
+            @Override
+            public void fail(String taskId, String reason) {
+                taskStore.remove(taskId);
+                MockQualityTaskSnapshot snapshot = taskStore.computeIfAbsent(
+                        taskId,
+                        unifiedQualityTaskWriteService::loadSnapshot);
+                if (snapshot != null) {
+                    completeTask(
+                            snapshot,
+                            createTaskMessage(snapshot, extractRetryMetadata(snapshot)),
+                            new IllegalStateException(reason));
+                }
+            }
+        });
     }
 
     /**
      * 提交异步质控任务。
-     * 数据链路：Controller -> submitTask -> 文件存储 -> 创建快照 -> persistSubmittedTask -> 发送消息 / 本地回退执行。
+     * 数据链路：Controller -> submitTask -> 幂等识别 -> 准入控制 -> 文件存储 -> 创建快照 -> persistSubmittedTask + outbox -> 中继投递 / 本地回退执行。
+     *
+     * @param idempotencyKey 客户端提供的幂等键，为空时按检查号、任务类型、来源模式和文件内容识别重复提交
      */
     public Map<String, Object> submitTask(String taskType,
                                           MultipartFile file,
@@ -139,7 +229,8 @@ public class MockQualityTaskServiceImpl implements DisposableBean {
                                           LocalDate studyDate,
                                           String sourceMode,
                                           Map<String, Object> metadata,
-                                          User user) throws IOException {
+                                          User user,
+                                          String idempotencyKey) throws IOException {
         // 提交前先校验任务类型和最小业务参数。
         validateTaskType(taskType);
         validatePatientName(patientName);
@@ -168,8 +259,115 @@ public class MockQualityTaskServiceImpl implements DisposableBean {
         }
         validateTaskFile(taskType, normalizedFile, normalizedSourceMode);
 
-        // 生成任务主键、时间戳和原始文件名，为任务快照和数据库记录提供统一来源。
+        // 生成任务主键并占用幂等键；窗口期内已有相同提交时直接返回已有任务。
+        String taskId = UUID.randomUUID().toString();
+        String idempotencyIndexKey = taskIdempotencyIndex.resolveKey(
+                idempotencyKey,
+                user == null ? null : user.getId(),
+                taskType,
+                normalizedSourceMode,
+                normalizedExamId,
+                normalizedFile);
+        String existingTaskId = taskIdempotencyIndex.claim(idempotencyIndexKey, taskId);
+        if (existingTaskId != null) {
+            return taskViewAssembler.toDuplicateSubmitResponse(
+                    existingTaskId,
+                    taskStore.get(existingTaskId),
+                    taskStateStore.get(existingTaskId));
+        }
+
+        boolean admitted = false;
+        try {
+            // 重复提交不消耗令牌；准入被拒绝时同样释放幂等键。
+            taskAdmissionControl.admit(user == null ? null : user.getId(), taskType);
+            admitted = true;
+            return createSubmittedTask(
+                    taskId,
+                    taskType,
+                    normalizedFile,
+                    normalizedPatientName,
+                    normalizedExamId,
+                    normalizedPatientId,
+                    normalizedGender,
+                    age,
+                    studyDate,
+                    normalizedSourceMode,
+                    metadata,
+                    user == null ? null : user.getId(),
+                    null);
+        } catch (IOException | RuntimeException exception) {
+            // 提交未完成时释放幂等键，用户可以立即重新提交；事务已回滚，运行期快照和状态不再保留。
+            taskIdempotencyIndex.release(idempotencyIndexKey, taskId);
+            taskStore.remove(taskId);
+            taskStateStore.remove(taskId);
+            if (admitted) {
+                taskAdmissionControl.refund(user == null ? null : user.getId(), taskType, 1);
+            }
+            throw exception;
+        }
+    }
+
+    /**
+     * 为 PACS 批量质控作业中的一条检查创建质控任务。
+     *
+     * <p>批量作业自身按模型服务容量节流，因此不经过幂等识别和准入控制；
+     * checkpointAction 与任务记录、outbox 同事务执行，用于推进作业断点，断点更新失败时任务一并回滚。</p>
+     */
+    public Map<String, Object> submitPacsBatchTask(String taskType,
+                                                   PacsStudyCache study,
+                                                   Long userId,
+                                                   Runnable checkpointAction) throws IOException {
+        validateTaskType(taskType);
+        validatePatientName(study.getPatientName());
+        validateExamId(study.getAccessionNumber());
+        if (requiresDetailedPatientInfo(taskType)) {
+            validateGender(study.getGender());
+            validateAge(study.getAge());
+            validateStudyDate(study.getStudyDate());
+        }
         String taskId = UUID.randomUUID().toString();
+        try {
+            return createSubmittedTask(
+                    taskId,
+                    taskType,
+                    null,
+                    study.getPatientName().trim(),
+                    study.getAccessionNumber().trim(),
+                    normalizeText(study.getPatientId()),
+                    normalizeText(study.getGender()),
+                    study.getAge(),
+                    study.getStudyDate(),
+                    MockQualityAnalysisSupport.SOURCE_MODE_PACS,
+                    Map.of(),
+                    userId,
+                    checkpointAction);
+        } catch (RuntimeException exception) {
+            // 断点推进失败时任务记录已随事务回滚，运行期快照和状态也不再保留。
+            taskStore.remove(taskId);
+            taskStateStore.remove(taskId);
+            throw exception;
+        }
+    }
+
+    /**
+     * 存储上传文件、创建快照并与 outbox 同事务落库。
+     *
+     * @param afterPersist 与任务记录同事务执行的附加动作，可为空
+     */
+    private Map<String, Object> createSubmittedTask(String taskId,
+                                                    String taskType,
+                                                    MultipartFile normalizedFile,
+                                                    String normalizedPatientName,
+                                                    String normalizedExamId,
+                                                    String normalizedPatientId,
+                                                    String normalizedGender,
+                                                    Integer age,
+                                                    LocalDate studyDate,
+                                                    String normalizedSourceMode,
+                                                    Map<String, Object> metadata,
+                                                    Long userId,
+                                                    Runnable afterPersist) throws IOException {
+        // 生成时间戳和原始文件名，为任务快照和数据库记录提供统一来源。
         LocalDateTime submittedAt = LocalDateTime.now();
         String originalFilename = resolveOriginalFilename(taskType, normalizedFile, normalizedSourceMode, normalizedExamId);
         String storedFilePath = storeUploadFile(taskType, taskId, normalizedFile, originalFilename);
@@ -180,7 +378,7 @@ public class MockQualityTaskServiceImpl implements DisposableBean {
         snapshot.setTaskType(taskType);
         snapshot.setTaskTypeName(MockQualityAnalysisSupport.resolveTaskTypeName(taskType));
         snapshot.setSourceMode(normalizedSourceMode);
-        snapshot.setUserId(user == null ? null : user.getId());
+        snapshot.setUserId(userId);
         snapshot.setPatientName(normalizedPatientName);
         snapshot.setExamId(normalizedExamId);
         snapshot.setPatientId(normalizedPatientId);
@@ -194,38 +392,29 @@ public class MockQualityTaskServiceImpl implements DisposableBean {
         // 任务在提交阶段就标明 real/mock 类型，避免前端轮询过程中读到错误语义。
         snapshot.setMock(isRuleBasedMockTaskType(taskType));
 
-        taskStore.put(taskId, snapshot);
-        unifiedQualityTaskWriteService.persistSubmittedTask(snapshot);
-        syncTaskScopedSourceCache(
-                taskType,
-                normalizedPatientId,
-                normalizedPatientName,
-                normalizedExamId,
-                normalizedGender,
-                age,
-                studyDate,
-                normalizedSourceMode,
-                storedFilePath,
-                metadata == null ? Map.of() : metadata);
-
         // 发送到消息总线的消息只保留执行所需字段，避免序列化整个快照对象。
-        MockQualityTaskMessage message = new MockQualityTaskMessage(
-                taskId,
-                taskType,
-                normalizedSourceMode,
-                snapshot.getUserId(),
-                snapshot.getPatientName(),
-                snapshot.getExamId(),
-                snapshot.getPatientId(),
-                snapshot.getGender(),
-                snapshot.getAge(),
-                snapshot.getStudyDate(),
-                originalFilename,
-                storedFilePath,
-                metadata == null ? new HashMap<>() : metadata,
-                submittedAt);
+        MockQualityTaskMessage message = createTaskMessage(snapshot, metadata == null ? new HashMap<>() : metadata);
 
-        dispatchTask(snapshot, message);
+        taskStore.put(taskId, snapshot);
+        taskStateStore.put(toTaskState(snapshot));
+        // 任务记录、任务级源数据缓存与 outbox 同事务写入，提交后由中继投递。
+        taskOutboxRelay.dispatch(message, () -> {
+            unifiedQualityTaskWriteService.persistSubmittedTask(snapshot);
+            syncTaskScopedSourceCache(
+                    taskType,
+                    normalizedPatientId,
+                    normalizedPatientName,
+                    normalizedExamId,
+                    normalizedGender,
+                    age,
+                    studyDate,
+                    normalizedSourceMode,
+                    storedFilePath,
+                    metadata == null ? Map.of() : metadata);
+            if (afterPersist != null) {
+                afterPersist.run();
+            }
+        });
         return taskViewAssembler.toSubmitResponse(snapshot);
     }
 
@@ -233,6 +422,13 @@ public class MockQualityTaskServiceImpl implements DisposableBean {
      * 基于历史任务重新提交一次分析任务。
      */
     public Map<String, Object> retryTask(String taskNo, User user) {
+        return retryTask(taskNo, user, InferencePriority.NORMAL);
+    }
+
+    /**
+     * 基于历史任务重新提交一次分析任务，并指定推理排队优先级。
+     */
+    public Map<String, Object> retryTask(String taskNo, User user, InferencePriority priority) {
         MockQualityTaskSnapshot previousSnapshot = unifiedQualityTaskWriteService.loadSnapshot(taskNo);
         if (previousSnapshot == null) {
             throw new IllegalArgumentException("原始质控任务不存在");
@@ -240,22 +436,368 @@ public class MockQualityTaskServiceImpl implements DisposableBean {
         if (user == null) {
             throw new IllegalArgumentException("当前用户不能为空");
         }
+        String rejection = validateRetry(previousSnapshot, user);
+        if (rejection != null) {
+            throw new IllegalArgumentException(rejection);
+        }
+        taskAdmissionControl.admit(user.getId(), previousSnapshot.getTaskType());
+
+        MockQualityTaskSnapshot snapshot = createRetrySnapshot(previousSnapshot, user);
+        String normalizedSourceMode = snapshot.getSourceMode();
+        Map<String, Object> metadata = extractRetryMetadata(previousSnapshot);
+        MockQualityTaskMessage message = createTaskMessage(snapshot, metadata);
+        message.setPriority((priority == null ? InferencePriority.NORMAL : priority).protocolValue());
+
+        taskStore.put(snapshot.getTaskId(), snapshot);
+        taskStateStore.put(toTaskState(snapshot));
+        try {
+            // 审计日志与任务记录、outbox 同事务写入，任一失败时整体回滚。
+            taskOutboxRelay.dispatch(message, () -> {
+                unifiedQualityTaskWriteService.persistSubmittedTask(snapshot);
+                syncTaskScopedSourceCache(
+                        snapshot.getTaskType(),
+                        snapshot.getPatientId(),
+                        snapshot.getPatientName(),
+                        snapshot.getExamId(),
+                        snapshot.getGender(),
+                        snapshot.getAge(),
+                        snapshot.getStudyDate(),
+                        normalizedSourceMode,
+                        snapshot.getStoredFilePath(),
+                        metadata);
+                unifiedQualityTaskWriteService.insertAuditLog(
+                        snapshot.getRecordId(),
+                        null,
+                        user.getId(),
+                        "retry",
+                        "基于历史任务重新分析",
+                        Map.of("sourceTaskNo", taskNo));
+            });
+        } catch (RuntimeException exception) {
+            // 事务回滚后新任务不存在，提前写入的运行期快照和状态一并移除，已扣减的准入令牌归还。
+            taskStore.remove(snapshot.getTaskId());
+            taskStateStore.remove(snapshot.getTaskId());
+            taskAdmissionControl.refund(user.getId(), previousSnapshot.getTaskType(), 1);
+            throw exception;
+        }
+        return taskViewAssembler.toSubmitResponse(snapshot);
+    }
+
+    /**
+     * 批量重跑历史任务。
+     *
+     * <p>原任务快照一次批量加载并逐条校验；通过校验的任务按任务类型各申请一次准入，余量不足时按入参顺序准入前面的任务。
+     * 准入的任务在一个事务内批量写入 qc_tasks、outbox 和审计日志，中继随后把整批消息作为一批投递，
+     * 事务回滚时归还准入令牌。单条校验或准入失败不影响其他任务。</p>
+     *
+     * @return 与入参顺序一致的逐条结果：成功项包含新任务的提交响应，失败项包含原因
+     */
+    public List<Map<String, Object>> retryTasks(List<String> taskNos, User user, InferencePriority priority) {
+        if (user == null) {
+            throw new IllegalArgumentException("当前用户不能为空");
+        }
+        List<String> normalizedTaskNos = taskNos == null
+                ? List.of()
+                : taskNos.stream().filter(StringUtils::hasText).map(String::trim).distinct().toList();
+        if (normalizedTaskNos.isEmpty()) {
+            return List.of();
+        }
+
+        Map<String, MockQualityTaskSnapshot> previousSnapshots = unifiedQualityTaskWriteService.loadSnapshots(normalizedTaskNos);
+        int protocolPriority = (priority == null ? InferencePriority.NORMAL : priority).protocolValue();
+        List<Map<String, Object>> items = new ArrayList<>(normalizedTaskNos.size());
+        List<MockQualityTaskSnapshot> snapshots = new ArrayList<>();
+        List<Map<String, Object>> metadataList = new ArrayList<>();
+        List<String> sourceTaskNos = new ArrayList<>();
+        List<MockQualityTaskMessage> messages = new ArrayList<>();
+        Map<String, String> rejections = new HashMap<>();
+        Map<String, Integer> requestedByType = new LinkedHashMap<>();
+        for (String taskNo : normalizedTaskNos) {
+            String rejection = validateRetry(previousSnapshots.get(taskNo), user);
+            if (rejection != null) {
+                rejections.put(taskNo, rejection);
+            } else {
+                requestedByType.merge(previousSnapshots.get(taskNo).getTaskType(), 1, Integer::sum);
+            }
+        }
+        // 每种任务类型一次申请整批令牌，超出限流或积压上限的任务作为失败项返回，不影响已准入的任务。
+        Map<String, Integer> quotaByType = new HashMap<>();
+        Map<String, String> admissionRejections = new HashMap<>();
+        requestedByType.forEach((taskType, requested) -> {
+            try {
+                quotaByType.put(taskType, taskAdmissionControl.admitUpTo(user.getId(), taskType, requested));
+            } catch (TooManyRequestsException exception) {
+                quotaByType.put(taskType, 0);
+                admissionRejections.put(taskType, exception.getMessage());
+            }
+        });
+        Map<String, Integer> acceptedByType = new LinkedHashMap<>();
+        for (String taskNo : normalizedTaskNos) {
+            MockQualityTaskSnapshot previousSnapshot = previousSnapshots.get(taskNo);
+            String rejection = rejections.get(taskNo);
+            if (rejection == null) {
+                String taskType = previousSnapshot.getTaskType();
+                if (quotaByType.merge(taskType, -1, Integer::sum) < 0) {
+                    rejection = admissionRejections.getOrDefault(taskType, "任务提交过于频繁，请稍后重试");
+                } else {
+                    acceptedByType.merge(taskType, 1, Integer::sum);
+                }
+            }
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("sourceTaskId", taskNo);
+            item.put("success", rejection == null);
+            if (rejection != null) {
+                item.put("message", rejection);
+                items.add(item);
+                continue;
+            }
+
+            MockQualityTaskSnapshot snapshot = createRetrySnapshot(previousSnapshot, user);
+            Map<String, Object> metadata = extractRetryMetadata(previousSnapshot);
+            MockQualityTaskMessage message = createTaskMessage(snapshot, metadata);
+            message.setPriority(protocolPriority);
+            snapshots.add(snapshot);
+            metadataList.add(metadata);
+            sourceTaskNos.add(taskNo);
+            messages.add(message);
+            item.put("taskId", snapshot.getTaskId());
+            items.add(item);
+        }
+        if (snapshots.isEmpty()) {
+            return items;
+        }
+
+        snapshots.forEach(snapshot -> {
+            taskStore.put(snapshot.getTaskId(), snapshot);
+            taskStateStore.put(toTaskState(snapshot));
+        });
+        try {
+            taskOutboxRelay.dispatchAll(messages, () -> {
+                unifiedQualityTaskWriteService.persistRetriedTasks(snapshots);
+                LocalDateTime now = LocalDateTime.now();
+                List<UnifiedQcResultAuditLog> auditLogs = new ArrayList<>(snapshots.size());
+                for (int index = 0; index < snapshots.size(); index++) {
+                    MockQualityTaskSnapshot snapshot = snapshots.get(index);
+                    syncTaskScopedSourceCache(
+                            snapshot.getTaskType(),
+                            snapshot.getPatientId(),
+                            snapshot.getPatientName(),
+                            snapshot.getExamId(),
+                            snapshot.getGender(),
+                            snapshot.getAge(),
+                            snapshot.getStudyDate(),
+                            snapshot.getSourceMode(),
+                            snapshot.getStoredFilePath(),
+                            metadataList.get(index));
+                    auditLogs.add(unifiedQualityTaskWriteService.buildAuditLog(
+                            snapshot.getRecordId(),
+                            null,
+                            user.getId(),
+                            "retry",
+                            "基于历史任务批量重新分析",
+                            Map.of("sourceTaskNo", sourceTaskNos.get(index)),
+                            now));
+                }
+                unifiedQualityTaskWriteService.insertAuditLogs(auditLogs);
+            });
+        } catch (RuntimeException exception) {
+            // 事务回滚后新任务不存在，提前写入的运行期快照和状态一并移除，已扣减的准入令牌归还。
+            snapshots.forEach(snapshot -> {
+                taskStore.remove(snapshot.getTaskId());
+                taskStateStore.remove(snapshot.getTaskId());
+            });
+            acceptedByType.forEach((taskType, count) -> taskAdmissionControl.refund(user.getId(), taskType, count));
+            throw exception;
+        }
+
+        Map<String, MockQualityTaskSnapshot> snapshotsByTaskId = new HashMap<>();
+        snapshots.forEach(snapshot -> snapshotsByTaskId.put(snapshot.getTaskId(), snapshot));
+        for (Map<String, Object> item : items) {
+            MockQualityTaskSnapshot snapshot = snapshotsByTaskId.get(item.get("taskId"));
+            if (snapshot != null) {
+                item.putAll(taskViewAssembler.toSubmitResponse(snapshot));
+            }
+        }
+        return items;
+    }
+
+    /**
+     * 消费并执行异步质控任务。
+     * 数据链路：JMS Consumer / QualityTaskExecutionEngine -> processTask -> QualityTaskPipeline
+     * (预处理 doProcessTask -> 推理等待 -> 结果装配 + syncTask + syncQualityTaskIssue)。
+     *
+     * <p>调用线程先申请流水线名额，再抢占租约和推进到处理中状态，随后把任务交给流水线。
+     * 流水线已满时在此等待；等待超时抛出 {@link RejectedExecutionException}，任务仍为 PENDING，
+     * JMS 消息随之回滚由 broker 重新投递，本地执行引擎则延后重新入队。</p>
+     *
+     * @return 任务进入终态后完成的 future
+     */
+    public CompletableFuture<Void> processTask(MockQualityTaskMessage message) {
+        if (message == null || !StringUtils.hasText(message.getTaskId())) {
+            logger.warn("收到无效的 mock 质控任务消息");
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // 优先复用内存快照，若服务重启则从数据库恢复任务运行上下文。
+        MockQualityTaskSnapshot cachedSnapshot = taskStore.get(message.getTaskId());
+        MockQualityTaskSnapshot snapshot = cachedSnapshot != null
+                ? cachedSnapshot
+                : taskStore.computeIfAbsent(message.getTaskId(), unifiedQualityTaskWriteService::loadSnapshot);
+        if (snapshot == null) {
+            logger.warn("质控任务不存在，忽略消息: {}", message.getTaskId());
+            return CompletableFuture.completedFuture(null);
+        }
+        if (STATUS_SUCCESS.equals(snapshot.getStatus()) || STATUS_FAILED.equals(snapshot.getStatus())) {
+            return CompletableFuture.completedFuture(null);
+        }
+        // 先取得流水线名额再抢占租约：等待超时时任务尚未改变状态，拒绝异常交给调用方重新投递。
+        QualityTaskPipeline.Admission admission;
+        try {
+            admission = taskPipeline.admit();
+        } catch (RejectedExecutionException exception) {
+            if (cachedSnapshot == null) {
+                taskStore.remove(message.getTaskId(), snapshot);
+            }
+            throw exception;
+        }
+        try {
+            // 抢占执行租约，重复投递或恢复重派的消息只有一条能进入执行。
+            if (!taskRecoveryScanner.acquireLease(snapshot.getRecordId())) {
+                admission.release();
+                logger.info("质控任务已由其他消费者执行，忽略重复消息: {}", message.getTaskId());
+                if (cachedSnapshot == null || !STATUS_PROCESSING.equals(snapshot.getStatus())) {
+                    taskStore.remove(message.getTaskId(), snapshot);
+                }
+                return CompletableFuture.completedFuture(null);
+            }
+
+            // 进入处理中状态后立刻同步数据库，便于前端轮询看到实时状态。
+            snapshot.setStatus(STATUS_PROCESSING);
+            snapshot.setStartedAt(LocalDateTime.now());
+            unifiedQualityTaskWriteService.syncTask(snapshot);
+            taskStateStore.put(toTaskState(snapshot));
+            taskEventPublisher.publish(snapshot.getTaskId(), QualityTaskEventPublisher.EVENT_STATUS, buildProgressView(snapshot));
+
+            // 执行分析并将结果写回快照；推理请求按消息携带的优先级排队。
+            return taskPipeline.submit(
+                    admission,
+                    () -> InferencePriority.callWith(
+                            InferencePriority.parse(message.getPriority()),
+                            () -> doProcessTask(snapshot, message)),
+                    error -> completeTask(snapshot, message, error));
+        } catch (RuntimeException exception) {
+            admission.release();
+            throw exception;
+        }
+    }
+
+    /**
+     * 查询本节点正在执行的任务的状态与推理进度。
+     *
+     * <p>任务事件只在执行节点上发布。本节点提交、经消息队列派发的 PENDING 任务可能由其他节点消费，
+     * 不视为本节点执行；消息链路关闭时任务只会进入本节点的执行引擎。</p>
+     *
+     * @return 进度视图；任务不由本节点执行或已进入终态时返回 null
+     */
+    public Map<String, Object> getRunningProgress(String taskId) {
+        MockQualityTaskSnapshot snapshot = taskId == null ? null : taskStore.get(taskId);
+        if (snapshot == null) {
+            return null;
+        }
+        boolean runningHere = STATUS_PROCESSING.equals(snapshot.getStatus())
+                || (STATUS_PENDING.equals(snapshot.getStatus()) && !taskOutboxRelay.isMessagingEnabled());
+        return runningHere ? buildProgressView(snapshot) : null;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        // 让本地执行引擎等待在途任务并登记续跑；任务收尾依赖的流水线在本服务之后才销毁。
+        taskExecutionEngine.shutdownGracefully();
+    }
+
+    /**
+     * 本地队列拒绝任务时直接把任务推进到失败终态。
+     */
+    private void rejectTask(MockQualityTaskMessage message, String reason) {
+        MockQualityTaskSnapshot snapshot = taskStore.computeIfAbsent(
+                message.getTaskId(),
+                unifiedQualityTaskWriteService::loadSnapshot);
+        if (snapshot == null) {
+            return;
+        }
+        completeTask(snapshot, message, new RejectedExecutionException(reason));
+    }
+
+    /**
+     * 按任务 ID 重新入队上次停机时未完成的任务；任务已进入终态时忽略。
+     *
+     * <p>重新派发的是 outbox 中留存的原始消息：未完成任务没有结果，无法从快照还原提交时的元数据。</p>
+     *
+     * @param claim 恢复扫描器的认领动作，与 outbox 写入在同一事务内执行；为空时直接派发
+     * @return true 表示已写入派发记录
+     */
+    private boolean recoverTask(String taskId, BooleanSupplier claim) {
+        MockQualityTaskSnapshot snapshot = taskStore.computeIfAbsent(taskId, unifiedQualityTaskWriteService::loadSnapshot);
+        if (snapshot == null) {
+            return false;
+        }
+        if (STATUS_SUCCESS.equals(snapshot.getStatus()) || STATUS_FAILED.equals(snapshot.getStatus())) {
+            taskStore.remove(taskId);
+            return false;
+        }
+        MockQualityTaskMessage message = taskOutboxRelay.loadDispatchedMessage(taskId);
+        if (message == null) {
+            // 升级前提交、未留存消息原文的任务只能按快照重建，元数据可能缺失。
+            logger.warn("质控任务没有留存的派发消息，按快照重建: {}", taskId);
+            message = createTaskMessage(snapshot, extractRetryMetadata(snapshot));
+        }
+        if (claim == null) {
+            taskStateStore.put(toTaskState(snapshot));
+            taskOutboxRelay.dispatch(message, null);
+            return true;
+        }
+        boolean dispatched = taskOutboxRelay.dispatchIf(message, () -> {
+            if (!claim.getAsBoolean()) {
+                return false;
+            }
+            // 认领成功后任务回到 PENDING，先于消息投递写入共享状态。
+            snapshot.setStatus(STATUS_PENDING);
+            taskStateStore.put(toTaskState(snapshot));
+            return true;
+        });
+        if (!dispatched) {
+            taskStore.remove(taskId);
+        }
+        return dispatched;
+    }
+
+    /**
+     * 校验历史任务能否由当前用户重跑。
+     *
+     * @return 不能重跑的原因，可以重跑时返回 null
+     */
+    private String validateRetry(MockQualityTaskSnapshot previousSnapshot, User user) {
+        if (previousSnapshot == null) {
+            return "原始质控任务不存在";
+        }
         if (previousSnapshot.getUserId() != null
                 && !Integer.valueOf(1).equals(user.getRoleId())
                 && !previousSnapshot.getUserId().equals(user.getId())) {
-            throw new IllegalArgumentException("无权重新分析该质控任务");
+            return "无权重新分析该质控任务";
         }
+        return null;
+    }
 
-        String newTaskId = UUID.randomUUID().toString();
-        LocalDateTime submittedAt = LocalDateTime.now();
-        String normalizedSourceMode = MockQualityAnalysisSupport.normalizeSourceMode(previousSnapshot.getSourceMode());
-        Map<String, Object> metadata = extractRetryMetadata(previousSnapshot);
-
+    /**
+     * 基于历史任务快照构造重跑任务快照，沿用原任务的检查与源文件。
+     */
+    private MockQualityTaskSnapshot createRetrySnapshot(MockQualityTaskSnapshot previousSnapshot, User user) {
         MockQualityTaskSnapshot snapshot = new MockQualityTaskSnapshot();
-        snapshot.setTaskId(newTaskId);
+        snapshot.setTaskId(UUID.randomUUID().toString());
+        snapshot.setStudyId(previousSnapshot.getStudyId());
         snapshot.setTaskType(previousSnapshot.getTaskType());
         snapshot.setTaskTypeName(MockQualityAnalysisSupport.resolveTaskTypeName(previousSnapshot.getTaskType()));
-        snapshot.setSourceMode(normalizedSourceMode);
+        snapshot.setSourceMode(MockQualityAnalysisSupport.normalizeSourceMode(previousSnapshot.getSourceMode()));
         snapshot.setUserId(user.getId());
         snapshot.setPatientName(previousSnapshot.getPatientName());
         snapshot.setExamId(previousSnapshot.getExamId());
@@ -266,27 +808,19 @@ public class MockQualityTaskServiceImpl implements DisposableBean {
         snapshot.setOriginalFilename(previousSnapshot.getOriginalFilename());
         snapshot.setStoredFilePath(previousSnapshot.getStoredFilePath());
         snapshot.setStatus(STATUS_PENDING);
-        snapshot.setSubmittedAt(submittedAt);
+        snapshot.setSubmittedAt(LocalDateTime.now());
         snapshot.setMock(isRuleBasedMockTaskType(previousSnapshot.getTaskType()));
+        return snapshot;
+    }
 
-        taskStore.put(newTaskId, snapshot);
-        unifiedQualityTaskWriteService.persistSubmittedTask(snapshot);
-        syncTaskScopedSourceCache(
-                snapshot.getTaskType(),
-                snapshot.getPatientId(),
-                snapshot.getPatientName(),
-                snapshot.getExamId(),
-                snapshot.getGender(),
-                snapshot.getAge(),
-                snapshot.getStudyDate(),
-                normalizedSourceMode,
-                snapshot.getStoredFilePath(),
-                metadata);
-
-        MockQualityTaskMessage message = new MockQualityTaskMessage(
-                newTaskId,
+    /**
+     * 基于任务快照构造消息体。
+     */
+    private MockQualityTaskMessage createTaskMessage(MockQualityTaskSnapshot snapshot, Map<String, Object> metadata) {
+        return new MockQualityTaskMessage(
+                snapshot.getTaskId(),
                 snapshot.getTaskType(),
-                normalizedSourceMode,
+                MockQualityAnalysisSupport.normalizeSourceMode(snapshot.getSourceMode()),
                 snapshot.getUserId(),
                 snapshot.getPatientName(),
                 snapshot.getExamId(),
@@ -297,81 +831,55 @@ public class MockQualityTaskServiceImpl implements DisposableBean {
                 snapshot.getOriginalFilename(),
                 snapshot.getStoredFilePath(),
                 metadata,
-                submittedAt);
-        dispatchTask(snapshot, message);
-        unifiedQualityTaskWriteService.insertAuditLog(
-                snapshot.getRecordId(),
-                null,
-                user.getId(),
-                "retry",
-                "基于历史任务重新分析",
-                Map.of("sourceTaskNo", taskNo));
-        return taskViewAssembler.toSubmitResponse(snapshot);
+                snapshot.getSubmittedAt());
     }
 
     /**
-     * 消费并执行异步质控任务。
-     * 数据链路：JMS Consumer / fallbackExecutor -> processTask -> doProcessTask -> syncTask -> syncQualityTaskIssue。
+     * 把任务推进到终态并同步数据库。
      */
-    public void processTask(MockQualityTaskMessage message) {
-        if (message == null || !StringUtils.hasText(message.getTaskId())) {
-            logger.warn("收到无效的 mock 质控任务消息");
-            return;
-        }
-
-        // 优先复用内存快照，若服务重启则从数据库恢复任务运行上下文。
-        MockQualityTaskSnapshot snapshot = taskStore.computeIfAbsent(
-                message.getTaskId(),
-                unifiedQualityTaskWriteService::loadSnapshot);
-        if (snapshot == null) {
-            logger.warn("质控任务不存在，忽略消息: {}", message.getTaskId());
-            return;
-        }
-        if (STATUS_SUCCESS.equals(snapshot.getStatus()) || STATUS_FAILED.equals(snapshot.getStatus())) {
-            return;
-        }
-
-        // 进入处理中状态后立刻同步数据库，便于前端轮询看到实时状态。
-        snapshot.setStatus(STATUS_PROCESSING);
-        snapshot.setStartedAt(LocalDateTime.now());
-        unifiedQualityTaskWriteService.syncTask(snapshot);
-
+    private void completeTask(MockQualityTaskSnapshot snapshot, MockQualityTaskMessage message, Throwable error) {
         try {
-            // 执行模拟分析并将结果写回快照。
-            doProcessTask(snapshot, message);
-            snapshot.setStatus(STATUS_SUCCESS);
-            snapshot.setCompletedAt(LocalDateTime.now());
-            unifiedQualityTaskWriteService.syncTask(snapshot);
-            // 成功后触发异常工单同步，保证不合格任务能进入异常汇总看板。
-            issueService.syncQualityTaskIssue(snapshot.getRecordId());
+            if (error == null) {
+                snapshot.setStatus(STATUS_SUCCESS);
+                snapshot.setCompletedAt(LocalDateTime.now());
+                unifiedQualityTaskWriteService.syncTask(snapshot);
+                // 成功后触发异常工单同步，保证不合格任务能进入异常汇总看板。
+                issueService.syncQualityTaskIssue(snapshot.getRecordId());
+                return;
+            }
+            failTask(snapshot, message, unwrap(error));
         } catch (Exception exception) {
-            snapshot.setStatus(STATUS_FAILED);
-            snapshot.setCompletedAt(LocalDateTime.now());
-            snapshot.setErrorMessage(exception.getMessage());
-            unifiedQualityTaskWriteService.syncTask(snapshot);
-            logger.error("处理 mock 质控任务失败: {}", message.getTaskId(), exception);
+            if (!STATUS_FAILED.equals(snapshot.getStatus())) {
+                failTask(snapshot, message, exception);
+            }
         } finally {
             // 已终态任务无需继续保留在内存快照表中。
             if (STATUS_SUCCESS.equals(snapshot.getStatus()) || STATUS_FAILED.equals(snapshot.getStatus())) {
                 taskStore.remove(message.getTaskId());
+                taskStateStore.put(toTaskState(snapshot));
+                // 先移出内存再推送终态：订阅方看不到内存快照时会直接读库，不会错过终态。
+                taskEventPublisher.publishFinal(message.getTaskId(), buildFinalView(snapshot));
             }
         }
     }
 
-    @Override
-    public void destroy() throws Exception {
-        // 应用关闭时等待回退线程池结束，避免任务处理中断在未知状态。
-        fallbackExecutor.shutdown();
-        fallbackExecutor.awaitTermination(5, TimeUnit.SECONDS);
+    private void failTask(MockQualityTaskSnapshot snapshot, MockQualityTaskMessage message, Throwable exception) {
+        snapshot.setStatus(STATUS_FAILED);
+        snapshot.setCompletedAt(LocalDateTime.now());
+        snapshot.setErrorMessage(exception.getMessage());
+        unifiedQualityTaskWriteService.syncTask(snapshot);
+        logger.error("处理 mock 质控任务失败: {}", message.getTaskId(), exception);
     }
 
     /**
-     * 执行单个任务的模拟分析逻辑。
+     * 流水线预处理阶段：完成预处理并发起推理。
+     *
+     * <p>返回的 future 在推理结束时完成，其结果是落库阶段执行的结果装配步骤；
+     * 规则型链路在预处理阶段内完成分析，只把结果装配留给落库阶段。</p>
      */
-    private void doProcessTask(MockQualityTaskSnapshot snapshot, MockQualityTaskMessage message) throws Exception {
+    private CompletableFuture<Runnable> doProcessTask(MockQualityTaskSnapshot snapshot, MockQualityTaskMessage message) throws Exception {
         if (MockQualityAnalysisSupport.TASK_TYPE_HEAD.equals(message.getTaskType())) {
             HeadQualityPreparedContext preparedContext = headQualityPreparationService.prepare(message);
-            Map<String, Object> predictionResult = aiGateway.analyzeHeadQuality(preparedContext.analysisVolumePath());
             applyPreparedContextToSnapshot(
                     snapshot,
                     preparedContext.analysisVolumePath(),
@@ -382,18 +890,19 @@ public class MockQualityTaskServiceImpl implements DisposableBean {
                     preparedContext.studyDate(),
                     preparedContext.originalFilename());
             snapshot.setMock(false);
-            Map<String, Object> enrichedResult = enrichResultPatientInfo(
-                    headQualityResultAssembler.enrichResult(predictionResult, preparedContext),
-                    snapshot);
-            snapshot.setResult(realInferenceResultValidator.validateStructuredResult(
-                    MockQualityAnalysisSupport.TASK_TYPE_HEAD,
-                    enrichedResult));
-            return;
+            return aiGateway.analyzeHeadQualityAsync(preparedContext.analysisVolumePath(), createProgressListener(snapshot))
+                    .<Runnable>thenApply(predictionResult -> () -> {
+                        Map<String, Object> enrichedResult = enrichResultPatientInfo(
+                                headQualityResultAssembler.enrichResult(predictionResult, preparedContext),
+                                snapshot);
+                        snapshot.setResult(realInferenceResultValidator.validateStructuredResult(
+                                MockQualityAnalysisSupport.TASK_TYPE_HEAD,
+                                enrichedResult));
+                    });
         }
 
         if (MockQualityAnalysisSupport.TASK_TYPE_CHEST_NON_CONTRAST.equals(message.getTaskType())) {
             ChestNonContrastPreparedContext preparedContext = chestNonContrastPreparationService.prepare(message);
-            Map<String, Object> predictionResult = aiGateway.analyzeChestNonContrast(preparedContext.analysisVolumePath());
             applyPreparedContextToSnapshot(
                     snapshot,
                     preparedContext.analysisVolumePath(),
@@ -404,13 +913,15 @@ public class MockQualityTaskServiceImpl implements DisposableBean {
                     preparedContext.studyDate(),
                     preparedContext.originalFilename());
             snapshot.setMock(false);
-            Map<String, Object> enrichedResult = enrichResultPatientInfo(
-                    chestNonContrastResultAssembler.enrichResult(predictionResult, preparedContext),
-                    snapshot);
-            snapshot.setResult(realInferenceResultValidator.validateStructuredResult(
-                    MockQualityAnalysisSupport.TASK_TYPE_CHEST_NON_CONTRAST,
-                    enrichedResult));
-            return;
+            return aiGateway.analyzeChestNonContrastAsync(preparedContext.analysisVolumePath(), createProgressListener(snapshot))
+                    .<Runnable>thenApply(predictionResult -> () -> {
+                        Map<String, Object> enrichedResult = enrichResultPatientInfo(
+                                chestNonContrastResultAssembler.enrichResult(predictionResult, preparedContext),
+                                snapshot);
+                        snapshot.setResult(realInferenceResultValidator.validateStructuredResult(
+                                MockQualityAnalysisSupport.TASK_TYPE_CHEST_NON_CONTRAST,
+                                enrichedResult));
+                    });
         }
 
         if (MockQualityAnalysisSupport.TASK_TYPE_CORONARY_CTA.equals(message.getTaskType())) {
@@ -427,10 +938,9 @@ public class MockQualityTaskServiceImpl implements DisposableBean {
                     preparedContext.studyDate(),
                     preparedContext.originalFilename());
             snapshot.setMock(true);
-            snapshot.setResult(enrichResultPatientInfo(
+            return CompletableFuture.<Runnable>completedFuture(() -> snapshot.setResult(enrichResultPatientInfo(
                     coronaryCtaResultAssembler.enrichResult(result, preparedContext),
-                    snapshot));
-            return;
+                    snapshot)));
         }
 
         if (MockQualityAnalysisSupport.TASK_TYPE_CHEST_CONTRAST.equals(message.getTaskType())) {
@@ -447,10 +957,9 @@ public class MockQualityTaskServiceImpl implements DisposableBean {
                     preparedContext.studyDate(),
                     preparedContext.originalFilename());
             snapshot.setMock(true);
-            snapshot.setResult(enrichResultPatientInfo(
+            return CompletableFuture.<Runnable>completedFuture(() -> snapshot.setResult(enrichResultPatientInfo(
                     chestContrastResultAssembler.enrichResult(result, preparedContext),
-                    snapshot));
-            return;
+                    snapshot)));
         }
 
         // 根据任务类型和来源模式构造模拟结果，格式与前端详情页消费结构一致。
@@ -461,10 +970,9 @@ public class MockQualityTaskServiceImpl implements DisposableBean {
                 message.getSourceMode(),
                 message.getOriginalFilename());
 
-        // 使用结果中的 duration 模拟实际推理耗时，保证轮询和进度更接近真实体验。
-        long sleepMs = resolveDuration(result);
-        Thread.sleep(Math.max(300L, sleepMs));
-        snapshot.setResult(enrichResultPatientInfo(
+        // 使用结果中的 duration 模拟实际推理耗时，保证轮询和进度更接近真实体验；延迟期间不占用线程。
+        long delayMs = Math.max(300L, resolveDuration(result));
+        Runnable assembleStep = () -> snapshot.setResult(enrichResultPatientInfo(
                 enrichGenericMockResult(
                         result,
                         message.getTaskType(),
@@ -473,16 +981,84 @@ public class MockQualityTaskServiceImpl implements DisposableBean {
                         message.getSourceMode(),
                         message.getOriginalFilename()),
                 snapshot));
+        return new CompletableFuture<Runnable>().completeOnTimeout(assembleStep, delayMs, TimeUnit.MILLISECONDS);
     }
 
     /**
-     * 优先通过消息总线异步执行；若消息总线不可用则降级到本地线程池。
+     * 把模型服务的中间事件写入任务快照并推送给订阅方。
+     *
+     * <p>回调在模型服务网络线程上执行，这里只更新内存字段并把推送交给事件推送线程。</p>
      */
-    private void dispatchTask(MockQualityTaskSnapshot snapshot, MockQualityTaskMessage message) {
-        if (!messageBus.send(activeMqProperties.getQueue().getMockQualityTask(), message)) {
-            logger.info("消息总线未接管 mock 质控任务，改为本地异步执行: {}", snapshot.getTaskId());
-            fallbackExecutor.submit(() -> processTask(message));
-        }
+    private InferenceProgressListener createProgressListener(MockQualityTaskSnapshot snapshot) {
+        return event -> {
+            Object progressValue = event.get("progress");
+            Integer progress = progressValue instanceof Number number ? Integer.valueOf(number.intValue()) : parseInteger(progressValue);
+            if (progress != null) {
+                snapshot.setProgress(Math.max(0, Math.min(100, progress)));
+            }
+            String stage = normalizeObjectText(event.get("stage"));
+            if (stage != null) {
+                snapshot.setProgressStage(stage);
+            }
+            snapshot.setProgressUpdatedAt(LocalDateTime.now());
+            // 只在处理中状态上更新进度，终态之后才到达的进度事件不会覆盖终态。
+            taskStateStore.compareAndSet(STATUS_PROCESSING, toTaskState(snapshot));
+
+            Map<String, Object> payload = buildProgressView(snapshot);
+            payload.remove("partialQcItems");
+            String eventName = QualityTaskEventPublisher.EVENT_PROGRESS;
+            if (QualityTaskEventPublisher.EVENT_PARTIAL.equals(event.get("event"))
+                    && event.get("qc_item") instanceof Map<?, ?> qcItem) {
+                Map<String, Object> partialQcItem = new LinkedHashMap<>();
+                qcItem.forEach((key, value) -> partialQcItem.put(String.valueOf(key), value));
+                snapshot.addPartialQcItem(partialQcItem);
+                payload.put("qcItem", partialQcItem);
+                eventName = QualityTaskEventPublisher.EVENT_PARTIAL;
+            }
+            taskEventPublisher.publish(snapshot.getTaskId(), eventName, payload);
+        };
+    }
+
+    /**
+     * 组装运行期进度视图，字段名与任务详情接口保持一致。
+     */
+    private Map<String, Object> buildProgressView(MockQualityTaskSnapshot snapshot) {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("taskId", snapshot.getTaskId());
+        view.put("taskType", snapshot.getTaskType());
+        view.put("status", snapshot.getStatus());
+        view.put("progress", snapshot.getProgress());
+        view.put("progressStage", snapshot.getProgressStage());
+        view.put("partialQcItems", List.copyOf(snapshot.getPartialQcItems()));
+        return view;
+    }
+
+    /**
+     * 提取状态轮询所需的字段写入状态存储。
+     */
+    private QualityTaskState toTaskState(MockQualityTaskSnapshot snapshot) {
+        return new QualityTaskState(
+                snapshot.getTaskId(),
+                snapshot.getTaskType(),
+                snapshot.getUserId(),
+                snapshot.getStatus(),
+                snapshot.getProgress(),
+                snapshot.getProgressStage(),
+                snapshot.getErrorMessage(),
+                System.currentTimeMillis());
+    }
+
+    /**
+     * 组装终态事件；完整结果仍以任务详情接口为准，前端收到终态后读取一次详情即可。
+     */
+    private Map<String, Object> buildFinalView(MockQualityTaskSnapshot snapshot) {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("taskId", snapshot.getTaskId());
+        view.put("taskType", snapshot.getTaskType());
+        view.put("status", snapshot.getStatus());
+        view.put("progress", STATUS_SUCCESS.equals(snapshot.getStatus()) ? Integer.valueOf(100) : snapshot.getProgress());
+        view.put("errorMessage", snapshot.getErrorMessage());
+        return view;
     }
 
     /**
@@ -856,6 +1432,17 @@ public class MockQualityTaskServiceImpl implements DisposableBean {
         return enriched;
     }
 
+    /**
+     * 拆出 CompletableFuture 包装的真实异常。
+     */
+    private Throwable unwrap(Throwable error) {
+        Throwable current = error;
+        while (current instanceof CompletionException && current.getCause() != null) {
+            current = current.getCause();
+        }
+        return current;
+    }
+
     /**
      * 去空格并把空字符串转为 null。
      */
@@ -0,0 +1,198 @@
+package com.medical.qc.modules.qctask.application;
+
+import com.medical.qc.config.BatchQcJobProperties;
+import com.medical.qc.modules.pacs.application.support.TaskScopedPacsStudyStorageService;
+import com.medical.qc.modules.qctask.application.command.QualityBatchJobCreateCommand;
+import com.medical.qc.modules.qctask.application.support.QualityBatchJobRunner;
+import com.medical.qc.modules.unified.application.support.UnifiedBatchJobWriteService;
+import com.medical.qc.modules.unified.persistence.entity.UnifiedQcBatchJob;
+import com.medical.qc.support.MockQualityAnalysisSupport;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * PACS 批量质控作业应用服务。
+ *
+ * <p>负责作业的创建、查询与暂停 / 继续 / 取消；作业推进由 {@link QualityBatchJobRunner} 在后台完成，
+ * 每条检查通过任务服务创建 PACS 模式的质控任务。</p>
+ */
+@Service
+public class QualityBatchJobApplicationService {
+    private final UnifiedBatchJobWriteService batchJobWriteService;
+    private final TaskScopedPacsStudyStorageService pacsStudyStorageService;
+    private final BatchQcJobProperties properties;
+
+    public QualityBatchJobApplicationService(UnifiedBatchJobWriteService batchJobWriteService,
+                                             TaskScopedPacsStudyStorageService pacsStudyStorageService,
+                                             BatchQcJobProperties properties,
+                                             QualityBatchJobRunner batchJobRunner,
+                                             MockQualityTaskServiceImpl mockQualityTaskService) {
+        this.batchJobWriteService = batchJobWriteService;
+        this.pacsStudyStorageService = pacsStudyStorageService;
+        this.properties = properties;
+        batchJobRunner.bind((job, study, checkpointAction) -> mockQualityTaskService.submitPacsBatchTask(
+                job.getTaskTypeCode(),
+                study,
+                job.getSubmittedBy(),
+                checkpointAction));
+    }
+
+    /**
+     * 创建批量作业，统计日期范围内的检查数作为进度与预计剩余时间的基准。
+     */
+    public Map<String, Object> createJob(QualityBatchJobCreateCommand command, Long userId) {
+        if (command == null || !MockQualityAnalysisSupport.isSupportedTaskType(command.taskType())) {
+            throw new IllegalArgumentException("不支持的批量质控任务类型");
+        }
+        if (command.startDate() == null || command.endDate() == null) {
+            throw new IllegalArgumentException("检查日期范围不能为空");
+        }
+        if (command.endDate().isBefore(command.startDate())) {
+            throw new IllegalArgumentException("检查日期范围的结束日期不能早于开始日期");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        UnifiedQcBatchJob job = new UnifiedQcBatchJob();
+        job.setJobNo(UUID.randomUUID().toString());
+        job.setTaskTypeCode(command.taskType());
+        job.setStartDate(command.startDate());
+        job.setEndDate(command.endDate());
+        job.setJobStatus(UnifiedBatchJobWriteService.STATUS_PENDING);
+        job.setSubmittedBy(userId);
+        job.setScheduledAt(command.scheduledAt() == null || command.scheduledAt().isBefore(now) ? now : command.scheduledAt());
+        job.setTotalCount((int) pacsStudyStorageService.countStudiesInRange(
+                command.taskType(), command.startDate(), command.endDate()));
+        job.setDispatchedCount(0);
+        job.setFailedCount(0);
+        job.setResumedProcessedCount(0);
+        job.setCreatedAt(now);
+        job.setUpdatedAt(now);
+        batchJobWriteService.insertJob(job);
+        return toJobView(job, now);
+    }
+
+    /**
+     * 查询作业列表。
+     */
+    public List<Map<String, Object>> listJobs(Long scopedUserId) {
+        LocalDateTime now = LocalDateTime.now();
+        return batchJobWriteService.listJobs(scopedUserId, properties.getListLimit()).stream()
+                .map(job -> toJobView(job, now))
+                .toList();
+    }
+
+    /**
+     * 查询单个作业的进度、吞吐与预计剩余时间。
+     */
+    public Map<String, Object> getJob(String jobNo, Long scopedUserId) {
+        return toJobView(requireJob(jobNo, scopedUserId), LocalDateTime.now());
+    }
+
+    /**
+     * 暂停作业；正在推进的一块在下一条检查处停下。
+     */
+    public Map<String, Object> pauseJob(String jobNo, Long scopedUserId) {
+        return transition(jobNo, scopedUserId,
+                List.of(UnifiedBatchJobWriteService.STATUS_PENDING, UnifiedBatchJobWriteService.STATUS_RUNNING),
+                UnifiedBatchJobWriteService.STATUS_PAUSED,
+                "只有待执行或执行中的作业可以暂停");
+    }
+
+    /**
+     * 继续已暂停的作业，从断点开始推进。
+     */
+    public Map<String, Object> resumeJob(String jobNo, Long scopedUserId) {
+        return transition(jobNo, scopedUserId,
+                List.of(UnifiedBatchJobWriteService.STATUS_PAUSED),
+                UnifiedBatchJobWriteService.STATUS_PENDING,
+                "只有已暂停的作业可以继续");
+    }
+
+    /**
+     * 取消未结束的作业；已创建的任务不受影响。
+     */
+    public Map<String, Object> cancelJob(String jobNo, Long scopedUserId) {
+        return transition(jobNo, scopedUserId,
+                List.of(UnifiedBatchJobWriteService.STATUS_PENDING,
+                        UnifiedBatchJobWriteService.STATUS_RUNNING,
+                        UnifiedBatchJobWriteService.STATUS_PAUSED),
+                UnifiedBatchJobWriteService.STATUS_CANCELLED,
+                "作业已结束，无法取消");
+    }
+
+    private Map<String, Object> transition(String jobNo,
+                                           Long scopedUserId,
+                                           List<String> fromStatuses,
+                                           String toStatus,
+                                           String rejection) {
+        requireJob(jobNo, scopedUserId);
+        if (!batchJobWriteService.transitionJob(jobNo, scopedUserId, fromStatuses, toStatus, LocalDateTime.now())) {
+            throw new IllegalArgumentException(rejection);
+        }
+        return getJob(jobNo, scopedUserId);
+    }
+
+    private UnifiedQcBatchJob requireJob(String jobNo, Long scopedUserId) {
+        UnifiedQcBatchJob job = StringUtils.hasText(jobNo) ? batchJobWriteService.findJob(jobNo.trim(), scopedUserId) : null;
+        if (job == null) {
+            throw new IllegalArgumentException("批量质控作业不存在");
+        }
+        return job;
+    }
+
+    /**
+     * 组装作业视图。吞吐按本轮执行计算：本轮已处理检查数除以本轮已执行分钟数，预计剩余时间据此推算。
+     */
+    private Map<String, Object> toJobView(UnifiedQcBatchJob job, LocalDateTime now) {
+        int total = valueOf(job.getTotalCount());
+        int dispatched = valueOf(job.getDispatchedCount());
+        int failed = valueOf(job.getFailedCount());
+        int processed = dispatched + failed;
+        int remaining = Math.max(0, total - processed);
+
+        Double studiesPerMinute = null;
+        Long etaSeconds = null;
+        if (UnifiedBatchJobWriteService.STATUS_RUNNING.equals(job.getJobStatus()) && job.getResumedAt() != null) {
+            long elapsedMs = Duration.between(job.getResumedAt(), now).toMillis();
+            int processedThisRun = processed - valueOf(job.getResumedProcessedCount());
+            if (elapsedMs > 0 && processedThisRun > 0) {
+                double rate = processedThisRun * 60_000.0d / elapsedMs;
+                studiesPerMinute = Math.round(rate * 100.0d) / 100.0d;
+                etaSeconds = Math.round(remaining * 60.0d / rate);
+            }
+        }
+
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("jobId", job.getJobNo());
+        view.put("taskType", job.getTaskTypeCode());
+        view.put("taskTypeName", MockQualityAnalysisSupport.resolveTaskTypeName(job.getTaskTypeCode()));
+        view.put("startDate", job.getStartDate());
+        view.put("endDate", job.getEndDate());
+        view.put("status", job.getJobStatus());
+        view.put("scheduledAt", job.getScheduledAt());
+        view.put("totalCount", total);
+        view.put("dispatchedCount", dispatched);
+        view.put("failedCount", failed);
+        view.put("remainingCount", remaining);
+        view.put("progress", total == 0 ? 0 : Math.min(100, processed * 100 / total));
+        view.put("studiesPerMinute", studiesPerMinute);
+        view.put("etaSeconds", etaSeconds);
+        view.put("checkpointStudyDate", job.getCheckpointStudyDate());
+        view.put("lastError", job.getLastError());
+        view.put("startedAt", job.getStartedAt());
+        view.put("completedAt", job.getCompletedAt());
+        view.put("createdAt", job.getCreatedAt());
+        return view;
+    }
+
+    private static int valueOf(Integer value) {
+        return value == null ? 0 : value;
+    }
+}
@@ -1,10 +1,15 @@
 package com.medical.qc.modules.qctask.application;
 
 import com.medical.qc.modules.qctask.application.command.QualityTaskSubmitCommand;
+import com.medical.qc.modules.qctask.application.support.QualityTaskEventPublisher;
+import com.medical.qc.modules.qctask.application.support.QualityTaskState;
+import com.medical.qc.modules.qctask.application.support.QualityTaskStateStore;
 import com.medical.qc.modules.unified.application.UnifiedQcTaskQueryService;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -18,11 +23,19 @@ public class QualityTaskApplicationService {
     private final MockQualityTaskServiceImpl mockQualityTaskService;
     // 任务列表与详情查询统一走统一模型读服务。
     private final UnifiedQcTaskQueryService unifiedQcTaskQueryService;
+    // 任务事件流订阅由推送器统一管理。
+    private final QualityTaskEventPublisher taskEventPublisher;
+    // 状态轮询优先读取运行期状态存储。
+    private final QualityTaskStateStore taskStateStore;
 
     public QualityTaskApplicationService(MockQualityTaskServiceImpl mockQualityTaskService,
-                                         UnifiedQcTaskQueryService unifiedQcTaskQueryService) {
+                                         UnifiedQcTaskQueryService unifiedQcTaskQueryService,
+                                         QualityTaskEventPublisher taskEventPublisher,
+                                         QualityTaskStateStore taskStateStore) {
         this.mockQualityTaskService = mockQualityTaskService;
         this.unifiedQcTaskQueryService = unifiedQcTaskQueryService;
+        this.taskEventPublisher = taskEventPublisher;
+        this.taskStateStore = taskStateStore;
     }
 
     /**
@@ -40,7 +53,8 @@ public class QualityTaskApplicationService {
                 command.studyDate(),
                 command.sourceMode(),
                 command.metadata(),
-                command.user());
+                command.user(),
+                command.idempotencyKey());
     }
 
     /**
@@ -50,6 +64,69 @@ public class QualityTaskApplicationService {
         return unifiedQcTaskQueryService.getTaskDetail(taskId, scopedUserId);
     }
 
+    /**
+     * 查询单个任务的状态与推理进度。
+     *
+     * <p>命中状态存储且在访问范围内时直接返回，不访问数据库；状态已过期、不存在或提交人不匹配时
+     * 回退到详情接口，由其给出完整记录或按原规则报错。</p>
+     */
+    public Map<String, Object> getTaskStatus(String taskId, Long scopedUserId) {
+        QualityTaskState state = taskStateStore.get(taskId);
+        if (state != null && (scopedUserId == null || scopedUserId.equals(state.userId()))) {
+            return state.toView();
+        }
+        return unifiedQcTaskQueryService.getTaskDetail(taskId, scopedUserId);
+    }
+
+    /**
+     * 订阅单个任务的事件流。
+     *
+     * <p>先按详情接口的规则校验任务存在性和访问范围，再注册订阅并推送首个快照。
+     * 任务事件只在执行节点的内存中发布：任务由本节点执行时后续事件一定会送达；
+     * 否则任务已终态、排队中或由其他节点执行，按共享状态存储推送最新状态后立即结束订阅，
+     * 前端随即回退到轮询，不会在收不到事件的连接上一直等待。</p>
+     */
+    public SseEmitter subscribeTaskEvents(String taskId, Long scopedUserId) {
+        Map<String, Object> taskDetail = unifiedQcTaskQueryService.getTaskDetail(taskId, scopedUserId);
+        SseEmitter emitter = taskEventPublisher.subscribe(taskId);
+        try {
+            Map<String, Object> runningProgress = mockQualityTaskService.getRunningProgress(taskId);
+            if (runningProgress != null) {
+                Map<String, Object> snapshot = new HashMap<>(taskDetail);
+                snapshot.putAll(runningProgress);
+                taskEventPublisher.send(emitter, QualityTaskEventPublisher.EVENT_SNAPSHOT, snapshot, false);
+                return emitter;
+            }
+            // 订阅注册前任务可能刚好结束，重新读取一次详情保证前端拿到的是终态。
+            taskEventPublisher.unsubscribe(taskId, emitter);
+            taskEventPublisher.send(
+                    emitter,
+                    QualityTaskEventPublisher.EVENT_SNAPSHOT,
+                    latestSnapshot(taskId, scopedUserId),
+                    true);
+            return emitter;
+        } catch (RuntimeException exception) {
+            taskEventPublisher.unsubscribe(taskId, emitter);
+            throw exception;
+        }
+    }
+
+    /**
+     * 以数据库详情为底，叠加其他节点写入共享状态存储的状态与进度；详情已是终态时以详情为准。
+     */
+    private Map<String, Object> latestSnapshot(String taskId, Long scopedUserId) {
+        Map<String, Object> snapshot = new HashMap<>(unifiedQcTaskQueryService.getTaskDetail(taskId, scopedUserId));
+        Object detailStatus = snapshot.get("status");
+        if ("SUCCESS".equals(detailStatus) || "FAILED".equals(detailStatus)) {
+            return snapshot;
+        }
+        QualityTaskState state = taskStateStore.get(taskId);
+        if (state != null && (scopedUserId == null || scopedUserId.equals(state.userId()))) {
+            snapshot.putAll(state.toView());
+        }
+        return snapshot;
+    }
+
     /**
      * 查询任务分页列表。
      */
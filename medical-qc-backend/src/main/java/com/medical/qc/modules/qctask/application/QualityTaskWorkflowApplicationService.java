@@ -10,11 +10,11 @@ import com.medical.qc.modules.qctask.application.support.QualityTaskReportServic
 import com.medical.qc.modules.qctask.model.QcTaskRecord;
 import com.medical.qc.modules.unified.application.UnifiedQcTaskQueryService;
 import com.medical.qc.modules.unified.application.support.UnifiedQualityTaskWriteService;
+import com.medical.qc.shared.ai.InferencePriority;
 import com.medical.qc.support.MockQualityAnalysisSupport;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -64,40 +64,31 @@ public class QualityTaskWorkflowApplicationService {
 
     /**
      * 批量更新人工复核状态。
+     * 按集合查询和批量写入完成，返回逐条结果，单条失败不影响其他任务。
      */
     public Map<String, Object> batchUpdateReview(Long scopedUserId,
                                                  Long operatorId,
                                                  QualityTaskBatchReviewCommand command) {
-        List<Map<String, Object>> updatedItems = new ArrayList<>();
         List<String> taskIds = command == null || command.taskIds() == null ? List.of() : command.taskIds();
-        for (String taskId : taskIds) {
-            updatedItems.add(updateReview(
-                    taskId,
-                    scopedUserId,
-                    operatorId,
-                    new QualityTaskReviewCommand(
-                            command.reviewStatus(),
-                            command.reviewComment(),
-                            command.lockResult(),
-                            null)));
-        }
-        return Map.of(
-                "count", updatedItems.size(),
-                "items", updatedItems);
+        List<Map<String, Object>> items = unifiedQualityTaskWriteService.batchUpdateReview(
+                taskIds,
+                scopedUserId,
+                operatorId,
+                command == null ? null : command.reviewStatus(),
+                command == null ? null : command.reviewComment(),
+                command != null && Boolean.TRUE.equals(command.lockResult()));
+        return buildBatchResponse(items);
     }
 
     /**
      * 批量重跑质控任务。
+     * 原任务一次批量加载，新任务与 outbox 在一个事务内批量写入，并作为一批消息投递。
      */
     public Map<String, Object> batchRetry(User user, QualityTaskBatchRetryCommand command) {
-        List<Map<String, Object>> submitResults = new ArrayList<>();
         List<String> taskIds = command == null || command.taskIds() == null ? List.of() : command.taskIds();
-        for (String taskId : taskIds) {
-            submitResults.add(mockQualityTaskService.retryTask(taskId, user));
-        }
-        return Map.of(
-                "count", submitResults.size(),
-                "items", submitResults);
+        // 多条重跑属于后台批量修复，按 BULK 优先级排队，不挤占页面上同步等待的推理。
+        InferencePriority priority = taskIds.size() > 1 ? InferencePriority.BULK : InferencePriority.NORMAL;
+        return buildBatchResponse(mockQualityTaskService.retryTasks(taskIds, user, priority));
     }
 
     /**
@@ -112,11 +103,7 @@ public class QualityTaskWorkflowApplicationService {
      * 导出多条任务的 CSV 摘要。
      */
     public byte[] exportTaskCsv(List<String> taskIds, Long scopedUserId) {
-        List<Map<String, Object>> taskItems = new ArrayList<>();
-        for (String taskId : taskIds) {
-            taskItems.add(unifiedQcTaskQueryService.getTaskDetail(taskId, scopedUserId));
-        }
-        return qualityTaskReportService.buildTaskCsv(taskItems);
+        return qualityTaskReportService.buildTaskCsv(unifiedQcTaskQueryService.getTaskItems(taskIds, scopedUserId));
     }
 
     /**
@@ -183,4 +170,17 @@ public class QualityTaskWorkflowApplicationService {
         response.put("refreshedIssueCount", refreshedIssueCount);
         return response;
     }
+
+    /**
+     * 汇总批量操作的逐条结果。count 为成功条数，与原有接口口径一致。
+     */
+    private Map<String, Object> buildBatchResponse(List<Map<String, Object>> items) {
+        long successCount = items.stream().filter(item -> Boolean.TRUE.equals(item.get("success"))).count();
+        Map<String, Object> response = new HashMap<>();
+        response.put("count", successCount);
+        response.put("successCount", successCount);
+        response.put("failedCount", items.size() - successCount);
+        response.put("items", items);
+        return response;
+    }
 }
@@ -0,0 +1,19 @@
+package com.medical.qc.modules.qctask.application.command;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * PACS 批量质控作业创建命令。
+ *
+ * @param taskType 质控项类型，决定扫描哪张 PACS 缓存表
+ * @param startDate 检查日期范围起点（含）
+ * @param endDate 检查日期范围终点（含）
+ * @param scheduledAt 最早开始执行时间；为空时立即开始
+ */
+public record QualityBatchJobCreateCommand(
+        String taskType,
+        LocalDate startDate,
+        LocalDate endDate,
+        LocalDateTime scheduledAt) {
+}
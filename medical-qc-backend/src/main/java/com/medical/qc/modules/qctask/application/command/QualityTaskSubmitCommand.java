@@ -20,6 +20,7 @@ import java.util.Map;
  * @param sourceMode 来源模式，local 或 pacs
  * @param metadata 任务专属附加元数据
  * @param user 当前提交任务的登录用户
+ * @param idempotencyKey 客户端通过 Idempotency-Key 请求头提供的幂等键，可为空
  */
 public record QualityTaskSubmitCommand(String taskType,
                                        MultipartFile file,
@@ -31,6 +32,7 @@ public record QualityTaskSubmitCommand(String taskType,
                                        LocalDate studyDate,
                                        String sourceMode,
                                        Map<String, Object> metadata,
-                                       User user) {
+                                       User user,
+                                       String idempotencyKey) {
 }
 
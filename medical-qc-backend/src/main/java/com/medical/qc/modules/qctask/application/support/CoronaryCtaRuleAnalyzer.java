@@ -21,8 +21,16 @@ public class CoronaryCtaRuleAnalyzer {
     private static final String MODEL_CODE = "coronary_cta_qc_rule_v1";
     private static final String MODEL_VERSION = "rules-2026.03";
 
+    // 同一体数据的统计在重跑和多次规则评估间复用。
+    private final NiftiVolumeStatsCache volumeStatsCache;
+
+    public CoronaryCtaRuleAnalyzer(NiftiVolumeStatsCache volumeStatsCache) {
+        this.volumeStatsCache = volumeStatsCache;
+    }
+
     public Map<String, Object> analyze(CoronaryCtaPreparedContext context) {
-        NiftiSampleStats sampleStats = loadSampleStats(context.analysisVolumePath());
+        NiftiVolumeStats volumeStats = loadVolumeStats(context.analysisVolumePath());
+        NiftiSampleStats sampleStats = volumeStats == null ? null : volumeStats.sampleStats();
 
         Map<String, Object> patientInfo = RuleAnalysisSupport.createPatientInfo(
                 context.patientName(),
@@ -45,6 +53,8 @@ public class CoronaryCtaRuleAnalyzer {
             patientInfo.put("pixelSpacing", List.of(sampleStats.spacingX(), sampleStats.spacingY()));
             patientInfo.put("volumeMeanHu", sampleStats.meanHu());
             patientInfo.put("volumeNoiseStdHu", sampleStats.stdHu());
+            patientInfo.put("volumeP95Hu", volumeStats.percentileHu(95.0D));
+            patientInfo.put("volumeP99Hu", volumeStats.percentileHu(99.0D));
         }
 
         List<Map<String, Object>> qcItems = new ArrayList<>();
@@ -224,7 +234,7 @@ public class CoronaryCtaRuleAnalyzer {
         return passItem("CTA_METAL_ARTIFACT", "金属/线束伪影", "高密度峰值用于粗评估金属或线束伪影风险。", "未见明显金属/线束伪影高风险特征。");
     }
 
-    private NiftiSampleStats loadSampleStats(String analysisVolumePath) {
+    private NiftiVolumeStats loadVolumeStats(String analysisVolumePath) {
         if (!StringUtils.hasText(analysisVolumePath)) {
             return null;
         }
@@ -233,7 +243,7 @@ public class CoronaryCtaRuleAnalyzer {
             return null;
         }
         try {
-            return NiftiSampleStatsReader.read(filePath);
+            return volumeStatsCache.getVolumeStats(filePath);
         } catch (Exception exception) {
             return null;
         }
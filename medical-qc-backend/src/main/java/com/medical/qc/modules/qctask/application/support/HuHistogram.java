@@ -0,0 +1,123 @@
+package com.medical.qc.modules.qctask.application.support;
+
+import java.util.Arrays;
+
+/**
+ * 固定分箱的 HU 直方图。
+ *
+ * <p>[-1024, 3072) HU 按 2 HU 一箱，低于下限和不低于上限的值分别计入首尾两个溢出箱。分箱固定，
+ * 不同层、不同线程的直方图可以直接逐箱相加。百分位按箱内均匀分布线性插值，误差不超过一个箱宽。</p>
+ */
+public final class HuHistogram {
+    public static final double MIN_HU = -1024.0D;
+    public static final double MAX_HU = 3072.0D;
+    public static final double BIN_WIDTH_HU = 2.0D;
+    static final int RANGE_BINS = (int) ((MAX_HU - MIN_HU) / BIN_WIDTH_HU);
+    private static final double INVERSE_BIN_WIDTH = 1.0D / BIN_WIDTH_HU;
+
+    // 下标 0 为下溢箱，1..RANGE_BINS 为区间内各箱，末位为上溢箱。
+    private final long[] counts;
+
+    public HuHistogram() {
+        this(new long[RANGE_BINS + 2]);
+    }
+
+    private HuHistogram(long[] counts) {
+        this.counts = counts;
+    }
+
+    /**
+     * 由持久化的逐箱计数恢复直方图，箱数不符时返回 null。
+     */
+    static HuHistogram fromCounts(long[] counts) {
+        if (counts == null || counts.length != RANGE_BINS + 2) {
+            return null;
+        }
+        return new HuHistogram(counts.clone());
+    }
+
+    void add(double huValue) {
+        counts[binIndex(huValue)] += 1L;
+    }
+
+    void merge(HuHistogram other) {
+        for (int index = 0; index < counts.length; index++) {
+            counts[index] += other.counts[index];
+        }
+    }
+
+    long[] counts() {
+        return counts.clone();
+    }
+
+    public long count() {
+        long total = 0L;
+        for (long binCount : counts) {
+            total += binCount;
+        }
+        return total;
+    }
+
+    /**
+     * 第 percentile 百分位的 HU 值，percentile 取值 0 ~ 100；落在溢出箱时返回对应边界。
+     */
+    public double percentile(double percentile) {
+        long total = count();
+        if (total == 0L) {
+            return 0.0D;
+        }
+        double rank = Math.min(100.0D, Math.max(0.0D, percentile)) / 100.0D * total;
+        long cumulative = 0L;
+        for (int index = 0; index < counts.length; index++) {
+            long binCount = counts[index];
+            if (binCount == 0L || cumulative + binCount < rank) {
+                cumulative += binCount;
+                continue;
+            }
+            if (index == 0) {
+                return MIN_HU;
+            }
+            if (index == counts.length - 1) {
+                return MAX_HU;
+            }
+            double lowerEdge = MIN_HU + (index - 1) * BIN_WIDTH_HU;
+            return lowerEdge + (rank - cumulative) / binCount * BIN_WIDTH_HU;
+        }
+        return MAX_HU;
+    }
+
+    /**
+     * 不低于 huValue 所在箱下沿的体素占比；huValue 落在箱边界上（如 250 HU）时为精确值。
+     */
+    public double fractionAtOrAbove(double huValue) {
+        long total = count();
+        if (total == 0L) {
+            return 0.0D;
+        }
+        long above = 0L;
+        for (int index = binIndex(huValue); index < counts.length; index++) {
+            above += counts[index];
+        }
+        return (double) above / total;
+    }
+
+    private static int binIndex(double huValue) {
+        if (!(huValue >= MIN_HU)) {
+            return 0;
+        }
+        if (huValue >= MAX_HU) {
+            return RANGE_BINS + 1;
+        }
+        return 1 + (int) ((huValue - MIN_HU) * INVERSE_BIN_WIDTH);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other || other instanceof HuHistogram histogram && Arrays.equals(counts, histogram.counts);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(counts);
+    }
+}
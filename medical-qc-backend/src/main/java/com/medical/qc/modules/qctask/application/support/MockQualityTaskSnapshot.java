@@ -2,7 +2,9 @@ package com.medical.qc.modules.qctask.application.support;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * 异步质控任务执行期快照。
@@ -12,6 +14,8 @@ import java.util.Map;
 public class MockQualityTaskSnapshot {
     // 数据库主记录 ID，用于任务完成后回写状态与工单同步。
     private Long recordId;
+    // 关联的检查 ID，批量重跑时直接复用，不再按检查号回查。
+    private Long studyId;
     // 前后端统一使用的任务 ID。
     private String taskId;
     // 任务类型编码。
@@ -47,6 +51,12 @@ public class MockQualityTaskSnapshot {
     private Map<String, Object> result;
     // 失败时保留错误信息。
     private String errorMessage;
+    // 推理进度与当前阶段，由模型服务中间事件更新，只在任务运行期有效，不落库。
+    private volatile Integer progress;
+    private volatile String progressStage;
+    private volatile LocalDateTime progressUpdatedAt;
+    // 推理过程中已得出的质控项，最终以 result 为准；写入在网络线程，读取在请求线程。
+    private final List<Map<String, Object>> partialQcItems = new CopyOnWriteArrayList<>();
 
     // 以下访问器同时服务于内存快照、数据库同步和控制器响应。
     public Long getRecordId() {
@@ -57,6 +67,14 @@ public class MockQualityTaskSnapshot {
         this.recordId = recordId;
     }
 
+    public Long getStudyId() {
+        return studyId;
+    }
+
+    public void setStudyId(Long studyId) {
+        this.studyId = studyId;
+    }
+
     public String getTaskId() {
         return taskId;
     }
@@ -216,5 +234,36 @@ public class MockQualityTaskSnapshot {
     public void setErrorMessage(String errorMessage) {
         this.errorMessage = errorMessage;
     }
-}
 
+    public Integer getProgress() {
+        return progress;
+    }
+
+    public void setProgress(Integer progress) {
+        this.progress = progress;
+    }
+
+    public String getProgressStage() {
+        return progressStage;
+    }
+
+    public void setProgressStage(String progressStage) {
+        this.progressStage = progressStage;
+    }
+
+    public LocalDateTime getProgressUpdatedAt() {
+        return progressUpdatedAt;
+    }
+
+    public void setProgressUpdatedAt(LocalDateTime progressUpdatedAt) {
+        this.progressUpdatedAt = progressUpdatedAt;
+    }
+
+    public List<Map<String, Object>> getPartialQcItems() {
+        return partialQcItems;
+    }
+
+    public void addPartialQcItem(Map<String, Object> qcItem) {
+        partialQcItems.add(qcItem);
+    }
+}
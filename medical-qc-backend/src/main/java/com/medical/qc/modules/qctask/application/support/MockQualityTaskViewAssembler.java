@@ -71,10 +71,37 @@ public class MockQualityTaskViewAssembler {
         response.put("mock", snapshot.isMock());
         response.put("submittedAt", formatDateTime(snapshot.getSubmittedAt()));
         response.put("pollingUrl", "/api/v1/quality/tasks/" + snapshot.getTaskId());
+        response.put("eventsUrl", "/api/v1/quality/tasks/" + snapshot.getTaskId() + "/events");
         response.put("message", "质控任务已提交，请轮询任务结果接口");
         return response;
     }
 
+    /**
+     * 组装重复提交的响应，指向窗口期内已存在的任务。
+     * 优先使用本节点的运行期快照，其次使用状态存储中的状态，都不存在时只返回任务号与查询地址。
+     */
+    public Map<String, Object> toDuplicateSubmitResponse(String taskId,
+                                                         MockQualityTaskSnapshot snapshot,
+                                                         QualityTaskState state) {
+        Map<String, Object> response;
+        if (snapshot != null) {
+            response = toSubmitResponse(snapshot);
+        } else {
+            response = new HashMap<>();
+            response.put("taskId", taskId);
+            if (state != null) {
+                response.put("taskType", state.taskType());
+                response.put("taskTypeName", MockQualityAnalysisSupport.resolveTaskTypeName(state.taskType()));
+                response.put("status", state.status());
+            }
+            response.put("pollingUrl", "/api/v1/quality/tasks/" + taskId);
+            response.put("eventsUrl", "/api/v1/quality/tasks/" + taskId + "/events");
+        }
+        response.put("duplicate", true);
+        response.put("message", "检测到重复提交，已返回已有质控任务");
+        return response;
+    }
+
     /**
      * 组装任务列表单行数据。
      */
@@ -0,0 +1,310 @@
+package com.medical.qc.modules.qctask.application.support;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+/**
+ * .nii.gz 随机访问索引。
+ *
+ * <p>首次打开时顺序解压一遍，把解压后的数据按固定大小切块，每块独立做 raw deflate 压缩，连同块偏移表写入上传文件旁的
+ * {@value #SIDECAR_SUFFIX} 附属文件。之后读取任意区间只需解压覆盖它的块，不同区间可在多个线程上并行解压。
+ * JDK 的 {@link Inflater} 不能在原始 deflate 流的块边界暂停并导出状态，无法直接在原文件上记录检查点，
+ * 因此附属文件自带按块重新压缩的数据，体积与源文件相当，上传目录的占用接近翻倍。
+ * 附属文件记录源文件大小与修改时间，源文件变化或附属文件损坏时重建。</p>
+ *
+ * <p>实例持有附属文件的只读通道，按位置读取是线程安全的；使用完毕后需关闭。</p>
+ */
+final class NiftiGzipIndex implements Closeable {
+    static final String SIDECAR_SUFFIX = ".gzidx";
+    // 默认每 4 MiB 解压数据一个检查点。
+    static final int DEFAULT_CHUNK_BYTES = 4 * 1024 * 1024;
+    // 附属文件尾部：魔数、源文件大小、源文件修改时间、解压后总长度、块大小、块数。
+    private static final long MAGIC = 0x4E51475A49445831L;
+    private static final int TRAILER_BYTES = 8 + 8 + 8 + 8 + 4 + 4;
+
+    private final FileChannel channel;
+    private final long uncompressedSize;
+    private final int chunkBytes;
+    // 各块在附属文件中的起始位置，末尾多一项作为最后一块的结束位置。
+    private final long[] chunkOffsets;
+
+    private NiftiGzipIndex(FileChannel channel, long uncompressedSize, int chunkBytes, long[] chunkOffsets) {
+        this.channel = channel;
+        this.uncompressedSize = uncompressedSize;
+        this.chunkBytes = chunkBytes;
+        this.chunkOffsets = chunkOffsets;
+    }
+
+    static NiftiGzipIndex open(Path gzipPath) throws IOException {
+        return open(gzipPath, DEFAULT_CHUNK_BYTES);
+    }
+
+    /**
+     * 打开源文件对应的索引，附属文件缺失、过期或损坏时先重建。
+     */
+    static NiftiGzipIndex open(Path gzipPath, int chunkBytes) throws IOException {
+        Path sidecarPath = sidecarPath(gzipPath);
+        long sourceSize = Files.size(gzipPath);
+        long sourceModifiedAt = Files.getLastModifiedTime(gzipPath).toMillis();
+        if (Files.exists(sidecarPath)) {
+            NiftiGzipIndex index = load(sidecarPath, sourceSize, sourceModifiedAt);
+            if (index != null) {
+                return index;
+            }
+        }
+        build(gzipPath, sidecarPath, Math.max(1, chunkBytes), sourceSize, sourceModifiedAt);
+        NiftiGzipIndex index = load(sidecarPath, sourceSize, sourceModifiedAt);
+        if (index == null) {
+            throw new IOException("NIfTI 压缩索引写入后校验失败");
+        }
+        return index;
+    }
+
+    static Path sidecarPath(Path gzipPath) {
+        return gzipPath.resolveSibling(gzipPath.getFileName() + SIDECAR_SUFFIX);
+    }
+
+    long uncompressedSize() {
+        return uncompressedSize;
+    }
+
+    int chunkBytes() {
+        return chunkBytes;
+    }
+
+    int chunkCount() {
+        return chunkOffsets.length - 1;
+    }
+
+    /**
+     * 读取解压后 [position, position + length) 区间，只解压与区间重叠的块。
+     */
+    byte[] read(long position, int length) throws IOException {
+        if (position < 0L || length < 0 || position + length > uncompressedSize) {
+            throw new EOFException("读取 NIfTI 体素数据时提前结束");
+        }
+        byte[] target = new byte[length];
+        if (length == 0) {
+            return target;
+        }
+        int firstChunk = (int) (position / chunkBytes);
+        int lastChunk = (int) ((position + length - 1L) / chunkBytes);
+        Inflater inflater = new Inflater(true);
+        try {
+            byte[] chunk = null;
+            for (int chunkIndex = firstChunk; chunkIndex <= lastChunk; chunkIndex++) {
+                long chunkStart = (long) chunkIndex * chunkBytes;
+                int chunkLength = (int) Math.min(chunkBytes, uncompressedSize - chunkStart);
+                long copyStart = Math.max(position, chunkStart);
+                long copyEnd = Math.min(position + length, chunkStart + chunkLength);
+                int targetOffset = (int) (copyStart - position);
+                if (copyStart == chunkStart && copyEnd == chunkStart + chunkLength) {
+                    // 整块落在区间内时直接解压到目标数组。
+                    inflateChunk(inflater, chunkIndex, target, targetOffset, chunkLength);
+                } else {
+                    // 区间首尾的块只解压到需要的位置为止。
+                    int inflateLength = (int) (copyEnd - chunkStart);
+                    if (chunk == null) {
+                        chunk = new byte[chunkBytes];
+                    }
+                    inflateChunk(inflater, chunkIndex, chunk, 0, inflateLength);
+                    System.arraycopy(chunk, (int) (copyStart - chunkStart), target, targetOffset, (int) (copyEnd - copyStart));
+                }
+                inflater.reset();
+            }
+        } finally {
+            inflater.end();
+        }
+        return target;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void inflateChunk(Inflater inflater, int chunkIndex, byte[] target, int offset, int length) throws IOException {
+        int compressedLength = (int) (chunkOffsets[chunkIndex + 1] - chunkOffsets[chunkIndex]);
+        ByteBuffer compressed = ByteBuffer.allocate(compressedLength);
+        while (compressed.hasRemaining()) {
+            if (channel.read(compressed, chunkOffsets[chunkIndex] + compressed.position()) < 0) {
+                throw new EOFException("NIfTI 压缩索引数据不完整");
+            }
+        }
+        inflater.setInput(compressed.array());
+        int produced = 0;
+        try {
+            while (produced < length) {
+                int inflated = inflater.inflate(target, offset + produced, length - produced);
+                if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new EOFException("NIfTI 压缩索引数据不完整");
+                }
+                produced += inflated;
+            }
+        } catch (DataFormatException exception) {
+            throw new IOException("NIfTI 压缩索引数据损坏", exception);
+        }
+    }
+
+    /**
+     * 读取并校验附属文件，源文件已变化或附属文件不完整时返回 null。
+     */
+    private static NiftiGzipIndex load(Path sidecarPath, long sourceSize, long sourceModifiedAt) throws IOException {
+        FileChannel channel = FileChannel.open(sidecarPath, StandardOpenOption.READ);
+        try {
+            long fileSize = channel.size();
+            if (fileSize < TRAILER_BYTES) {
+                channel.close();
+                return null;
+            }
+            ByteBuffer trailer = readAt(channel, fileSize - TRAILER_BYTES, TRAILER_BYTES);
+            long magic = trailer.getLong();
+            long recordedSourceSize = trailer.getLong();
+            long recordedModifiedAt = trailer.getLong();
+            long uncompressedSize = trailer.getLong();
+            int chunkBytes = trailer.getInt();
+            int chunkCount = trailer.getInt();
+            long tableBytes = (chunkCount + 1L) * Long.BYTES;
+            if (magic != MAGIC
+                    || recordedSourceSize != sourceSize
+                    || recordedModifiedAt != sourceModifiedAt
+                    || chunkBytes <= 0
+                    || chunkCount < 0
+                    || uncompressedSize < 0L
+                    || (uncompressedSize + chunkBytes - 1L) / chunkBytes != chunkCount
+                    || tableBytes > fileSize - TRAILER_BYTES) {
+                channel.close();
+                return null;
+            }
+            ByteBuffer table = readAt(channel, fileSize - TRAILER_BYTES - tableBytes, (int) tableBytes);
+            long[] chunkOffsets = new long[chunkCount + 1];
+            for (int index = 0; index < chunkOffsets.length; index++) {
+                chunkOffsets[index] = table.getLong();
+                if (index > 0 && chunkOffsets[index] < chunkOffsets[index - 1]) {
+                    channel.close();
+                    return null;
+                }
+            }
+            if (chunkOffsets[0] != 0L || chunkOffsets[chunkCount] != fileSize - TRAILER_BYTES - tableBytes) {
+                channel.close();
+                return null;
+            }
+            return new NiftiGzipIndex(channel, uncompressedSize, chunkBytes, chunkOffsets);
+        } catch (IOException | RuntimeException exception) {
+            channel.close();
+            throw exception;
+        }
+    }
+
+    /**
+     * 顺序解压源文件并按块重新压缩写入临时文件，完成后原子替换附属文件，并发构建时以最后完成者为准。
+     */
+    private static void build(Path gzipPath,
+                              Path sidecarPath,
+                              int chunkBytes,
+                              long sourceSize,
+                              long sourceModifiedAt) throws IOException {
+        Path tempPath = sidecarPath.resolveSibling(sidecarPath.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try (InputStream inputStream = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(gzipPath)), 64 * 1024);
+             FileChannel output = FileChannel.open(tempPath, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW)) {
+            byte[] chunk = new byte[chunkBytes];
+            byte[] compressed = new byte[64 * 1024];
+            long[] chunkOffsets = new long[16];
+            int chunkCount = 0;
+            long uncompressedSize = 0L;
+            long written = 0L;
+            int filled;
+            while ((filled = fill(inputStream, chunk)) > 0) {
+                if (chunkCount + 1 >= chunkOffsets.length) {
+                    chunkOffsets = Arrays.copyOf(chunkOffsets, chunkOffsets.length * 2);
+                }
+                chunkOffsets[chunkCount++] = written;
+                deflater.reset();
+                deflater.setInput(chunk, 0, filled);
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int length = deflater.deflate(compressed);
+                    written += writeFully(output, ByteBuffer.wrap(compressed, 0, length));
+                }
+                uncompressedSize += filled;
+            }
+            chunkOffsets[chunkCount] = written;
+
+            ByteBuffer table = ByteBuffer.allocate((chunkCount + 1) * Long.BYTES + TRAILER_BYTES).order(ByteOrder.BIG_ENDIAN);
+            for (int index = 0; index <= chunkCount; index++) {
+                table.putLong(chunkOffsets[index]);
+            }
+            table.putLong(MAGIC)
+                    .putLong(sourceSize)
+                    .putLong(sourceModifiedAt)
+                    .putLong(uncompressedSize)
+                    .putInt(chunkBytes)
+                    .putInt(chunkCount)
+                    .flip();
+            writeFully(output, table);
+            output.force(true);
+        } catch (IOException | RuntimeException exception) {
+            Files.deleteIfExists(tempPath);
+            throw exception;
+        } finally {
+            deflater.end();
+        }
+
+        try {
+            Files.move(tempPath, sidecarPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException exception) {
+            Files.move(tempPath, sidecarPath, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException exception) {
+            Files.deleteIfExists(tempPath);
+            throw exception;
+        }
+    }
+
+    private static int fill(InputStream inputStream, byte[] buffer) throws IOException {
+        int filled = 0;
+        while (filled < buffer.length) {
+            int read = inputStream.read(buffer, filled, buffer.length - filled);
+            if (read < 0) {
+                break;
+            }
+            filled += read;
+        }
+        return filled;
+    }
+
+    private static int writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        int length = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        return length;
+    }
+
+    private static ByteBuffer readAt(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("NIfTI 压缩索引数据不完整");
+            }
+        }
+        return buffer.flip();
+    }
+}
@@ -0,0 +1,112 @@
+package com.medical.qc.modules.qctask.application.support;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * 体数据统计所需的 NIfTI-1 头字段，供采样读取器和分层统计引擎共用。
+ */
+record NiftiHeader(int width,
+                   int height,
+                   int depth,
+                   int datatype,
+                   int bytesPerVoxel,
+                   double spacingX,
+                   double spacingY,
+                   double spacingZ,
+                   double slope,
+                   double intercept,
+                   int voxOffset,
+                   ByteOrder byteOrder) {
+    static final int HEADER_SIZE = 348;
+    // 采样模式下的最大样本数，采样步长据此按体素总数推算。
+    static final int DEFAULT_MAX_SAMPLES = 50_000;
+
+    /**
+     * 从文件起始位置读取并解析头部，不改变通道位置。
+     */
+    static NiftiHeader read(FileChannel channel) throws IOException {
+        ByteBuffer headerBuffer = ByteBuffer.allocate(HEADER_SIZE);
+        while (headerBuffer.hasRemaining()) {
+            if (channel.read(headerBuffer, headerBuffer.position()) < 0) {
+                throw new EOFException("读取 NIfTI 体素数据时提前结束");
+            }
+        }
+        return parse(headerBuffer.array());
+    }
+
+    static NiftiHeader parse(byte[] headerBytes) throws IOException {
+        ByteOrder byteOrder = resolveByteOrder(headerBytes);
+        ByteBuffer header = ByteBuffer.wrap(headerBytes).order(byteOrder);
+
+        int width = header.getShort(42);
+        int height = header.getShort(44);
+        int depth = header.getShort(46);
+        int datatype = header.getShort(70);
+        int bitpix = header.getShort(72);
+        double slope = header.getFloat(112);
+        if (Math.abs(slope) < 1e-8D) {
+            slope = 1.0D;
+        }
+        if (width <= 0 || height <= 0 || depth <= 0) {
+            throw new IOException("NIfTI 维度非法");
+        }
+        return new NiftiHeader(
+                width,
+                height,
+                depth,
+                datatype,
+                Math.max(1, bitpix / 8),
+                header.getFloat(80),
+                header.getFloat(84),
+                header.getFloat(88),
+                slope,
+                header.getFloat(116),
+                Math.max(352, (int) Math.floor(header.getFloat(108))),
+                byteOrder);
+    }
+
+    long voxelCount() {
+        return (long) width * height * depth;
+    }
+
+    long sliceVoxelCount() {
+        return (long) width * height;
+    }
+
+    long sliceBytes() {
+        return sliceVoxelCount() * bytesPerVoxel;
+    }
+
+    long sampleStride() {
+        return Math.max(1L, voxelCount() / DEFAULT_MAX_SAMPLES);
+    }
+
+    /**
+     * 按绝对下标解码一个体素的原始值，缓冲区字节序需已设置为文件字节序。
+     */
+    double decodeVoxel(ByteBuffer buffer, int position) throws IOException {
+        return switch (datatype) {
+            case 2 -> Byte.toUnsignedInt(buffer.get(position));
+            case 4 -> buffer.getShort(position);
+            case 8 -> buffer.getInt(position);
+            case 16 -> buffer.getFloat(position);
+            default -> throw new IOException("暂不支持的 NIfTI datatype: " + datatype);
+        };
+    }
+
+    private static ByteOrder resolveByteOrder(byte[] headerBytes) throws IOException {
+        ByteBuffer littleEndian = ByteBuffer.wrap(headerBytes).order(ByteOrder.LITTLE_ENDIAN);
+        if (littleEndian.getInt(0) == HEADER_SIZE) {
+            return ByteOrder.LITTLE_ENDIAN;
+        }
+        ByteBuffer bigEndian = ByteBuffer.wrap(headerBytes).order(ByteOrder.BIG_ENDIAN);
+        if (bigEndian.getInt(0) == HEADER_SIZE) {
+            return ByteOrder.BIG_ENDIAN;
+        }
+        throw new IOException("无法识别 NIfTI 字节序");
+    }
+}
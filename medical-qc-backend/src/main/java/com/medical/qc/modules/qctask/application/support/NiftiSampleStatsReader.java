@@ -4,152 +4,224 @@ import java.io.BufferedInputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.zip.GZIPInputStream;
 
 /**
  * 读取 NIfTI 头和少量体素样本，用于规则分析阶段的轻量统计。
+ *
+ * <p>未压缩的 .nii 通过内存映射按采样步长直接定位样本体素，只触达被采样的页；
+ * .nii.gz 默认按流顺序解压。启用压缩索引时借助 {@link NiftiGzipIndex} 按窗口读取，后续窗口在公共 fork-join 池上提前并行解压，
+ * 索引是写在影像旁的完整副本，只在同一文件会被反复读取时才值得；不足一个检查点的小文件或无法写入索引时仍按流顺序解压。各路径采样同一组体素并按体素序号依次加入同一累加器，统计结果一致。</p>
  */
 public final class NiftiSampleStatsReader {
-    private static final int HEADER_SIZE = 348;
-    private static final int DEFAULT_MAX_SAMPLES = 50_000;
+    // 单个映射窗口的上限，避免超过 MappedByteBuffer 的 int 寻址范围。
+    static final long MAX_MAPPED_WINDOW_BYTES = 256L * 1024L * 1024L;
+    // 流式读取时每次整块读入的目标字节数。
+    private static final long STREAM_WINDOW_BYTES = 1024L * 1024L;
 
     private NiftiSampleStatsReader() {
     }
 
     public static NiftiSampleStats read(Path filePath) throws IOException {
+        return readVolumeStats(filePath).sampleStats();
+    }
+
+    /**
+     * 读取采样统计，并在同一遍采样中构建样本的 HU 直方图。
+     */
+    public static NiftiVolumeStats readVolumeStats(Path filePath) throws IOException {
+        return readVolumeStats(filePath, false);
+    }
+
+    /**
+     * 读取采样统计与直方图。
+     *
+     * @param gzipIndexEnabled 是否为 .nii.gz 建立并使用 .gzidx 压缩索引
+     */
+    public static NiftiVolumeStats readVolumeStats(Path filePath, boolean gzipIndexEnabled) throws IOException {
+        if (gzipIndexEnabled) {
+            return readVolumeStats(filePath, NiftiGzipIndex.DEFAULT_CHUNK_BYTES);
+        }
+        requireExists(filePath);
+        return isGzip(filePath) ? readStream(filePath) : readMapped(filePath);
+    }
+
+    static NiftiVolumeStats readVolumeStats(Path filePath, int gzipChunkBytes) throws IOException {
+        requireExists(filePath);
+        if (!isGzip(filePath)) {
+            return readMapped(filePath);
+        }
+        // 不足一个检查点的小文件直接顺序解压，不值得建立索引。
+        if (Files.size(filePath) < gzipChunkBytes) {
+            return readStream(filePath);
+        }
+        NiftiGzipIndex index;
+        try {
+            index = NiftiGzipIndex.open(filePath, gzipChunkBytes);
+        } catch (IOException exception) {
+            // 上传目录只读等原因无法写入索引时退回顺序解压。
+            return readStream(filePath);
+        }
+        try (index) {
+            return readIndexed(index);
+        }
+    }
+
+    private static void requireExists(Path filePath) throws IOException {
         if (filePath == null || !Files.exists(filePath)) {
             throw new IOException("NIfTI 文件不存在");
         }
+    }
 
-        try (InputStream rawStream = Files.newInputStream(filePath);
-             InputStream inputStream = createInputStream(filePath, rawStream)) {
-            byte[] headerBytes = readFully(inputStream, HEADER_SIZE);
-            ByteOrder byteOrder = resolveByteOrder(headerBytes);
-            ByteBuffer header = ByteBuffer.wrap(headerBytes).order(byteOrder);
-
-            int width = readShort(header, 42);
-            int height = readShort(header, 44);
-            int depth = readShort(header, 46);
-            int datatype = readShort(header, 70);
-            int bitpix = readShort(header, 72);
-            double spacingX = readFloat(header, 80);
-            double spacingY = readFloat(header, 84);
-            double spacingZ = readFloat(header, 88);
-            double slope = readFloat(header, 112);
-            double intercept = readFloat(header, 116);
-            if (Math.abs(slope) < 1e-8D) {
-                slope = 1.0D;
+    /**
+     * 内存映射读取：按 voxOffset + 体素序号 × 体素字节数计算样本位置，用绝对下标从映射缓冲区解码。
+     */
+    private static NiftiVolumeStats readMapped(Path filePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            NiftiHeader header = NiftiHeader.read(channel);
+            long dataBytes = header.voxelCount() * header.bytesPerVoxel();
+            if (channel.size() < header.voxOffset() + dataBytes) {
+                throw new EOFException("读取 NIfTI 体素数据时提前结束");
             }
 
-            int voxOffset = Math.max(352, (int) Math.floor(readFloat(header, 108)));
-            skipFully(inputStream, Math.max(0, voxOffset - HEADER_SIZE));
-
-            long voxelCount = (long) width * height * depth;
-            if (width <= 0 || height <= 0 || depth <= 0 || voxelCount <= 0L) {
-                throw new IOException("NIfTI 维度非法");
+            SampleAccumulator accumulator = new SampleAccumulator(header);
+            int bytesPerVoxel = header.bytesPerVoxel();
+            // 窗口体素数取采样步长的整数倍，窗口内的样本下标与全局采样下标对齐。
+            long windowVoxels = Math.max(1L, MAX_MAPPED_WINDOW_BYTES / bytesPerVoxel / header.sampleStride())
+                    * header.sampleStride();
+            for (long windowStart = 0L; windowStart < header.voxelCount(); windowStart += windowVoxels) {
+                long windowCount = Math.min(windowVoxels, header.voxelCount() - windowStart);
+                MappedByteBuffer window = channel.map(
+                        FileChannel.MapMode.READ_ONLY,
+                        header.voxOffset() + windowStart * bytesPerVoxel,
+                        windowCount * bytesPerVoxel);
+                window.order(header.byteOrder());
+                accumulator.addWindow(window, windowStart, (int) windowCount);
             }
-            int bytesPerVoxel = Math.max(1, bitpix / 8);
-            long sampleStride = Math.max(1L, voxelCount / DEFAULT_MAX_SAMPLES);
-
-            double mean = 0.0D;
-            double m2 = 0.0D;
-            long sampleCount = 0L;
-            double maxHu = Double.NEGATIVE_INFINITY;
-            long highDensityCount = 0L;
-            double[] sliceSums = new double[depth];
-            long[] sliceCounts = new long[depth];
-
-            byte[] voxelBuffer = new byte[bytesPerVoxel];
-            long sliceVoxelCount = (long) width * height;
-            for (long voxelIndex = 0; voxelIndex < voxelCount; voxelIndex++) {
-                readFully(inputStream, voxelBuffer, 0, bytesPerVoxel);
-                if (voxelIndex % sampleStride != 0L) {
-                    continue;
-                }
-
-                double huValue = convertVoxelValue(voxelBuffer, datatype, byteOrder) * slope + intercept;
-                sampleCount += 1L;
-                double delta = huValue - mean;
-                mean += delta / sampleCount;
-                m2 += delta * (huValue - mean);
-                maxHu = Math.max(maxHu, huValue);
-                if (huValue >= 250.0D) {
-                    highDensityCount += 1L;
-                }
+            return accumulator.toVolumeStats();
+        }
+    }
 
-                int sliceIndex = (int) Math.min(depth - 1L, voxelIndex / sliceVoxelCount);
-                sliceSums[sliceIndex] += huValue;
-                sliceCounts[sliceIndex] += 1L;
-            }
+    /**
+     * 索引读取：按约两个检查点的窗口解压，窗口体素数取采样步长的整数倍；当前窗口统计时，
+     * 后续窗口已在公共 fork-join 池上并行解压，样本仍按体素序号依次加入累加器。
+     */
+    private static NiftiVolumeStats readIndexed(NiftiGzipIndex index) throws IOException {
+        NiftiHeader header = NiftiHeader.parse(index.read(0L, NiftiHeader.HEADER_SIZE));
+        long dataBytes = header.voxelCount() * header.bytesPerVoxel();
+        if (index.uncompressedSize() < header.voxOffset() + dataBytes) {
+            throw new EOFException("读取 NIfTI 体素数据时提前结束");
+        }
 
-            List<Double> sampledSliceMeans = new ArrayList<>();
-            for (int index = 0; index < depth; index++) {
-                if (sliceCounts[index] > 0L) {
-                    sampledSliceMeans.add(sliceSums[index] / sliceCounts[index]);
+        SampleAccumulator accumulator = new SampleAccumulator(header);
+        long sampleStride = header.sampleStride();
+        int bytesPerVoxel = header.bytesPerVoxel();
+        long windowVoxels = Math.max(1L, 2L * index.chunkBytes() / bytesPerVoxel / sampleStride) * sampleStride;
+        if (windowVoxels * bytesPerVoxel > Integer.MAX_VALUE) {
+            throw new IOException("NIfTI 采样步长过大");
+        }
+        int prefetchWindows = Math.max(1, ForkJoinPool.commonPool().getParallelism());
+        Deque<CompletableFuture<byte[]>> pendingWindows = new ArrayDeque<>();
+        long nextWindowStart = 0L;
+        try {
+            for (long windowStart = 0L; windowStart < header.voxelCount(); windowStart += windowVoxels) {
+                while (pendingWindows.size() < prefetchWindows && nextWindowStart < header.voxelCount()) {
+                    long position = header.voxOffset() + nextWindowStart * bytesPerVoxel;
+                    int length = (int) (Math.min(windowVoxels, header.voxelCount() - nextWindowStart) * bytesPerVoxel);
+                    pendingWindows.add(CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return index.read(position, length);
+                        } catch (IOException exception) {
+                            throw new UncheckedIOException(exception);
+                        }
+                    }, ForkJoinPool.commonPool()));
+                    nextWindowStart += windowVoxels;
                 }
+                ByteBuffer window = ByteBuffer.wrap(join(pendingWindows.poll())).order(header.byteOrder());
+                accumulator.addWindow(window, windowStart, window.capacity() / bytesPerVoxel);
+            }
+        } finally {
+            // 出错时等待已提交的解压结束，再由调用方关闭索引。
+            for (CompletableFuture<byte[]> pendingWindow : pendingWindows) {
+                pendingWindow.handle((bytes, error) -> null).join();
             }
+        }
+        return accumulator.toVolumeStats();
+    }
 
-            double meanSliceShift = 0.0D;
-            if (sampledSliceMeans.size() > 1) {
-                double shiftSum = 0.0D;
-                for (int index = 1; index < sampledSliceMeans.size(); index++) {
-                    shiftSum += Math.abs(sampledSliceMeans.get(index) - sampledSliceMeans.get(index - 1));
-                }
-                meanSliceShift = shiftSum / (sampledSliceMeans.size() - 1);
+    private static byte[] join(CompletableFuture<byte[]> window) throws IOException {
+        try {
+            return window.join();
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof UncheckedIOException ioException) {
+                throw ioException.getCause();
             }
+            throw exception;
+        }
+    }
 
-            double variance = sampleCount > 1L ? m2 / (sampleCount - 1L) : 0.0D;
-            return new NiftiSampleStats(
-                    width,
-                    height,
-                    depth,
-                    spacingX,
-                    spacingY,
-                    spacingZ,
-                    sampleCount,
-                    round(mean),
-                    round(Math.sqrt(Math.max(variance, 0.0D))),
-                    round(maxHu == Double.NEGATIVE_INFINITY ? 0.0D : maxHu),
-                    round(sampleCount == 0L ? 0.0D : (double) highDensityCount / sampleCount),
-                    round(meanSliceShift));
+    /**
+     * 流式读取：按窗口整块读入复用的缓冲区，窗口体素数取采样步长的整数倍，只解码落在采样步长上的体素。
+     */
+    private static NiftiVolumeStats readStream(Path filePath) throws IOException {
+        try (InputStream rawStream = Files.newInputStream(filePath);
+             InputStream inputStream = createInputStream(filePath, rawStream)) {
+            NiftiHeader header = NiftiHeader.parse(readFully(inputStream, NiftiHeader.HEADER_SIZE));
+            skipFully(inputStream, Math.max(0, header.voxOffset() - NiftiHeader.HEADER_SIZE));
+
+            SampleAccumulator accumulator = new SampleAccumulator(header);
+            long sampleStride = header.sampleStride();
+            int bytesPerVoxel = header.bytesPerVoxel();
+            long windowVoxels = Math.max(1L, STREAM_WINDOW_BYTES / bytesPerVoxel / sampleStride) * sampleStride;
+            if (windowVoxels * bytesPerVoxel > Integer.MAX_VALUE) {
+                throw new IOException("NIfTI 采样步长过大");
+            }
+            byte[] windowBuffer = new byte[(int) (Math.min(windowVoxels, header.voxelCount()) * bytesPerVoxel)];
+            ByteBuffer windowView = ByteBuffer.wrap(windowBuffer).order(header.byteOrder());
+            for (long windowStart = 0L; windowStart < header.voxelCount(); windowStart += windowVoxels) {
+                int windowCount = (int) Math.min(windowVoxels, header.voxelCount() - windowStart);
+                readFully(inputStream, windowBuffer, 0, windowCount * bytesPerVoxel);
+                accumulator.addWindow(windowView, windowStart, windowCount);
+            }
+            return accumulator.toVolumeStats();
         }
     }
 
-    private static InputStream createInputStream(Path filePath, InputStream rawStream) throws IOException {
+    static boolean isGzip(Path filePath) {
         String filename = filePath.getFileName() == null ? "" : filePath.getFileName().toString().toLowerCase(Locale.ROOT);
+        return filename.endsWith(".nii.gz");
+    }
+
+    static InputStream createInputStream(Path filePath, InputStream rawStream) throws IOException {
         InputStream bufferedStream = new BufferedInputStream(rawStream);
-        if (filename.endsWith(".nii.gz")) {
+        if (isGzip(filePath)) {
             return new BufferedInputStream(new GZIPInputStream(bufferedStream));
         }
         return bufferedStream;
     }
 
-    private static ByteOrder resolveByteOrder(byte[] headerBytes) throws IOException {
-        ByteBuffer littleEndian = ByteBuffer.wrap(headerBytes).order(ByteOrder.LITTLE_ENDIAN);
-        if (littleEndian.getInt(0) == HEADER_SIZE) {
-            return ByteOrder.LITTLE_ENDIAN;
-        }
-        ByteBuffer bigEndian = ByteBuffer.wrap(headerBytes).order(ByteOrder.BIG_ENDIAN);
-        if (bigEndian.getInt(0) == HEADER_SIZE) {
-            return ByteOrder.BIG_ENDIAN;
-        }
-        throw new IOException("无法识别 NIfTI 字节序");
-    }
-
-    private static byte[] readFully(InputStream inputStream, int length) throws IOException {
+    static byte[] readFully(InputStream inputStream, int length) throws IOException {
         byte[] bytes = new byte[length];
         readFully(inputStream, bytes, 0, length);
         return bytes;
     }
 
-    private static void readFully(InputStream inputStream, byte[] buffer, int offset, int length) throws IOException {
+    static void readFully(InputStream inputStream, byte[] buffer, int offset, int length) throws IOException {
         int remaining = length;
         int cursor = offset;
         while (remaining > 0) {
@@ -162,7 +234,7 @@ public final class NiftiSampleStatsReader {
         }
     }
 
-    private static void skipFully(InputStream inputStream, long length) throws IOException {
+    static void skipFully(InputStream inputStream, long length) throws IOException {
         long remaining = length;
         while (remaining > 0L) {
             long skipped = inputStream.skip(remaining);
@@ -176,26 +248,113 @@ public final class NiftiSampleStatsReader {
         }
     }
 
-    private static int readShort(ByteBuffer buffer, int offset) {
-        return buffer.getShort(offset);
-    }
+    /**
+     * 相邻有样本层的层均值差的平均绝对值，没有样本的层被跳过。
+     */
+    static double meanAbsoluteSliceShift(double[] sliceSums, long[] sliceCounts) {
+        List<Double> sampledSliceMeans = new ArrayList<>();
+        for (int index = 0; index < sliceSums.length; index++) {
+            if (sliceCounts[index] > 0L) {
+                sampledSliceMeans.add(sliceSums[index] / sliceCounts[index]);
+            }
+        }
 
-    private static double readFloat(ByteBuffer buffer, int offset) {
-        return buffer.getFloat(offset);
+        double meanSliceShift = 0.0D;
+        if (sampledSliceMeans.size() > 1) {
+            double shiftSum = 0.0D;
+            for (int index = 1; index < sampledSliceMeans.size(); index++) {
+                shiftSum += Math.abs(sampledSliceMeans.get(index) - sampledSliceMeans.get(index - 1));
+            }
+            meanSliceShift = shiftSum / (sampledSliceMeans.size() - 1);
+        }
+        return meanSliceShift;
     }
 
-    private static double convertVoxelValue(byte[] bytes, int datatype, ByteOrder order) throws IOException {
-        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(order);
-        return switch (datatype) {
-            case 2 -> Byte.toUnsignedInt(bytes[0]);
-            case 4 -> buffer.getShort();
-            case 8 -> buffer.getInt();
-            case 16 -> buffer.getFloat();
-            default -> throw new IOException("暂不支持的 NIfTI datatype: " + datatype);
-        };
+    static double round(double value) {
+        return Math.round(value * 1000.0D) / 1000.0D;
     }
 
-    private static double round(double value) {
-        return Math.round(value * 1000.0D) / 1000.0D;
+    /**
+     * 样本累加器：Welford 均值方差、最大值、高密度计数、逐层均值和 HU 直方图，样本须按体素序号递增加入。
+     */
+    private static final class SampleAccumulator {
+        private final NiftiHeader header;
+        private final long sampleStride;
+        // 步长为 1（体素数不超过样本上限的两倍）时整块批量解码。
+        private final NiftiVoxelDecoder decoder;
+        private final HuHistogram histogram = new HuHistogram();
+        private final double[] sliceSums;
+        private final long[] sliceCounts;
+        private double mean;
+        private double m2;
+        private long sampleCount;
+        private double maxHu = Double.NEGATIVE_INFINITY;
+        private long highDensityCount;
+
+        private SampleAccumulator(NiftiHeader header) {
+            this.header = header;
+            this.sampleStride = header.sampleStride();
+            this.decoder = sampleStride == 1L && header.sliceVoxelCount() <= Integer.MAX_VALUE
+                    ? new NiftiVoxelDecoder(header)
+                    : null;
+            this.sliceSums = new double[header.depth()];
+            this.sliceCounts = new long[header.depth()];
+        }
+
+        /**
+         * 加入窗口内落在采样步长上的体素；窗口起点须与采样步长对齐，缓冲区字节序需已设置为文件字节序。
+         */
+        private void addWindow(ByteBuffer window, long windowStart, int windowCount) throws IOException {
+            int bytesPerVoxel = header.bytesPerVoxel();
+            if (decoder != null) {
+                for (int offset = 0; offset < windowCount; offset += decoder.sliceVoxelCount()) {
+                    int count = Math.min(decoder.sliceVoxelCount(), windowCount - offset);
+                    double[] huValues = decoder.decode(window, offset * bytesPerVoxel, count);
+                    for (int index = 0; index < count; index++) {
+                        add(windowStart + offset + index, huValues[index]);
+                    }
+                }
+                return;
+            }
+            for (long localIndex = 0L; localIndex < windowCount; localIndex += sampleStride) {
+                double rawValue = header.decodeVoxel(window, (int) (localIndex * bytesPerVoxel));
+                add(windowStart + localIndex, rawValue * header.slope() + header.intercept());
+            }
+        }
+
+        private void add(long voxelIndex, double huValue) {
+            sampleCount += 1L;
+            double delta = huValue - mean;
+            mean += delta / sampleCount;
+            m2 += delta * (huValue - mean);
+            maxHu = Math.max(maxHu, huValue);
+            if (huValue >= 250.0D) {
+                highDensityCount += 1L;
+            }
+
+            int sliceIndex = (int) Math.min(header.depth() - 1L, voxelIndex / header.sliceVoxelCount());
+            sliceSums[sliceIndex] += huValue;
+            sliceCounts[sliceIndex] += 1L;
+            histogram.add(huValue);
+        }
+
+        private NiftiVolumeStats toVolumeStats() {
+            double meanSliceShift = meanAbsoluteSliceShift(sliceSums, sliceCounts);
+            double variance = sampleCount > 1L ? m2 / (sampleCount - 1L) : 0.0D;
+            NiftiSampleStats stats = new NiftiSampleStats(
+                    header.width(),
+                    header.height(),
+                    header.depth(),
+                    header.spacingX(),
+                    header.spacingY(),
+                    header.spacingZ(),
+                    sampleCount,
+                    round(mean),
+                    round(Math.sqrt(Math.max(variance, 0.0D))),
+                    round(maxHu == Double.NEGATIVE_INFINITY ? 0.0D : maxHu),
+                    round(sampleCount == 0L ? 0.0D : (double) highDensityCount / sampleCount),
+                    round(meanSliceShift));
+            return new NiftiVolumeStats(stats, histogram);
+        }
     }
 }
@@ -0,0 +1,14 @@
+package com.medical.qc.modules.qctask.application.support;
+
+/**
+ * 体数据统计：汇总统计与同一遍扫描得到的 HU 直方图。
+ */
+public record NiftiVolumeStats(NiftiSampleStats sampleStats, HuHistogram histogram) {
+
+    /**
+     * 第 percentile 百分位的 HU 值，保留三位小数。
+     */
+    public double percentileHu(double percentile) {
+        return NiftiSampleStatsReader.round(histogram.percentile(percentile));
+    }
+}
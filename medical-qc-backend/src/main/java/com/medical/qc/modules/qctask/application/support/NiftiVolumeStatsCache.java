@@ -0,0 +1,269 @@
+package com.medical.qc.modules.qctask.application.support;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medical.qc.config.VolumeStatsCacheProperties;
+import com.medical.qc.shared.metrics.RuntimeMetricsSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 体数据统计缓存，供各规则分析器共用。
+ *
+ * <p>缓存键为规范化后的文件路径、文件大小与修改时间，文件被替换后自然失效。读取顺序为内存 LRU、影像文件旁的
+ * {@value #SIDECAR_SUFFIX} 附属文件，都未命中时才读取体素计算并回写两层。同一体数据的并发请求只计算一次，
+ * 其余请求等待同一结果。附属文件写入失败（如 PACS 只读目录）时只记指标，不影响分析。</p>
+ *
+ * <p>统计模式由 {@code app.volume-stats-cache.mode} 决定：sampled 经 {@link NiftiSampleStatsReader} 按采样步长统计，
+ * exact 经 {@link NiftiVolumeStatsEngine} 分层并行统计全部体素。附属文件记录统计模式，模式切换后旧文件不再命中。</p>
+ */
+@Component
+public class NiftiVolumeStatsCache implements RuntimeMetricsSource {
+    private static final Logger logger = LoggerFactory.getLogger(NiftiVolumeStatsCache.class);
+    static final String SIDECAR_SUFFIX = ".qcstats.json";
+    // 附属文件格式版本，统计口径变化时递增使旧文件失效；版本 2 起附带 HU 直方图。
+    private static final int SIDECAR_VERSION = 2;
+
+    private final VolumeStatsCacheProperties properties;
+    private final ObjectMapper objectMapper;
+    private final Map<VolumeKey, NiftiVolumeStats> entries;
+    private final Map<VolumeKey, CompletableFuture<NiftiVolumeStats>> inFlight = new ConcurrentHashMap<>();
+    // 统计缓存指标。
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong sidecarHits = new AtomicLong();
+    private final AtomicLong sharedLoads = new AtomicLong();
+    private final AtomicLong computations = new AtomicLong();
+    private final AtomicLong computeNanos = new AtomicLong();
+    private final AtomicLong sidecarWriteFailures = new AtomicLong();
+
+    public NiftiVolumeStatsCache(VolumeStatsCacheProperties properties, ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        int maxEntries = Math.max(1, properties.getMaxEntries());
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<VolumeKey, NiftiVolumeStats> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 读取体数据采样统计，命中缓存时不触碰体素数据。
+     */
+    public NiftiSampleStats getSampleStats(Path filePath) throws IOException {
+        return getVolumeStats(filePath).sampleStats();
+    }
+
+    /**
+     * 读取体数据采样统计与样本 HU 直方图，规则分析可据此取百分位阈值。
+     */
+    public NiftiVolumeStats getVolumeStats(Path filePath) throws IOException {
+        if (!properties.isEnabled()) {
+            return compute(filePath);
+        }
+        if (filePath == null || !Files.exists(filePath)) {
+            throw new IOException("NIfTI 文件不存在");
+        }
+        VolumeKey key = VolumeKey.of(filePath);
+        synchronized (entries) {
+            NiftiVolumeStats cached = entries.get(key);
+            if (cached != null) {
+                memoryHits.incrementAndGet();
+                return cached;
+            }
+        }
+
+        CompletableFuture<NiftiVolumeStats> loading = new CompletableFuture<>();
+        CompletableFuture<NiftiVolumeStats> existing = inFlight.putIfAbsent(key, loading);
+        if (existing != null) {
+            sharedLoads.incrementAndGet();
+            return await(existing);
+        }
+        try {
+            NiftiVolumeStats stats = load(filePath, key);
+            synchronized (entries) {
+                entries.put(key, stats);
+            }
+            loading.complete(stats);
+            return stats;
+        } catch (IOException | RuntimeException exception) {
+            loading.completeExceptionally(exception);
+            throw exception;
+        } finally {
+            inFlight.remove(key, loading);
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "volumeStatsCache";
+    }
+
+    @Override
+    public Map<String, Object> getMetricsSnapshot() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        long computed = computations.get();
+        metrics.put("enabled", properties.isEnabled());
+        metrics.put("mode", resolveMode(properties.getMode()).name());
+        metrics.put("entries", size);
+        metrics.put("memoryHits", memoryHits.get());
+        metrics.put("sidecarHits", sidecarHits.get());
+        metrics.put("sharedLoads", sharedLoads.get());
+        metrics.put("computations", computed);
+        metrics.put("avgComputeMs", computed == 0L ? 0.0D : computeNanos.get() / 1_000_000.0D / computed);
+        metrics.put("sidecarWriteFailures", sidecarWriteFailures.get());
+        return metrics;
+    }
+
+    private NiftiVolumeStats load(Path filePath, VolumeKey key) throws IOException {
+        Path sidecarPath = sidecarPath(filePath);
+        NiftiVolumeStatsEngine.Mode mode = resolveMode(properties.getMode());
+        if (properties.isSidecarEnabled()) {
+            NiftiVolumeStats stored = readSidecar(sidecarPath, key, mode);
+            if (stored != null) {
+                sidecarHits.incrementAndGet();
+                return stored;
+            }
+        }
+
+        long startedAt = System.nanoTime();
+        NiftiVolumeStats stats = compute(filePath, mode);
+        computeNanos.addAndGet(System.nanoTime() - startedAt);
+        computations.incrementAndGet();
+        if (properties.isSidecarEnabled()) {
+            writeSidecar(sidecarPath, new SidecarContent(
+                    SIDECAR_VERSION,
+                    key.size(),
+                    key.modifiedAt(),
+                    mode.name(),
+                    stats.sampleStats(),
+                    stats.histogram().counts()));
+        }
+        return stats;
+    }
+
+    private NiftiVolumeStats compute(Path filePath) throws IOException {
+        return compute(filePath, resolveMode(properties.getMode()));
+    }
+
+    private NiftiVolumeStats compute(Path filePath, NiftiVolumeStatsEngine.Mode mode) throws IOException {
+        if (mode == NiftiVolumeStatsEngine.Mode.EXACT) {
+            return NiftiVolumeStatsEngine.computeVolumeStats(filePath, mode);
+        }
+        // 缓存命中后不再读取体素，每个体数据只采样一遍，默认不建立压缩索引。
+        return NiftiSampleStatsReader.readVolumeStats(filePath, properties.isGzipIndexEnabled());
+    }
+
+    /**
+     * 解析统计模式，未配置或无法识别时按采样统计。
+     */
+    static NiftiVolumeStatsEngine.Mode resolveMode(String mode) {
+        return mode != null && "exact".equalsIgnoreCase(mode.trim())
+                ? NiftiVolumeStatsEngine.Mode.EXACT
+                : NiftiVolumeStatsEngine.Mode.SAMPLED;
+    }
+
+    private NiftiVolumeStats readSidecar(Path sidecarPath, VolumeKey key, NiftiVolumeStatsEngine.Mode mode) {
+        if (!Files.exists(sidecarPath)) {
+            return null;
+        }
+        try {
+            SidecarContent content = objectMapper.readValue(sidecarPath.toFile(), SidecarContent.class);
+            if (content.version() != SIDECAR_VERSION
+                    || content.sourceSize() != key.size()
+                    || content.sourceModifiedAt() != key.modifiedAt()
+                    || !mode.name().equals(content.mode() == null ? NiftiVolumeStatsEngine.Mode.SAMPLED.name() : content.mode())
+                    || content.sampleStats() == null) {
+                return null;
+            }
+            HuHistogram histogram = HuHistogram.fromCounts(content.histogramCounts());
+            return histogram == null ? null : new NiftiVolumeStats(content.sampleStats(), histogram);
+        } catch (IOException exception) {
+            // 附属文件损坏时按未命中处理，重新计算后覆盖。
+            logger.debug("读取体数据统计附属文件失败: {}", sidecarPath, exception);
+            return null;
+        }
+    }
+
+    /**
+     * 先写临时文件再原子替换，并发写入时读方不会看到半个文件。
+     */
+    private void writeSidecar(Path sidecarPath, SidecarContent content) {
+        Path tempPath = sidecarPath.resolveSibling(sidecarPath.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            objectMapper.writeValue(tempPath.toFile(), content);
+            try {
+                Files.move(tempPath, sidecarPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException exception) {
+                Files.move(tempPath, sidecarPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException exception) {
+            sidecarWriteFailures.incrementAndGet();
+            logger.debug("写入体数据统计附属文件失败: {}", sidecarPath, exception);
+            try {
+                Files.deleteIfExists(tempPath);
+            } catch (IOException ignored) {
+                // 临时文件清理失败不影响分析。
+            }
+        }
+    }
+
+    static Path sidecarPath(Path filePath) {
+        return filePath.resolveSibling(filePath.getFileName() + SIDECAR_SUFFIX);
+    }
+
+    private static NiftiVolumeStats await(CompletableFuture<NiftiVolumeStats> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (exception.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw exception;
+        }
+    }
+
+    /**
+     * 缓存键：规范化路径、文件大小与修改时间。
+     */
+    private record VolumeKey(String path, long size, long modifiedAt) {
+        static VolumeKey of(Path filePath) throws IOException {
+            return new VolumeKey(
+                    filePath.toAbsolutePath().normalize().toString(),
+                    Files.size(filePath),
+                    Files.getLastModifiedTime(filePath).toMillis());
+        }
+    }
+
+    /**
+     * 附属文件内容；未记录统计模式的旧文件按采样统计处理。
+     */
+    record SidecarContent(int version,
+                          long sourceSize,
+                          long sourceModifiedAt,
+                          String mode,
+                          NiftiSampleStats sampleStats,
+                          long[] histogramCounts) {
+    }
+}
@@ -0,0 +1,448 @@
+package com.medical.qc.modules.qctask.application.support;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * NIfTI 分层并行统计引擎。
+ *
+ * <p>按 z 层把体数据切分给 fork-join 任务，叶子任务逐层计算部分统计（样本数、均值、离差平方和、最大值等）并写入按层下标的
+ * 原始数组；全部层完成后，再以固定的二分树用并行 Welford 合并公式汇总。每层的部分统计与切分粒度无关，合并树只取决于层数，
+ * 因此结果不随并行度变化。同一遍扫描中按固定分箱构建 HU 直方图，供百分位阈值使用。</p>
+ *
+ * <p>{@link Mode#EXACT} 统计全部体素，整层经 {@link NiftiVoxelDecoder} 批量解码；{@link Mode#SAMPLED} 与
+ * {@link NiftiSampleStatsReader} 采样同一组体素，最大值、高密度占比和层间均值漂移与之一致，均值与标准差因合并顺序不同
+ * 可能只在浮点末位上有差异。未压缩的 .nii 各叶子任务分别映射自己的层区间并行读取；.nii.gz 借助 {@link NiftiGzipIndex}
+ * 只解压覆盖各自层区间的检查点块，各块在叶子任务中并行解压；不足一个检查点的小文件或无法写入索引时，
+ * 逐层顺序解压到复用的缓冲区后统计。</p>
+ */
+public final class NiftiVolumeStatsEngine {
+    private static final double HIGH_DENSITY_HU = 250.0D;
+    // 叶子任务的目标数据量，过细的任务调度开销大于计算本身。
+    private static final long MIN_LEAF_BYTES = 4L * 1024L * 1024L;
+    // 合并树叶子节点的层数。
+    private static final int COMBINE_LEAF_SLICES = 64;
+
+    /**
+     * 统计模式。
+     */
+    public enum Mode {
+        // 按采样步长统计，与规则分析阶段的轻量采样一致。
+        SAMPLED,
+        // 统计全部体素。
+        EXACT
+    }
+
+    private NiftiVolumeStatsEngine() {
+    }
+
+    /**
+     * 使用公共 fork-join 池计算体数据统计。
+     */
+    public static NiftiSampleStats compute(Path filePath, Mode mode) throws IOException {
+        return computeVolumeStats(filePath, mode).sampleStats();
+    }
+
+    /**
+     * 使用公共 fork-join 池计算体数据统计，并在同一遍扫描中构建 HU 直方图。
+     */
+    public static NiftiVolumeStats computeVolumeStats(Path filePath, Mode mode) throws IOException {
+        return computeVolumeStats(filePath, mode, ForkJoinPool.commonPool(), NiftiGzipIndex.DEFAULT_CHUNK_BYTES);
+    }
+
+    static NiftiSampleStats compute(Path filePath, Mode mode, ForkJoinPool pool) throws IOException {
+        return computeVolumeStats(filePath, mode, pool, NiftiGzipIndex.DEFAULT_CHUNK_BYTES).sampleStats();
+    }
+
+    static NiftiSampleStats compute(Path filePath, Mode mode, ForkJoinPool pool, int gzipChunkBytes) throws IOException {
+        return computeVolumeStats(filePath, mode, pool, gzipChunkBytes).sampleStats();
+    }
+
+    static NiftiVolumeStats computeVolumeStats(Path filePath,
+                                               Mode mode,
+                                               ForkJoinPool pool,
+                                               int gzipChunkBytes) throws IOException {
+        if (filePath == null || !Files.exists(filePath)) {
+            throw new IOException("NIfTI 文件不存在");
+        }
+        try {
+            if (!NiftiSampleStatsReader.isGzip(filePath)) {
+                return computeMapped(filePath, mode, pool);
+            }
+            // 不足一个检查点的小文件直接顺序解压，不值得建立索引。
+            if (Files.size(filePath) < gzipChunkBytes) {
+                return computeStream(filePath, mode, pool);
+            }
+            NiftiGzipIndex index;
+            try {
+                index = NiftiGzipIndex.open(filePath, gzipChunkBytes);
+            } catch (IOException exception) {
+                // 上传目录只读等原因无法写入索引时退回顺序解压。
+                return computeStream(filePath, mode, pool);
+            }
+            try (index) {
+                return computeIndexed(index, mode, pool);
+            }
+        } catch (UncheckedIOException exception) {
+            throw exception.getCause();
+        }
+    }
+
+    private static NiftiVolumeStats computeMapped(Path filePath, Mode mode, ForkJoinPool pool) throws IOException {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            NiftiHeader header = NiftiHeader.read(channel);
+            requireSliceAddressable(header);
+            if (channel.size() < header.voxOffset() + header.voxelCount() * header.bytesPerVoxel()) {
+                throw new EOFException("读取 NIfTI 体素数据时提前结束");
+            }
+
+            SliceAggregates slices = new SliceAggregates(header.depth());
+            long stride = resolveStride(header, mode);
+            SliceSource source = (fromSlice, toSlice) -> channel.map(
+                    FileChannel.MapMode.READ_ONLY,
+                    header.voxOffset() + fromSlice * header.sliceBytes(),
+                    (toSlice - fromSlice) * header.sliceBytes());
+            int leafSlices = resolveLeafSlices(header, pool, NiftiSampleStatsReader.MAX_MAPPED_WINDOW_BYTES);
+            pool.invoke(new SliceTask(source, header, stride, slices, 0, header.depth(), leafSlices));
+            return toVolumeStats(header, slices, pool);
+        }
+    }
+
+    /**
+     * 借助压缩索引并行统计：每个叶子任务只解压覆盖自己层区间的检查点块。
+     */
+    private static NiftiVolumeStats computeIndexed(NiftiGzipIndex index, Mode mode, ForkJoinPool pool) throws IOException {
+        NiftiHeader header = NiftiHeader.parse(index.read(0L, NiftiHeader.HEADER_SIZE));
+        requireSliceAddressable(header);
+        if (index.uncompressedSize() < header.voxOffset() + header.voxelCount() * header.bytesPerVoxel()) {
+            throw new EOFException("读取 NIfTI 体素数据时提前结束");
+        }
+
+        SliceAggregates slices = new SliceAggregates(header.depth());
+        long stride = resolveStride(header, mode);
+        SliceSource source = (fromSlice, toSlice) -> ByteBuffer.wrap(index.read(
+                header.voxOffset() + fromSlice * header.sliceBytes(),
+                (int) ((toSlice - fromSlice) * header.sliceBytes())));
+        // 解压结果放在堆内，叶子区间控制在两个检查点左右。
+        int leafSlices = resolveLeafSlices(header, pool, 2L * index.chunkBytes());
+        pool.invoke(new SliceTask(source, header, stride, slices, 0, header.depth(), leafSlices));
+        return toVolumeStats(header, slices, pool);
+    }
+
+    private static NiftiVolumeStats computeStream(Path filePath, Mode mode, ForkJoinPool pool) throws IOException {
+        try (InputStream rawStream = Files.newInputStream(filePath);
+             InputStream inputStream = NiftiSampleStatsReader.createInputStream(filePath, rawStream)) {
+            NiftiHeader header = NiftiHeader.parse(NiftiSampleStatsReader.readFully(inputStream, NiftiHeader.HEADER_SIZE));
+            requireSliceAddressable(header);
+            NiftiSampleStatsReader.skipFully(inputStream, Math.max(0, header.voxOffset() - NiftiHeader.HEADER_SIZE));
+
+            SliceAggregates slices = new SliceAggregates(header.depth());
+            long stride = resolveStride(header, mode);
+            byte[] sliceBuffer = new byte[(int) header.sliceBytes()];
+            ByteBuffer sliceView = ByteBuffer.wrap(sliceBuffer).order(header.byteOrder());
+            NiftiVoxelDecoder decoder = stride == 1L ? new NiftiVoxelDecoder(header) : null;
+            for (int sliceIndex = 0; sliceIndex < header.depth(); sliceIndex++) {
+                NiftiSampleStatsReader.readFully(inputStream, sliceBuffer, 0, sliceBuffer.length);
+                accumulateSlice(header, sliceView, 0, sliceIndex, stride, decoder, slices.histogram, slices);
+            }
+            return toVolumeStats(header, slices, pool);
+        }
+    }
+
+    /**
+     * 统计单层中落在采样步长上的体素，样本同时计入直方图。步长按全局体素序号对齐，与采样读取器一致；
+     * 步长为 1 时整层批量解码。
+     */
+    private static void accumulateSlice(NiftiHeader header,
+                                        ByteBuffer buffer,
+                                        int basePosition,
+                                        int sliceIndex,
+                                        long stride,
+                                        NiftiVoxelDecoder decoder,
+                                        HuHistogram histogram,
+                                        SliceAggregates slices) throws IOException {
+        if (stride == 1L) {
+            accumulateFullSlice(buffer, basePosition, sliceIndex, decoder, histogram, slices);
+            return;
+        }
+        long sliceVoxelCount = header.sliceVoxelCount();
+        long sliceStart = sliceIndex * sliceVoxelCount;
+        long firstSample = (sliceStart + stride - 1L) / stride * stride;
+        int bytesPerVoxel = header.bytesPerVoxel();
+        double slope = header.slope();
+        double intercept = header.intercept();
+
+        long count = 0L;
+        double mean = 0.0D;
+        double m2 = 0.0D;
+        double max = Double.NEGATIVE_INFINITY;
+        long highDensity = 0L;
+        double sum = 0.0D;
+        for (long voxelIndex = firstSample; voxelIndex < sliceStart + sliceVoxelCount; voxelIndex += stride) {
+            int position = basePosition + (int) ((voxelIndex - sliceStart) * bytesPerVoxel);
+            double huValue = header.decodeVoxel(buffer, position) * slope + intercept;
+            count += 1L;
+            double delta = huValue - mean;
+            mean += delta / count;
+            m2 += delta * (huValue - mean);
+            max = Math.max(max, huValue);
+            if (huValue >= HIGH_DENSITY_HU) {
+                highDensity += 1L;
+            }
+            sum += huValue;
+            histogram.add(huValue);
+        }
+        slices.store(sliceIndex, count, mean, m2, max, highDensity, sum);
+    }
+
+    /**
+     * 整层统计：批量解码到 double 缓冲区后，第一遍求和、最大值、高密度计数并填直方图，第二遍求离差平方和。
+     * 两遍都只访问已解码的缓冲区，体素数据只读取一次。
+     */
+    private static void accumulateFullSlice(ByteBuffer buffer,
+                                            int basePosition,
+                                            int sliceIndex,
+                                            NiftiVoxelDecoder decoder,
+                                            HuHistogram histogram,
+                                            SliceAggregates slices) throws IOException {
+        int voxelCount = decoder.sliceVoxelCount();
+        double[] huValues = decoder.decode(buffer, basePosition, voxelCount);
+        double sum = 0.0D;
+        double max = Double.NEGATIVE_INFINITY;
+        long highDensity = 0L;
+        for (int index = 0; index < voxelCount; index++) {
+            double huValue = huValues[index];
+            sum += huValue;
+            max = Math.max(max, huValue);
+            if (huValue >= HIGH_DENSITY_HU) {
+                highDensity += 1L;
+            }
+            histogram.add(huValue);
+        }
+        double mean = sum / voxelCount;
+        double m2 = 0.0D;
+        for (int index = 0; index < voxelCount; index++) {
+            double deviation = huValues[index] - mean;
+            m2 += deviation * deviation;
+        }
+        slices.store(sliceIndex, voxelCount, mean, m2, max, highDensity, sum);
+    }
+
+    private static NiftiVolumeStats toVolumeStats(NiftiHeader header, SliceAggregates slices, ForkJoinPool pool) {
+        Partial total = pool.invoke(new CombineTask(slices, 0, header.depth()));
+        double variance = total.count() > 1L ? total.m2() / (total.count() - 1L) : 0.0D;
+        NiftiSampleStats stats = new NiftiSampleStats(
+                header.width(),
+                header.height(),
+                header.depth(),
+                header.spacingX(),
+                header.spacingY(),
+                header.spacingZ(),
+                total.count(),
+                NiftiSampleStatsReader.round(total.mean()),
+                NiftiSampleStatsReader.round(Math.sqrt(Math.max(variance, 0.0D))),
+                NiftiSampleStatsReader.round(total.max() == Double.NEGATIVE_INFINITY ? 0.0D : total.max()),
+                NiftiSampleStatsReader.round(total.count() == 0L ? 0.0D : (double) total.highDensityCount() / total.count()),
+                NiftiSampleStatsReader.round(NiftiSampleStatsReader.meanAbsoluteSliceShift(slices.sums, slices.counts)));
+        return new NiftiVolumeStats(stats, slices.histogram);
+    }
+
+    private static long resolveStride(NiftiHeader header, Mode mode) {
+        return mode == Mode.EXACT ? 1L : header.sampleStride();
+    }
+
+    /**
+     * 叶子任务层数：每个叶子至少处理 {@link #MIN_LEAF_BYTES}，同时保证每个工作线程能分到若干个叶子，且不超过单个读取窗口。
+     */
+    private static int resolveLeafSlices(NiftiHeader header, ForkJoinPool pool, long maxLeafBytes) {
+        long sliceBytes = header.sliceBytes();
+        long bySize = (MIN_LEAF_BYTES + sliceBytes - 1L) / sliceBytes;
+        long byParallelism = Math.max(1L, header.depth() / (pool.getParallelism() * 4L));
+        long byWindow = Math.max(1L, maxLeafBytes / sliceBytes);
+        return (int) Math.max(1L, Math.min(Math.min(bySize, byParallelism), byWindow));
+    }
+
+    private static void requireSliceAddressable(NiftiHeader header) throws IOException {
+        if (header.sliceBytes() > Integer.MAX_VALUE) {
+            throw new IOException("NIfTI 单层体素数据过大");
+        }
+    }
+
+    /**
+     * 按层下标存放的部分统计，以及全部层共用的直方图。
+     */
+    private static final class SliceAggregates {
+        private final long[] counts;
+        private final double[] means;
+        private final double[] m2s;
+        private final double[] maxes;
+        private final long[] highDensityCounts;
+        private final double[] sums;
+        private final HuHistogram histogram = new HuHistogram();
+
+        private SliceAggregates(int depth) {
+            this.counts = new long[depth];
+            this.means = new double[depth];
+            this.m2s = new double[depth];
+            this.maxes = new double[depth];
+            this.highDensityCounts = new long[depth];
+            this.sums = new double[depth];
+        }
+
+        private void store(int sliceIndex, long count, double mean, double m2, double max, long highDensity, double sum) {
+            counts[sliceIndex] = count;
+            means[sliceIndex] = mean;
+            m2s[sliceIndex] = m2;
+            maxes[sliceIndex] = max;
+            highDensityCounts[sliceIndex] = highDensity;
+            sums[sliceIndex] = sum;
+        }
+
+        /**
+         * 叶子任务结束时合入本地直方图；分箱固定、计数为整数，合入顺序不影响结果。
+         */
+        private void mergeHistogram(HuHistogram local) {
+            synchronized (histogram) {
+                histogram.merge(local);
+            }
+        }
+    }
+
+    /**
+     * 合并后的 Welford 部分统计。
+     */
+    private record Partial(long count, double mean, double m2, double max, long highDensityCount) {
+        private static final Partial EMPTY = new Partial(0L, 0.0D, 0.0D, Double.NEGATIVE_INFINITY, 0L);
+
+        /**
+         * 并行 Welford 合并：均值按样本数加权，平方差和补上两部分均值差带来的项。
+         */
+        private Partial merge(long otherCount, double otherMean, double otherM2, double otherMax, long otherHighDensity) {
+            if (otherCount == 0L) {
+                return this;
+            }
+            if (count == 0L) {
+                return new Partial(otherCount, otherMean, otherM2, otherMax, otherHighDensity);
+            }
+            long mergedCount = count + otherCount;
+            double delta = otherMean - mean;
+            return new Partial(
+                    mergedCount,
+                    mean + delta * otherCount / mergedCount,
+                    m2 + otherM2 + delta * delta * count * otherCount / mergedCount,
+                    Math.max(max, otherMax),
+                    highDensityCount + otherHighDensity);
+        }
+
+        private Partial merge(Partial other) {
+            return merge(other.count, other.mean, other.m2, other.max, other.highDensityCount);
+        }
+    }
+
+    /**
+     * 层区间数据来源：返回从 fromSlice 首个体素开始、覆盖到 toSlice 之前的缓冲区。
+     */
+    @FunctionalInterface
+    private interface SliceSource {
+        ByteBuffer slices(int fromSlice, int toSlice) throws IOException;
+    }
+
+    /**
+     * 读取并统计一段层区间，区间超过叶子层数时二分。
+     */
+    private static final class SliceTask extends RecursiveAction {
+        private final SliceSource source;
+        private final NiftiHeader header;
+        private final long stride;
+        private final SliceAggregates slices;
+        private final int fromSlice;
+        private final int toSlice;
+        private final int leafSlices;
+
+        private SliceTask(SliceSource source,
+                          NiftiHeader header,
+                          long stride,
+                          SliceAggregates slices,
+                          int fromSlice,
+                          int toSlice,
+                          int leafSlices) {
+            this.source = source;
+            this.header = header;
+            this.stride = stride;
+            this.slices = slices;
+            this.fromSlice = fromSlice;
+            this.toSlice = toSlice;
+            this.leafSlices = leafSlices;
+        }
+
+        @Override
+        protected void compute() {
+            if (toSlice - fromSlice > leafSlices) {
+                int middle = (fromSlice + toSlice) >>> 1;
+                invokeAll(
+                        new SliceTask(source, header, stride, slices, fromSlice, middle, leafSlices),
+                        new SliceTask(source, header, stride, slices, middle, toSlice, leafSlices));
+                return;
+            }
+            try {
+                long sliceBytes = header.sliceBytes();
+                ByteBuffer window = source.slices(fromSlice, toSlice).order(header.byteOrder());
+                NiftiVoxelDecoder decoder = stride == 1L ? new NiftiVoxelDecoder(header) : null;
+                HuHistogram histogram = new HuHistogram();
+                for (int sliceIndex = fromSlice; sliceIndex < toSlice; sliceIndex++) {
+                    int basePosition = (int) ((sliceIndex - fromSlice) * sliceBytes);
+                    accumulateSlice(header, window, basePosition, sliceIndex, stride, decoder, histogram, slices);
+                }
+                slices.mergeHistogram(histogram);
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        }
+    }
+
+    /**
+     * 以固定二分树合并层区间的部分统计。
+     */
+    private static final class CombineTask extends RecursiveTask<Partial> {
+        private final SliceAggregates slices;
+        private final int fromSlice;
+        private final int toSlice;
+
+        private CombineTask(SliceAggregates slices, int fromSlice, int toSlice) {
+            this.slices = slices;
+            this.fromSlice = fromSlice;
+            this.toSlice = toSlice;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (toSlice - fromSlice <= COMBINE_LEAF_SLICES) {
+                Partial partial = Partial.EMPTY;
+                for (int sliceIndex = fromSlice; sliceIndex < toSlice; sliceIndex++) {
+                    partial = partial.merge(
+                            slices.counts[sliceIndex],
+                            slices.means[sliceIndex],
+                            slices.m2s[sliceIndex],
+                            slices.maxes[sliceIndex],
+                            slices.highDensityCounts[sliceIndex]);
+                }
+                return partial;
+            }
+            int middle = (fromSlice + toSlice) >>> 1;
+            CombineTask left = new CombineTask(slices, fromSlice, middle);
+            left.fork();
+            Partial right = new CombineTask(slices, middle, toSlice).compute();
+            return left.join().merge(right);
+        }
+    }
+}
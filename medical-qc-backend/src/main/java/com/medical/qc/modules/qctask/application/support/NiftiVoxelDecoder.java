@@ -0,0 +1,74 @@
+package com.medical.qc.modules.qctask.application.support;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 整层体素批量解码。
+ *
+ * <p>先用类型化视图把一层原始体素整块读入基本类型数组，再在一个无分支的循环里乘斜率、加截距转换为 HU，
+ * 写入复用的 double 缓冲区；该循环可被 JIT 自动向量化。换算与 {@link NiftiHeader#decodeVoxel} 后按 double
+ * 乘加完全一致，int32 体素超过 2^24 时也不丢精度，逐体素与批量路径的统计和阈值判断相同。
+ * 实例持有缓冲区，不可跨线程共享。</p>
+ */
+final class NiftiVoxelDecoder {
+    private final NiftiHeader header;
+    private final double slope;
+    private final double intercept;
+    private final double[] huValues;
+    private byte[] byteValues;
+    private short[] shortValues;
+    private int[] intValues;
+    private float[] floatValues;
+
+    NiftiVoxelDecoder(NiftiHeader header) {
+        this.header = header;
+        this.slope = header.slope();
+        this.intercept = header.intercept();
+        this.huValues = new double[(int) header.sliceVoxelCount()];
+    }
+
+    int sliceVoxelCount() {
+        return huValues.length;
+    }
+
+    /**
+     * 解码从 position 开始的 voxelCount 个体素，返回的缓冲区在下一次解码前有效。
+     */
+    double[] decode(ByteBuffer source, int position, int voxelCount) throws IOException {
+        ByteBuffer view = source.duplicate().order(header.byteOrder());
+        view.position(position);
+        switch (header.datatype()) {
+            case 2 -> {
+                byte[] values = byteValues == null ? (byteValues = new byte[huValues.length]) : byteValues;
+                view.get(values, 0, voxelCount);
+                for (int index = 0; index < voxelCount; index++) {
+                    huValues[index] = (values[index] & 0xFF) * slope + intercept;
+                }
+            }
+            case 4 -> {
+                short[] values = shortValues == null ? (shortValues = new short[huValues.length]) : shortValues;
+                view.asShortBuffer().get(values, 0, voxelCount);
+                for (int index = 0; index < voxelCount; index++) {
+                    huValues[index] = values[index] * slope + intercept;
+                }
+            }
+            case 8 -> {
+                int[] values = intValues == null ? (intValues = new int[huValues.length]) : intValues;
+                view.asIntBuffer().get(values, 0, voxelCount);
+                for (int index = 0; index < voxelCount; index++) {
+                    huValues[index] = values[index] * slope + intercept;
+                }
+            }
+            case 16 -> {
+                float[] values = floatValues == null ? (floatValues = new float[huValues.length]) : floatValues;
+                view.asFloatBuffer().get(values, 0, voxelCount);
+                for (int index = 0; index < voxelCount; index++) {
+                    huValues[index] = values[index] * slope + intercept;
+                }
+            }
+            default -> throw new IOException("暂不支持的 NIfTI datatype: " + header.datatype());
+        }
+        return huValues;
+    }
+}
@@ -0,0 +1,261 @@
+package com.medical.qc.modules.qctask.application.support;
+
+import com.medical.qc.config.BatchQcJobProperties;
+import com.medical.qc.modules.pacs.application.support.TaskScopedPacsStudyStorageService;
+import com.medical.qc.modules.pacs.model.PacsStudyCache;
+import com.medical.qc.modules.unified.application.support.UnifiedBatchJobWriteService;
+import com.medical.qc.modules.unified.application.support.UnifiedQualityTaskWriteService;
+import com.medical.qc.modules.unified.persistence.entity.UnifiedQcBatchJob;
+import com.medical.qc.shared.ai.AiGateway;
+import com.medical.qc.shared.metrics.RuntimeMetricsSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PACS 批量质控作业调度器。
+ *
+ * <p>每轮先按模型服务容量计算派发额度：未完成任务数达到上限时本轮不派发，交互提交的任务因此不会被批量作业挤占。
+ * 有额度时抢占到期作业的租约，沿 (study_date, id) 从断点读取一块检查，逐条交给 {@link BatchTaskHandler} 创建任务。
+ * 断点随任务记录同事务推进，作业被暂停、取消或本节点失去租约时断点更新失败，任务一并回滚，因此节点重启或换手后
+ * 从断点继续不会重复创建任务。</p>
+ */
+@Component
+public class QualityBatchJobRunner implements RuntimeMetricsSource, ApplicationRunner, DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(QualityBatchJobRunner.class);
+    // 每轮最多检查的到期作业数。
+    private static final int RUNNABLE_JOB_LIMIT = 5;
+
+    private final BatchQcJobProperties properties;
+    private final UnifiedBatchJobWriteService batchJobWriteService;
+    private final UnifiedQualityTaskWriteService unifiedQualityTaskWriteService;
+    private final TaskScopedPacsStudyStorageService pacsStudyStorageService;
+    private final AiGateway aiGateway;
+    // 作业租约持有者标识，每个进程唯一。
+    private final String leaseOwner = "batch-" + UUID.randomUUID();
+    private final ScheduledExecutorService jobScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "qc-batch-job");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean started = new AtomicBoolean();
+    private volatile BatchTaskHandler handler;
+    // 批量作业指标。
+    private final AtomicLong rounds = new AtomicLong();
+    private final AtomicLong throttledRounds = new AtomicLong();
+    private final AtomicLong studiesDispatched = new AtomicLong();
+    private final AtomicLong studiesFailed = new AtomicLong();
+    private final AtomicLong jobsCompleted = new AtomicLong();
+    private final AtomicLong interruptions = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private volatile int lastBudget;
+
+    public QualityBatchJobRunner(BatchQcJobProperties properties,
+                                 UnifiedBatchJobWriteService batchJobWriteService,
+                                 UnifiedQualityTaskWriteService unifiedQualityTaskWriteService,
+                                 TaskScopedPacsStudyStorageService pacsStudyStorageService,
+                                 AiGateway aiGateway) {
+        this.properties = properties;
+        this.batchJobWriteService = batchJobWriteService;
+        this.unifiedQualityTaskWriteService = unifiedQualityTaskWriteService;
+        this.pacsStudyStorageService = pacsStudyStorageService;
+        this.aiGateway = aiGateway;
+    }
+
+    /**
+     * 绑定任务创建方，由批量作业应用服务在构造时调用。
+     */
+    public void bind(BatchTaskHandler handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!properties.isEnabled() || !started.compareAndSet(false, true)) {
+            return;
+        }
+        long intervalMs = Math.max(1000L, properties.getScanIntervalMs());
+        jobScheduler.scheduleWithFixedDelay(this::runSafely, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        jobScheduler.shutdownNow();
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "qualityBatchJob";
+    }
+
+    @Override
+    public Map<String, Object> getMetricsSnapshot() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", properties.isEnabled());
+        metrics.put("maxOutstandingTasks", resolveMaxOutstanding());
+        metrics.put("lastBudget", lastBudget);
+        metrics.put("rounds", rounds.get());
+        metrics.put("throttledRounds", throttledRounds.get());
+        metrics.put("studiesDispatched", studiesDispatched.get());
+        metrics.put("studiesFailed", studiesFailed.get());
+        metrics.put("jobsCompleted", jobsCompleted.get());
+        metrics.put("interruptions", interruptions.get());
+        metrics.put("errors", errors.get());
+        return metrics;
+    }
+
+    /**
+     * 推进一轮批量作业。
+     *
+     * @return 本轮创建的任务数
+     */
+    int runOnce() {
+        BatchTaskHandler currentHandler = handler;
+        if (currentHandler == null) {
+            return 0;
+        }
+        rounds.incrementAndGet();
+        int budget = (int) Math.max(0L, resolveMaxOutstanding() - unifiedQualityTaskWriteService.countUnfinishedTasks());
+        lastBudget = budget;
+        if (budget == 0) {
+            throttledRounds.incrementAndGet();
+            return 0;
+        }
+
+        int dispatched = 0;
+        LocalDateTime now = LocalDateTime.now();
+        for (UnifiedQcBatchJob job : batchJobWriteService.findRunnableJobs(leaseOwner, now, RUNNABLE_JOB_LIMIT)) {
+            if (dispatched >= budget) {
+                break;
+            }
+            if (!batchJobWriteService.claimJob(job, leaseOwner, now, leaseUntil(now))) {
+                continue;
+            }
+            dispatched += runChunk(job, budget - dispatched, currentHandler);
+        }
+        return dispatched;
+    }
+
+    /**
+     * 从断点读取一块检查并逐条创建任务。
+     */
+    private int runChunk(UnifiedQcBatchJob job, int budget, BatchTaskHandler currentHandler) {
+        List<PacsStudyCache> studies = pacsStudyStorageService.listStudiesAfter(
+                job.getTaskTypeCode(),
+                job.getStartDate(),
+                job.getEndDate(),
+                job.getCheckpointStudyDate(),
+                job.getCheckpointStudyId(),
+                Math.min(Math.max(1, properties.getChunkSize()), budget));
+        if (studies.isEmpty()) {
+            if (batchJobWriteService.completeJob(job.getId(), leaseOwner, LocalDateTime.now())) {
+                jobsCompleted.incrementAndGet();
+                logger.info("批量质控作业 {} 已完成", job.getJobNo());
+            }
+            return 0;
+        }
+
+        int dispatched = 0;
+        for (PacsStudyCache study : studies) {
+            try {
+                currentHandler.submit(job, study, () -> checkpoint(job, study, true, null));
+                dispatched++;
+                studiesDispatched.incrementAndGet();
+            } catch (CheckpointRejectedException exception) {
+                // 作业已暂停、取消或租约被其他节点接管，本块剩余检查留给下一轮或新的持有者。
+                interruptions.incrementAndGet();
+                break;
+            } catch (IllegalArgumentException exception) {
+                // 单条检查缺少必要字段时跳过并记录原因，不阻塞整个作业。
+                if (!advance(job, study, false, study.getAccessionNumber() + ": " + exception.getMessage())) {
+                    interruptions.incrementAndGet();
+                    break;
+                }
+                studiesFailed.incrementAndGet();
+            } catch (Exception exception) {
+                // 数据库或存储异常时保留断点，下一轮从同一位置重试。
+                errors.incrementAndGet();
+                logger.warn("批量质控作业 {} 创建任务失败: {}", job.getJobNo(), study.getAccessionNumber(), exception);
+                batchJobWriteService.recordError(job.getId(), leaseOwner, exception.getMessage(), LocalDateTime.now());
+                break;
+            }
+        }
+        return dispatched;
+    }
+
+    private void checkpoint(UnifiedQcBatchJob job, PacsStudyCache study, boolean dispatched, String error) {
+        if (!advance(job, study, dispatched, error)) {
+            throw new CheckpointRejectedException();
+        }
+    }
+
+    private boolean advance(UnifiedQcBatchJob job, PacsStudyCache study, boolean dispatched, String error) {
+        LocalDateTime now = LocalDateTime.now();
+        return batchJobWriteService.advanceCheckpoint(
+                job.getId(),
+                leaseOwner,
+                study.getStudyDate(),
+                study.getId(),
+                dispatched,
+                error,
+                now,
+                leaseUntil(now));
+    }
+
+    /**
+     * 未完成任务数上限：模型服务给出并发容量时按容量乘以每个名额的排队数，且不超过配置上限。
+     */
+    private int resolveMaxOutstanding() {
+        int configuredMax = Math.max(1, properties.getMaxOutstandingTasks());
+        int capacity = aiGateway.getInferenceCapacity();
+        if (capacity <= 0) {
+            return configuredMax;
+        }
+        return Math.min(configuredMax, capacity * Math.max(1, properties.getOutstandingPerInferenceSlot()));
+    }
+
+    private void runSafely() {
+        try {
+            runOnce();
+        } catch (Exception exception) {
+            errors.incrementAndGet();
+            logger.warn("推进批量质控作业失败", exception);
+        }
+    }
+
+    private LocalDateTime leaseUntil(LocalDateTime now) {
+        return now.plus(Duration.ofMillis(Math.max(0L, properties.getLeaseMs())));
+    }
+
+    /**
+     * 任务创建方：为一条 PACS 检查创建质控任务，并在任务记录所在事务内执行断点推进动作。
+     */
+    public interface BatchTaskHandler {
+        void submit(UnifiedQcBatchJob job, PacsStudyCache study, Runnable checkpointAction) throws IOException;
+    }
+
+    /**
+     * 断点推进被拒绝：作业不再由本节点持有或不再处于执行状态。
+     */
+    private static final class CheckpointRejectedException extends RuntimeException {
+        CheckpointRejectedException() {
+            super("批量质控作业断点推进被拒绝");
+        }
+    }
+}
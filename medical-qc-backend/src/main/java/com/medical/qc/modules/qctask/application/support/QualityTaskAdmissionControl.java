@@ -0,0 +1,418 @@
+package com.medical.qc.modules.qctask.application.support;
+
+import com.medical.qc.common.exception.TooManyRequestsException;
+import com.medical.qc.config.TaskAdmissionProperties;
+import com.medical.qc.modules.unified.application.support.UnifiedQualityTaskWriteService;
+import com.medical.qc.shared.metrics.RuntimeMetricsSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 质控任务准入控制。
+ *
+ * <p>提交任务前先检查 PENDING 积压：全局与提交人的积压数按短时缓存读取，本节点准入的任务在缓存期内累加，
+ * 避免每次提交都统计数据库。积压未超限时再按提交人、任务类型和全局三个令牌桶限流，三个桶全部有余量才同时扣减。
+ * 批量提交按批一次申请多个令牌，余量不足时只准入能容纳的部分。提交事务回滚时由 {@link #refund} 归还令牌与积压计数。</p>
+ *
+ * <p>Redis 层可选：三个令牌桶由一段 Lua 脚本原子检查和扣减，时间取 Redis 服务端时钟，多实例共享同一份限流状态；
+ * Redis 不可用时退化为本节点令牌桶。超限时抛出 {@link TooManyRequestsException}，由全局异常处理器转换为 429 与 Retry-After。</p>
+ */
+@Component
+public class QualityTaskAdmissionControl implements RuntimeMetricsSource {
+    private static final Logger logger = LoggerFactory.getLogger(QualityTaskAdmissionControl.class);
+    static final String REDIS_KEY_PREFIX = "medical-qc:task-admission:";
+    // 全局积压数在缓存中的键。
+    private static final long GLOBAL_PENDING_KEY = -1L;
+    // 依次补充并检查 KEYS 中的每个令牌桶，取各桶可用整数令牌的最小值与 ARGV[1] 申请数中的较小者统一扣减，
+    // 返回 {扣减数, 等待毫秒数}；一个也扣不到时不扣减，等待毫秒数为最先恢复一个令牌所需的时间。
+    // ARGV 自第 2 项起按桶依次给出容量与每毫秒补充的令牌数。
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+            "local time = redis.call('TIME')\n"
+                    + "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)\n"
+                    + "local granted = tonumber(ARGV[1])\n"
+                    + "local tokens = {}\n"
+                    + "for i = 1, #KEYS do\n"
+                    + "  local capacity = tonumber(ARGV[i * 2])\n"
+                    + "  local rate = tonumber(ARGV[i * 2 + 1])\n"
+                    + "  local state = redis.call('HMGET', KEYS[i], 'tokens', 'ts')\n"
+                    + "  local current = tonumber(state[1])\n"
+                    + "  local ts = tonumber(state[2])\n"
+                    + "  if current == nil or ts == nil then\n"
+                    + "    current = capacity\n"
+                    + "    ts = now\n"
+                    + "  end\n"
+                    + "  current = math.min(capacity, current + math.max(0, now - ts) * rate)\n"
+                    + "  tokens[i] = current\n"
+                    + "  granted = math.min(granted, math.floor(current))\n"
+                    + "end\n"
+                    + "if granted < 1 then\n"
+                    + "  local wait = 0\n"
+                    + "  for i = 1, #KEYS do\n"
+                    + "    if tokens[i] < 1 then\n"
+                    + "      wait = math.max(wait, math.ceil((1 - tokens[i]) / tonumber(ARGV[i * 2 + 1])))\n"
+                    + "    end\n"
+                    + "  end\n"
+                    + "  return {0, wait}\n"
+                    + "end\n"
+                    + "for i = 1, #KEYS do\n"
+                    + "  local capacity = tonumber(ARGV[i * 2])\n"
+                    + "  local rate = tonumber(ARGV[i * 2 + 1])\n"
+                    + "  redis.call('HSET', KEYS[i], 'tokens', tostring(tokens[i] - granted), 'ts', tostring(now))\n"
+                    + "  redis.call('PEXPIRE', KEYS[i], math.ceil(capacity / rate) + 1000)\n"
+                    + "end\n"
+                    + "return {granted, 0}",
+            List.class);
+    // 向 KEYS 中尚未过期的令牌桶归还 ARGV[1] 个令牌，不超过容量；已过期的桶视为满桶，无需归还。
+    private static final RedisScript<Long> REFUND_SCRIPT = new DefaultRedisScript<>(
+            "local time = redis.call('TIME')\n"
+                    + "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)\n"
+                    + "local amount = tonumber(ARGV[1])\n"
+                    + "for i = 1, #KEYS do\n"
+                    + "  local capacity = tonumber(ARGV[i * 2])\n"
+                    + "  local rate = tonumber(ARGV[i * 2 + 1])\n"
+                    + "  local state = redis.call('HMGET', KEYS[i], 'tokens', 'ts')\n"
+                    + "  local current = tonumber(state[1])\n"
+                    + "  local ts = tonumber(state[2])\n"
+                    + "  if current ~= nil and ts ~= nil then\n"
+                    + "    current = math.min(capacity, current + math.max(0, now - ts) * rate + amount)\n"
+                    + "    redis.call('HSET', KEYS[i], 'tokens', tostring(current), 'ts', tostring(now))\n"
+                    + "    redis.call('PEXPIRE', KEYS[i], math.ceil(capacity / rate) + 1000)\n"
+                    + "  end\n"
+                    + "end\n"
+                    + "return 0",
+            Long.class);
+
+    private final TaskAdmissionProperties properties;
+    private final UnifiedQualityTaskWriteService unifiedQualityTaskWriteService;
+    private final StringRedisTemplate redisTemplate;
+    private final Map<String, LocalBucket> localBuckets;
+    private final Map<Long, PendingCount> pendingCounts;
+    // 准入控制指标。
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong refunded = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong backlogRejected = new AtomicLong();
+    private final AtomicLong pendingCountQueries = new AtomicLong();
+    private final AtomicLong redisErrors = new AtomicLong();
+
+    public QualityTaskAdmissionControl(TaskAdmissionProperties properties,
+                                       UnifiedQualityTaskWriteService unifiedQualityTaskWriteService,
+                                       ObjectProvider<StringRedisTemplate> redisTemplateProvider) {
+        this.properties = properties;
+        this.unifiedQualityTaskWriteService = unifiedQualityTaskWriteService;
+        this.redisTemplate = properties.isRedisEnabled() ? redisTemplateProvider.getIfAvailable() : null;
+        int maxEntries = Math.max(1, properties.getMaxLocalBuckets());
+        this.localBuckets = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, LocalBucket> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.pendingCounts = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, PendingCount> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 申请提交一个质控任务。
+     *
+     * @throws TooManyRequestsException 积压超限或令牌不足，携带建议的重试等待秒数
+     */
+    public void admit(Long userId, String taskType) {
+        admitUpTo(userId, taskType, 1);
+    }
+
+    /**
+     * 为同一提交人、同一任务类型的一批任务申请准入，各令牌桶只访问一次。
+     *
+     * @param requested 申请的任务数
+     * @return 准入的任务数，积压余量或令牌只够部分任务时小于 requested；requested 不大于 0 时返回 0
+     * @throws TooManyRequestsException 一个任务也无法准入，携带建议的重试等待秒数
+     */
+    public int admitUpTo(Long userId, String taskType, int requested) {
+        if (requested <= 0) {
+            return 0;
+        }
+        if (!properties.isEnabled()) {
+            return requested;
+        }
+        int allowed = (int) Math.min(requested, backlogAllowance(userId));
+
+        List<BucketSpec> buckets = resolveBuckets(userId, taskType);
+        Acquisition acquisition = buckets.isEmpty() ? new Acquisition(allowed, 0L) : acquire(buckets, allowed);
+        if (acquisition.granted() <= 0) {
+            rateLimited.incrementAndGet();
+            long retryAfterSeconds = Math.max(1L, TimeUnit.MILLISECONDS.toSeconds(acquisition.waitMs() + 999L));
+            throw new TooManyRequestsException("任务提交过于频繁，请 " + retryAfterSeconds + " 秒后重试", retryAfterSeconds);
+        }
+
+        // 缓存期内累加本节点准入的任务，连续提交不必等到下次统计才计入积压。
+        synchronized (pendingCounts) {
+            adjustPending(GLOBAL_PENDING_KEY, acquisition.granted());
+            if (userId != null) {
+                adjustPending(userId, acquisition.granted());
+            }
+        }
+        admitted.addAndGet(acquisition.granted());
+        return acquisition.granted();
+    }
+
+    /**
+     * 归还已准入但未能落库的任务占用的令牌与积压计数，提交事务回滚时调用。
+     */
+    public void refund(Long userId, String taskType, int count) {
+        if (!properties.isEnabled() || count <= 0) {
+            return;
+        }
+        synchronized (pendingCounts) {
+            adjustPending(GLOBAL_PENDING_KEY, -count);
+            if (userId != null) {
+                adjustPending(userId, -count);
+            }
+        }
+        List<BucketSpec> buckets = resolveBuckets(userId, taskType);
+        if (!buckets.isEmpty()) {
+            release(buckets, count);
+        }
+        refunded.addAndGet(count);
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "qualityTaskAdmission";
+    }
+
+    @Override
+    public Map<String, Object> getMetricsSnapshot() {
+        int bucketCount;
+        synchronized (localBuckets) {
+            bucketCount = localBuckets.size();
+        }
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", properties.isEnabled());
+        metrics.put("redisEnabled", redisTemplate != null);
+        metrics.put("localBuckets", bucketCount);
+        metrics.put("admitted", admitted.get());
+        metrics.put("refunded", refunded.get());
+        metrics.put("rateLimited", rateLimited.get());
+        metrics.put("backlogRejected", backlogRejected.get());
+        metrics.put("pendingCountQueries", pendingCountQueries.get());
+        metrics.put("redisErrors", redisErrors.get());
+        return metrics;
+    }
+
+    /**
+     * 计算全局与提交人积压上限下还能准入的任务数。
+     *
+     * @throws TooManyRequestsException 任一积压已达上限
+     */
+    private long backlogAllowance(Long userId) {
+        long backlogRetryAfterSeconds = properties.getBacklogRetryAfterSeconds();
+        long allowance = Long.MAX_VALUE;
+        if (properties.getMaxPendingTasks() > 0) {
+            allowance = properties.getMaxPendingTasks() - pendingCount(GLOBAL_PENDING_KEY);
+            if (allowance <= 0) {
+                backlogRejected.incrementAndGet();
+                throw new TooManyRequestsException("系统待处理质控任务已达上限，请稍后重试", backlogRetryAfterSeconds);
+            }
+        }
+        if (userId != null && properties.getMaxPendingPerUser() > 0) {
+            allowance = Math.min(allowance, properties.getMaxPendingPerUser() - pendingCount(userId));
+            if (allowance <= 0) {
+                backlogRejected.incrementAndGet();
+                throw new TooManyRequestsException("当前用户待处理质控任务已达上限，请等待已提交任务完成后重试", backlogRetryAfterSeconds);
+            }
+        }
+        return allowance;
+    }
+
+    private long pendingCount(Long key) {
+        long now = System.currentTimeMillis();
+        synchronized (pendingCounts) {
+            PendingCount cached = pendingCounts.get(key);
+            if (cached != null && now - cached.loadedAt < Math.max(0L, properties.getPendingCountCacheMs())) {
+                return cached.count;
+            }
+        }
+        pendingCountQueries.incrementAndGet();
+        long count = unifiedQualityTaskWriteService.countPendingTasks(key == GLOBAL_PENDING_KEY ? null : key);
+        synchronized (pendingCounts) {
+            pendingCounts.put(key, new PendingCount(count, now));
+        }
+        return count;
+    }
+
+    private void adjustPending(Long key, int delta) {
+        PendingCount cached = pendingCounts.get(key);
+        if (cached != null) {
+            cached.count = Math.max(0L, cached.count + delta);
+        }
+    }
+
+    private List<BucketSpec> resolveBuckets(Long userId, String taskType) {
+        List<BucketSpec> buckets = new ArrayList<>(3);
+        if (userId != null) {
+            addBucket(buckets, "user:" + userId, properties.getUserCapacity(), properties.getUserRefillPerMinute());
+        }
+        if (taskType != null) {
+            addBucket(buckets, "type:" + taskType, properties.getTaskTypeCapacity(), properties.getTaskTypeRefillPerMinute());
+        }
+        addBucket(buckets, "global", properties.getGlobalCapacity(), properties.getGlobalRefillPerMinute());
+        return buckets;
+    }
+
+    private static void addBucket(List<BucketSpec> buckets, String key, int capacity, int refillPerMinute) {
+        if (capacity > 0 && refillPerMinute > 0) {
+            buckets.add(new BucketSpec(key, capacity, refillPerMinute / 60_000.0d));
+        }
+    }
+
+    /**
+     * 从全部令牌桶各取至多 requested 个令牌，各桶扣减相同数量。
+     */
+    private Acquisition acquire(List<BucketSpec> buckets, int requested) {
+        if (redisTemplate != null) {
+            try {
+                List<?> reply = redisTemplate.execute(ACQUIRE_SCRIPT, redisKeys(buckets), redisArgs(buckets, requested));
+                if (reply == null || reply.size() < 2) {
+                    return new Acquisition(requested, 0L);
+                }
+                return new Acquisition(((Number) reply.get(0)).intValue(), ((Number) reply.get(1)).longValue());
+            } catch (Exception exception) {
+                // Redis 不可用时退化为本节点令牌桶，不影响任务提交。
+                redisErrors.incrementAndGet();
+                logger.debug("Redis 令牌桶限流失败，改用本节点限流", exception);
+            }
+        }
+        return acquireLocal(buckets, requested);
+    }
+
+    private Acquisition acquireLocal(List<BucketSpec> buckets, int requested) {
+        long now = System.currentTimeMillis();
+        synchronized (localBuckets) {
+            List<LocalBucket> states = new ArrayList<>(buckets.size());
+            int granted = requested;
+            for (BucketSpec bucket : buckets) {
+                LocalBucket state = localBuckets.computeIfAbsent(bucket.key(), key -> new LocalBucket(bucket.capacity(), now));
+                state.refill(bucket, now);
+                granted = (int) Math.min(granted, Math.floor(state.tokens));
+                states.add(state);
+            }
+            if (granted < 1) {
+                long waitMs = 0L;
+                for (int index = 0; index < buckets.size(); index++) {
+                    double tokens = states.get(index).tokens;
+                    if (tokens < 1.0d) {
+                        waitMs = Math.max(waitMs, (long) Math.ceil((1.0d - tokens) / buckets.get(index).refillPerMs()));
+                    }
+                }
+                return new Acquisition(0, waitMs);
+            }
+            int deducted = granted;
+            states.forEach(state -> state.tokens -= deducted);
+            return new Acquisition(granted, 0L);
+        }
+    }
+
+    /**
+     * 向全部令牌桶归还 count 个令牌，不超过容量。
+     */
+    private void release(List<BucketSpec> buckets, int count) {
+        if (redisTemplate != null) {
+            try {
+                redisTemplate.execute(REFUND_SCRIPT, redisKeys(buckets), redisArgs(buckets, count));
+                return;
+            } catch (Exception exception) {
+                redisErrors.incrementAndGet();
+                logger.debug("Redis 令牌桶归还令牌失败，改为归还本节点令牌桶", exception);
+            }
+        }
+        long now = System.currentTimeMillis();
+        synchronized (localBuckets) {
+            for (BucketSpec bucket : buckets) {
+                LocalBucket state = localBuckets.get(bucket.key());
+                if (state != null) {
+                    state.refill(bucket, now);
+                    state.tokens = Math.min(bucket.capacity(), state.tokens + count);
+                }
+            }
+        }
+    }
+
+    private static List<String> redisKeys(List<BucketSpec> buckets) {
+        List<String> keys = new ArrayList<>(buckets.size());
+        for (BucketSpec bucket : buckets) {
+            keys.add(REDIS_KEY_PREFIX + bucket.key());
+        }
+        return keys;
+    }
+
+    private static Object[] redisArgs(List<BucketSpec> buckets, int amount) {
+        List<String> args = new ArrayList<>(buckets.size() * 2 + 1);
+        args.add(String.valueOf(amount));
+        for (BucketSpec bucket : buckets) {
+            args.add(String.valueOf(bucket.capacity()));
+            args.add(String.valueOf(bucket.refillPerMs()));
+        }
+        return args.toArray();
+    }
+
+    /**
+     * 一次令牌申请的结果：扣减的令牌数，以及一个也没扣到时最先恢复一个令牌需要等待的毫秒数。
+     */
+    private record Acquisition(int granted, long waitMs) {
+    }
+
+    /**
+     * 单个令牌桶的容量与每毫秒补充的令牌数。
+     */
+    private record BucketSpec(String key, int capacity, double refillPerMs) {
+    }
+
+    /**
+     * 本节点令牌桶状态，只在 localBuckets 锁内读写。
+     */
+    private static final class LocalBucket {
+        private double tokens;
+        private long refilledAt;
+
+        LocalBucket(double tokens, long refilledAt) {
+            this.tokens = tokens;
+            this.refilledAt = refilledAt;
+        }
+
+        void refill(BucketSpec bucket, long now) {
+            tokens = Math.min(bucket.capacity(), tokens + Math.max(0L, now - refilledAt) * bucket.refillPerMs());
+            refilledAt = now;
+        }
+    }
+
+    /**
+     * PENDING 积压数缓存，只在 pendingCounts 锁内读写。
+     */
+    private static final class PendingCount {
+        private long count;
+        private final long loadedAt;
+
+        PendingCount(long count, long loadedAt) {
+            this.count = count;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.medical.qc.modules.qctask.application.support;
+
+import com.medical.qc.shared.metrics.RuntimeMetricsSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 质控任务事件推送器。
+ *
+ * <p>前端订阅任务事件流后，任务状态变化、推理进度和已完成的质控项通过 SSE 推送，
+ * 任务进入终态时推送 final 事件并关闭连接，前端不再需要轮询任务详情接口。</p>
+ *
+ * <p>事件发布方可能是模型服务网络线程，写 HTTP 响应统一放到单独的推送线程上按顺序执行，
+ * 同一任务的事件顺序与发布顺序一致。</p>
+ */
+@Component
+public class QualityTaskEventPublisher implements RuntimeMetricsSource, DisposableBean {
+    // 事件名称，与前端 EventSource 监听的类型一致。
+    public static final String EVENT_SNAPSHOT = "snapshot";
+    public static final String EVENT_STATUS = "status";
+    public static final String EVENT_PROGRESS = "progress";
+    public static final String EVENT_PARTIAL = "partial";
+    public static final String EVENT_FINAL = "final";
+    // 单个订阅最长保持时间，超过后由前端重新订阅或回退到轮询。
+    private static final long EMITTER_TIMEOUT_MS = 30L * 60L * 1000L;
+
+    private final ConcurrentMap<String, List<SseEmitter>> emittersByTaskId = new ConcurrentHashMap<>();
+    // 推送线程只负责写出事件，不参与任务执行。
+    private final ExecutorService sendExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "qc-task-events");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong subscriptions = new AtomicLong();
+    private final AtomicLong publishedEvents = new AtomicLong();
+    private final AtomicLong failedSends = new AtomicLong();
+
+    /**
+     * 订阅指定任务的事件流。
+     */
+    public SseEmitter subscribe(String taskId) {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        List<SseEmitter> emitters = emittersByTaskId.computeIfAbsent(taskId, key -> new CopyOnWriteArrayList<>());
+        emitters.add(emitter);
+        subscriptions.incrementAndGet();
+        Runnable cleanup = () -> unsubscribe(taskId, emitter);
+        emitter.onCompletion(cleanup);
+        emitter.onTimeout(cleanup);
+        emitter.onError(error -> cleanup.run());
+        return emitter;
+    }
+
+    /**
+     * 取消订阅，订阅建立后校验失败或连接断开时调用。
+     */
+    public void unsubscribe(String taskId, SseEmitter emitter) {
+        emittersByTaskId.computeIfPresent(taskId, (key, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+
+    /**
+     * 向单个订阅发送事件，用于订阅建立时的首个快照。
+     *
+     * @param completeAfterSend 发送后是否立即结束该订阅
+     */
+    public void send(SseEmitter emitter, String eventName, Map<String, Object> payload, boolean completeAfterSend) {
+        execute(() -> {
+            sendEvent(emitter, eventName, payload);
+            if (completeAfterSend) {
+                emitter.complete();
+            }
+        });
+    }
+
+    /**
+     * 向任务的全部订阅者发布事件。
+     */
+    public void publish(String taskId, String eventName, Map<String, Object> payload) {
+        if (!emittersByTaskId.containsKey(taskId)) {
+            return;
+        }
+        execute(() -> {
+            List<SseEmitter> emitters = emittersByTaskId.get(taskId);
+            if (emitters != null) {
+                emitters.forEach(emitter -> sendEvent(emitter, eventName, payload));
+            }
+        });
+    }
+
+    /**
+     * 发布终态事件并结束任务的全部订阅。
+     */
+    public void publishFinal(String taskId, Map<String, Object> payload) {
+        if (!emittersByTaskId.containsKey(taskId)) {
+            return;
+        }
+        execute(() -> {
+            List<SseEmitter> emitters = emittersByTaskId.remove(taskId);
+            if (emitters == null) {
+                return;
+            }
+            for (SseEmitter emitter : emitters) {
+                sendEvent(emitter, EVENT_FINAL, payload);
+                emitter.complete();
+            }
+        });
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "qualityTaskEvents";
+    }
+
+    @Override
+    public Map<String, Object> getMetricsSnapshot() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("subscribedTasks", emittersByTaskId.size());
+        metrics.put("activeSubscribers", emittersByTaskId.values().stream().mapToInt(List::size).sum());
+        metrics.put("subscriptions", subscriptions.get());
+        metrics.put("publishedEvents", publishedEvents.get());
+        metrics.put("failedSends", failedSends.get());
+        return metrics;
+    }
+
+    @Override
+    public void destroy() {
+        sendExecutor.shutdownNow();
+        emittersByTaskId.values().forEach(emitters -> emitters.forEach(SseEmitter::complete));
+        emittersByTaskId.clear();
+    }
+
+    private void execute(Runnable action) {
+        try {
+            sendExecutor.execute(action);
+        } catch (RejectedExecutionException ignore) {
+            // 应用关闭期间的事件直接丢弃，前端断线后会回退到轮询。
+        }
+    }
+
+    private void sendEvent(SseEmitter emitter, String eventName, Map<String, Object> payload) {
+        try {
+            emitter.send(SseEmitter.event().name(eventName).data(payload));
+            publishedEvents.incrementAndGet();
+        } catch (Exception exception) {
+            // 客户端已断开或订阅已结束，onError / onCompletion 回调负责移除订阅。
+            failedSends.incrementAndGet();
+            try {
+                emitter.completeWithError(exception);
+            } catch (Exception ignore) {
+            }
+        }
+    }
+}
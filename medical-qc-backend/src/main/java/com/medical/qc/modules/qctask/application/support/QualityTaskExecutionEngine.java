@@ -0,0 +1,347 @@
+package com.medical.qc.modules.qctask.application.support;
+
+import com.medical.qc.config.TaskExecutorProperties;
+import com.medical.qc.messaging.MockQualityTaskMessage;
+import com.medical.qc.shared.metrics.RuntimeMetricsSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地质控任务执行引擎。
+ *
+ * <p>消息总线未接管任务时由本引擎执行：固定线程数 + 有界队列，队列满时按配置把任务标记为失败或延后重新入队。
+ * 任务从入队到终态都记录在未完成集合中，停机时先等待其完成，超时仍未完成的任务 ID 写入续跑文件，
+ * 下次启动后交给 {@link TaskHandler#recover(String)} 重新入队。</p>
+ *
+ * <p>执行线程只负责抢占租约并把任务交给 {@link QualityTaskPipeline}，预处理、推理等待与落库都在流水线中完成；
+ * 流水线已满时执行线程阻塞，排队任务随之积压到本引擎的有界队列并按拒绝策略处理；
+ * 流水线准入等待超时的任务仍为 PENDING，按延后间隔重新入队，不会被标记为失败。</p>
+ */
+@Component
+public class QualityTaskExecutionEngine implements RuntimeMetricsSource, ApplicationRunner, DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(QualityTaskExecutionEngine.class);
+
+    private final TaskExecutorProperties properties;
+    private final ThreadPoolExecutor executor;
+    // 延后重新入队的调度线程，只做入队，不执行任务。
+    private final ScheduledExecutorService deferScheduler;
+    // 已入队但尚未进入终态的任务，包含排队、执行中与延后中的任务。
+    private final ConcurrentMap<String, MockQualityTaskMessage> unfinishedTasks = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CompletableFuture<Void>> runningTasks = new ConcurrentHashMap<>();
+    private final AtomicBoolean shutdown = new AtomicBoolean();
+    private volatile TaskHandler handler;
+    // 执行指标。
+    private final AtomicInteger deferredCount = new AtomicInteger();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong deferrals = new AtomicLong();
+    private final AtomicLong totalQueueWaitMs = new AtomicLong();
+    private final AtomicLong maxQueueWaitMs = new AtomicLong();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong recovered = new AtomicLong();
+    private final AtomicLong journaled = new AtomicLong();
+
+    public QualityTaskExecutionEngine(TaskExecutorProperties properties) {
+        this.properties = properties;
+        int threads = Math.max(1, properties.getThreads());
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity())),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "qc-task-executor-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.deferScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "qc-task-defer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 绑定任务处理方，由任务服务在构造时调用。
+     */
+    public void bind(TaskHandler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * 提交任务到本地队列；队列已满时按拒绝策略处理，不抛出异常。
+     */
+    public void submit(MockQualityTaskMessage message) {
+        if (unfinishedTasks.putIfAbsent(message.getTaskId(), message) != null) {
+            // 同一任务已在本地排队或执行中，避免重复执行。
+            return;
+        }
+        submitted.incrementAndGet();
+        enqueue(message);
+    }
+
+    /**
+     * 启动完成后读取上次停机遗留的任务 ID 并重新入队。
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        Path journalPath = resolveJournalPath();
+        if (!Files.exists(journalPath)) {
+            return;
+        }
+        List<String> taskIds;
+        try {
+            taskIds = Files.readAllLines(journalPath, StandardCharsets.UTF_8).stream()
+                    .map(String::trim)
+                    .filter(line -> !line.isEmpty())
+                    .distinct()
+                    .toList();
+            Files.delete(journalPath);
+        } catch (IOException exception) {
+            logger.warn("读取未完成质控任务续跑文件失败: {}", journalPath, exception);
+            return;
+        }
+        TaskHandler currentHandler = handler;
+        if (currentHandler == null || taskIds.isEmpty()) {
+            return;
+        }
+        logger.info("恢复上次停机时未完成的质控任务 {} 个", taskIds.size());
+        for (String taskId : taskIds) {
+            try {
+                currentHandler.recover(taskId);
+                recovered.incrementAndGet();
+            } catch (Exception exception) {
+                logger.warn("恢复质控任务失败: {}", taskId, exception);
+            }
+        }
+    }
+
+    /**
+     * 停止接收新任务，等待已接收任务完成；超时未完成的任务 ID 写入续跑文件。可重复调用。
+     */
+    public void shutdownGracefully() {
+        if (!shutdown.compareAndSet(false, true)) {
+            return;
+        }
+        long deadline = System.currentTimeMillis() + Math.max(0L, properties.getShutdownTimeoutMs());
+        deferScheduler.shutdownNow();
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Math.max(0L, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            // 执行线程退出后，推理仍可能在异步等待，继续等到截止时间。
+            CompletableFuture<?>[] pending = runningTasks.values().toArray(CompletableFuture[]::new);
+            if (pending.length > 0) {
+                CompletableFuture.allOf(pending)
+                        .get(Math.max(1L, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } catch (Exception ignore) {
+            // 等待超时或任务失败都不影响后续的续跑登记。
+        }
+        // 先登记再中断：被中断的任务即使随后进入终态，续跑时也会按任务状态跳过。
+        Set<String> unfinishedTaskIds = new LinkedHashSet<>(unfinishedTasks.keySet());
+        executor.shutdownNow();
+        writeJournal(unfinishedTaskIds);
+    }
+
+    @Override
+    public void destroy() {
+        shutdownGracefully();
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "qualityTaskExecutor";
+    }
+
+    @Override
+    public Map<String, Object> getMetricsSnapshot() {
+        long startedCount = started.get();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("threads", executor.getMaximumPoolSize());
+        metrics.put("queueCapacity", Math.max(1, properties.getQueueCapacity()));
+        metrics.put("rejectionPolicy", properties.isDeferOnReject() ? "defer" : "fail");
+        metrics.put("queueDepth", executor.getQueue().size());
+        metrics.put("activeThreads", executor.getActiveCount());
+        metrics.put("inFlight", runningTasks.size());
+        metrics.put("deferred", deferredCount.get());
+        metrics.put("unfinished", unfinishedTasks.size());
+        metrics.put("submitted", submitted.get());
+        metrics.put("completed", completed.get());
+        metrics.put("rejected", rejected.get());
+        metrics.put("deferrals", deferrals.get());
+        metrics.put("averageQueueWaitMs", startedCount == 0 ? 0L : totalQueueWaitMs.get() / startedCount);
+        metrics.put("maxQueueWaitMs", maxQueueWaitMs.get());
+        metrics.put("recovered", recovered.get());
+        metrics.put("journaled", journaled.get());
+        metrics.put("shutdown", shutdown.get());
+        return metrics;
+    }
+
+    private void enqueue(MockQualityTaskMessage message) {
+        long enqueuedAt = System.currentTimeMillis();
+        try {
+            executor.execute(() -> execute(message, enqueuedAt));
+        } catch (RejectedExecutionException exception) {
+            handleRejection(message);
+        }
+    }
+
+    private void execute(MockQualityTaskMessage message, long enqueuedAt) {
+        long waitMs = System.currentTimeMillis() - enqueuedAt;
+        started.incrementAndGet();
+        totalQueueWaitMs.addAndGet(waitMs);
+        maxQueueWaitMs.accumulateAndGet(waitMs, Math::max);
+
+        CompletableFuture<Void> processingFuture;
+        try {
+            processingFuture = handler.process(message);
+        } catch (RejectedExecutionException exception) {
+            // 流水线准入超时，任务仍为 PENDING，延后重新入队。
+            deferSaturated(message);
+            return;
+        } catch (Exception exception) {
+            processingFuture = CompletableFuture.failedFuture(exception);
+        }
+        String taskId = message.getTaskId();
+        runningTasks.put(taskId, processingFuture);
+        processingFuture.whenComplete((ignored, error) -> {
+            runningTasks.remove(taskId);
+            unfinishedTasks.remove(taskId);
+            completed.incrementAndGet();
+        });
+    }
+
+    /**
+     * 队列已满或引擎已停机时的处理：停机期间保留在未完成集合中等待续跑，
+     * 否则按配置延后重新入队或直接标记失败。
+     */
+    private void handleRejection(MockQualityTaskMessage message) {
+        if (shutdown.get()) {
+            // 停机后才提交的任务直接登记续跑。
+            writeJournal(Set.of(message.getTaskId()));
+            return;
+        }
+        if (properties.isDeferOnReject()) {
+            deferrals.incrementAndGet();
+            deferredCount.incrementAndGet();
+            try {
+                deferScheduler.schedule(() -> {
+                    deferredCount.decrementAndGet();
+                    enqueue(message);
+                }, Math.max(1L, properties.getDeferDelayMs()), TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException ignore) {
+                deferredCount.decrementAndGet();
+            }
+            return;
+        }
+
+        rejected.incrementAndGet();
+        unfinishedTasks.remove(message.getTaskId());
+        try {
+            handler.reject(message, "本地任务队列已满，请稍后重试");
+        } catch (Exception exception) {
+            logger.warn("标记被拒绝的质控任务失败: {}", message.getTaskId(), exception);
+        }
+    }
+
+    /**
+     * 流水线已满时延后重新入队，任务保留在未完成集合中；停机期间直接登记续跑。
+     */
+    private void deferSaturated(MockQualityTaskMessage message) {
+        if (!shutdown.get()) {
+            deferrals.incrementAndGet();
+            deferredCount.incrementAndGet();
+            try {
+                deferScheduler.schedule(() -> {
+                    deferredCount.decrementAndGet();
+                    enqueue(message);
+                }, Math.max(1L, properties.getDeferDelayMs()), TimeUnit.MILLISECONDS);
+                return;
+            } catch (RejectedExecutionException ignore) {
+                deferredCount.decrementAndGet();
+            }
+        }
+        writeJournal(Set.of(message.getTaskId()));
+    }
+
+    private synchronized void writeJournal(Set<String> taskIds) {
+        if (taskIds.isEmpty()) {
+            return;
+        }
+        Path journalPath = resolveJournalPath();
+        try {
+            if (journalPath.getParent() != null) {
+                Files.createDirectories(journalPath.getParent());
+            }
+            // 追加写入：上次遗留但尚未恢复的任务不会被覆盖。
+            Set<String> lines = new LinkedHashSet<>();
+            if (Files.exists(journalPath)) {
+                lines.addAll(Files.readAllLines(journalPath, StandardCharsets.UTF_8));
+            }
+            lines.addAll(taskIds);
+            Files.write(journalPath, new ArrayList<>(lines), StandardCharsets.UTF_8);
+            journaled.addAndGet(taskIds.size());
+            logger.info("停机时仍有 {} 个质控任务未完成，已写入续跑文件: {}", taskIds.size(), journalPath);
+        } catch (IOException exception) {
+            logger.error("写入未完成质控任务续跑文件失败，任务 ID: {}", taskIds, exception);
+        }
+    }
+
+    private Path resolveJournalPath() {
+        return Paths.get(properties.getJournalPath()).toAbsolutePath().normalize();
+    }
+
+    /**
+     * 任务处理方：执行、拒绝与续跑恢复。
+     */
+    public interface TaskHandler {
+        /**
+         * 执行任务，返回任务进入终态后完成的 future。
+         */
+        CompletableFuture<Void> process(MockQualityTaskMessage message);
+
+        /**
+         * 任务被拒绝执行时调用，通常把任务标记为失败。
+         */
+        void reject(MockQualityTaskMessage message, String reason);
+
+        /**
+         * 按任务 ID 重新入队上次停机时未完成的任务。
+         */
+        void recover(String taskId);
+    }
+}
@@ -0,0 +1,229 @@
+package com.medical.qc.modules.qctask.application.support;
+
+import com.medical.qc.config.TaskIdempotencyProperties;
+import com.medical.qc.shared.metrics.RuntimeMetricsSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 质控任务提交幂等索引。
+ *
+ * <p>幂等键映射到首次提交生成的任务号，有效期为配置的窗口期。客户端携带 Idempotency-Key 时按该值识别；
+ * 否则按提交人、检查号、任务类型、来源模式与上传文件内容摘要识别，连续点击产生的相同请求会命中同一任务。
+ * 本地层按 LRU 保留有限条数；Redis 层可选，用 SET NX 保证多实例下只有一个请求占用幂等键。</p>
+ */
+@Component
+public class QualityTaskIdempotencyIndex implements RuntimeMetricsSource {
+    private static final Logger logger = LoggerFactory.getLogger(QualityTaskIdempotencyIndex.class);
+    static final String REDIS_KEY_PREFIX = "medical-qc:task-idempotency:";
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+    // 只在值仍为本次任务号时删除，避免释放掉其他请求随后占用的幂等键。
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then\n"
+                    + "  return redis.call('DEL', KEYS[1])\n"
+                    + "end\n"
+                    + "return 0",
+            Long.class);
+
+    private final TaskIdempotencyProperties properties;
+    private final StringRedisTemplate redisTemplate;
+    private final Map<String, LocalEntry> localEntries;
+    // 幂等索引指标。
+    private final AtomicLong claims = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong releases = new AtomicLong();
+    private final AtomicLong redisErrors = new AtomicLong();
+    private final AtomicLong hashNanos = new AtomicLong();
+    private final AtomicLong hashCount = new AtomicLong();
+
+    public QualityTaskIdempotencyIndex(TaskIdempotencyProperties properties,
+                                       ObjectProvider<StringRedisTemplate> redisTemplateProvider) {
+        this.properties = properties;
+        this.redisTemplate = properties.isRedisEnabled() ? redisTemplateProvider.getIfAvailable() : null;
+        int maxEntries = Math.max(1, properties.getMaxLocalEntries());
+        this.localEntries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, LocalEntry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 生成提交请求的幂等键。
+     *
+     * @param idempotencyKey 客户端提供的幂等键，可为空
+     * @param file 本地上传的影像文件，PACS 模式下为空
+     * @return 幂等键；未启用重复提交识别时返回 null
+     */
+    public String resolveKey(String idempotencyKey,
+                             Long userId,
+                             String taskType,
+                             String sourceMode,
+                             String examId,
+                             MultipartFile file) throws IOException {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        // 幂等键都带上提交人，不同用户之间互不影响。
+        String owner = userId == null ? "-" : String.valueOf(userId);
+        if (StringUtils.hasText(idempotencyKey)) {
+            return "c:" + owner + ":" + sha256(idempotencyKey.trim());
+        }
+        String fileDigest = file == null ? "-" : digestFile(file);
+        return "f:" + sha256(String.join("|", owner, taskType, sourceMode, examId, fileDigest));
+    }
+
+    /**
+     * 占用幂等键。
+     *
+     * @return 已占用该键的任务号；返回 null 表示由本次调用占用成功，调用方继续创建任务
+     */
+    public String claim(String key, String taskId) {
+        if (key == null) {
+            return null;
+        }
+        long windowMs = TimeUnit.SECONDS.toMillis(Math.max(1L, properties.getWindowSeconds()));
+        long now = System.currentTimeMillis();
+        synchronized (localEntries) {
+            LocalEntry current = localEntries.get(key);
+            if (current != null && current.expiresAt() > now) {
+                duplicates.incrementAndGet();
+                return current.taskId();
+            }
+        }
+
+        if (redisTemplate != null) {
+            try {
+                String redisKey = REDIS_KEY_PREFIX + key;
+                Boolean claimed = redisTemplate.opsForValue().setIfAbsent(redisKey, taskId, Duration.ofMillis(windowMs));
+                if (!Boolean.TRUE.equals(claimed)) {
+                    String existingTaskId = redisTemplate.opsForValue().get(redisKey);
+                    if (StringUtils.hasText(existingTaskId) && !existingTaskId.equals(taskId)) {
+                        duplicates.incrementAndGet();
+                        return existingTaskId;
+                    }
+                }
+            } catch (Exception exception) {
+                // Redis 不可用时退化为本节点识别，不影响任务提交。
+                redisErrors.incrementAndGet();
+                logger.debug("写入 Redis 幂等键失败: {}", key, exception);
+            }
+        }
+
+        synchronized (localEntries) {
+            LocalEntry current = localEntries.get(key);
+            if (current != null && current.expiresAt() > now && !current.taskId().equals(taskId)) {
+                duplicates.incrementAndGet();
+                return current.taskId();
+            }
+            localEntries.put(key, new LocalEntry(taskId, now + windowMs));
+        }
+        claims.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * 任务提交失败时释放幂等键，允许用户立即重新提交。
+     */
+    public void release(String key, String taskId) {
+        if (key == null) {
+            return;
+        }
+        synchronized (localEntries) {
+            LocalEntry current = localEntries.get(key);
+            if (current != null && current.taskId().equals(taskId)) {
+                localEntries.remove(key);
+            }
+        }
+        if (redisTemplate != null) {
+            try {
+                redisTemplate.execute(RELEASE_SCRIPT, List.of(REDIS_KEY_PREFIX + key), taskId);
+            } catch (Exception exception) {
+                redisErrors.incrementAndGet();
+                logger.debug("释放 Redis 幂等键失败: {}", key, exception);
+            }
+        }
+        releases.incrementAndGet();
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "qualityTaskIdempotency";
+    }
+
+    @Override
+    public Map<String, Object> getMetricsSnapshot() {
+        int entryCount;
+        synchronized (localEntries) {
+            entryCount = localEntries.size();
+        }
+        long hashed = hashCount.get();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", properties.isEnabled());
+        metrics.put("redisEnabled", redisTemplate != null);
+        metrics.put("localEntries", entryCount);
+        metrics.put("claims", claims.get());
+        metrics.put("duplicates", duplicates.get());
+        metrics.put("releases", releases.get());
+        metrics.put("redisErrors", redisErrors.get());
+        metrics.put("averageHashMs", hashed == 0 ? 0L : TimeUnit.NANOSECONDS.toMillis(hashNanos.get() / hashed));
+        return metrics;
+    }
+
+    /**
+     * 流式计算上传文件内容的 SHA-256，不把整个文件读入内存。
+     */
+    private String digestFile(MultipartFile file) throws IOException {
+        long startedAt = System.nanoTime();
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[HASH_BUFFER_SIZE];
+        try (InputStream inputStream = file.getInputStream()) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        hashNanos.addAndGet(System.nanoTime() - startedAt);
+        hashCount.incrementAndGet();
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static String sha256(String value) {
+        return HexFormat.of().formatHex(newDigest().digest(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("当前运行环境不支持 SHA-256", exception);
+        }
+    }
+
+    /**
+     * 本地层条目：占用幂等键的任务号与到期时间。
+     */
+    private record LocalEntry(String taskId, long expiresAt) {
+    }
+}
@@ -0,0 +1,490 @@
+package com.medical.qc.modules.qctask.application.support;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medical.qc.config.ActiveMqProperties;
+import com.medical.qc.messaging.MockQualityTaskMessage;
+import com.medical.qc.modules.unified.persistence.entity.UnifiedQcTaskOutbox;
+import com.medical.qc.modules.unified.persistence.mapper.UnifiedQcTaskOutboxMapper;
+import com.medical.qc.shared.messaging.MessageBus;
+import com.medical.qc.shared.metrics.RuntimeMetricsSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 质控任务投递 outbox 与中继。
+ *
+ * <p>任务提交时在同一事务内写入 qc_tasks 与 qc_task_outbox，HTTP 线程不再直接访问 broker；
+ * 中继线程按主键顺序批量把 PENDING 记录投递到 ActiveMQ，投递成功后标记为 PUBLISHED。
+ * 每轮在一个事务内以 FOR UPDATE SKIP LOCKED 锁定本批记录直到标记完成，多副本同时中继时各自取到不同的记录。
+ * 投递与标记之间进程退出会导致重复投递，即至少投递一次，消费端按任务状态跳过已完成任务。
+ * broker 长时间不可用时，记录超过本地降级时限后转交 {@link QualityTaskExecutionEngine}。</p>
+ *
+ * <p>消息链路关闭时任务直接进入本地执行引擎，outbox 记录以 LOCAL 状态写入，只作为消息原文的留存。
+ * 未完成任务的 outbox 记录不会被清理，续跑与恢复重派通过 {@link #loadDispatchedMessage(String)} 取回原始消息，
+ * 提交时携带的元数据（造影剂流速、心率等）不会丢失。</p>
+ */
+@Component
+public class QualityTaskOutboxRelay implements RuntimeMetricsSource, ApplicationRunner, DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(QualityTaskOutboxRelay.class);
+    static final String STATUS_PENDING = "PENDING";
+    static final String STATUS_PUBLISHED = "PUBLISHED";
+    static final String STATUS_LOCAL = "LOCAL";
+    static final String STATUS_INVALID = "INVALID";
+    // 已投递记录的清理间隔。
+    private static final long CLEANUP_INTERVAL_MS = 10 * 60 * 1000L;
+    // 积压总数的采样间隔，避免每轮轮询都对 outbox 计数。
+    private static final long PENDING_COUNT_INTERVAL_MS = 30 * 1000L;
+
+    private final ActiveMqProperties activeMqProperties;
+    private final ActiveMqProperties.OutboxProperties outboxProperties;
+    private final UnifiedQcTaskOutboxMapper outboxMapper;
+    private final MessageBus messageBus;
+    private final QualityTaskExecutionEngine taskExecutionEngine;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    // 批量派发时按 JDBC 批处理写入 outbox。
+    private final JdbcTemplate jdbcTemplate;
+    // 中继线程，只做投递与状态回写，不执行任务。
+    private final ScheduledExecutorService relayScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "qc-task-outbox-relay");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // 合并提交时的唤醒请求，避免每次提交都排一轮中继。
+    private final AtomicBoolean wakeUpQueued = new AtomicBoolean();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private volatile long lastCleanupAt;
+    private volatile long lastPendingCountAt;
+    // 中继指标。
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong sendFailures = new AtomicLong();
+    private final AtomicLong localFallbacks = new AtomicLong();
+    private final AtomicLong invalid = new AtomicLong();
+    private final AtomicLong relayErrors = new AtomicLong();
+    private final AtomicLong pendingCount = new AtomicLong();
+    private final AtomicLong oldestPendingAgeMs = new AtomicLong();
+    private final AtomicLong lastPublishLagMs = new AtomicLong();
+    private final AtomicLong maxPublishLagMs = new AtomicLong();
+    private final AtomicLong totalPublishLagMs = new AtomicLong();
+
+    public QualityTaskOutboxRelay(ActiveMqProperties activeMqProperties,
+                                  UnifiedQcTaskOutboxMapper outboxMapper,
+                                  MessageBus messageBus,
+                                  QualityTaskExecutionEngine taskExecutionEngine,
+                                  ObjectMapper objectMapper,
+                                  PlatformTransactionManager transactionManager,
+                                  JdbcTemplate jdbcTemplate) {
+        this.activeMqProperties = activeMqProperties;
+        this.outboxProperties = activeMqProperties.getOutbox();
+        this.outboxMapper = outboxMapper;
+        this.messageBus = messageBus;
+        this.taskExecutionEngine = taskExecutionEngine;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 派发任务消息。
+     *
+     * <p>persistAction 与 outbox 写入处于同一事务，任一失败都会整体回滚；persistAction 可为空，
+     * 用于已落库任务的重新派发。</p>
+     */
+    public void dispatch(MockQualityTaskMessage message, Runnable persistAction) {
+        dispatchIf(message, () -> {
+            if (persistAction != null) {
+                persistAction.run();
+            }
+            return true;
+        });
+    }
+
+    /**
+     * 在前置条件成立时派发任务消息。
+     *
+     * <p>precondition 与 outbox 写入处于同一事务，通常是条件更新形式的认领；返回 false 时不写入记录、不派发。</p>
+     *
+     * @return true 表示已写入派发记录
+     */
+    public boolean dispatchIf(MockQualityTaskMessage message, BooleanSupplier precondition) {
+        boolean messagingEnabled = activeMqProperties.isEnabled();
+        UnifiedQcTaskOutbox outbox = new UnifiedQcTaskOutbox();
+        outbox.setTaskNo(message.getTaskId());
+        outbox.setTaskTypeCode(message.getTaskType());
+        outbox.setDestination(activeMqProperties.getQueue().getMockQualityTask());
+        outbox.setPayloadJson(writePayload(message));
+        outbox.setPublishStatus(messagingEnabled ? STATUS_PENDING : STATUS_LOCAL);
+        outbox.setAttemptCount(0);
+        outbox.setCreatedAt(LocalDateTime.now());
+        boolean inserted = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            if (!precondition.getAsBoolean()) {
+                return false;
+            }
+            outboxMapper.insert(outbox);
+            return true;
+        }));
+        if (!inserted) {
+            return false;
+        }
+        if (!messagingEnabled) {
+            taskExecutionEngine.submit(message);
+            return true;
+        }
+        appended.incrementAndGet();
+        wakeUp();
+        return true;
+    }
+
+    /**
+     * 消息链路是否开启；关闭时派发的任务只进入本节点的执行引擎。
+     */
+    public boolean isMessagingEnabled() {
+        return activeMqProperties.isEnabled();
+    }
+
+    /**
+     * 批量派发任务消息。
+     *
+     * <p>persistAction 与整批 outbox 记录处于同一事务，outbox 按 JDBC 批处理一次写入；
+     * 中继随后把这批记录作为一批消息投递。</p>
+     */
+    public void dispatchAll(List<MockQualityTaskMessage> messages, Runnable persistAction) {
+        if (messages == null || messages.isEmpty()) {
+            if (persistAction != null) {
+                persistAction.run();
+            }
+            return;
+        }
+        boolean messagingEnabled = activeMqProperties.isEnabled();
+        String destination = activeMqProperties.getQueue().getMockQualityTask();
+        LocalDateTime createdAt = LocalDateTime.now();
+        List<Object[]> batchArgs = new ArrayList<>(messages.size());
+        for (MockQualityTaskMessage message : messages) {
+            batchArgs.add(new Object[] {
+                    message.getTaskId(),
+                    message.getTaskType(),
+                    destination,
+                    writePayload(message),
+                    messagingEnabled ? STATUS_PENDING : STATUS_LOCAL,
+                    0,
+                    createdAt
+            });
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            if (persistAction != null) {
+                persistAction.run();
+            }
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO qc_task_outbox (task_no, task_type_code, destination, payload_json, publish_status, "
+                            + "attempt_count, created_at) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                    batchArgs);
+        });
+        if (!messagingEnabled) {
+            messages.forEach(taskExecutionEngine::submit);
+            return;
+        }
+        appended.addAndGet(messages.size());
+        wakeUp();
+    }
+
+    /**
+     * 取回任务最近一次派发的原始消息，供续跑与恢复重派使用。
+     * 按 idx_qc_task_outbox_task_no 查找。
+     *
+     * @return 原始消息；没有留存记录或无法解析时返回 null
+     */
+    public MockQualityTaskMessage loadDispatchedMessage(String taskNo) {
+        UnifiedQcTaskOutbox row = outboxMapper.selectOne(new QueryWrapper<UnifiedQcTaskOutbox>()
+                .eq("task_no", taskNo)
+                .orderByDesc("id")
+                .last("LIMIT 1"));
+        return row == null ? null : readPayload(row);
+    }
+
+    /**
+     * 启动完成后开始周期性中继，同时处理上次停机前遗留的 PENDING 记录；消息链路关闭时只做留存记录清理。
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        if (!activeMqProperties.isEnabled()) {
+            relayScheduler.scheduleWithFixedDelay(
+                    this::cleanupSafely, CLEANUP_INTERVAL_MS, CLEANUP_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            return;
+        }
+        long intervalMs = Math.max(100L, outboxProperties.getPollIntervalMs());
+        relayScheduler.scheduleWithFixedDelay(this::relaySafely, 0L, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        relayScheduler.shutdownNow();
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "qualityTaskOutbox";
+    }
+
+    @Override
+    public Map<String, Object> getMetricsSnapshot() {
+        long publishedCount = published.get();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", activeMqProperties.isEnabled());
+        metrics.put("pending", pendingCount.get());
+        metrics.put("oldestPendingAgeMs", oldestPendingAgeMs.get());
+        metrics.put("appended", appended.get());
+        metrics.put("published", publishedCount);
+        metrics.put("sendFailures", sendFailures.get());
+        metrics.put("localFallbacks", localFallbacks.get());
+        metrics.put("invalid", invalid.get());
+        metrics.put("relayErrors", relayErrors.get());
+        metrics.put("lastPublishLagMs", lastPublishLagMs.get());
+        metrics.put("averagePublishLagMs", publishedCount == 0 ? 0L : totalPublishLagMs.get() / publishedCount);
+        metrics.put("maxPublishLagMs", maxPublishLagMs.get());
+        return metrics;
+    }
+
+    /**
+     * 投递一批 PENDING 记录。同一目标地址的记录作为一批消息发送，发送成功的记录用一条 UPDATE 标记为 PUBLISHED；
+     * broker 发送失败后本轮不再尝试发送，只处理已超过降级时限的记录。
+     *
+     * <p>选取、发送与标记处于同一事务，本批记录被行锁认领，其他副本的中继跳过这些记录；
+     * 转本地执行的任务在事务提交后才交给执行引擎。</p>
+     */
+    void relayOnce() {
+        LocalDateTime now = LocalDateTime.now();
+        List<MockQualityTaskMessage> localMessages = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status -> relayBatch(now, localMessages));
+        localMessages.forEach(taskExecutionEngine::submit);
+        refreshPendingCount();
+        cleanupIfDue(now);
+    }
+
+    /**
+     * 认领并投递一批记录，需要转本地执行的消息收集到 localMessages。
+     */
+    private void relayBatch(LocalDateTime now, List<MockQualityTaskMessage> localMessages) {
+        int batchSize = Math.max(1, outboxProperties.getBatchSize());
+        List<UnifiedQcTaskOutbox> rows = outboxMapper.selectList(new QueryWrapper<UnifiedQcTaskOutbox>()
+                .eq("publish_status", STATUS_PENDING)
+                .orderByAsc("id")
+                .last("LIMIT " + batchSize + " FOR UPDATE SKIP LOCKED"));
+        // 本批按主键升序取出，首条即本节点可见的最早积压记录。
+        oldestPendingAgeMs.set(rows.isEmpty() || rows.get(0).getCreatedAt() == null
+                ? 0L
+                : Math.max(0L, Duration.between(rows.get(0).getCreatedAt(), now).toMillis()));
+
+        // 按目标地址分组，组内保持主键顺序。
+        Map<String, List<PendingMessage>> pendingByDestination = new LinkedHashMap<>();
+        for (UnifiedQcTaskOutbox row : rows) {
+            MockQualityTaskMessage message = readPayload(row);
+            if (message == null) {
+                invalid.incrementAndGet();
+                markRow(row, STATUS_INVALID, "无法解析任务消息");
+                continue;
+            }
+            long ageMs = row.getCreatedAt() == null ? 0L : Math.max(0L, Duration.between(row.getCreatedAt(), now).toMillis());
+            pendingByDestination.computeIfAbsent(row.getDestination(), destination -> new ArrayList<>())
+                    .add(new PendingMessage(row, message, ageMs));
+        }
+
+        boolean brokerAvailable = true;
+        for (Map.Entry<String, List<PendingMessage>> group : pendingByDestination.entrySet()) {
+            List<PendingMessage> pending = group.getValue();
+            int sent = 0;
+            if (brokerAvailable) {
+                List<MessageBus.Envelope> envelopes = pending.stream()
+                        .map(item -> new MessageBus.Envelope(item.message(), headersOf(item.message())))
+                        .toList();
+                sent = Math.max(0, Math.min(pending.size(), messageBus.sendBatch(group.getKey(), envelopes)));
+                markPublished(pending.subList(0, sent));
+                if (sent < pending.size()) {
+                    brokerAvailable = false;
+                    sendFailures.incrementAndGet();
+                }
+            }
+            handleUnsent(pending.subList(sent, pending.size()), localMessages);
+        }
+    }
+
+    /**
+     * 把已投递的记录一次性标记为 PUBLISHED。
+     */
+    private void markPublished(List<PendingMessage> sent) {
+        if (sent.isEmpty()) {
+            return;
+        }
+        outboxMapper.update(null, new UpdateWrapper<UnifiedQcTaskOutbox>()
+                .in("id", sent.stream().map(item -> item.row().getId()).toList())
+                .eq("publish_status", STATUS_PENDING)
+                .set("publish_status", STATUS_PUBLISHED)
+                .setSql("attempt_count = attempt_count + 1")
+                .set("last_error", null)
+                .set("published_at", LocalDateTime.now()));
+        published.addAndGet(sent.size());
+        sent.forEach(item -> recordLag(item.ageMs()));
+    }
+
+    /**
+     * 处理本轮未能投递的记录：超过降级时限的逐条标记后转本地执行，其余记录一次性累加尝试次数，留待下一轮。
+     */
+    private void handleUnsent(List<PendingMessage> unsent, List<MockQualityTaskMessage> localMessages) {
+        List<Long> retryIds = new ArrayList<>();
+        long fallbackAfterMs = Math.max(0L, outboxProperties.getLocalFallbackAfterMs());
+        for (PendingMessage item : unsent) {
+            if (item.ageMs() < fallbackAfterMs) {
+                retryIds.add(item.row().getId());
+                continue;
+            }
+            // 先标记、事务提交后再提交本地执行，避免其他节点的中继随后又把同一任务投递出去。
+            if (markRow(item.row(), STATUS_LOCAL, "broker 不可用，改为本地执行")) {
+                localFallbacks.incrementAndGet();
+                localMessages.add(item.message());
+            }
+        }
+        if (!retryIds.isEmpty()) {
+            outboxMapper.update(null, new UpdateWrapper<UnifiedQcTaskOutbox>()
+                    .in("id", retryIds)
+                    .eq("publish_status", STATUS_PENDING)
+                    .setSql("attempt_count = attempt_count + 1")
+                    .set("last_error", "broker 不可用"));
+        }
+    }
+
+    private Map<String, String> headersOf(MockQualityTaskMessage message) {
+        return message.getTaskType() == null
+                ? Map.of()
+                : Map.of(MockQualityTaskMessage.TASK_TYPE_HEADER, message.getTaskType());
+    }
+
+    private void relaySafely() {
+        wakeUpQueued.set(false);
+        try {
+            relayOnce();
+        } catch (Exception exception) {
+            relayErrors.incrementAndGet();
+            logger.warn("质控任务 outbox 中继失败", exception);
+        }
+    }
+
+    private void cleanupSafely() {
+        try {
+            cleanupIfDue(LocalDateTime.now());
+        } catch (Exception exception) {
+            relayErrors.incrementAndGet();
+            logger.warn("清理质控任务 outbox 记录失败", exception);
+        }
+    }
+
+    private void wakeUp() {
+        if (!started.get() || !wakeUpQueued.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            relayScheduler.execute(this::relaySafely);
+        } catch (RejectedExecutionException ignore) {
+            // 应用停机中，遗留记录由下次启动的中继处理。
+        }
+    }
+
+    /**
+     * 只在记录仍为 PENDING 时推进状态，返回是否由本次调用完成推进。
+     */
+    private boolean markRow(UnifiedQcTaskOutbox row, String status, String error) {
+        return outboxMapper.update(null, new UpdateWrapper<UnifiedQcTaskOutbox>()
+                .eq("id", row.getId())
+                .eq("publish_status", STATUS_PENDING)
+                .set("publish_status", status)
+                .set("attempt_count", safeAttempts(row) + 1)
+                .set("last_error", error)
+                .set("published_at", LocalDateTime.now())) > 0;
+    }
+
+    private void recordLag(long lagMs) {
+        lastPublishLagMs.set(lagMs);
+        totalPublishLagMs.addAndGet(lagMs);
+        maxPublishLagMs.accumulateAndGet(lagMs, Math::max);
+    }
+
+    /**
+     * 按采样间隔刷新积压总数；最早积压时长由每轮取到的记录直接得出。
+     */
+    private void refreshPendingCount() {
+        long currentTimeMs = System.currentTimeMillis();
+        if (currentTimeMs - lastPendingCountAt < PENDING_COUNT_INTERVAL_MS) {
+            return;
+        }
+        lastPendingCountAt = currentTimeMs;
+        Long count = outboxMapper.selectCount(new QueryWrapper<UnifiedQcTaskOutbox>()
+                .eq("publish_status", STATUS_PENDING));
+        pendingCount.set(count == null ? 0L : count);
+    }
+
+    private void cleanupIfDue(LocalDateTime now) {
+        long currentTimeMs = System.currentTimeMillis();
+        if (currentTimeMs - lastCleanupAt < CLEANUP_INTERVAL_MS) {
+            return;
+        }
+        lastCleanupAt = currentTimeMs;
+        // 未完成任务的记录是续跑与恢复重派的消息原文，保留到任务进入终态之后。
+        outboxMapper.delete(new QueryWrapper<UnifiedQcTaskOutbox>()
+                .ne("publish_status", STATUS_PENDING)
+                .lt("created_at", now.minusHours(Math.max(1L, outboxProperties.getRetentionHours())))
+                .notInSql("task_no", "SELECT task_no FROM qc_tasks WHERE task_status IN ('PENDING', 'PROCESSING')"));
+    }
+
+    private String writePayload(MockQualityTaskMessage message) {
+        try {
+            return objectMapper.writeValueAsString(message);
+        } catch (JsonProcessingException exception) {
+            throw new IllegalStateException("质控任务消息序列化失败: " + message.getTaskId(), exception);
+        }
+    }
+
+    private MockQualityTaskMessage readPayload(UnifiedQcTaskOutbox row) {
+        try {
+            return objectMapper.readValue(row.getPayloadJson(), MockQualityTaskMessage.class);
+        } catch (Exception exception) {
+            logger.warn("outbox 记录无法解析，任务号: {}", row.getTaskNo(), exception);
+            return null;
+        }
+    }
+
+    private int safeAttempts(UnifiedQcTaskOutbox row) {
+        return row.getAttemptCount() == null ? 0 : row.getAttemptCount();
+    }
+
+    /**
+     * 本轮待投递的记录、解析后的消息及其在 outbox 中的等待时长。
+     */
+    private record PendingMessage(UnifiedQcTaskOutbox row, MockQualityTaskMessage message, long ageMs) {
+    }
+}
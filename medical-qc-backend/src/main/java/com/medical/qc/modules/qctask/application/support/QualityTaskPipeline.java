@@ -0,0 +1,284 @@
+package com.medical.qc.modules.qctask.application.support;
+
+import com.medical.qc.config.TaskPipelineProperties;
+import com.medical.qc.shared.metrics.RuntimeMetricsSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 质控任务分阶段流水线。
+ *
+ * <p>任务依次经过三个阶段：预处理阶段在独立线程池中完成文件校验、影像解析并发起推理；
+ * 推理阶段只等待模型服务返回，不占用线程；落库阶段在另一个线程池中完成结果装配、任务落库与工单同步。
+ * 前一个任务等待推理时，下一个任务的预处理已经在进行。</p>
+ *
+ * <p>流水线内同时存在的任务数受许可数约束，两个线程池的队列容量与许可数相同，因此不会溢出；
+ * 许可耗尽时提交方阻塞等待，消息监听线程和本地执行引擎随之放慢取任务，形成背压。
+ * 调用方应在改变任务状态之前通过 {@link #admit()} 取得名额，等待超时只抛出拒绝异常，任务仍保持原状态。</p>
+ */
+@Component
+public class QualityTaskPipeline implements RuntimeMetricsSource, DisposableBean {
+    private final TaskPipelineProperties properties;
+    private final Semaphore inFlightPermits;
+    private final ThreadPoolExecutor prepareExecutor;
+    private final ThreadPoolExecutor persistExecutor;
+    // 各阶段耗时指标。
+    private final StageStats prepareStats = new StageStats();
+    private final StageStats inferenceStats = new StageStats();
+    private final StageStats persistStats = new StageStats();
+    private final AtomicLong admissionWaits = new AtomicLong();
+    private final AtomicLong admissionTimeouts = new AtomicLong();
+
+    public QualityTaskPipeline(TaskPipelineProperties properties) {
+        this.properties = properties;
+        int maxInFlight = Math.max(1, properties.getMaxInFlight());
+        this.inFlightPermits = new Semaphore(maxInFlight);
+        this.prepareExecutor = createStageExecutor("qc-task-prepare-", properties.getPrepareThreads(), maxInFlight);
+        this.persistExecutor = createStageExecutor("qc-task-persist-", properties.getPersistThreads(), maxInFlight);
+    }
+
+    /**
+     * 申请流水线名额；流水线已满时阻塞等待，超过准入等待上限后抛出拒绝异常。
+     * 取得的名额必须通过 {@link #submit(Admission, Callable, Consumer)} 交付，或在放弃执行时 {@link Admission#release()}。
+     *
+     * @throws RejectedExecutionException 等待超时，调用方应保持任务原状态并稍后重试
+     */
+    public Admission admit() {
+        if (!acquirePermit()) {
+            throw new RejectedExecutionException("质控任务流水线已满，请稍后重试");
+        }
+        return new Admission();
+    }
+
+    /**
+     * 申请名额并把任务送入流水线；流水线已满且等待超时时抛出拒绝异常，不会调用落库回调。
+     */
+    public CompletableFuture<Void> submit(Callable<CompletableFuture<Runnable>> prepareStage,
+                                          Consumer<Throwable> persistStage) {
+        return submit(admit(), prepareStage, persistStage);
+    }
+
+    /**
+     * 用已取得的名额把任务送入流水线，名额随任务在落库阶段结束后归还。
+     *
+     * @param prepareStage 预处理阶段：完成预处理并发起推理，返回推理 future，其结果是在落库阶段执行的结果装配步骤
+     * @param persistStage 落库阶段：接收前序阶段的异常（成功时为 null），负责把任务推进到终态
+     * @return 落库阶段结束后完成的 future
+     */
+    public CompletableFuture<Void> submit(Admission admission,
+                                          Callable<CompletableFuture<Runnable>> prepareStage,
+                                          Consumer<Throwable> persistStage) {
+        if (!admission.handOver()) {
+            throw new IllegalStateException("流水线名额已归还或已使用");
+        }
+
+        CompletableFuture<Void> pipelineFuture = new CompletableFuture<>();
+        long enqueuedAt = System.nanoTime();
+        try {
+            prepareExecutor.execute(() -> runPrepareStage(prepareStage, persistStage, enqueuedAt, pipelineFuture));
+        } catch (RejectedExecutionException exception) {
+            // 只有停机后才会被拒绝，任务保持原状态，由租约恢复重新派发。
+            inFlightPermits.release();
+            pipelineFuture.completeExceptionally(exception);
+        }
+        return pipelineFuture;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        prepareExecutor.shutdown();
+        persistExecutor.shutdown();
+        prepareExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        persistExecutor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "qualityTaskPipeline";
+    }
+
+    @Override
+    public Map<String, Object> getMetricsSnapshot() {
+        int maxInFlight = Math.max(1, properties.getMaxInFlight());
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("maxInFlight", maxInFlight);
+        metrics.put("inFlight", maxInFlight - inFlightPermits.availablePermits());
+        metrics.put("admissionWaits", admissionWaits.get());
+        metrics.put("admissionTimeouts", admissionTimeouts.get());
+        metrics.put("prepare", prepareStats.snapshot(prepareExecutor));
+        metrics.put("inference", inferenceStats.snapshot(null));
+        metrics.put("persist", persistStats.snapshot(persistExecutor));
+        return metrics;
+    }
+
+    private boolean acquirePermit() {
+        if (inFlightPermits.tryAcquire()) {
+            return true;
+        }
+        admissionWaits.incrementAndGet();
+        try {
+            if (inFlightPermits.tryAcquire(Math.max(0L, properties.getAdmissionTimeoutMs()), TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        admissionTimeouts.incrementAndGet();
+        return false;
+    }
+
+    private void runPrepareStage(Callable<CompletableFuture<Runnable>> prepareStage,
+                                 Consumer<Throwable> persistStage,
+                                 long enqueuedAt,
+                                 CompletableFuture<Void> pipelineFuture) {
+        long startedAt = System.nanoTime();
+        CompletableFuture<Runnable> inferenceFuture;
+        try {
+            inferenceFuture = prepareStage.call();
+        } catch (Exception exception) {
+            inferenceFuture = CompletableFuture.failedFuture(exception);
+        }
+        long preparedAt = System.nanoTime();
+        prepareStats.record(startedAt - enqueuedAt, preparedAt - startedAt);
+
+        inferenceFuture.whenComplete((assembleStep, error) -> {
+            long inferredAt = System.nanoTime();
+            inferenceStats.record(0L, inferredAt - preparedAt);
+            try {
+                persistExecutor.execute(() -> runPersistStage(assembleStep, error, persistStage, inferredAt, pipelineFuture));
+            } catch (RejectedExecutionException exception) {
+                inFlightPermits.release();
+                pipelineFuture.completeExceptionally(exception);
+            }
+        });
+    }
+
+    private void runPersistStage(Runnable assembleStep,
+                                 Throwable inferenceError,
+                                 Consumer<Throwable> persistStage,
+                                 long enqueuedAt,
+                                 CompletableFuture<Void> pipelineFuture) {
+        long startedAt = System.nanoTime();
+        Throwable failure = null;
+        try {
+            Throwable error = unwrap(inferenceError);
+            if (error == null && assembleStep != null) {
+                try {
+                    assembleStep.run();
+                } catch (Exception exception) {
+                    error = exception;
+                }
+            }
+            persistStage.accept(error);
+        } catch (Throwable throwable) {
+            failure = throwable;
+        } finally {
+            persistStats.record(startedAt - enqueuedAt, System.nanoTime() - startedAt);
+            // 先归还许可再通知调用方，调用方观察到任务结束时流水线名额已经空出。
+            inFlightPermits.release();
+        }
+        if (failure == null) {
+            pipelineFuture.complete(null);
+        } else {
+            pipelineFuture.completeExceptionally(failure);
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        Throwable current = error;
+        while ((current instanceof CompletionException || current instanceof ExecutionException)
+                && current.getCause() != null) {
+            current = current.getCause();
+        }
+        return current;
+    }
+
+    private static ThreadPoolExecutor createStageExecutor(String threadPrefix, int threads, int queueCapacity) {
+        int poolSize = Math.max(1, threads);
+        AtomicInteger threadIndex = new AtomicInteger();
+        return new ThreadPoolExecutor(
+                poolSize,
+                poolSize,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, threadPrefix + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 已取得的流水线名额，只能交付或归还一次。
+     */
+    public final class Admission {
+        private final AtomicBoolean settled = new AtomicBoolean();
+
+        private Admission() {
+        }
+
+        /**
+         * 放弃执行时归还名额，重复调用或已交付后调用不生效。
+         */
+        public void release() {
+            if (settled.compareAndSet(false, true)) {
+                inFlightPermits.release();
+            }
+        }
+
+        private boolean handOver() {
+            return settled.compareAndSet(false, true);
+        }
+    }
+
+    /**
+     * 单个阶段的排队与执行耗时统计。
+     */
+    private static final class StageStats {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalWaitNanos = new AtomicLong();
+        private final AtomicLong totalRunNanos = new AtomicLong();
+        private final AtomicLong maxRunNanos = new AtomicLong();
+
+        void record(long waitNanos, long runNanos) {
+            count.incrementAndGet();
+            totalWaitNanos.addAndGet(Math.max(0L, waitNanos));
+            totalRunNanos.addAndGet(Math.max(0L, runNanos));
+            maxRunNanos.accumulateAndGet(runNanos, Math::max);
+        }
+
+        Map<String, Object> snapshot(ThreadPoolExecutor executor) {
+            long completed = count.get();
+            Map<String, Object> metrics = new LinkedHashMap<>();
+            if (executor != null) {
+                metrics.put("activeThreads", executor.getActiveCount());
+                metrics.put("queued", executor.getQueue().size());
+            }
+            metrics.put("completed", completed);
+            if (executor != null) {
+                metrics.put("averageWaitMs", completed == 0 ? 0L : TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get() / completed));
+            }
+            metrics.put("averageMs", completed == 0 ? 0L : TimeUnit.NANOSECONDS.toMillis(totalRunNanos.get() / completed));
+            metrics.put("maxMs", TimeUnit.NANOSECONDS.toMillis(maxRunNanos.get()));
+            return metrics;
+        }
+    }
+}
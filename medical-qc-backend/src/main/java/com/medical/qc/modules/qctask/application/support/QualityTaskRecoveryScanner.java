@@ -0,0 +1,276 @@
+package com.medical.qc.modules.qctask.application.support;
+
+import com.medical.qc.config.TaskRecoveryProperties;
+import com.medical.qc.modules.unified.application.support.UnifiedQualityTaskWriteService;
+import com.medical.qc.modules.unified.persistence.entity.UnifiedQcTask;
+import com.medical.qc.shared.metrics.RuntimeMetricsSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 质控任务租约续租与过期任务恢复。
+ *
+ * <p>消费者开始执行任务前先通过 {@link #acquireLease(Long)} 抢占租约，执行期间本节点按心跳间隔续租。
+ * 节点宕机后租约不再续期，扫描器沿 (task_status, created_at) 索引分批找出租约过期的 PROCESSING 任务，
+ * 交给 {@link RecoveryHandler#recover(String, BooleanSupplier)} 按留存的原始消息重新派发：
+ * 认领（任务回到 PENDING）与 outbox 记录写入在同一事务内完成，扫描节点在两者之间宕机不会留下无人派发的 PENDING 任务。
+ * 重复消息在抢占租约时被挡住，因此重新派发是幂等的。
+ * 超过最大恢复次数的任务以延长租约的方式认领后标记为失败，标记前宕机时租约再次过期，下一轮扫描继续处理。</p>
+ *
+ * <p>尚未开始执行的 PENDING 任务不由本扫描器处理：它们可能只是在健康的队列中排队，
+ * 投递失败由 outbox 中继重试并降级到本地执行，停机遗留由本地执行引擎的续跑文件恢复。</p>
+ */
+@Component
+public class QualityTaskRecoveryScanner implements RuntimeMetricsSource, ApplicationRunner, DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(QualityTaskRecoveryScanner.class);
+    // 续租时每条 UPDATE 携带的任务号上限。
+    private static final int RENEW_CHUNK_SIZE = 200;
+
+    private final TaskRecoveryProperties properties;
+    private final UnifiedQualityTaskWriteService unifiedQualityTaskWriteService;
+    // 续租与扫描共用的后台线程，只访问数据库，不执行任务。
+    private final ScheduledExecutorService recoveryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "qc-task-recovery");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean started = new AtomicBoolean();
+    private volatile RecoveryHandler handler;
+    // 恢复指标。
+    private final AtomicLong leasesAcquired = new AtomicLong();
+    private final AtomicLong leaseConflicts = new AtomicLong();
+    private final AtomicLong leasesRenewed = new AtomicLong();
+    private final AtomicLong scans = new AtomicLong();
+    private final AtomicLong expiredFound = new AtomicLong();
+    private final AtomicLong recovered = new AtomicLong();
+    private final AtomicLong claimConflicts = new AtomicLong();
+    private final AtomicLong failedAfterMaxAttempts = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private volatile long lastScanRecovered;
+
+    public QualityTaskRecoveryScanner(TaskRecoveryProperties properties,
+                                      UnifiedQualityTaskWriteService unifiedQualityTaskWriteService) {
+        this.properties = properties;
+        this.unifiedQualityTaskWriteService = unifiedQualityTaskWriteService;
+    }
+
+    /**
+     * 绑定恢复处理方，由任务服务在构造时调用。
+     */
+    public void bind(RecoveryHandler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * 抢占任务执行租约并把任务推进到 PROCESSING；未启用恢复时直接放行。
+     *
+     * @return true 表示本节点取得执行权
+     */
+    public boolean acquireLease(Long recordId) {
+        if (!properties.isEnabled()) {
+            return true;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        boolean acquired = unifiedQualityTaskWriteService.acquireTaskLease(recordId, now, leaseUntil(now));
+        (acquired ? leasesAcquired : leaseConflicts).incrementAndGet();
+        return acquired;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!properties.isEnabled() || !started.compareAndSet(false, true)) {
+            return;
+        }
+        long heartbeatIntervalMs = Math.max(1000L, properties.getHeartbeatIntervalMs());
+        long scanIntervalMs = Math.max(1000L, properties.getScanIntervalMs());
+        recoveryScheduler.scheduleWithFixedDelay(
+                this::renewSafely, heartbeatIntervalMs, heartbeatIntervalMs, TimeUnit.MILLISECONDS);
+        // 首轮扫描延后一个租约时长，给重启前的节点留出续租窗口。
+        recoveryScheduler.scheduleWithFixedDelay(
+                this::scanSafely, Math.max(0L, properties.getLeaseMs()), scanIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        recoveryScheduler.shutdownNow();
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "qualityTaskRecovery";
+    }
+
+    @Override
+    public Map<String, Object> getMetricsSnapshot() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", properties.isEnabled());
+        metrics.put("leaseMs", properties.getLeaseMs());
+        metrics.put("leasesAcquired", leasesAcquired.get());
+        metrics.put("leaseConflicts", leaseConflicts.get());
+        metrics.put("leasesRenewed", leasesRenewed.get());
+        metrics.put("scans", scans.get());
+        metrics.put("expiredFound", expiredFound.get());
+        metrics.put("recovered", recovered.get());
+        metrics.put("lastScanRecovered", lastScanRecovered);
+        metrics.put("claimConflicts", claimConflicts.get());
+        metrics.put("failedAfterMaxAttempts", failedAfterMaxAttempts.get());
+        metrics.put("errors", errors.get());
+        return metrics;
+    }
+
+    /**
+     * 为本节点运行中的任务续租。
+     */
+    void renewLeases() {
+        RecoveryHandler currentHandler = handler;
+        if (currentHandler == null) {
+            return;
+        }
+        List<String> taskIds = new ArrayList<>(currentHandler.runningTaskIds());
+        LocalDateTime leaseUntil = leaseUntil(LocalDateTime.now());
+        for (int start = 0; start < taskIds.size(); start += RENEW_CHUNK_SIZE) {
+            List<String> chunk = taskIds.subList(start, Math.min(taskIds.size(), start + RENEW_CHUNK_SIZE));
+            leasesRenewed.addAndGet(unifiedQualityTaskWriteService.renewTaskLeases(chunk, leaseUntil));
+        }
+    }
+
+    /**
+     * 分批扫描租约过期任务并重新派发，单次扫描的恢复数量受上限约束。
+     *
+     * @return 本次扫描认领并处理的任务数
+     */
+    int scanOnce() {
+        RecoveryHandler currentHandler = handler;
+        if (currentHandler == null) {
+            return 0;
+        }
+        scans.incrementAndGet();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime createdBefore = now.minus(Duration.ofMillis(Math.max(0L, properties.getLeaseMs())));
+        LocalDateTime unleasedBefore = now.minus(Duration.ofMillis(Math.max(0L, properties.getUnleasedTimeoutMs())));
+        int remaining = Math.max(0, properties.getMaxRecoveriesPerScan());
+        int batchSize = Math.max(1, properties.getBatchSize());
+        int handled = 0;
+
+        while (remaining > 0) {
+            int limit = Math.min(batchSize, remaining);
+            List<UnifiedQcTask> expiredTasks = unifiedQualityTaskWriteService.findLeaseExpiredTasks(
+                    createdBefore,
+                    unleasedBefore,
+                    now,
+                    limit);
+            if (expiredTasks.isEmpty()) {
+                break;
+            }
+            expiredFound.addAndGet(expiredTasks.size());
+            int claimedInBatch = 0;
+            for (UnifiedQcTask task : expiredTasks) {
+                int attempts = task.getRecoveryCount() == null ? 0 : task.getRecoveryCount();
+                boolean exhausted = attempts >= Math.max(0, properties.getMaxAttempts());
+                boolean claimed;
+                try {
+                    if (exhausted) {
+                        claimed = unifiedQualityTaskWriteService.holdExpiredTask(task, now, leaseUntil(now));
+                        if (claimed) {
+                            currentHandler.fail(task.getTaskNo(), "任务执行节点多次失联，已超过最大恢复次数");
+                        }
+                    } else {
+                        // 认领后任务回到 PENDING，不会被再次扫描到。
+                        claimed = currentHandler.recover(
+                                task.getTaskNo(),
+                                () -> unifiedQualityTaskWriteService.claimExpiredTask(task, now));
+                    }
+                } catch (Exception exception) {
+                    // 认领随派发事务回滚时任务仍是租约过期的 PROCESSING，下一轮扫描继续处理；本轮计入额度避免反复重试。
+                    errors.incrementAndGet();
+                    logger.warn("恢复租约过期的质控任务失败: {}", task.getTaskNo(), exception);
+                    claimedInBatch++;
+                    handled++;
+                    remaining--;
+                    continue;
+                }
+                if (!claimed) {
+                    claimConflicts.incrementAndGet();
+                    continue;
+                }
+                (exhausted ? failedAfterMaxAttempts : recovered).incrementAndGet();
+                claimedInBatch++;
+                handled++;
+                remaining--;
+            }
+            // 整批都被其他节点认领或已是最后一批时结束，避免对同一批记录空转。
+            if (claimedInBatch == 0 || expiredTasks.size() < limit) {
+                break;
+            }
+        }
+
+        lastScanRecovered = handled;
+        if (handled > 0) {
+            logger.info("恢复租约过期的质控任务 {} 个", handled);
+        }
+        return handled;
+    }
+
+    private void renewSafely() {
+        try {
+            renewLeases();
+        } catch (Exception exception) {
+            errors.incrementAndGet();
+            logger.warn("质控任务续租失败", exception);
+        }
+    }
+
+    private void scanSafely() {
+        try {
+            scanOnce();
+        } catch (Exception exception) {
+            errors.incrementAndGet();
+            logger.warn("扫描租约过期的质控任务失败", exception);
+        }
+    }
+
+    private LocalDateTime leaseUntil(LocalDateTime now) {
+        return now.plus(Duration.ofMillis(Math.max(0L, properties.getLeaseMs())));
+    }
+
+    /**
+     * 恢复处理方：提供本节点运行中的任务，并负责重新派发或标记失败。
+     */
+    public interface RecoveryHandler {
+        /**
+         * 本节点正在执行、需要续租的任务 ID。
+         */
+        Collection<String> runningTaskIds();
+
+        /**
+         * 认领并重新派发过期任务，派发的是任务提交时留存的原始消息。
+         * claim 必须与 outbox 记录写入在同一事务内执行，返回 false 时不写入任何记录。
+         *
+         * @return true 表示本节点认领成功并已写入派发记录
+         */
+        boolean recover(String taskId, BooleanSupplier claim);
+
+        /**
+         * 把超过最大恢复次数的任务标记为失败。
+         */
+        void fail(String taskId, String reason);
+    }
+}
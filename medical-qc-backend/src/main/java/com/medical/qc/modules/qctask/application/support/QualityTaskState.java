@@ -0,0 +1,49 @@
+package com.medical.qc.modules.qctask.application.support;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 质控任务运行期状态。
+ *
+ * <p>只保留状态轮询需要的字段，完整结果仍以任务详情接口为准。</p>
+ *
+ * @param taskId 任务号
+ * @param taskType 任务类型
+ * @param userId 提交人，用于按详情接口规则校验访问范围
+ * @param status 任务状态
+ * @param progress 推理进度百分比
+ * @param progressStage 推理阶段
+ * @param errorMessage 失败原因
+ * @param updatedAt 状态更新时间戳（毫秒）
+ */
+public record QualityTaskState(String taskId,
+                               String taskType,
+                               Long userId,
+                               String status,
+                               Integer progress,
+                               String progressStage,
+                               String errorMessage,
+                               long updatedAt) {
+
+    /**
+     * 是否已进入终态。
+     */
+    public boolean isTerminal() {
+        return "SUCCESS".equals(status) || "FAILED".equals(status);
+    }
+
+    /**
+     * 组装状态视图，字段名与任务详情接口保持一致。
+     */
+    public Map<String, Object> toView() {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("taskId", taskId);
+        view.put("taskType", taskType);
+        view.put("status", status);
+        view.put("progress", "SUCCESS".equals(status) ? Integer.valueOf(100) : progress);
+        view.put("progressStage", progressStage);
+        view.put("errorMessage", errorMessage);
+        return view;
+    }
+}
@@ -0,0 +1,323 @@
+package com.medical.qc.modules.qctask.application.support;
+
+import com.medical.qc.config.TaskStateStoreProperties;
+import com.medical.qc.shared.metrics.RuntimeMetricsSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 质控任务运行期状态存储。
+ *
+ * <p>执行节点在状态迁移和推理进度更新时写入，状态轮询按任务号 O(1) 读取，不访问数据库。
+ * 本地层按 LRU 保留有限条数；Redis 层可选，每个任务一个短字段名的 hash，按是否终态设置不同有效期，
+ * 写入通过 Lua 脚本完成条件判断、写字段和续期，保证比较并设置的原子性。
+ * 只有本节点正在执行（PROCESSING）或已推进到终态的任务以本地为准；提交时写入的 PENDING 等其他状态
+ * 与其他节点写入的状态一样只在近端缓存有效期内复用，过期后再读 Redis，
+ * 多实例部署下由其他节点执行的任务不会一直停留在提交节点的 PENDING。</p>
+ */
+@Component
+public class QualityTaskStateStore implements RuntimeMetricsSource, DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(QualityTaskStateStore.class);
+    static final String REDIS_KEY_PREFIX = "medical-qc:task-state:";
+    // hash 字段名，尽量短以压缩每个任务占用的内存。
+    static final String FIELD_TASK_TYPE = "y";
+    static final String FIELD_USER_ID = "u";
+    static final String FIELD_STATUS = "s";
+    static final String FIELD_PROGRESS = "p";
+    static final String FIELD_STAGE = "g";
+    static final String FIELD_ERROR = "e";
+    static final String FIELD_UPDATED_AT = "t";
+    // ARGV[1] 为期望状态（空串表示无条件写入），ARGV[2] 为有效期毫秒数，其后为字段名与值交替排列。
+    private static final RedisScript<Long> WRITE_SCRIPT = new DefaultRedisScript<>(
+            "local current = redis.call('HGET', KEYS[1], 's')\n"
+                    + "if ARGV[1] ~= '' and current and current ~= ARGV[1] then\n"
+                    + "  return 0\n"
+                    + "end\n"
+                    + "redis.call('HSET', KEYS[1], unpack(ARGV, 3))\n"
+                    + "redis.call('PEXPIRE', KEYS[1], ARGV[2])\n"
+                    + "return 1",
+            Long.class);
+
+    private final TaskStateStoreProperties properties;
+    private final StringRedisTemplate redisTemplate;
+    // Redis 写入放到单线程按序执行，进度回调所在的模型服务网络线程不等待 Redis。
+    private final ExecutorService redisWriter = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "qc-task-state");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, LocalEntry> localEntries;
+    // 状态存储指标。
+    private final AtomicLong localHits = new AtomicLong();
+    private final AtomicLong redisHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong casConflicts = new AtomicLong();
+    private final AtomicLong redisErrors = new AtomicLong();
+
+    public QualityTaskStateStore(TaskStateStoreProperties properties,
+                                 ObjectProvider<StringRedisTemplate> redisTemplateProvider) {
+        this.properties = properties;
+        this.redisTemplate = properties.isRedisEnabled() ? redisTemplateProvider.getIfAvailable() : null;
+        int maxEntries = Math.max(1, properties.getMaxLocalEntries());
+        this.localEntries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, LocalEntry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 读取任务状态，依次查询本地层和 Redis 层。
+     *
+     * @return 任务状态；不存在或已过期时返回 null，由调用方回退到数据库
+     */
+    public QualityTaskState get(String taskId) {
+        if (!StringUtils.hasText(taskId)) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        // 近端缓存过期但仍在有效期内的本地状态，Redis 读不到时继续使用。
+        QualityTaskState localState = null;
+        synchronized (localEntries) {
+            LocalEntry entry = localEntries.get(taskId);
+            if (entry != null && entry.expiresAt() > now
+                    && (entry.authoritative() || redisTemplate == null || now - entry.loadedAt() < properties.getNearCacheTtlMs())) {
+                localHits.incrementAndGet();
+                return entry.state();
+            }
+            if (entry != null && entry.expiresAt() <= now) {
+                localEntries.remove(taskId);
+            } else if (entry != null) {
+                localState = entry.state();
+            }
+        }
+
+        if (redisTemplate != null) {
+            try {
+                Map<Object, Object> fields = redisTemplate.opsForHash().entries(REDIS_KEY_PREFIX + taskId);
+                QualityTaskState state = decode(taskId, fields);
+                if (state != null) {
+                    redisHits.incrementAndGet();
+                    cacheRemote(state, now);
+                    return state;
+                }
+            } catch (Exception exception) {
+                redisErrors.incrementAndGet();
+                logger.debug("读取 Redis 任务状态失败: {}", taskId, exception);
+            }
+        }
+
+        if (localState != null) {
+            localHits.incrementAndGet();
+            return localState;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * 无条件写入任务状态。
+     */
+    public void put(QualityTaskState state) {
+        write(null, state);
+    }
+
+    /**
+     * 仅当当前状态等于期望状态（或尚无状态）时写入，用于丢弃终态之后才到达的进度更新。
+     *
+     * @return 本地层判断的写入结果；Redis 层由脚本再做一次原子判断
+     */
+    public boolean compareAndSet(String expectedStatus, QualityTaskState state) {
+        return write(expectedStatus, state);
+    }
+
+    /**
+     * 移除任务状态，用于提交事务回滚后清理已提前写入的状态；Redis 删除与写入在同一线程上按序执行。
+     */
+    public void remove(String taskId) {
+        if (!StringUtils.hasText(taskId)) {
+            return;
+        }
+        synchronized (localEntries) {
+            localEntries.remove(taskId);
+        }
+        if (redisTemplate != null) {
+            redisWriter.execute(() -> deleteRedis(taskId));
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        // 等待已排队的 Redis 写入完成，避免停机前最后的终态丢失。
+        redisWriter.shutdown();
+        redisWriter.awaitTermination(2, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "qualityTaskState";
+    }
+
+    @Override
+    public Map<String, Object> getMetricsSnapshot() {
+        int entryCount;
+        synchronized (localEntries) {
+            entryCount = localEntries.size();
+        }
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("redisEnabled", redisTemplate != null);
+        metrics.put("localEntries", entryCount);
+        metrics.put("localHits", localHits.get());
+        metrics.put("redisHits", redisHits.get());
+        metrics.put("misses", misses.get());
+        metrics.put("writes", writes.get());
+        metrics.put("casConflicts", casConflicts.get());
+        metrics.put("redisErrors", redisErrors.get());
+        return metrics;
+    }
+
+    private boolean write(String expectedStatus, QualityTaskState state) {
+        if (state == null || !StringUtils.hasText(state.taskId())) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        long ttlMs = TimeUnit.SECONDS.toMillis(Math.max(1L,
+                state.isTerminal() ? properties.getTerminalTtlSeconds() : properties.getActiveTtlSeconds()));
+        synchronized (localEntries) {
+            LocalEntry current = localEntries.get(state.taskId());
+            if (expectedStatus != null && current != null && current.expiresAt() > now
+                    && !expectedStatus.equals(current.state().status())) {
+                casConflicts.incrementAndGet();
+                return false;
+            }
+            localEntries.put(state.taskId(), new LocalEntry(state, now + ttlMs, now, true));
+        }
+        writes.incrementAndGet();
+
+        if (redisTemplate != null) {
+            List<String> args = encode(expectedStatus, ttlMs, state);
+            redisWriter.execute(() -> writeRedis(state.taskId(), args));
+        }
+        return true;
+    }
+
+    private void deleteRedis(String taskId) {
+        try {
+            redisTemplate.delete(REDIS_KEY_PREFIX + taskId);
+        } catch (Exception exception) {
+            redisErrors.incrementAndGet();
+            logger.debug("删除 Redis 任务状态失败: {}", taskId, exception);
+        }
+    }
+
+    private void writeRedis(String taskId, List<String> args) {
+        try {
+            Long written = redisTemplate.execute(WRITE_SCRIPT, List.of(REDIS_KEY_PREFIX + taskId), args.toArray());
+            if (written != null && written == 0L) {
+                casConflicts.incrementAndGet();
+            }
+        } catch (Exception exception) {
+            redisErrors.incrementAndGet();
+            logger.debug("写入 Redis 任务状态失败: {}", taskId, exception);
+        }
+    }
+
+    /**
+     * 缓存从 Redis 读到的状态；本节点执行中或已终态且未过期的状态不被覆盖。
+     */
+    private void cacheRemote(QualityTaskState state, long now) {
+        long ttlMs = TimeUnit.SECONDS.toMillis(Math.max(1L,
+                state.isTerminal() ? properties.getTerminalTtlSeconds() : properties.getActiveTtlSeconds()));
+        synchronized (localEntries) {
+            LocalEntry current = localEntries.get(state.taskId());
+            if (current == null || !current.authoritative() || current.expiresAt() <= now) {
+                localEntries.put(state.taskId(), new LocalEntry(state, now + ttlMs, now, false));
+            }
+        }
+    }
+
+    /**
+     * 按 Lua 脚本参数顺序编码：期望状态、有效期、字段名与值。空值写为空串。
+     */
+    static List<String> encode(String expectedStatus, long ttlMs, QualityTaskState state) {
+        List<String> args = new ArrayList<>(16);
+        args.add(expectedStatus == null ? "" : expectedStatus);
+        args.add(String.valueOf(ttlMs));
+        addField(args, FIELD_TASK_TYPE, state.taskType());
+        addField(args, FIELD_USER_ID, state.userId());
+        addField(args, FIELD_STATUS, state.status());
+        addField(args, FIELD_PROGRESS, state.progress());
+        addField(args, FIELD_STAGE, state.progressStage());
+        addField(args, FIELD_ERROR, state.errorMessage());
+        addField(args, FIELD_UPDATED_AT, state.updatedAt());
+        return args;
+    }
+
+    /**
+     * 从 Redis hash 还原任务状态；缺少状态字段时视为不存在。
+     */
+    static QualityTaskState decode(String taskId, Map<Object, Object> fields) {
+        if (fields == null || fields.isEmpty()) {
+            return null;
+        }
+        String status = text(fields.get(FIELD_STATUS));
+        if (status == null) {
+            return null;
+        }
+        String userId = text(fields.get(FIELD_USER_ID));
+        String progress = text(fields.get(FIELD_PROGRESS));
+        String updatedAt = text(fields.get(FIELD_UPDATED_AT));
+        try {
+            return new QualityTaskState(
+                    taskId,
+                    text(fields.get(FIELD_TASK_TYPE)),
+                    userId == null ? null : Long.valueOf(userId),
+                    status,
+                    progress == null ? null : Integer.valueOf(progress),
+                    text(fields.get(FIELD_STAGE)),
+                    text(fields.get(FIELD_ERROR)),
+                    updatedAt == null ? 0L : Long.parseLong(updatedAt));
+        } catch (NumberFormatException exception) {
+            return null;
+        }
+    }
+
+    private static void addField(List<String> args, String field, Object value) {
+        args.add(field);
+        args.add(value == null ? "" : String.valueOf(value));
+    }
+
+    private static String text(Object value) {
+        return value == null || String.valueOf(value).isEmpty() ? null : String.valueOf(value);
+    }
+
+    /**
+     * 本地层条目；owned 表示由本节点写入。
+     */
+    private record LocalEntry(QualityTaskState state, long expiresAt, long loadedAt, boolean owned) {
+        /**
+         * 本节点正在执行或已推进到终态的任务无需再读 Redis；其余状态可能已被执行节点推进。
+         */
+        boolean authoritative() {
+            return owned && (state.isTerminal() || "PROCESSING".equals(state.status()));
+        }
+    }
+}
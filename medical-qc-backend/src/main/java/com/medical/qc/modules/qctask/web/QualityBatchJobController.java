@@ -0,0 +1,88 @@
+package com.medical.qc.modules.qctask.web;
+
+import com.medical.qc.modules.auth.persistence.entity.User;
+import com.medical.qc.modules.qctask.application.QualityBatchJobApplicationService;
+import com.medical.qc.modules.qctask.application.command.QualityBatchJobCreateCommand;
+import com.medical.qc.support.SessionUserSupport;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * PACS 批量质控作业控制器。
+ */
+@RestController
+@RequestMapping("/api/v1/quality/batch-jobs")
+public class QualityBatchJobController {
+    // 作业创建、查询与状态迁移由应用服务完成，推进由后台调度器完成。
+    private final QualityBatchJobApplicationService batchJobApplicationService;
+    // Session 解析与角色校验统一由辅助组件完成。
+    private final SessionUserSupport sessionUserSupport;
+
+    public QualityBatchJobController(QualityBatchJobApplicationService batchJobApplicationService,
+                                     SessionUserSupport sessionUserSupport) {
+        this.batchJobApplicationService = batchJobApplicationService;
+        this.sessionUserSupport = sessionUserSupport;
+    }
+
+    /**
+     * 创建批量质控作业，作业创建的任务归属当前医生。
+     */
+    @PostMapping
+    public ResponseEntity<?> createJob(@RequestBody(required = false) QualityBatchJobCreateCommand requestBody,
+                                       HttpSession session) {
+        User user = sessionUserSupport.requireAuthenticatedUser(session);
+        sessionUserSupport.requireDoctor(user);
+        return ResponseEntity.accepted().body(batchJobApplicationService.createJob(requestBody, user.getId()));
+    }
+
+    /**
+     * 查询批量质控作业列表。
+     */
+    @GetMapping
+    public ResponseEntity<?> listJobs(HttpSession session) {
+        User user = sessionUserSupport.requireAuthenticatedUser(session);
+        return ResponseEntity.ok(batchJobApplicationService.listJobs(sessionUserSupport.resolveScopedUserId(user)));
+    }
+
+    /**
+     * 查询单个作业的进度、吞吐与预计剩余时间。
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<?> getJob(@PathVariable("jobId") String jobId, HttpSession session) {
+        User user = sessionUserSupport.requireAuthenticatedUser(session);
+        return ResponseEntity.ok(batchJobApplicationService.getJob(jobId, sessionUserSupport.resolveScopedUserId(user)));
+    }
+
+    /**
+     * 暂停作业。
+     */
+    @PostMapping("/{jobId}/pause")
+    public ResponseEntity<?> pauseJob(@PathVariable("jobId") String jobId, HttpSession session) {
+        User user = sessionUserSupport.requireAuthenticatedUser(session);
+        return ResponseEntity.ok(batchJobApplicationService.pauseJob(jobId, sessionUserSupport.resolveScopedUserId(user)));
+    }
+
+    /**
+     * 从断点继续已暂停的作业。
+     */
+    @PostMapping("/{jobId}/resume")
+    public ResponseEntity<?> resumeJob(@PathVariable("jobId") String jobId, HttpSession session) {
+        User user = sessionUserSupport.requireAuthenticatedUser(session);
+        return ResponseEntity.ok(batchJobApplicationService.resumeJob(jobId, sessionUserSupport.resolveScopedUserId(user)));
+    }
+
+    /**
+     * 取消作业。
+     */
+    @PostMapping("/{jobId}/cancel")
+    public ResponseEntity<?> cancelJob(@PathVariable("jobId") String jobId, HttpSession session) {
+        User user = sessionUserSupport.requireAuthenticatedUser(session);
+        return ResponseEntity.ok(batchJobApplicationService.cancelJob(jobId, sessionUserSupport.resolveScopedUserId(user)));
+    }
+}
@@ -12,6 +12,7 @@ import com.medical.qc.support.MockQualityAnalysisSupport;
 import com.medical.qc.support.SessionUserSupport;
 import jakarta.servlet.http.HttpSession;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -19,10 +20,12 @@ import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
 import java.time.LocalDate;
@@ -35,6 +38,8 @@ import java.util.Map;
 @RestController
 @RequestMapping("/api/v1/quality")
 public class QualityTaskController {
+    // 客户端可通过该请求头显式声明幂等键，重复提交返回同一任务。
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
     // 应用服务负责任务提交编排和读模型查询。
     private final QualityTaskApplicationService qualityTaskApplicationService;
     // 工作流服务负责复核、批量重跑、导出和指标统计。
@@ -62,6 +67,7 @@ public class QualityTaskController {
                                         @RequestParam("age") Integer age,
                                         @RequestParam("study_date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate studyDate,
                                         @RequestParam(value = "source_mode", defaultValue = "local") String sourceMode,
+                                        @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
                                         HttpSession session) throws IOException {
         User user = requireDoctorSession(session);
         // 各任务入口只负责固定 taskType，其余字段统一封装为提交命令。
@@ -77,7 +83,8 @@ public class QualityTaskController {
                         studyDate,
                         sourceMode,
                         Map.of(),
-                        user)));
+                        user,
+                        idempotencyKey)));
     }
 
     /**
@@ -92,6 +99,7 @@ public class QualityTaskController {
                                                     @RequestParam("age") Integer age,
                                                     @RequestParam("study_date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate studyDate,
                                                     @RequestParam(value = "source_mode", defaultValue = "local") String sourceMode,
+                                                    @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
                                                     HttpSession session) throws IOException {
         User user = requireDoctorSession(session);
         return ResponseEntity.accepted().body(qualityTaskApplicationService.submitTask(
@@ -106,7 +114,8 @@ public class QualityTaskController {
                         studyDate,
                         sourceMode,
                         Map.of(),
-                        user)));
+                        user,
+                        idempotencyKey)));
     }
 
     /**
@@ -127,6 +136,7 @@ public class QualityTaskController {
                                                  @RequestParam(value = "bolus_tracking_hu", required = false) Integer bolusTrackingHu,
                                                  @RequestParam(value = "scan_delay_sec", required = false) Integer scanDelaySec,
                                                  @RequestParam(value = "source_mode", defaultValue = "local") String sourceMode,
+                                                 @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
                                                  HttpSession session) throws IOException {
         User user = requireDoctorSession(session);
         Map<String, Object> metadata = new HashMap<>();
@@ -160,7 +170,8 @@ public class QualityTaskController {
                         studyDate,
                         sourceMode,
                         metadata,
-                        user)));
+                        user,
+                        idempotencyKey)));
     }
 
     /**
@@ -180,6 +191,7 @@ public class QualityTaskController {
                                                 @RequestParam(value = "kvp", required = false) String kVp,
                                                 @RequestParam(value = "slice_thickness", required = false) Double sliceThickness,
                                                 @RequestParam(value = "source_mode", defaultValue = "local") String sourceMode,
+                                                @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
                                                 HttpSession session) throws IOException {
         User user = requireDoctorSession(session);
         Map<String, Object> metadata = new HashMap<>();
@@ -210,7 +222,8 @@ public class QualityTaskController {
                         studyDate,
                         sourceMode,
                         metadata,
-                        user)));
+                        user,
+                        idempotencyKey)));
     }
 
     /**
@@ -223,6 +236,28 @@ public class QualityTaskController {
         return ResponseEntity.ok(qualityTaskApplicationService.getTaskDetail(taskId, sessionUserSupport.resolveScopedUserId(user)));
     }
 
+    /**
+     * 查询单个异步任务的状态与推理进度，供前端高频轮询。
+     */
+    @GetMapping("/tasks/{taskId}/status")
+    public ResponseEntity<?> getMockTaskStatus(@PathVariable("taskId") String taskId, HttpSession session) {
+        User user = requireAuthenticatedSession(session);
+        // 访问范围与详情接口一致。
+        return ResponseEntity.ok(qualityTaskApplicationService.getTaskStatus(taskId, sessionUserSupport.resolveScopedUserId(user)));
+    }
+
+    /**
+     * 订阅单个异步任务的事件流。
+     *
+     * <p>推送 snapshot、status、progress、partial 与 final 事件，收到 final 后连接自动关闭。</p>
+     */
+    @GetMapping(value = "/tasks/{taskId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeTaskEvents(@PathVariable("taskId") String taskId, HttpSession session) {
+        User user = requireAuthenticatedSession(session);
+        // 访问范围与详情接口一致。
+        return qualityTaskApplicationService.subscribeTaskEvents(taskId, sessionUserSupport.resolveScopedUserId(user));
+    }
+
     /**
      * 分页查询异步质控任务列表。
      */
@@ -24,6 +24,7 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -87,7 +88,7 @@ public class UnifiedQcTaskQueryService {
         int toIndex = Math.min(fromIndex + normalizedLimit, total);
 
         Map<String, Object> response = new HashMap<>();
-        response.put("items", taskRecords.subList(fromIndex, toIndex).stream().map(this::toTaskListItem).toList());
+        response.put("items", toTaskListItems(taskRecords.subList(fromIndex, toIndex)));
         response.put("total", total);
         response.put("page", normalizedPage);
         response.put("limit", normalizedLimit);
@@ -164,9 +165,51 @@ public class UnifiedQcTaskQueryService {
         }
         queryWrapper.orderByDesc("requested_at").orderByDesc("created_at");
 
-        return unifiedQcTaskMapper.selectList(queryWrapper).stream()
-                .map(unifiedQualityTaskWriteService::toLegacyTaskRecord)
+        return unifiedQualityTaskWriteService.toLegacyTaskRecords(unifiedQcTaskMapper.selectList(queryWrapper));
+    }
+
+    /**
+     * 批量查询任务列表项，供 CSV 导出等批量场景使用。
+     * 任务一次 IN 查询并批量转换，顺序与入参一致；任一任务不存在或越权时整体失败，与逐条查询详情的口径一致。
+     */
+    public List<Map<String, Object>> getTaskItems(List<String> taskNos, Long scopedUserId) {
+        List<String> normalizedTaskNos = taskNos == null
+                ? List.of()
+                : taskNos.stream().filter(StringUtils::hasText).map(String::trim).distinct().toList();
+        if (normalizedTaskNos.isEmpty()) {
+            return List.of();
+        }
+
+        Map<String, UnifiedQcTask> tasksByNo = new HashMap<>();
+        for (UnifiedQcTask task : unifiedQcTaskMapper.selectList(new QueryWrapper<UnifiedQcTask>()
+                .in("task_no", normalizedTaskNos))) {
+            tasksByNo.put(task.getTaskNo(), task);
+        }
+        List<UnifiedQcTask> orderedTasks = new ArrayList<>(normalizedTaskNos.size());
+        for (String taskNo : normalizedTaskNos) {
+            UnifiedQcTask task = tasksByNo.get(taskNo);
+            if (task == null) {
+                throw new IllegalArgumentException("质控任务不存在或已过期");
+            }
+            if (scopedUserId != null && task.getSubmittedBy() != null && !Objects.equals(scopedUserId, task.getSubmittedBy())) {
+                throw new IllegalArgumentException("无权访问该质控任务");
+            }
+            orderedTasks.add(task);
+        }
+        return toTaskListItems(unifiedQualityTaskWriteService.toLegacyTaskRecords(orderedTasks));
+    }
+
+    /**
+     * 批量组装任务列表行，复核人展示名按 ID 一次查询。
+     */
+    private List<Map<String, Object>> toTaskListItems(List<QcTaskRecord> taskRecords) {
+        Map<Long, String> userDisplayNames = resolveUserDisplayNames(taskRecords.stream()
+                .map(QcTaskRecord::getReviewedBy)
                 .filter(Objects::nonNull)
+                .distinct()
+                .toList());
+        return taskRecords.stream()
+                .map(taskRecord -> toTaskListItem(taskRecord, userDisplayNames))
                 .toList();
     }
 
@@ -174,6 +217,13 @@ public class UnifiedQcTaskQueryService {
      * 组装任务列表单行数据。
      */
     private Map<String, Object> toTaskListItem(QcTaskRecord taskRecord) {
+        return toTaskListItem(taskRecord, Map.of());
+    }
+
+    /**
+     * 组装任务列表单行数据，优先使用预先解析的用户展示名。
+     */
+    private Map<String, Object> toTaskListItem(QcTaskRecord taskRecord, Map<Long, String> userDisplayNames) {
         Map<String, Object> item = new HashMap<>();
         item.put("recordId", taskRecord.getId());
         item.put("taskId", taskRecord.getTaskId());
@@ -197,7 +247,9 @@ public class UnifiedQcTaskQueryService {
         item.put("reviewStatus", firstNonBlank(taskRecord.getReviewStatus(), "PENDING"));
         item.put("reviewComment", taskRecord.getReviewComment());
         item.put("reviewedBy", taskRecord.getReviewedBy());
-        item.put("reviewedByName", resolveUserDisplayName(taskRecord.getReviewedBy()));
+        item.put("reviewedByName", taskRecord.getReviewedBy() != null && userDisplayNames.containsKey(taskRecord.getReviewedBy())
+                ? userDisplayNames.get(taskRecord.getReviewedBy())
+                : resolveUserDisplayName(taskRecord.getReviewedBy()));
         item.put("reviewedAt", formatDateTime(taskRecord.getReviewedAt()));
         item.put("lockedAt", formatDateTime(taskRecord.getLockedAt()));
         item.put("device", taskRecord.getDevice());
@@ -437,6 +489,21 @@ public class UnifiedQcTaskQueryService {
         return null;
     }
 
+    /**
+     * 批量解析用户展示名，未找到的用户按 "--" 处理。
+     */
+    private Map<Long, String> resolveUserDisplayNames(List<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, String> displayNames = new HashMap<>();
+        userIds.forEach(userId -> displayNames.put(userId, "--"));
+        for (User user : userMapper.selectBatchIds(userIds)) {
+            displayNames.put(user.getId(), toUserDisplayName(user));
+        }
+        return displayNames;
+    }
+
     /**
      * 解析用户展示名。
      */
@@ -444,7 +511,13 @@ public class UnifiedQcTaskQueryService {
         if (userId == null) {
             return "--";
         }
-        User user = userMapper.selectById(userId);
+        return toUserDisplayName(userMapper.selectById(userId));
+    }
+
+    /**
+     * 按全名优先、用户名次之的顺序生成展示名。
+     */
+    private String toUserDisplayName(User user) {
         if (user == null) {
             return "--";
         }
@@ -0,0 +1,195 @@
+package com.medical.qc.modules.unified.application.support;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
+import com.medical.qc.modules.unified.persistence.entity.UnifiedQcBatchJob;
+import com.medical.qc.modules.unified.persistence.mapper.UnifiedQcBatchJobMapper;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * PACS 批量质控作业读写服务。
+ *
+ * <p>作业由持有租约的节点推进；断点、计数和租约都以 lease_owner 为条件更新，
+ * 节点失去租约或作业被暂停、取消后，断点更新不再生效。</p>
+ */
+@Service
+public class UnifiedBatchJobWriteService {
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_PAUSED = "PAUSED";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_CANCELLED = "CANCELLED";
+
+    private final UnifiedQcBatchJobMapper batchJobMapper;
+
+    public UnifiedBatchJobWriteService(UnifiedQcBatchJobMapper batchJobMapper) {
+        this.batchJobMapper = batchJobMapper;
+    }
+
+    /**
+     * 新建批量作业。
+     */
+    public void insertJob(UnifiedQcBatchJob job) {
+        batchJobMapper.insert(job);
+    }
+
+    /**
+     * 按作业编号查询，scopedUserId 不为空时只返回该用户创建的作业。
+     */
+    public UnifiedQcBatchJob findJob(String jobNo, Long scopedUserId) {
+        QueryWrapper<UnifiedQcBatchJob> queryWrapper = new QueryWrapper<UnifiedQcBatchJob>().eq("job_no", jobNo);
+        if (scopedUserId != null) {
+            queryWrapper.eq("submitted_by", scopedUserId);
+        }
+        return batchJobMapper.selectOne(queryWrapper.last("LIMIT 1"));
+    }
+
+    /**
+     * 按创建时间倒序列出作业。
+     */
+    public List<UnifiedQcBatchJob> listJobs(Long scopedUserId, int limit) {
+        QueryWrapper<UnifiedQcBatchJob> queryWrapper = new QueryWrapper<>();
+        if (scopedUserId != null) {
+            queryWrapper.eq("submitted_by", scopedUserId);
+        }
+        return batchJobMapper.selectList(queryWrapper
+                .orderByDesc("id")
+                .last("LIMIT " + Math.max(1, limit)));
+    }
+
+    /**
+     * 查找已到执行时间、且未被其他节点持有租约的作业。
+     * 按 idx_qc_batch_jobs_status_scheduled 扫描，先到期的作业优先。
+     */
+    public List<UnifiedQcBatchJob> findRunnableJobs(String leaseOwner, LocalDateTime now, int limit) {
+        return batchJobMapper.selectList(new QueryWrapper<UnifiedQcBatchJob>()
+                .in("job_status", STATUS_PENDING, STATUS_RUNNING)
+                .le("scheduled_at", now)
+                .and(wrapper -> wrapper.isNull("lease_expires_at")
+                        .or().lt("lease_expires_at", now)
+                        .or().eq("lease_owner", leaseOwner))
+                .orderByAsc("scheduled_at")
+                .orderByAsc("id")
+                .last("LIMIT " + Math.max(1, limit)));
+    }
+
+    /**
+     * 抢占或续期作业租约并把作业推进到 RUNNING。
+     * 租约换手时记录本轮开始时间与已处理数，吞吐只按本轮计算。
+     *
+     * @return true 表示本节点持有作业租约
+     */
+    public boolean claimJob(UnifiedQcBatchJob job, String leaseOwner, LocalDateTime now, LocalDateTime leaseUntil) {
+        UpdateWrapper<UnifiedQcBatchJob> updateWrapper = new UpdateWrapper<UnifiedQcBatchJob>()
+                .eq("id", job.getId())
+                .in("job_status", STATUS_PENDING, STATUS_RUNNING)
+                .and(wrapper -> wrapper.isNull("lease_expires_at")
+                        .or().lt("lease_expires_at", now)
+                        .or().eq("lease_owner", leaseOwner))
+                .set("job_status", STATUS_RUNNING)
+                .set("lease_owner", leaseOwner)
+                .set("lease_expires_at", leaseUntil)
+                .set("updated_at", now);
+        if (!Objects.equals(leaseOwner, job.getLeaseOwner())) {
+            updateWrapper.set("resumed_at", now)
+                    .setSql("resumed_processed_count = dispatched_count + failed_count");
+        }
+        if (job.getStartedAt() == null) {
+            updateWrapper.set("started_at", now);
+        }
+        return batchJobMapper.update(null, updateWrapper) > 0;
+    }
+
+    /**
+     * 推进作业断点并累加计数，同时续期租约。
+     *
+     * @param dispatched true 表示该检查已创建任务，false 表示校验失败被跳过
+     * @return false 表示本节点已失去租约或作业不再处于 RUNNING
+     */
+    public boolean advanceCheckpoint(Long jobId,
+                                     String leaseOwner,
+                                     LocalDate studyDate,
+                                     Long studyId,
+                                     boolean dispatched,
+                                     String error,
+                                     LocalDateTime now,
+                                     LocalDateTime leaseUntil) {
+        UpdateWrapper<UnifiedQcBatchJob> updateWrapper = new UpdateWrapper<UnifiedQcBatchJob>()
+                .eq("id", jobId)
+                .eq("job_status", STATUS_RUNNING)
+                .eq("lease_owner", leaseOwner)
+                .set("checkpoint_study_date", studyDate)
+                .set("checkpoint_study_id", studyId)
+                .set("lease_expires_at", leaseUntil)
+                .set("updated_at", now)
+                .setSql(dispatched ? "dispatched_count = dispatched_count + 1" : "failed_count = failed_count + 1");
+        if (error != null) {
+            updateWrapper.set("last_error", truncate(error));
+        }
+        return batchJobMapper.update(null, updateWrapper) > 0;
+    }
+
+    /**
+     * 扫描到日期范围末尾后完成作业并释放租约。
+     */
+    public boolean completeJob(Long jobId, String leaseOwner, LocalDateTime now) {
+        return batchJobMapper.update(null, new UpdateWrapper<UnifiedQcBatchJob>()
+                .eq("id", jobId)
+                .eq("job_status", STATUS_RUNNING)
+                .eq("lease_owner", leaseOwner)
+                .set("job_status", STATUS_COMPLETED)
+                .set("lease_owner", null)
+                .set("lease_expires_at", null)
+                .set("completed_at", now)
+                .set("updated_at", now)) > 0;
+    }
+
+    /**
+     * 记录作业推进过程中的非校验类错误，断点保持不变，下一轮从原位置重试。
+     */
+    public void recordError(Long jobId, String leaseOwner, String error, LocalDateTime now) {
+        batchJobMapper.update(null, new UpdateWrapper<UnifiedQcBatchJob>()
+                .eq("id", jobId)
+                .eq("lease_owner", leaseOwner)
+                .set("last_error", truncate(error))
+                .set("updated_at", now));
+    }
+
+    /**
+     * 按状态迁移作业，用于暂停、继续和取消；迁移时释放租约，继续执行的作业重新计算本轮吞吐。
+     *
+     * @return false 表示作业不存在、不在访问范围内或当前状态不允许该迁移
+     */
+    public boolean transitionJob(String jobNo,
+                                 Long scopedUserId,
+                                 List<String> fromStatuses,
+                                 String toStatus,
+                                 LocalDateTime now) {
+        UpdateWrapper<UnifiedQcBatchJob> updateWrapper = new UpdateWrapper<UnifiedQcBatchJob>()
+                .eq("job_no", jobNo)
+                .in("job_status", fromStatuses)
+                .set("job_status", toStatus)
+                .set("lease_owner", null)
+                .set("lease_expires_at", null)
+                .set("updated_at", now);
+        if (scopedUserId != null) {
+            updateWrapper.eq("submitted_by", scopedUserId);
+        }
+        if (STATUS_CANCELLED.equals(toStatus)) {
+            updateWrapper.set("completed_at", now);
+        }
+        return batchJobMapper.update(null, updateWrapper) > 0;
+    }
+
+    private String truncate(String value) {
+        if (value == null || value.length() <= 500) {
+            return value;
+        }
+        return value.substring(0, 500);
+    }
+}
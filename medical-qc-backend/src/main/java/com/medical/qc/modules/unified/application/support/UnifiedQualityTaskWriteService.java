@@ -22,14 +22,19 @@ import com.medical.qc.modules.unified.persistence.mapper.UnifiedStudyMapper;
 import com.medical.qc.support.MockQualityAnalysisSupport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -53,6 +58,9 @@ public class UnifiedQualityTaskWriteService {
     private final UnifiedStudyMapper unifiedStudyMapper;
     private final UnifiedPatientMapper unifiedPatientMapper;
     private final ObjectMapper objectMapper;
+    // 批量写入走 JDBC 批处理，配合连接串 rewriteBatchedStatements 合并为多值 INSERT。
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
 
     public UnifiedQualityTaskWriteService(UnifiedStudyContextService unifiedStudyContextService,
                                           UnifiedQcTaskMapper unifiedQcTaskMapper,
@@ -61,7 +69,9 @@ public class UnifiedQualityTaskWriteService {
                                           UnifiedQcResultItemMapper unifiedQcResultItemMapper,
                                           UnifiedStudyMapper unifiedStudyMapper,
                                           UnifiedPatientMapper unifiedPatientMapper,
-                                          ObjectMapper objectMapper) {
+                                          ObjectMapper objectMapper,
+                                          JdbcTemplate jdbcTemplate,
+                                          PlatformTransactionManager transactionManager) {
         this.unifiedStudyContextService = unifiedStudyContextService;
         this.unifiedQcTaskMapper = unifiedQcTaskMapper;
         this.unifiedQcResultMapper = unifiedQcResultMapper;
@@ -70,6 +80,8 @@ public class UnifiedQualityTaskWriteService {
         this.unifiedStudyMapper = unifiedStudyMapper;
         this.unifiedPatientMapper = unifiedPatientMapper;
         this.objectMapper = objectMapper;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     /**
@@ -217,46 +229,194 @@ public class UnifiedQualityTaskWriteService {
         if (task == null) {
             return null;
         }
+        return toSnapshot(task, loadTaskContext(List.of(task)));
+    }
 
-        UnifiedStudy study = task.getStudyId() == null ? null : unifiedStudyMapper.selectById(task.getStudyId());
-        UnifiedPatient patient = study == null || study.getPatientId() == null
-                ? null
-                : unifiedPatientMapper.selectById(study.getPatientId());
-        UnifiedStudyFile sourceFile = study == null
-                ? null
-                : unifiedStudyContextService.findPreferredFile(study.getId(), "SOURCE", "PREVIEW");
-        UnifiedQcResult result = unifiedQcResultMapper.selectOne(new QueryWrapper<UnifiedQcResult>()
-                .eq("task_id", task.getId())
-                .eq("result_version", 1)
-                .last("LIMIT 1"));
+    /**
+     * 批量恢复运行期快照，任务、检查、患者、源文件和结果各一次 IN 查询。
+     *
+     * @return 任务号到快照的映射，不存在的任务不在结果中
+     */
+    public Map<String, MockQualityTaskSnapshot> loadSnapshots(Collection<String> taskNos) {
+        List<String> normalizedTaskNos = normalizeTaskNos(taskNos);
+        if (normalizedTaskNos.isEmpty()) {
+            return Map.of();
+        }
 
-        // 用数据库中的统一模型记录重建前端和执行层都能识别的快照对象。
-        MockQualityTaskSnapshot snapshot = new MockQualityTaskSnapshot();
-        snapshot.setRecordId(task.getId());
-        snapshot.setTaskId(task.getTaskNo());
-        snapshot.setTaskType(task.getTaskTypeCode());
-        snapshot.setTaskTypeName(MockQualityAnalysisSupport.resolveTaskTypeName(task.getTaskTypeCode()));
-        snapshot.setSourceMode(task.getSourceMode());
-        snapshot.setUserId(task.getSubmittedBy());
-        snapshot.setPatientName(patient == null ? null : patient.getPatientName());
-        snapshot.setExamId(study == null ? null : study.getAccessionNumber());
-        snapshot.setPatientId(patient == null ? null : patient.getPatientNo());
-        snapshot.setGender(patient == null ? null : patient.getGender());
-        snapshot.setAge(parseAge(patient == null ? null : patient.getAgeText()));
-        snapshot.setStudyDate(study == null ? null : study.getStudyDate());
-        snapshot.setOriginalFilename(sourceFile == null ? null : sourceFile.getFileName());
-        snapshot.setStoredFilePath(sourceFile == null
-                ? null
-                : firstNonBlank(sourceFile.getFilePath(), sourceFile.getPublicPath()));
-        snapshot.setStatus(task.getTaskStatus());
-        snapshot.setMock(Boolean.TRUE.equals(task.getMock()));
-        snapshot.setSubmittedAt(firstNonNull(task.getRequestedAt(), task.getCreatedAt()));
-        snapshot.setStartedAt(task.getStartedAt());
-        snapshot.setCompletedAt(task.getCompletedAt());
-        snapshot.setResult(MockQualityAnalysisSupport.normalizeResultPayload(
-                parseJson(result == null ? null : result.getRawResultJson())));
-        snapshot.setErrorMessage(task.getErrorMessage());
-        return snapshot;
+        List<UnifiedQcTask> tasks = unifiedQcTaskMapper.selectList(new QueryWrapper<UnifiedQcTask>()
+                .in("task_no", normalizedTaskNos));
+        TaskContext context = loadTaskContext(tasks);
+        Map<String, MockQualityTaskSnapshot> snapshots = new HashMap<>();
+        for (UnifiedQcTask task : tasks) {
+            snapshots.put(task.getTaskNo(), toSnapshot(task, context));
+        }
+        return snapshots;
+    }
+
+    /**
+     * 批量持久化重跑任务。
+     *
+     * <p>重跑任务沿用原任务的检查和源文件，只需新增 qc_tasks 记录：按 JDBC 批量插入，
+     * 再按任务号一次查回主键回填到快照。缺少检查 ID 的快照退回逐条提交流程。</p>
+     */
+    public void persistRetriedTasks(List<MockQualityTaskSnapshot> snapshots) {
+        if (snapshots == null || snapshots.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> batchArgs = new ArrayList<>();
+        Map<String, MockQualityTaskSnapshot> batchedSnapshots = new HashMap<>();
+        for (MockQualityTaskSnapshot snapshot : snapshots) {
+            if (snapshot.getStudyId() == null) {
+                persistSubmittedTask(snapshot);
+                continue;
+            }
+            LocalDateTime submittedAt = firstNonNull(snapshot.getSubmittedAt(), LocalDateTime.now());
+            batchArgs.add(new Object[] {
+                    snapshot.getTaskId(),
+                    snapshot.getTaskType(),
+                    snapshot.getStudyId(),
+                    snapshot.getUserId(),
+                    firstNonBlank(normalizeText(snapshot.getSourceMode()), "local"),
+                    snapshot.getStatus(),
+                    "ASYNC",
+                    snapshot.isMock(),
+                    submittedAt,
+                    submittedAt,
+                    submittedAt
+            });
+            batchedSnapshots.put(snapshot.getTaskId(), snapshot);
+        }
+        if (batchArgs.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO qc_tasks (task_no, task_type_code, study_id, submitted_by, source_mode, task_status, "
+                        + "scheduler_type, is_mock, requested_at, created_at, updated_at) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                batchArgs);
+        for (UnifiedQcTask task : unifiedQcTaskMapper.selectList(new QueryWrapper<UnifiedQcTask>()
+                .select("id", "task_no")
+                .in("task_no", batchedSnapshots.keySet()))) {
+            batchedSnapshots.get(task.getTaskNo()).setRecordId(task.getId());
+        }
+    }
+
+    /**
+     * 抢占任务执行租约并把任务推进到 PROCESSING。
+     *
+     * <p>只有 PENDING 任务，或租约已过期的 PROCESSING 任务能被抢占；同一任务的重复消息只有一条能抢占成功。</p>
+     *
+     * @return true 表示由本次调用取得执行权
+     */
+    public boolean acquireTaskLease(Long recordId, LocalDateTime now, LocalDateTime leaseUntil) {
+        if (recordId == null) {
+            return false;
+        }
+        return unifiedQcTaskMapper.update(null, new UpdateWrapper<UnifiedQcTask>()
+                .eq("id", recordId)
+                .and(wrapper -> wrapper.eq("task_status", "PENDING")
+                        .or(expired -> expired.eq("task_status", "PROCESSING")
+                                .and(lease -> lease.isNull("lease_expires_at").or().lt("lease_expires_at", now))))
+                .set("task_status", "PROCESSING")
+                .set("started_at", now)
+                .set("lease_expires_at", leaseUntil)
+                .set("updated_at", now)) > 0;
+    }
+
+    /**
+     * 为本节点仍在执行的任务续租。
+     */
+    public int renewTaskLeases(List<String> taskNos, LocalDateTime leaseUntil) {
+        if (taskNos == null || taskNos.isEmpty()) {
+            return 0;
+        }
+        return unifiedQcTaskMapper.update(null, new UpdateWrapper<UnifiedQcTask>()
+                .in("task_no", taskNos)
+                .eq("task_status", "PROCESSING")
+                .set("lease_expires_at", leaseUntil));
+    }
+
+    /**
+     * 查找执行中但租约已过期的任务，即执行节点已失联的任务。
+     * 按 idx_qc_tasks_status_created 的 (task_status, created_at) 范围扫描，从最早的任务开始。
+     *
+     * <p>PENDING 任务不在扫描范围内：尚未开始执行的任务可能只是在队列中排队（批量重跑、批量作业或 broker 延迟），
+     * 其投递由 outbox 中继负责重试和本地降级，按时间重新派发只会造成重复执行。</p>
+     *
+     * @param createdBefore 只看该时间之前创建的任务，缩小索引扫描范围
+     * @param unleasedBefore 未登记租约的执行中任务（开启租约前已开始执行）在该时间之前创建才视为过期
+     */
+    public List<UnifiedQcTask> findLeaseExpiredTasks(LocalDateTime createdBefore,
+                                                     LocalDateTime unleasedBefore,
+                                                     LocalDateTime now,
+                                                     int limit) {
+        return unifiedQcTaskMapper.selectList(new QueryWrapper<UnifiedQcTask>()
+                .eq("task_status", "PROCESSING")
+                .lt("created_at", createdBefore)
+                .and(wrapper -> wrapper.lt("lease_expires_at", now)
+                        .or(unleased -> unleased.isNull("lease_expires_at").lt("created_at", unleasedBefore)))
+                .orderByAsc("created_at")
+                .last("LIMIT " + Math.max(1, limit)));
+    }
+
+    /**
+     * 认领租约过期的执行中任务用于重新派发：状态回到 PENDING、清空租约、恢复次数加一。
+     * 仅当任务仍为 PROCESSING 且租约仍已过期才会成功，多节点同时扫描时只有一个节点认领成功；
+     * 回到 PENDING 后不再被扫描，因此必须与重新派发的 outbox 记录在同一事务内执行，
+     * 重新派发的消息由消费者重新抢占租约。
+     *
+     * @return true 表示由本次调用认领成功
+     */
+    public boolean claimExpiredTask(UnifiedQcTask task, LocalDateTime now) {
+        return unifiedQcTaskMapper.update(null, new UpdateWrapper<UnifiedQcTask>()
+                .eq("id", task.getId())
+                .eq("task_status", "PROCESSING")
+                .and(wrapper -> wrapper.isNull("lease_expires_at").or().lt("lease_expires_at", now))
+                .set("task_status", "PENDING")
+                .set("lease_expires_at", null)
+                .setSql("recovery_count = recovery_count + 1")
+                .set("updated_at", now)) > 0;
+    }
+
+    /**
+     * 认领租约过期、准备标记失败的执行中任务：保持 PROCESSING，只把租约延长到 leaseUntil。
+     * 与 {@link #claimExpiredTask} 相同只有一个节点能认领成功；认领后节点宕机时租约会再次过期，任务仍能被扫描到。
+     *
+     * @return true 表示由本次调用认领成功
+     */
+    public boolean holdExpiredTask(UnifiedQcTask task, LocalDateTime now, LocalDateTime leaseUntil) {
+        return unifiedQcTaskMapper.update(null, new UpdateWrapper<UnifiedQcTask>()
+                .eq("id", task.getId())
+                .eq("task_status", "PROCESSING")
+                .and(wrapper -> wrapper.isNull("lease_expires_at").or().lt("lease_expires_at", now))
+                .set("lease_expires_at", leaseUntil)
+                .set("updated_at", now)) > 0;
+    }
+
+    /**
+     * 统计 PENDING 任务积压数，供任务准入控制判断是否继续接收新任务。
+     * 按 idx_qc_tasks_status_submitter 的 (task_status, submitted_by) 前缀扫描。
+     *
+     * @param submittedBy 提交人；为空时统计全部 PENDING 任务
+     */
+    public long countPendingTasks(Long submittedBy) {
+        QueryWrapper<UnifiedQcTask> queryWrapper = new QueryWrapper<UnifiedQcTask>().eq("task_status", "PENDING");
+        if (submittedBy != null) {
+            queryWrapper.eq("submitted_by", submittedBy);
+        }
+        Long count = unifiedQcTaskMapper.selectCount(queryWrapper);
+        return count == null ? 0L : count;
+    }
+
+    /**
+     * 统计未完成（PENDING / PROCESSING）的任务数，供批量质控作业按模型服务容量节流。
+     */
+    public long countUnfinishedTasks() {
+        Long count = unifiedQcTaskMapper.selectCount(new QueryWrapper<UnifiedQcTask>()
+                .in("task_status", "PENDING", "PROCESSING"));
+        return count == null ? 0L : count;
     }
 
     /**
@@ -267,66 +427,25 @@ public class UnifiedQualityTaskWriteService {
         if (task == null) {
             return null;
         }
+        return toLegacyTaskRecords(List.of(task)).get(0);
+    }
 
-        // 任务详情需要同时拼上 study、patient、source file 和 result 信息。
-        UnifiedStudy study = task.getStudyId() == null ? null : unifiedStudyMapper.selectById(task.getStudyId());
-        UnifiedPatient patient = study == null || study.getPatientId() == null
-                ? null
-                : unifiedPatientMapper.selectById(study.getPatientId());
-        UnifiedStudyFile sourceFile = study == null
-                ? null
-                : unifiedStudyContextService.findPreferredFile(study.getId(), "SOURCE", "PREVIEW");
-        UnifiedQcResult result = unifiedQcResultMapper.selectOne(new QueryWrapper<UnifiedQcResult>()
-                .eq("task_id", task.getId())
-                .eq("result_version", 1)
-                .last("LIMIT 1"));
-        Map<String, Object> normalizedResult = MockQualityAnalysisSupport.normalizeResultPayload(
-                parseJson(result == null ? null : result.getRawResultJson()));
+    /**
+     * 批量转换为 QcTaskRecord 视图，关联的检查、患者、源文件和结果按 IN 查询一次性加载。
+     *
+     * @return 与入参顺序一致的任务记录
+     */
+    public List<QcTaskRecord> toLegacyTaskRecords(List<UnifiedQcTask> tasks) {
+        if (tasks == null || tasks.isEmpty()) {
+            return List.of();
+        }
 
-        QcTaskRecord taskRecord = new QcTaskRecord();
-        taskRecord.setId(task.getId());
-        taskRecord.setTaskId(task.getTaskNo());
-        taskRecord.setUserId(task.getSubmittedBy());
-        taskRecord.setTaskType(task.getTaskTypeCode());
-        taskRecord.setTaskTypeName(MockQualityAnalysisSupport.resolveTaskTypeName(task.getTaskTypeCode()));
-        taskRecord.setPatientName(patient == null ? null : patient.getPatientName());
-        taskRecord.setExamId(study == null ? null : study.getAccessionNumber());
-        taskRecord.setSourceMode(task.getSourceMode());
-        taskRecord.setOriginalFilename(sourceFile == null ? null : sourceFile.getFileName());
-        taskRecord.setStoredFilePath(sourceFile == null
-                ? null
-                : firstNonBlank(sourceFile.getPublicPath(), sourceFile.getFilePath()));
-        taskRecord.setTaskStatus(task.getTaskStatus());
-        taskRecord.setMock(task.getMock());
-        if (!normalizedResult.isEmpty()) {
-            taskRecord.setQcStatus(MockQualityAnalysisSupport.resolveQcStatus(normalizedResult));
-            taskRecord.setQualityScore(BigDecimal.valueOf(roundOneDecimal(
-                    MockQualityAnalysisSupport.resolveQualityScore(normalizedResult))));
-            taskRecord.setAbnormalCount(MockQualityAnalysisSupport.resolveAbnormalCount(normalizedResult));
-            String primaryIssue = MockQualityAnalysisSupport.resolvePrimaryIssue(normalizedResult);
-            taskRecord.setPrimaryIssue("未见明显异常".equals(primaryIssue) ? null : primaryIssue);
-            taskRecord.setResultJson(writeJson(normalizedResult));
-        } else {
-            taskRecord.setQcStatus(result == null ? null : result.getQcStatus());
-            taskRecord.setQualityScore(result == null ? null : result.getQualityScore());
-            taskRecord.setAbnormalCount(result == null ? null : result.getAbnormalCount());
-            taskRecord.setPrimaryIssue(result == null ? null : result.getPrimaryIssueName());
-            taskRecord.setResultJson(result == null ? null : result.getRawResultJson());
+        TaskContext context = loadTaskContext(tasks);
+        List<QcTaskRecord> taskRecords = new ArrayList<>(tasks.size());
+        for (UnifiedQcTask task : tasks) {
+            taskRecords.add(toLegacyTaskRecord(task, context));
         }
-        taskRecord.setReviewStatus(result == null ? "PENDING" : firstNonBlank(result.getReviewStatus(), "PENDING"));
-        taskRecord.setReviewComment(result == null ? null : result.getReviewComment());
-        taskRecord.setReviewedBy(result == null ? null : result.getReviewedBy());
-        taskRecord.setReviewedAt(result == null ? null : result.getReviewedAt());
-        taskRecord.setLockedAt(result == null ? null : result.getLockedAt());
-        taskRecord.setExternalRef(result == null ? null : result.getExternalRef());
-        taskRecord.setDevice(study == null ? null : study.getDeviceModel());
-        taskRecord.setErrorMessage(task.getErrorMessage());
-        taskRecord.setSubmittedAt(task.getRequestedAt());
-        taskRecord.setStartedAt(task.getStartedAt());
-        taskRecord.setCompletedAt(task.getCompletedAt());
-        taskRecord.setCreatedAt(task.getCreatedAt());
-        taskRecord.setUpdatedAt(task.getUpdatedAt());
-        return taskRecord;
+        return taskRecords;
     }
 
     /**
@@ -520,6 +639,103 @@ public class UnifiedQualityTaskWriteService {
                         "externalRef", normalizeText(externalRef)));
     }
 
+    /**
+     * 批量更新人工复核状态。
+     *
+     * <p>任务与结果各一次 IN 查询，逐条校验后把通过校验的结果用一条 UPDATE ... WHERE id IN 写入相同的复核字段，
+     * 审计日志按 JDBC 批量插入，两者在同一事务内完成。单条校验失败不影响其他任务。</p>
+     *
+     * @return 与入参顺序一致的逐条结果，包含 taskId、success 以及 reviewStatus 或 message
+     */
+    public List<Map<String, Object>> batchUpdateReview(List<String> taskNos,
+                                                       Long scopedUserId,
+                                                       Long operatorId,
+                                                       String reviewStatus,
+                                                       String reviewComment,
+                                                       boolean lockResult) {
+        List<String> normalizedTaskNos = normalizeTaskNos(taskNos);
+        if (normalizedTaskNos.isEmpty()) {
+            return List.of();
+        }
+        String normalizedReviewStatus = normalizeReviewStatus(reviewStatus);
+        String normalizedComment = normalizeText(reviewComment);
+
+        Map<String, UnifiedQcTask> tasksByNo = new HashMap<>();
+        for (UnifiedQcTask task : unifiedQcTaskMapper.selectList(new QueryWrapper<UnifiedQcTask>()
+                .in("task_no", normalizedTaskNos))) {
+            tasksByNo.put(task.getTaskNo(), task);
+        }
+        Map<Long, UnifiedQcResult> resultsByTaskId = new HashMap<>();
+        if (!tasksByNo.isEmpty()) {
+            for (UnifiedQcResult result : unifiedQcResultMapper.selectList(new QueryWrapper<UnifiedQcResult>()
+                    .select("id", "task_id")
+                    .in("task_id", tasksByNo.values().stream().map(UnifiedQcTask::getId).toList())
+                    .eq("result_version", 1))) {
+                resultsByTaskId.putIfAbsent(result.getTaskId(), result);
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Object> auditPayload = new LinkedHashMap<>();
+        auditPayload.put("reviewStatus", normalizedReviewStatus);
+        auditPayload.put("lockResult", lockResult);
+        auditPayload.put("batch", true);
+        List<Map<String, Object>> items = new ArrayList<>(normalizedTaskNos.size());
+        List<Long> resultIds = new ArrayList<>();
+        List<UnifiedQcResultAuditLog> auditLogs = new ArrayList<>();
+        for (String taskNo : normalizedTaskNos) {
+            UnifiedQcTask task = tasksByNo.get(taskNo);
+            UnifiedQcResult result = task == null ? null : resultsByTaskId.get(task.getId());
+            String failure = null;
+            if (task == null) {
+                failure = "质控任务不存在";
+            } else if (scopedUserId != null && task.getSubmittedBy() != null && !scopedUserId.equals(task.getSubmittedBy())) {
+                failure = "无权修改该质控任务";
+            } else if (result == null) {
+                failure = "质控结果不存在，暂无法复核";
+            }
+
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("taskId", taskNo);
+            item.put("success", failure == null);
+            if (failure != null) {
+                item.put("message", failure);
+                items.add(item);
+                continue;
+            }
+            item.put("reviewStatus", normalizedReviewStatus);
+            items.add(item);
+            resultIds.add(result.getId());
+            auditLogs.add(buildAuditLog(
+                    task.getId(),
+                    result.getId(),
+                    operatorId,
+                    "review",
+                    firstNonBlank(normalizedComment, "批量更新人工复核状态"),
+                    auditPayload,
+                    now));
+        }
+        if (resultIds.isEmpty()) {
+            return items;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            UpdateWrapper<UnifiedQcResult> updateWrapper = new UpdateWrapper<UnifiedQcResult>()
+                    .in("id", resultIds)
+                    .set("review_status", normalizedReviewStatus)
+                    .set("review_comment", normalizedComment)
+                    .set("reviewed_by", operatorId)
+                    .set("reviewed_at", now)
+                    .set("updated_at", now);
+            if (lockResult) {
+                updateWrapper.set("locked_at", now);
+            }
+            unifiedQcResultMapper.update(null, updateWrapper);
+            insertAuditLogs(auditLogs);
+        });
+        return items;
+    }
+
     /**
      * 记录任务级审计日志。
      */
@@ -529,6 +745,20 @@ public class UnifiedQualityTaskWriteService {
                                String actionType,
                                String actionComment,
                                Object payload) {
+        unifiedQcResultAuditLogMapper.insert(buildAuditLog(
+                taskId, resultId, operatorId, actionType, actionComment, payload, LocalDateTime.now()));
+    }
+
+    /**
+     * 构造审计日志实体，供单条写入和批量写入共用。
+     */
+    public UnifiedQcResultAuditLog buildAuditLog(Long taskId,
+                                                 Long resultId,
+                                                 Long operatorId,
+                                                 String actionType,
+                                                 String actionComment,
+                                                 Object payload,
+                                                 LocalDateTime createdAt) {
         UnifiedQcResultAuditLog auditLog = new UnifiedQcResultAuditLog();
         auditLog.setTaskId(taskId);
         auditLog.setResultId(resultId);
@@ -536,8 +766,177 @@ public class UnifiedQualityTaskWriteService {
         auditLog.setActionType(actionType);
         auditLog.setActionComment(normalizeText(actionComment));
         auditLog.setPayloadJson(writeJson(payload));
-        auditLog.setCreatedAt(LocalDateTime.now());
-        unifiedQcResultAuditLogMapper.insert(auditLog);
+        auditLog.setCreatedAt(createdAt);
+        return auditLog;
+    }
+
+    /**
+     * 按 JDBC 批量插入审计日志。
+     */
+    public void insertAuditLogs(List<UnifiedQcResultAuditLog> auditLogs) {
+        if (auditLogs == null || auditLogs.isEmpty()) {
+            return;
+        }
+        List<Object[]> batchArgs = auditLogs.stream()
+                .map(auditLog -> new Object[] {
+                        auditLog.getTaskId(),
+                        auditLog.getResultId(),
+                        auditLog.getOperatorId(),
+                        auditLog.getActionType(),
+                        auditLog.getActionComment(),
+                        auditLog.getPayloadJson(),
+                        auditLog.getCreatedAt()
+                })
+                .toList();
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO qc_result_audit_logs (task_id, result_id, operator_id, action_type, action_comment, "
+                        + "payload_json, created_at) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                batchArgs);
+    }
+
+    /**
+     * 用预加载的关联记录转换单个任务。
+     */
+    private QcTaskRecord toLegacyTaskRecord(UnifiedQcTask task, TaskContext context) {
+        // 任务详情需要同时拼上 study、patient、source file 和 result 信息。
+        UnifiedStudy study = context.study(task);
+        UnifiedPatient patient = context.patient(study);
+        UnifiedStudyFile sourceFile = context.sourceFile(study);
+        UnifiedQcResult result = context.result(task);
+        Map<String, Object> normalizedResult = MockQualityAnalysisSupport.normalizeResultPayload(
+                parseJson(result == null ? null : result.getRawResultJson()));
+
+        QcTaskRecord taskRecord = new QcTaskRecord();
+        taskRecord.setId(task.getId());
+        taskRecord.setTaskId(task.getTaskNo());
+        taskRecord.setUserId(task.getSubmittedBy());
+        taskRecord.setTaskType(task.getTaskTypeCode());
+        taskRecord.setTaskTypeName(MockQualityAnalysisSupport.resolveTaskTypeName(task.getTaskTypeCode()));
+        taskRecord.setPatientName(patient == null ? null : patient.getPatientName());
+        taskRecord.setExamId(study == null ? null : study.getAccessionNumber());
+        taskRecord.setSourceMode(task.getSourceMode());
+        taskRecord.setOriginalFilename(sourceFile == null ? null : sourceFile.getFileName());
+        taskRecord.setStoredFilePath(sourceFile == null
+                ? null
+                : firstNonBlank(sourceFile.getPublicPath(), sourceFile.getFilePath()));
+        taskRecord.setTaskStatus(task.getTaskStatus());
+        taskRecord.setMock(task.getMock());
+        if (!normalizedResult.isEmpty()) {
+            taskRecord.setQcStatus(MockQualityAnalysisSupport.resolveQcStatus(normalizedResult));
+            taskRecord.setQualityScore(BigDecimal.valueOf(roundOneDecimal(
+                    MockQualityAnalysisSupport.resolveQualityScore(normalizedResult))));
+            taskRecord.setAbnormalCount(MockQualityAnalysisSupport.resolveAbnormalCount(normalizedResult));
+            String primaryIssue = MockQualityAnalysisSupport.resolvePrimaryIssue(normalizedResult);
+            taskRecord.setPrimaryIssue("未见明显异常".equals(primaryIssue) ? null : primaryIssue);
+            taskRecord.setResultJson(writeJson(normalizedResult));
+        } else {
+            taskRecord.setQcStatus(result == null ? null : result.getQcStatus());
+            taskRecord.setQualityScore(result == null ? null : result.getQualityScore());
+            taskRecord.setAbnormalCount(result == null ? null : result.getAbnormalCount());
+            taskRecord.setPrimaryIssue(result == null ? null : result.getPrimaryIssueName());
+            taskRecord.setResultJson(result == null ? null : result.getRawResultJson());
+        }
+        taskRecord.setReviewStatus(result == null ? "PENDING" : firstNonBlank(result.getReviewStatus(), "PENDING"));
+        taskRecord.setReviewComment(result == null ? null : result.getReviewComment());
+        taskRecord.setReviewedBy(result == null ? null : result.getReviewedBy());
+        taskRecord.setReviewedAt(result == null ? null : result.getReviewedAt());
+        taskRecord.setLockedAt(result == null ? null : result.getLockedAt());
+        taskRecord.setExternalRef(result == null ? null : result.getExternalRef());
+        taskRecord.setDevice(study == null ? null : study.getDeviceModel());
+        taskRecord.setErrorMessage(task.getErrorMessage());
+        taskRecord.setSubmittedAt(task.getRequestedAt());
+        taskRecord.setStartedAt(task.getStartedAt());
+        taskRecord.setCompletedAt(task.getCompletedAt());
+        taskRecord.setCreatedAt(task.getCreatedAt());
+        taskRecord.setUpdatedAt(task.getUpdatedAt());
+        return taskRecord;
+    }
+
+    /**
+     * 用预加载的关联记录重建前端和执行层都能识别的快照对象。
+     */
+    private MockQualityTaskSnapshot toSnapshot(UnifiedQcTask task, TaskContext context) {
+        UnifiedStudy study = context.study(task);
+        UnifiedPatient patient = context.patient(study);
+        UnifiedStudyFile sourceFile = context.sourceFile(study);
+        UnifiedQcResult result = context.result(task);
+
+        MockQualityTaskSnapshot snapshot = new MockQualityTaskSnapshot();
+        snapshot.setRecordId(task.getId());
+        snapshot.setStudyId(task.getStudyId());
+        snapshot.setTaskId(task.getTaskNo());
+        snapshot.setTaskType(task.getTaskTypeCode());
+        snapshot.setTaskTypeName(MockQualityAnalysisSupport.resolveTaskTypeName(task.getTaskTypeCode()));
+        snapshot.setSourceMode(task.getSourceMode());
+        snapshot.setUserId(task.getSubmittedBy());
+        snapshot.setPatientName(patient == null ? null : patient.getPatientName());
+        snapshot.setExamId(study == null ? null : study.getAccessionNumber());
+        snapshot.setPatientId(patient == null ? null : patient.getPatientNo());
+        snapshot.setGender(patient == null ? null : patient.getGender());
+        snapshot.setAge(parseAge(patient == null ? null : patient.getAgeText()));
+        snapshot.setStudyDate(study == null ? null : study.getStudyDate());
+        snapshot.setOriginalFilename(sourceFile == null ? null : sourceFile.getFileName());
+        snapshot.setStoredFilePath(sourceFile == null
+                ? null
+                : firstNonBlank(sourceFile.getFilePath(), sourceFile.getPublicPath()));
+        snapshot.setStatus(task.getTaskStatus());
+        snapshot.setMock(Boolean.TRUE.equals(task.getMock()));
+        snapshot.setSubmittedAt(firstNonNull(task.getRequestedAt(), task.getCreatedAt()));
+        snapshot.setStartedAt(task.getStartedAt());
+        snapshot.setCompletedAt(task.getCompletedAt());
+        snapshot.setResult(MockQualityAnalysisSupport.normalizeResultPayload(
+                parseJson(result == null ? null : result.getRawResultJson())));
+        snapshot.setErrorMessage(task.getErrorMessage());
+        return snapshot;
+    }
+
+    /**
+     * 按 IN 查询一次性加载一批任务关联的检查、患者、首选源文件和首版结果。
+     */
+    private TaskContext loadTaskContext(List<UnifiedQcTask> tasks) {
+        List<Long> studyIds = tasks.stream().map(UnifiedQcTask::getStudyId).filter(Objects::nonNull).distinct().toList();
+        List<Long> taskIds = tasks.stream().map(UnifiedQcTask::getId).filter(Objects::nonNull).toList();
+
+        Map<Long, UnifiedStudy> studies = new HashMap<>();
+        if (!studyIds.isEmpty()) {
+            for (UnifiedStudy study : unifiedStudyMapper.selectBatchIds(studyIds)) {
+                studies.put(study.getId(), study);
+            }
+        }
+        List<Long> patientIds = studies.values().stream()
+                .map(UnifiedStudy::getPatientId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        Map<Long, UnifiedPatient> patients = new HashMap<>();
+        if (!patientIds.isEmpty()) {
+            for (UnifiedPatient patient : unifiedPatientMapper.selectBatchIds(patientIds)) {
+                patients.put(patient.getId(), patient);
+            }
+        }
+        Map<Long, UnifiedQcResult> results = new HashMap<>();
+        if (!taskIds.isEmpty()) {
+            for (UnifiedQcResult result : unifiedQcResultMapper.selectList(new QueryWrapper<UnifiedQcResult>()
+                    .in("task_id", taskIds)
+                    .eq("result_version", 1))) {
+                results.putIfAbsent(result.getTaskId(), result);
+            }
+        }
+        return new TaskContext(
+                studies,
+                patients,
+                unifiedStudyContextService.findPreferredFiles(studies.keySet(), "SOURCE", "PREVIEW"),
+                results);
+    }
+
+    /**
+     * 归一化任务号列表：去空格、去空值并去重，保持原有顺序。
+     */
+    private List<String> normalizeTaskNos(Collection<String> taskNos) {
+        if (taskNos == null) {
+            return List.of();
+        }
+        return taskNos.stream().map(this::normalizeText).filter(Objects::nonNull).distinct().toList();
     }
 
     /**
@@ -997,4 +1396,28 @@ public class UnifiedQualityTaskWriteService {
     private double roundOneDecimal(double value) {
         return Math.round(value * 10.0D) / 10.0D;
     }
+
+    /**
+     * 一批任务的关联记录，键分别为检查 ID、患者 ID、检查 ID 和任务 ID。
+     */
+    private record TaskContext(Map<Long, UnifiedStudy> studies,
+                               Map<Long, UnifiedPatient> patients,
+                               Map<Long, UnifiedStudyFile> sourceFiles,
+                               Map<Long, UnifiedQcResult> results) {
+        UnifiedStudy study(UnifiedQcTask task) {
+            return task.getStudyId() == null ? null : studies.get(task.getStudyId());
+        }
+
+        UnifiedPatient patient(UnifiedStudy study) {
+            return study == null || study.getPatientId() == null ? null : patients.get(study.getPatientId());
+        }
+
+        UnifiedStudyFile sourceFile(UnifiedStudy study) {
+            return study == null ? null : sourceFiles.get(study.getId());
+        }
+
+        UnifiedQcResult result(UnifiedQcTask task) {
+            return results.get(task.getId());
+        }
+    }
 }
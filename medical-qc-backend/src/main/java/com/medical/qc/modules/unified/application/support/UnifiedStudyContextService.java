@@ -13,6 +13,13 @@ import org.springframework.util.StringUtils;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 /**
  * 统一模型检查上下文写服务。
@@ -234,6 +241,39 @@ public class UnifiedStudyContextService {
         return null;
     }
 
+    /**
+     * 批量查找多个检查的首选文件，选择规则与 {@link #findPreferredFile(Long, String...)} 一致：
+     * 按角色顺序优先，同角色内主文件优先、更新时间较新的优先。
+     *
+     * @return 检查 ID 到首选文件的映射，未找到文件的检查不在结果中
+     */
+    public Map<Long, UnifiedStudyFile> findPreferredFiles(Collection<Long> studyIds, String... fileRoles) {
+        List<Long> normalizedStudyIds = studyIds == null
+                ? List.of()
+                : studyIds.stream().filter(Objects::nonNull).distinct().toList();
+        List<String> normalizedFileRoles = fileRoles == null
+                ? List.of()
+                : Arrays.stream(fileRoles).map(this::normalizeText).filter(Objects::nonNull).toList();
+        if (normalizedStudyIds.isEmpty() || normalizedFileRoles.isEmpty()) {
+            return Map.of();
+        }
+
+        Comparator<UnifiedStudyFile> preference = Comparator
+                .comparingInt((UnifiedStudyFile file) -> normalizedFileRoles.indexOf(file.getFileRole()))
+                .thenComparing(file -> Boolean.TRUE.equals(file.getIsPrimary()) ? 0 : 1)
+                .thenComparing(UnifiedStudyFile::getUpdatedAt, Comparator.nullsLast(Comparator.reverseOrder()));
+        Map<Long, UnifiedStudyFile> preferredFiles = new HashMap<>();
+        for (UnifiedStudyFile studyFile : unifiedStudyFileMapper.selectList(new QueryWrapper<UnifiedStudyFile>()
+                .in("study_id", normalizedStudyIds)
+                .in("file_role", normalizedFileRoles))) {
+            preferredFiles.merge(
+                    studyFile.getStudyId(),
+                    studyFile,
+                    (current, candidate) -> preference.compare(candidate, current) < 0 ? candidate : current);
+        }
+        return preferredFiles;
+    }
+
     /**
      * 构造统一检查编号。
      */
@@ -0,0 +1,226 @@
+package com.medical.qc.modules.unified.persistence.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * PACS 批量质控作业实体。
+ */
+@TableName("qc_batch_jobs")
+public class UnifiedQcBatchJob {
+    // 作业主键。
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+    // 作业编号，对外查询与控制时使用。
+    private String jobNo;
+    // 任务类型编码与 PACS 检查日期范围。
+    private String taskTypeCode;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    // 作业状态：PENDING/RUNNING/PAUSED/COMPLETED/CANCELLED。
+    private String jobStatus;
+    // 创建作业的用户 ID，作业创建的任务也归属该用户。
+    private Long submittedBy;
+    // 最早开始执行时间。
+    private LocalDateTime scheduledAt;
+    // 检查总数、已创建任务数与校验失败数。
+    private Integer totalCount;
+    private Integer dispatchedCount;
+    private Integer failedCount;
+    // 断点：最后处理的检查日期与 PACS 缓存记录 ID。
+    private LocalDate checkpointStudyDate;
+    private Long checkpointStudyId;
+    // 最近一次失败原因。
+    private String lastError;
+    // 执行节点与租约到期时间。
+    private String leaseOwner;
+    private LocalDateTime leaseExpiresAt;
+    // 本轮开始执行的时间与当时已处理的检查数，用于计算吞吐与预计剩余时间。
+    private LocalDateTime resumedAt;
+    private Integer resumedProcessedCount;
+    // 首次开始、完成、创建和更新时间。
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getJobNo() {
+        return jobNo;
+    }
+
+    public void setJobNo(String jobNo) {
+        this.jobNo = jobNo;
+    }
+
+    public String getTaskTypeCode() {
+        return taskTypeCode;
+    }
+
+    public void setTaskTypeCode(String taskTypeCode) {
+        this.taskTypeCode = taskTypeCode;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(LocalDate startDate) {
+        this.startDate = startDate;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(LocalDate endDate) {
+        this.endDate = endDate;
+    }
+
+    public String getJobStatus() {
+        return jobStatus;
+    }
+
+    public void setJobStatus(String jobStatus) {
+        this.jobStatus = jobStatus;
+    }
+
+    public Long getSubmittedBy() {
+        return submittedBy;
+    }
+
+    public void setSubmittedBy(Long submittedBy) {
+        this.submittedBy = submittedBy;
+    }
+
+    public LocalDateTime getScheduledAt() {
+        return scheduledAt;
+    }
+
+    public void setScheduledAt(LocalDateTime scheduledAt) {
+        this.scheduledAt = scheduledAt;
+    }
+
+    public Integer getTotalCount() {
+        return totalCount;
+    }
+
+    public void setTotalCount(Integer totalCount) {
+        this.totalCount = totalCount;
+    }
+
+    public Integer getDispatchedCount() {
+        return dispatchedCount;
+    }
+
+    public void setDispatchedCount(Integer dispatchedCount) {
+        this.dispatchedCount = dispatchedCount;
+    }
+
+    public Integer getFailedCount() {
+        return failedCount;
+    }
+
+    public void setFailedCount(Integer failedCount) {
+        this.failedCount = failedCount;
+    }
+
+    public LocalDate getCheckpointStudyDate() {
+        return checkpointStudyDate;
+    }
+
+    public void setCheckpointStudyDate(LocalDate checkpointStudyDate) {
+        this.checkpointStudyDate = checkpointStudyDate;
+    }
+
+    public Long getCheckpointStudyId() {
+        return checkpointStudyId;
+    }
+
+    public void setCheckpointStudyId(Long checkpointStudyId) {
+        this.checkpointStudyId = checkpointStudyId;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public String getLeaseOwner() {
+        return leaseOwner;
+    }
+
+    public void setLeaseOwner(String leaseOwner) {
+        this.leaseOwner = leaseOwner;
+    }
+
+    public LocalDateTime getLeaseExpiresAt() {
+        return leaseExpiresAt;
+    }
+
+    public void setLeaseExpiresAt(LocalDateTime leaseExpiresAt) {
+        this.leaseExpiresAt = leaseExpiresAt;
+    }
+
+    public LocalDateTime getResumedAt() {
+        return resumedAt;
+    }
+
+    public void setResumedAt(LocalDateTime resumedAt) {
+        this.resumedAt = resumedAt;
+    }
+
+    public Integer getResumedProcessedCount() {
+        return resumedProcessedCount;
+    }
+
+    public void setResumedProcessedCount(Integer resumedProcessedCount) {
+        this.resumedProcessedCount = resumedProcessedCount;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -36,6 +36,9 @@ public class UnifiedQcTask {
     private LocalDateTime requestedAt;
     private LocalDateTime startedAt;
     private LocalDateTime completedAt;
+    // 执行租约到期时间与恢复重派次数。
+    private LocalDateTime leaseExpiresAt;
+    private Integer recoveryCount;
     // 执行失败时的错误码与错误信息。
     private String errorCode;
     private String errorMessage;
@@ -260,5 +263,20 @@ public class UnifiedQcTask {
     public void setUpdatedAt(LocalDateTime updatedAt) {
         this.updatedAt = updatedAt;
     }
-}
 
+    public LocalDateTime getLeaseExpiresAt() {
+        return leaseExpiresAt;
+    }
+
+    public void setLeaseExpiresAt(LocalDateTime leaseExpiresAt) {
+        this.leaseExpiresAt = leaseExpiresAt;
+    }
+
+    public Integer getRecoveryCount() {
+        return recoveryCount;
+    }
+
+    public void setRecoveryCount(Integer recoveryCount) {
+        this.recoveryCount = recoveryCount;
+    }
+}
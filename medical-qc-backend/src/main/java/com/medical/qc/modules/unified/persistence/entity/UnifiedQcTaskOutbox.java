@@ -0,0 +1,110 @@
+package com.medical.qc.modules.unified.persistence.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+
+import java.time.LocalDateTime;
+
+/**
+ * 质控任务投递 outbox 实体。
+ */
+@TableName("qc_task_outbox")
+public class UnifiedQcTaskOutbox {
+    // outbox 主键，按自增顺序投递。
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+    // 关联任务号与任务类型。
+    private String taskNo;
+    private String taskTypeCode;
+    // 目标队列与序列化后的任务消息。
+    private String destination;
+    private String payloadJson;
+    // 投递状态、尝试次数与最近一次失败原因。
+    private String publishStatus;
+    private Integer attemptCount;
+    private String lastError;
+    // 写入与投递时间。
+    private LocalDateTime createdAt;
+    private LocalDateTime publishedAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTaskNo() {
+        return taskNo;
+    }
+
+    public void setTaskNo(String taskNo) {
+        this.taskNo = taskNo;
+    }
+
+    public String getTaskTypeCode() {
+        return taskTypeCode;
+    }
+
+    public void setTaskTypeCode(String taskTypeCode) {
+        this.taskTypeCode = taskTypeCode;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    public void setDestination(String destination) {
+        this.destination = destination;
+    }
+
+    public String getPayloadJson() {
+        return payloadJson;
+    }
+
+    public void setPayloadJson(String payloadJson) {
+        this.payloadJson = payloadJson;
+    }
+
+    public String getPublishStatus() {
+        return publishStatus;
+    }
+
+    public void setPublishStatus(String publishStatus) {
+        this.publishStatus = publishStatus;
+    }
+
+    public Integer getAttemptCount() {
+        return attemptCount;
+    }
+
+    public void setAttemptCount(Integer attemptCount) {
+        this.attemptCount = attemptCount;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getPublishedAt() {
+        return publishedAt;
+    }
+
+    public void setPublishedAt(LocalDateTime publishedAt) {
+        this.publishedAt = publishedAt;
+    }
+}
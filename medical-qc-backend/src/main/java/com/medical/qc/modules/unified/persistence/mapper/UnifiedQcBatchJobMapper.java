@@ -0,0 +1,12 @@
+package com.medical.qc.modules.unified.persistence.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.medical.qc.modules.unified.persistence.entity.UnifiedQcBatchJob;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * PACS 批量质控作业 Mapper。
+ */
+@Mapper
+public interface UnifiedQcBatchJobMapper extends BaseMapper<UnifiedQcBatchJob> {
+}
@@ -0,0 +1,12 @@
+package com.medical.qc.modules.unified.persistence.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.medical.qc.modules.unified.persistence.entity.UnifiedQcTaskOutbox;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * 质控任务投递 outbox Mapper。
+ */
+@Mapper
+public interface UnifiedQcTaskOutboxMapper extends BaseMapper<UnifiedQcTaskOutbox> {
+}
@@ -0,0 +1,284 @@
+package com.medical.qc.shared.ai;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 模型服务自适应并发限制器。
+ *
+ * <p>采用 AIMD 与延迟梯度结合的算法：每个 task_type 维护空载延迟基线，
+ * 样本延迟未超过基线的 tolerance 倍且在途请求接近上限时，上限按 1/limit 加性增长；
+ * 延迟恶化时按 backoffRatio 乘性收缩，请求超时时直接减半。
+ * 超出上限的请求按优先级进入有界加权公平队列（{@link WeightedFairQueue}），
+ * 积压时交互请求按权重优先拿到许可，队列满或等待超时时立即失败。</p>
+ */
+public class AdaptiveConcurrencyLimiter {
+    // 每累计这么多样本后重置一次基线，跟随模型或硬件变化。
+    private static final int BASELINE_RESET_SAMPLES = 500;
+
+    private final ModelServerProperties.LimiterProperties limiterProperties;
+    // 以下状态都在 this 锁内读写。
+    private double limit;
+    private int inFlight;
+    private final WeightedFairQueue<Waiter> waiters;
+    private final Map<String, LatencyBaseline> baselines = new HashMap<>();
+    // 限流指标。
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong queueTimeouts = new AtomicLong();
+    private final AtomicLong limitIncreases = new AtomicLong();
+    private final AtomicLong limitDecreases = new AtomicLong();
+
+    public AdaptiveConcurrencyLimiter(ModelServerProperties.LimiterProperties limiterProperties) {
+        this(limiterProperties, new ModelServerProperties.SchedulerProperties());
+    }
+
+    public AdaptiveConcurrencyLimiter(ModelServerProperties.LimiterProperties limiterProperties,
+                                      ModelServerProperties.SchedulerProperties schedulerProperties) {
+        this.limiterProperties = limiterProperties;
+        this.limit = clamp(limiterProperties.getInitialLimit());
+        this.waiters = new WeightedFairQueue<>(schedulerProperties, Math.max(0, limiterProperties.getMaxQueueSize()));
+    }
+
+    /**
+     * 以 NORMAL 优先级申请并发许可。
+     */
+    public CompletableFuture<Permit> acquire() {
+        return acquire(InferencePriority.NORMAL);
+    }
+
+    /**
+     * 申请并发许可。
+     *
+     * @param priority 排队时使用的优先级，队列容量按优先级分别计算
+     * @return 拿到许可时完成的 future；队列已满或等待超时时以 {@link ModelServerUnavailableException} 结束
+     */
+    public CompletableFuture<Permit> acquire(InferencePriority priority) {
+        if (!limiterProperties.isEnabled()) {
+            return CompletableFuture.completedFuture(new Permit(System.nanoTime(), false));
+        }
+
+        Waiter waiter;
+        synchronized (this) {
+            if (inFlight < (int) limit && waiters.isEmpty()) {
+                inFlight += 1;
+                acquired.incrementAndGet();
+                return CompletableFuture.completedFuture(new Permit(System.nanoTime(), true));
+            }
+            waiter = new Waiter();
+            if (!waiters.offer(waiter, priority == null ? InferencePriority.NORMAL : priority)) {
+                rejected.incrementAndGet();
+                return CompletableFuture.failedFuture(
+                        new ModelServerUnavailableException("Model server unavailable: concurrency limit reached"));
+            }
+            queued.incrementAndGet();
+        }
+
+        waiter.future.orTimeout(Math.max(1L, limiterProperties.getMaxQueueWaitMs()), TimeUnit.MILLISECONDS)
+                .whenComplete((permit, error) -> {
+                    if (error == null) {
+                        return;
+                    }
+                    // 等待超时或被调用方取消的请求移出队列。
+                    synchronized (this) {
+                        waiters.remove(waiter);
+                    }
+                    if (!(error instanceof CancellationException)) {
+                        queueTimeouts.incrementAndGet();
+                    }
+                });
+        CompletableFuture<Permit> permitFuture = new CompletableFuture<>();
+        waiter.future.whenComplete((permit, error) -> {
+            if (error == null) {
+                if (!permitFuture.complete(permit)) {
+                    // 调用方已放弃，许可直接归还。
+                    permit.release(null, Outcome.IGNORED);
+                }
+                return;
+            }
+            permitFuture.completeExceptionally(error instanceof TimeoutException
+                    ? new ModelServerUnavailableException("Model server unavailable: concurrency limit reached", error)
+                    : error);
+        });
+        permitFuture.whenComplete((permit, error) -> {
+            if (permitFuture.isCancelled()) {
+                waiter.future.cancel(false);
+            }
+        });
+        return permitFuture;
+    }
+
+    /**
+     * 当前并发上限。
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * 限流器状态与统计。
+     */
+    public synchronized Map<String, Object> getMetrics() {
+        Map<String, Object> baselineMetrics = new LinkedHashMap<>();
+        baselines.forEach((taskType, baseline) -> baselineMetrics.put(taskType, Math.round(baseline.minLatencyMs * 100.0) / 100.0));
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", limiterProperties.isEnabled());
+        metrics.put("limit", (int) limit);
+        metrics.put("inFlight", inFlight);
+        metrics.put("queueDepth", waiters.size());
+        metrics.put("acquired", acquired.get());
+        metrics.put("queued", queued.get());
+        metrics.put("rejected", rejected.get());
+        metrics.put("queueTimeouts", queueTimeouts.get());
+        metrics.put("limitIncreases", limitIncreases.get());
+        metrics.put("limitDecreases", limitDecreases.get());
+        metrics.put("baselineLatencyMs", baselineMetrics);
+        metrics.put("scheduler", waiters.getMetrics());
+        return metrics;
+    }
+
+    /**
+     * 归还许可并根据本次调用结果调整上限。
+     */
+    private void release(Permit permit, String taskType, Outcome outcome) {
+        if (!permit.counted) {
+            return;
+        }
+        long latencyNanos = System.nanoTime() - permit.acquiredAtNanos;
+        Waiter next;
+        synchronized (this) {
+            inFlight = Math.max(0, inFlight - 1);
+            adjustLimit(taskType, outcome, latencyNanos / 1_000_000.0);
+            next = pollNextWaiter();
+        }
+        // 在锁外唤醒等待者，避免回调在锁内执行。
+        while (next != null) {
+            if (next.future.complete(new Permit(System.nanoTime(), true))) {
+                synchronized (this) {
+                    next = pollNextWaiter();
+                }
+            } else {
+                // 等待者已超时或取消，把许可还回去再给下一个。
+                synchronized (this) {
+                    inFlight = Math.max(0, inFlight - 1);
+                    next = pollNextWaiter();
+                }
+            }
+        }
+    }
+
+    /**
+     * 在仍有余量时取出下一个等待者，并预先占用许可。
+     */
+    private Waiter pollNextWaiter() {
+        if (inFlight >= (int) limit) {
+            return null;
+        }
+        Waiter next = waiters.poll();
+        if (next != null) {
+            inFlight += 1;
+            acquired.incrementAndGet();
+        }
+        return next;
+    }
+
+    private void adjustLimit(String taskType, Outcome outcome, double latencyMs) {
+        if (outcome == Outcome.DROPPED) {
+            limit = clamp(limit * 0.5);
+            limitDecreases.incrementAndGet();
+            return;
+        }
+        if (outcome != Outcome.SUCCESS) {
+            return;
+        }
+
+        LatencyBaseline baseline = baselines.computeIfAbsent(taskType, key -> new LatencyBaseline());
+        baseline.record(latencyMs);
+        if (latencyMs > baseline.minLatencyMs * limiterProperties.getLatencyTolerance()) {
+            // 延迟明显高于空载基线，说明模型服务开始排队，乘性收缩。
+            limit = clamp(limit * limiterProperties.getBackoffRatio());
+            limitDecreases.incrementAndGet();
+            return;
+        }
+        // 只有在途请求接近上限时才扩容，避免空闲时上限无限上涨。
+        if (inFlight + 1 >= (int) limit / 2) {
+            double previousLimit = limit;
+            limit = clamp(limit + 1.0 / limit);
+            if ((int) limit > (int) previousLimit) {
+                limitIncreases.incrementAndGet();
+            }
+        }
+    }
+
+    private double clamp(double value) {
+        int minLimit = Math.max(1, limiterProperties.getMinLimit());
+        int maxLimit = Math.max(minLimit, limiterProperties.getMaxLimit());
+        return Math.max(minLimit, Math.min(maxLimit, value));
+    }
+
+    /**
+     * 调用结果分类，决定上限如何调整。
+     */
+    public enum Outcome {
+        // 正常返回，参与延迟采样。
+        SUCCESS,
+        // 超时，视为过载信号。
+        DROPPED,
+        // 与负载无关的失败或取消，只归还许可。
+        IGNORED
+    }
+
+    /**
+     * 一次并发许可；调用结束后必须 {@link #release(String, Outcome)} 一次。
+     */
+    public final class Permit {
+        private final long acquiredAtNanos;
+        private final boolean counted;
+        private boolean released;
+
+        private Permit(long acquiredAtNanos, boolean counted) {
+            this.acquiredAtNanos = acquiredAtNanos;
+            this.counted = counted;
+        }
+
+        public void release(String taskType, Outcome outcome) {
+            synchronized (this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+            }
+            AdaptiveConcurrencyLimiter.this.release(this, taskType, outcome);
+        }
+    }
+
+    private static final class Waiter {
+        private final CompletableFuture<Permit> future = new CompletableFuture<>();
+    }
+
+    /**
+     * 单个 task_type 的空载延迟基线。
+     */
+    private static final class LatencyBaseline {
+        private double minLatencyMs = Double.MAX_VALUE;
+        private int samples;
+
+        private void record(double latencyMs) {
+            samples += 1;
+            if (samples >= BASELINE_RESET_SAMPLES) {
+                samples = 0;
+                minLatencyMs = latencyMs;
+                return;
+            }
+            minLatencyMs = Math.min(minLatencyMs, latencyMs);
+        }
+    }
+}
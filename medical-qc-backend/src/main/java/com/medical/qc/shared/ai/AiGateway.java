@@ -1,11 +1,20 @@
 package com.medical.qc.shared.ai;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * AI 推理网关。
  *
  * <p>当前先承接脑出血检测模型调用，后续可扩展到更多影像质控算法。</p>
+ *
+ * <p>每个推理方法都提供同步与异步两种形式。异步形式不占用调用线程：
+ * future 正常完成时返回推理结果，调用失败或超时时同样以包含 error 字段的结果映射完成；
+ * 调用方取消 future 时，取消信号会透传给模型服务。future 在网络线程上完成，
+ * 调用方如需落库等耗时操作，应切换到自己的业务线程池继续处理。</p>
+ *
+ * <p>体数据质控的异步方法另有带 {@link InferenceProgressListener} 的重载，
+ * 用于在最终结果之前接收推理进度和已完成的质控项；不支持中间事件的实现直接忽略回调。</p>
  */
 public interface AiGateway {
 
@@ -17,6 +26,14 @@ public interface AiGateway {
      */
     Map<String, Object> analyzeHemorrhage(String imagePath);
 
+    /**
+     * 异步调用脑出血检测模型。
+     *
+     * @param imagePath 服务器本地影像绝对路径
+     * @return 推理结果 future
+     */
+    CompletableFuture<Map<String, Object>> analyzeHemorrhageAsync(String imagePath);
+
     /**
      * 调用头部 CT 平扫质控模型。
      *
@@ -25,6 +42,26 @@ public interface AiGateway {
      */
     Map<String, Object> analyzeHeadQuality(String volumePath);
 
+    /**
+     * 异步调用头部 CT 平扫质控模型。
+     *
+     * @param volumePath 服务器本地 NIfTI 体数据绝对路径
+     * @return 推理结果 future
+     */
+    CompletableFuture<Map<String, Object>> analyzeHeadQualityAsync(String volumePath);
+
+    /**
+     * 异步调用头部 CT 平扫质控模型，并接收推理中间事件。
+     *
+     * @param volumePath 服务器本地 NIfTI 体数据绝对路径
+     * @param progressListener 中间事件回调
+     * @return 推理结果 future
+     */
+    default CompletableFuture<Map<String, Object>> analyzeHeadQualityAsync(String volumePath,
+                                                                          InferenceProgressListener progressListener) {
+        return analyzeHeadQualityAsync(volumePath);
+    }
+
     /**
      * 调用 CT 胸部平扫质控模型。
      *
@@ -33,6 +70,26 @@ public interface AiGateway {
      */
     Map<String, Object> analyzeChestNonContrast(String volumePath);
 
+    /**
+     * 异步调用 CT 胸部平扫质控模型。
+     *
+     * @param volumePath 服务器本地 NIfTI 体数据绝对路径
+     * @return 推理结果 future
+     */
+    CompletableFuture<Map<String, Object>> analyzeChestNonContrastAsync(String volumePath);
+
+    /**
+     * 异步调用 CT 胸部平扫质控模型，并接收推理中间事件。
+     *
+     * @param volumePath 服务器本地 NIfTI 体数据绝对路径
+     * @param progressListener 中间事件回调
+     * @return 推理结果 future
+     */
+    default CompletableFuture<Map<String, Object>> analyzeChestNonContrastAsync(String volumePath,
+                                                                               InferenceProgressListener progressListener) {
+        return analyzeChestNonContrastAsync(volumePath);
+    }
+
     /**
      * 调用 CT 胸部增强质控分析链路。
      *
@@ -42,6 +99,15 @@ public interface AiGateway {
      */
     Map<String, Object> analyzeChestContrast(String inputPath, Map<String, Object> metadata);
 
+    /**
+     * 异步调用 CT 胸部增强质控分析链路。
+     *
+     * @param inputPath 服务器本地影像路径，支持 DICOM/NIfTI/ZIP
+     * @param metadata 任务附加元数据，如流速、造影剂总量等
+     * @return 推理结果 future
+     */
+    CompletableFuture<Map<String, Object>> analyzeChestContrastAsync(String inputPath, Map<String, Object> metadata);
+
     /**
      * 调用冠脉 CTA 质控分析链路。
      *
@@ -50,5 +116,22 @@ public interface AiGateway {
      * @return 推理结果；若调用失败，返回包含 error 字段的结果映射
      */
     Map<String, Object> analyzeCoronaryCta(String inputPath, Map<String, Object> metadata);
-}
 
+    /**
+     * 异步调用冠脉 CTA 质控分析链路。
+     *
+     * @param inputPath 服务器本地影像路径，支持 DICOM/NIfTI/ZIP
+     * @param metadata 任务附加元数据，如心率、重建相位等
+     * @return 推理结果 future
+     */
+    CompletableFuture<Map<String, Object>> analyzeCoronaryCtaAsync(String inputPath, Map<String, Object> metadata);
+
+    /**
+     * 模型服务当前可同时承接的推理数，供批量作业等后台派发方按容量节流。
+     *
+     * @return 并发推理上限；实现无法给出时返回 0
+     */
+    default int getInferenceCapacity() {
+        return 0;
+    }
+}
@@ -0,0 +1,278 @@
+package com.medical.qc.shared.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medical.qc.shared.JsonObjectMapReader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 模型服务二进制帧传输编解码。
+ *
+ * <p>上行：请求中的文件路径字段被替换为 {@code binary://fN} 引用，文本帧里用 binary_upload 声明文件清单，
+ * 随后按清单顺序发送文件内容的二进制帧。文件内容按块从只读内存映射中切片发送，不在堆上整体暂存。</p>
+ *
+ * <p>下行：模型服务把大数组结果编码为一个二进制帧，布局为
+ * {@code [4 字节大端头长度][UTF-8 JSON 头][连续的小端数组数据]}，
+ * JSON 头中的 binary_fields 描述每个数组的位置、类型和形状。解码后的数组是基于原始数组的只读 List 视图。</p>
+ */
+final class BinaryFrameTransport {
+    // 上行文件清单字段、下行数组描述字段与路径引用前缀，与 inference_server.py 保持一致。
+    static final String UPLOAD_KEY = "binary_upload";
+    static final String BINARY_RESULTS_KEY = "binary_results";
+    static final String BINARY_FIELDS_KEY = "binary_fields";
+    static final String REFERENCE_PREFIX = "binary://";
+    // 会被替换为二进制上传的路径字段。
+    private static final List<String> PATH_KEYS = List.of("image_path", "volume_path", "input_path");
+
+    private BinaryFrameTransport() {
+    }
+
+    /**
+     * 把请求中的本地文件路径改写为二进制引用。
+     *
+     * <p>同一路径只上传一次；目录或不存在的路径保持原样，仍由模型服务按路径读取。</p>
+     *
+     * @param request 已补充 request_id 的请求信封，会被原地改写
+     * @return 需要随请求发送的文件列表，可能为空
+     */
+    @SuppressWarnings("unchecked")
+    static List<UploadFile> prepareUpload(Map<String, Object> request) throws IOException {
+        Map<String, UploadFile> filesByPath = new LinkedHashMap<>();
+        rewritePaths(request, filesByPath);
+        if (request.get(InferenceBatchDispatcher.BATCH_KEY) instanceof List<?> batchItems) {
+            List<Object> rewrittenItems = new ArrayList<>();
+            for (Object item : batchItems) {
+                if (item instanceof Map<?, ?> itemMap) {
+                    Map<String, Object> rewrittenItem = new HashMap<>((Map<String, Object>) itemMap);
+                    rewritePaths(rewrittenItem, filesByPath);
+                    rewrittenItems.add(rewrittenItem);
+                } else {
+                    rewrittenItems.add(item);
+                }
+            }
+            request.put(InferenceBatchDispatcher.BATCH_KEY, rewrittenItems);
+        }
+
+        List<UploadFile> files = new ArrayList<>(filesByPath.values());
+        if (files.isEmpty()) {
+            return files;
+        }
+        List<Map<String, Object>> manifest = new ArrayList<>();
+        for (UploadFile file : files) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("ref", file.reference);
+            entry.put("name", file.path.getFileName().toString());
+            entry.put("size", file.size);
+            manifest.add(entry);
+        }
+        request.put(UPLOAD_KEY, manifest);
+        request.put(BINARY_RESULTS_KEY, true);
+        return files;
+    }
+
+    /**
+     * 按块切出文件内容，交给调用方逐帧发送。
+     *
+     * <p>每块都是一段只读内存映射，由操作系统按页换入，文件内容不经过堆内数组。</p>
+     */
+    static void forEachChunk(UploadFile file, int chunkSizeBytes, ChunkSender sender) throws IOException {
+        int chunkSize = Math.max(4096, chunkSizeBytes);
+        try (FileChannel channel = FileChannel.open(file.path, StandardOpenOption.READ)) {
+            long size = Math.min(file.size, channel.size());
+            long position = 0L;
+            while (position < size) {
+                long length = Math.min(chunkSize, size - position);
+                sender.send(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+                position += length;
+            }
+        }
+    }
+
+    /**
+     * 解码模型服务返回的二进制结果帧。
+     *
+     * @return 结果映射，其中的大数组以 List 视图形式还原
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> decodeResult(ObjectMapper objectMapper, ByteBuffer frame) {
+        ByteBuffer buffer = frame.duplicate().order(ByteOrder.BIG_ENDIAN);
+        int headerLength = buffer.getInt();
+        byte[] headerBytes = new byte[headerLength];
+        buffer.get(headerBytes);
+        Map<String, Object> response = new HashMap<>(
+                JsonObjectMapReader.read(objectMapper, new String(headerBytes, StandardCharsets.UTF_8)));
+        ByteBuffer data = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+
+        Object fields = response.remove(BINARY_FIELDS_KEY);
+        if (!(fields instanceof List<?> fieldList)) {
+            return response;
+        }
+        for (Object field : fieldList) {
+            if (!(field instanceof Map<?, ?> descriptor)) {
+                continue;
+            }
+            Map<String, Object> target = response;
+            if (descriptor.get("item") instanceof Number itemIndex
+                    && response.get(InferenceBatchDispatcher.RESULTS_KEY) instanceof List<?> results
+                    && results.get(itemIndex.intValue()) instanceof Map<?, ?> itemResult) {
+                // 批量响应中的数组属于 results 下的某一条结果。
+                target = (Map<String, Object>) itemResult;
+            }
+            target.put(String.valueOf(descriptor.get("key")), decodeArray(data, descriptor));
+        }
+        return response;
+    }
+
+    private static void rewritePaths(Map<String, Object> request, Map<String, UploadFile> filesByPath) throws IOException {
+        for (String key : PATH_KEYS) {
+            if (!(request.get(key) instanceof String rawPath) || rawPath.isBlank()) {
+                continue;
+            }
+            Path path = Path.of(rawPath).toAbsolutePath().normalize();
+            if (!Files.isRegularFile(path)) {
+                continue;
+            }
+            String pathKey = path.toString();
+            UploadFile file = filesByPath.get(pathKey);
+            if (file == null) {
+                file = new UploadFile("f" + filesByPath.size(), path, Files.size(path));
+                filesByPath.put(pathKey, file);
+            }
+            request.put(key, REFERENCE_PREFIX + file.reference);
+        }
+    }
+
+    private static List<?> decodeArray(ByteBuffer data, Map<?, ?> descriptor) {
+        int offset = ((Number) descriptor.get("offset")).intValue();
+        int length = ((Number) descriptor.get("length")).intValue();
+        ByteBuffer slice = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        slice.position(offset).limit(offset + length);
+        slice = slice.slice().order(ByteOrder.LITTLE_ENDIAN);
+
+        String dtype = String.valueOf(descriptor.get("dtype"));
+        List<Number> flat = switch (dtype) {
+            case "f4" -> {
+                float[] values = new float[length / Float.BYTES];
+                slice.asFloatBuffer().get(values);
+                yield new FloatArrayList(values);
+            }
+            case "i4" -> {
+                int[] values = new int[length / Integer.BYTES];
+                slice.asIntBuffer().get(values);
+                yield new IntArrayList(values);
+            }
+            case "u1" -> {
+                int[] values = new int[length];
+                for (int index = 0; index < length; index++) {
+                    values[index] = Byte.toUnsignedInt(slice.get(index));
+                }
+                yield new IntArrayList(values);
+            }
+            default -> throw new IllegalStateException("Unsupported binary result dtype: " + dtype);
+        };
+
+        List<Integer> shape = new ArrayList<>();
+        if (descriptor.get("shape") instanceof List<?> shapeList) {
+            shapeList.forEach(dimension -> shape.add(((Number) dimension).intValue()));
+        }
+        return reshape(flat, shape, 0);
+    }
+
+    /**
+     * 多维数组按形状切成嵌套的 subList 视图，不复制数据。
+     */
+    private static List<?> reshape(List<Number> flat, List<Integer> shape, int dimension) {
+        if (shape.size() - dimension <= 1) {
+            return flat;
+        }
+        int rows = shape.get(dimension);
+        int rowSize = flat.size() / Math.max(1, rows);
+        List<Object> nested = new ArrayList<>(rows);
+        for (int row = 0; row < rows; row++) {
+            nested.add(reshape(flat.subList(row * rowSize, (row + 1) * rowSize), shape, dimension + 1));
+        }
+        return nested;
+    }
+
+    /**
+     * 逐块发送回调。
+     */
+    @FunctionalInterface
+    interface ChunkSender {
+        void send(ByteBuffer chunk);
+    }
+
+    /**
+     * 一个待上传文件。
+     */
+    static final class UploadFile {
+        private final String reference;
+        private final Path path;
+        private final long size;
+
+        private UploadFile(String reference, Path path, long size) {
+            this.reference = reference;
+            this.path = path;
+            this.size = size;
+        }
+
+        long getSize() {
+            return size;
+        }
+    }
+
+    /**
+     * float32 数组的只读 List 视图。
+     */
+    private static final class FloatArrayList extends AbstractList<Number> {
+        private final float[] values;
+
+        private FloatArrayList(float[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Number get(int index) {
+            return values[index];
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
+
+    /**
+     * 整数数组的只读 List 视图。
+     */
+    private static final class IntArrayList extends AbstractList<Number> {
+        private final int[] values;
+
+        private IntArrayList(int[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Number get(int index) {
+            return values[index];
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
+}
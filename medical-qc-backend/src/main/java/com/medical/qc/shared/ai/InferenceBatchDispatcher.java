@@ -0,0 +1,360 @@
+package com.medical.qc.shared.ai;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 体数据推理微批调度器。
+ *
+ * <p>同一 task_type 的请求在时间窗口内合并为一个 batch 帧发送，
+ * 模型服务按请求顺序返回 results 数组，再逐条回填给各自的调用方。
+ * 窗口内只有一个请求时按普通单条请求发送，协议与未开启微批时一致。
+ * 批量请求的中间事件带 batch_index，按下标转给对应调用方的进度回调。</p>
+ */
+public class InferenceBatchDispatcher implements AutoCloseable {
+    // 批量请求与批量响应的字段名。
+    static final String BATCH_KEY = "batch";
+    static final String RESULTS_KEY = "results";
+    static final String BATCH_INDEX_KEY = "batch_index";
+    private static final String TASK_TYPE_KEY = "task_type";
+
+    private final ModelServerClient modelServerClient;
+    private final ModelServerProperties.BatchProperties batchProperties;
+    // 凑批窗口到期后的刷新线程，只负责把批次交给模型服务客户端，不执行推理。
+    private final ScheduledExecutorService flushScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "model-batch-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // 每个 task_type 当前正在凑批的批次，读写都在 this 锁内完成。
+    private final Map<String, PendingBatch> pendingBatches = new HashMap<>();
+    private final ConcurrentMap<String, BatchMetrics> metricsByTaskType = new ConcurrentHashMap<>();
+
+    public InferenceBatchDispatcher(ModelServerClient modelServerClient,
+                                    ModelServerProperties.BatchProperties batchProperties) {
+        this.modelServerClient = modelServerClient;
+        this.batchProperties = batchProperties;
+    }
+
+    /**
+     * 提交一条体数据推理请求。
+     *
+     * @param taskType 任务类型，同类型请求才会合并
+     * @param request 单条请求体，需包含 task_type
+     * @param timeoutMs 从提交开始计算的整体超时时间
+     * @return 单条请求的响应 future
+     */
+    public CompletableFuture<Map<String, Object>> submit(String taskType, Map<String, Object> request, long timeoutMs) {
+        return submit(taskType, request, timeoutMs, null);
+    }
+
+    /**
+     * 提交一条体数据推理请求，并订阅该请求的中间事件。
+     *
+     * @param progressListener 中间事件回调，可为空
+     */
+    public CompletableFuture<Map<String, Object>> submit(String taskType,
+                                                         Map<String, Object> request,
+                                                         long timeoutMs,
+                                                         InferenceProgressListener progressListener) {
+        if (!batchProperties.isEnabled() || batchProperties.getMaxSize() <= 1) {
+            return modelServerClient.submit(request, timeoutMs, progressListener);
+        }
+
+        BatchItem item = new BatchItem(request, timeoutMs, progressListener);
+        PendingBatch readyBatch = null;
+        synchronized (this) {
+            PendingBatch batch = pendingBatches.get(taskType);
+            if (batch == null) {
+                batch = new PendingBatch(taskType);
+                pendingBatches.put(taskType, batch);
+                PendingBatch scheduledBatch = batch;
+                batch.flushTask = flushScheduler.schedule(
+                        () -> flush(scheduledBatch),
+                        Math.max(0L, batchProperties.getWindowMs()),
+                        TimeUnit.MILLISECONDS);
+            }
+            batch.items.add(item);
+            if (batch.items.size() >= batchProperties.getMaxSize()) {
+                // 达到批量上限立即发送，不再等待窗口到期。
+                pendingBatches.remove(taskType);
+                batch.flushTask.cancel(false);
+                readyBatch = batch;
+            }
+        }
+        if (readyBatch != null) {
+            send(readyBatch);
+        }
+        return item.future;
+    }
+
+    /**
+     * 按 task_type 输出批量大小和延迟指标。
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Integer> queuedByTaskType = new HashMap<>();
+        synchronized (this) {
+            pendingBatches.forEach((taskType, batch) -> queuedByTaskType.put(taskType, batch.items.size()));
+        }
+
+        Map<String, Object> taskTypeMetrics = new TreeMap<>();
+        metricsByTaskType.forEach((taskType, metrics) ->
+                taskTypeMetrics.put(taskType, metrics.snapshot(queuedByTaskType.getOrDefault(taskType, 0))));
+        queuedByTaskType.forEach((taskType, queued) ->
+                taskTypeMetrics.computeIfAbsent(taskType, key -> new BatchMetrics().snapshot(queued)));
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", batchProperties.isEnabled());
+        metrics.put("windowMs", batchProperties.getWindowMs());
+        metrics.put("maxSize", batchProperties.getMaxSize());
+        metrics.put("taskTypes", taskTypeMetrics);
+        return metrics;
+    }
+
+    @Override
+    public void close() {
+        flushScheduler.shutdownNow();
+        List<PendingBatch> remainingBatches;
+        synchronized (this) {
+            remainingBatches = new ArrayList<>(pendingBatches.values());
+            pendingBatches.clear();
+        }
+        for (PendingBatch batch : remainingBatches) {
+            for (BatchItem item : batch.items) {
+                item.future.completeExceptionally(new ModelServerUnavailableException("Model server batch dispatcher is closed"));
+            }
+        }
+    }
+
+    /**
+     * 凑批窗口到期后的刷新动作；若批次已因满额提前发送则忽略。
+     */
+    private void flush(PendingBatch batch) {
+        synchronized (this) {
+            if (pendingBatches.get(batch.taskType) != batch) {
+                return;
+            }
+            pendingBatches.remove(batch.taskType);
+        }
+        send(batch);
+    }
+
+    private void send(PendingBatch batch) {
+        // 凑批期间已经超时或被取消的请求不再发送。
+        List<BatchItem> liveItems = batch.items.stream().filter(item -> !item.future.isDone()).toList();
+        if (liveItems.isEmpty()) {
+            return;
+        }
+
+        long sentAt = System.currentTimeMillis();
+        BatchMetrics metrics = metricsByTaskType.computeIfAbsent(batch.taskType, key -> new BatchMetrics());
+        liveItems.forEach(item -> metrics.queueWaitMs.addAndGet(sentAt - item.enqueuedAt));
+
+        if (liveItems.size() == 1) {
+            sendSingle(liveItems.get(0), metrics, sentAt);
+            return;
+        }
+
+        List<Map<String, Object>> batchRequests = new ArrayList<>();
+        long timeoutMs = 0L;
+        for (BatchItem item : liveItems) {
+            Map<String, Object> itemRequest = new HashMap<>(item.request);
+            itemRequest.remove(TASK_TYPE_KEY);
+            batchRequests.add(itemRequest);
+            timeoutMs = Math.max(timeoutMs, item.remainingTimeoutMs(sentAt));
+        }
+        Map<String, Object> batchFrame = new HashMap<>();
+        batchFrame.put(TASK_TYPE_KEY, batch.taskType);
+        batchFrame.put(BATCH_KEY, batchRequests);
+        // 整批按其中最紧急的请求排队，避免交互请求被同批的批量请求拖慢。
+        batchFrame.put(PythonWebSocketAiGateway.PRIORITY_KEY, liveItems.stream()
+                .map(item -> item.request.get(PythonWebSocketAiGateway.PRIORITY_KEY))
+                .map(value -> InferencePriority.parse(value == null ? null : String.valueOf(value)))
+                .min(Comparator.naturalOrder())
+                .orElse(InferencePriority.NORMAL)
+                .protocolValue());
+
+        boolean streamProgress = liveItems.stream().anyMatch(item -> item.progressListener != null);
+        CompletableFuture<Map<String, Object>> batchFuture = modelServerClient.submit(
+                batchFrame,
+                timeoutMs,
+                streamProgress ? event -> routeBatchEvent(event, liveItems) : null);
+        // 同批请求全部被调用方放弃时，整批取消并通知模型服务。
+        AtomicInteger openItems = new AtomicInteger(liveItems.size());
+        for (BatchItem item : liveItems) {
+            item.future.whenComplete((result, error) -> {
+                if (openItems.decrementAndGet() == 0 && !batchFuture.isDone()) {
+                    batchFuture.cancel(false);
+                }
+            });
+        }
+        batchFuture.whenComplete((response, error) -> {
+            metrics.record(liveItems.size(), System.currentTimeMillis() - sentAt);
+            if (error != null) {
+                Throwable cause = unwrap(error);
+                liveItems.forEach(item -> item.future.completeExceptionally(cause));
+                return;
+            }
+            splitResults(response, liveItems);
+        });
+    }
+
+    private void sendSingle(BatchItem item, BatchMetrics metrics, long sentAt) {
+        CompletableFuture<Map<String, Object>> responseFuture =
+                modelServerClient.submit(item.request, item.remainingTimeoutMs(sentAt), item.progressListener);
+        item.future.whenComplete((result, error) -> {
+            if (item.future.isCancelled()) {
+                responseFuture.cancel(false);
+            }
+        });
+        responseFuture.whenComplete((response, error) -> {
+            metrics.record(1, System.currentTimeMillis() - sentAt);
+            if (error != null) {
+                item.future.completeExceptionally(unwrap(error));
+                return;
+            }
+            item.future.complete(response);
+        });
+    }
+
+    /**
+     * 按 batch_index 把批量请求的中间事件转给对应调用方。
+     */
+    private void routeBatchEvent(Map<String, Object> event, List<BatchItem> items) {
+        if (!(event.get(BATCH_INDEX_KEY) instanceof Number batchIndex)
+                || batchIndex.intValue() < 0
+                || batchIndex.intValue() >= items.size()) {
+            return;
+        }
+        BatchItem item = items.get(batchIndex.intValue());
+        if (item.progressListener == null || item.future.isDone()) {
+            return;
+        }
+        Map<String, Object> itemEvent = new HashMap<>(event);
+        itemEvent.remove(BATCH_INDEX_KEY);
+        item.progressListener.onEvent(itemEvent);
+    }
+
+    /**
+     * 把批量响应按顺序拆分回各个调用方。
+     */
+    @SuppressWarnings("unchecked")
+    private void splitResults(Map<String, Object> response, List<BatchItem> items) {
+        Object results = response == null ? null : response.get(RESULTS_KEY);
+        if (!(results instanceof List<?> resultList) || resultList.size() != items.size()) {
+            // 模型服务整体报错时没有 results 字段，把同一个错误结果回填给整批请求。
+            if (response != null && response.containsKey("error")) {
+                items.forEach(item -> item.future.complete(new HashMap<>(response)));
+                return;
+            }
+            IllegalStateException exception = new IllegalStateException("Invalid batch response from Python Model Server");
+            items.forEach(item -> item.future.completeExceptionally(exception));
+            return;
+        }
+
+        for (int index = 0; index < items.size(); index++) {
+            Object result = resultList.get(index);
+            Map<String, Object> itemResult = result instanceof Map<?, ?>
+                    ? new HashMap<>((Map<String, Object>) result)
+                    : Map.of("error", "Invalid batch item response");
+            items.get(index).future.complete(itemResult);
+        }
+    }
+
+    private Throwable unwrap(Throwable error) {
+        Throwable current = error;
+        while (current instanceof CompletionException && current.getCause() != null) {
+            current = current.getCause();
+        }
+        return current;
+    }
+
+    /**
+     * 正在凑批的批次。
+     */
+    private static final class PendingBatch {
+        private final String taskType;
+        private final List<BatchItem> items = new ArrayList<>();
+        private ScheduledFuture<?> flushTask;
+
+        private PendingBatch(String taskType) {
+            this.taskType = taskType;
+        }
+    }
+
+    /**
+     * 批次中的单条请求。
+     */
+    private static final class BatchItem {
+        private final Map<String, Object> request;
+        private final InferenceProgressListener progressListener;
+        private final long enqueuedAt = System.currentTimeMillis();
+        private final long deadline;
+        private final CompletableFuture<Map<String, Object>> future = new CompletableFuture<>();
+
+        private BatchItem(Map<String, Object> request, long timeoutMs, InferenceProgressListener progressListener) {
+            this.request = request;
+            this.progressListener = progressListener;
+            this.deadline = enqueuedAt + timeoutMs;
+            this.future.orTimeout(timeoutMs, TimeUnit.MILLISECONDS);
+        }
+
+        private long remainingTimeoutMs(long now) {
+            return Math.max(1L, deadline - now);
+        }
+    }
+
+    /**
+     * 单个 task_type 的批量指标。
+     */
+    private static final class BatchMetrics {
+        private final AtomicLong batches = new AtomicLong();
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong largestBatch = new AtomicLong();
+        private final AtomicLong totalLatencyMs = new AtomicLong();
+        private final AtomicLong maxLatencyMs = new AtomicLong();
+        private final AtomicLong queueWaitMs = new AtomicLong();
+
+        private void record(int batchSize, long latencyMs) {
+            batches.incrementAndGet();
+            requests.addAndGet(batchSize);
+            largestBatch.accumulateAndGet(batchSize, Math::max);
+            totalLatencyMs.addAndGet(latencyMs);
+            maxLatencyMs.accumulateAndGet(latencyMs, Math::max);
+        }
+
+        private Map<String, Object> snapshot(int queued) {
+            long batchCount = batches.get();
+            long requestCount = requests.get();
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("batches", batchCount);
+            snapshot.put("requests", requestCount);
+            snapshot.put("queued", queued);
+            snapshot.put("averageBatchSize", batchCount == 0 ? 0.0 : round((double) requestCount / batchCount));
+            snapshot.put("largestBatch", largestBatch.get());
+            snapshot.put("averageLatencyMs", batchCount == 0 ? 0.0 : round((double) totalLatencyMs.get() / batchCount));
+            snapshot.put("maxLatencyMs", maxLatencyMs.get());
+            snapshot.put("averageQueueWaitMs", requestCount == 0 ? 0.0 : round((double) queueWaitMs.get() / requestCount));
+            return snapshot;
+        }
+
+        private double round(double value) {
+            return Math.round(value * 100.0) / 100.0;
+        }
+    }
+}
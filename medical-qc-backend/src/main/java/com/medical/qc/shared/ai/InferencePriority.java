@@ -0,0 +1,68 @@
+package com.medical.qc.shared.ai;
+
+import java.util.Locale;
+import java.util.concurrent.Callable;
+
+/**
+ * 推理请求优先级。
+ *
+ * <p>INTERACTIVE 用于医生在页面上同步等待的请求（如脑出血检测）；NORMAL 用于普通异步质控任务；
+ * BULK 用于批量重跑、历史修复等后台任务。优先级只影响请求在并发许可队列和模型服务中的排队顺序。</p>
+ *
+ * <p>调用方通过 {@link #callWith(InferencePriority, Callable)} 为当前线程内发起的推理调用指定优先级，
+ * 网关在调用线程上读取，不需要修改各推理方法的签名。</p>
+ */
+public enum InferencePriority {
+    INTERACTIVE,
+    NORMAL,
+    BULK;
+
+    // 当前线程上正在发起的推理调用所属优先级。
+    private static final ThreadLocal<InferencePriority> CURRENT = new ThreadLocal<>();
+
+    /**
+     * 在指定优先级下执行调用，结束后恢复外层优先级。
+     */
+    public static <T> T callWith(InferencePriority priority, Callable<T> call) throws Exception {
+        InferencePriority previous = CURRENT.get();
+        CURRENT.set(priority);
+        try {
+            return call.call();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 当前线程指定的优先级；未指定时返回调用方给出的默认值。
+     */
+    public static InferencePriority currentOr(InferencePriority defaultPriority) {
+        InferencePriority current = CURRENT.get();
+        return current == null ? defaultPriority : current;
+    }
+
+    /**
+     * 解析消息或配置中的优先级文本，空值与未知值按 NORMAL 处理。
+     */
+    public static InferencePriority parse(String value) {
+        if (value == null || value.isBlank()) {
+            return NORMAL;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException exception) {
+            return NORMAL;
+        }
+    }
+
+    /**
+     * 发往模型服务的协议值。
+     */
+    public String protocolValue() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,20 @@
+package com.medical.qc.shared.ai;
+
+import java.util.Map;
+
+/**
+ * 推理中间事件回调。
+ *
+ * <p>模型服务在最终结果之前可以回传多条中间消息：event=progress 表示阶段与百分比，
+ * event=partial 表示已经得出的单个质控项。回调在模型服务网络线程上执行，实现方不应做阻塞操作。</p>
+ */
+@FunctionalInterface
+public interface InferenceProgressListener {
+
+    /**
+     * 收到一条中间事件。
+     *
+     * @param event 事件内容，至少包含 event 字段，通常还带 progress、stage 或 qc_item
+     */
+    void onEvent(Map<String, Object> event);
+}
@@ -0,0 +1,362 @@
+package com.medical.qc.shared.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medical.qc.shared.JsonObjectMapReader;
+import com.medical.qc.shared.metrics.RuntimeMetricsSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * 按输入内容寻址的推理结果缓存。
+ *
+ * <p>缓存键由输入文件内容的 SHA-256、task_type、元数据和模型版本共同决定，
+ * 同一份影像重复提交时直接返回历史推理结果。内存层有容量上限，Redis 层可选，
+ * 两层共用同一个有效期。只缓存不含 error 字段的成功结果。</p>
+ *
+ * <p>交互请求的摘要计算与缓存查询使用单独的线程，批量重跑积压的摘要任务不会让医生同步等待的请求排在后面。</p>
+ */
+@Component
+public class InferenceResultCache implements RuntimeMetricsSource, DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(InferenceResultCache.class);
+    private static final String REDIS_KEY_PREFIX = "medical-qc:inference:";
+    private static final int HASH_BUFFER_SIZE = 1024 * 1024;
+    // 文件摘要按路径 + 大小 + 修改时间记忆，避免同一文件反复全量读取。
+    private static final int MAX_FILE_DIGESTS = 1024;
+
+    private final ObjectMapper objectMapper;
+    private final ModelServerProperties.CacheProperties cacheProperties;
+    private final StringRedisTemplate redisTemplate;
+    // 计算摘要和访问 Redis 都是阻塞 IO，放到独立线程池，异步推理接口不阻塞调用线程。
+    private final ExecutorService cacheExecutor = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "inference-cache");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // 交互请求专用的查询线程，不与普通和批量请求共用队列。
+    private final ExecutorService interactiveExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "inference-cache-interactive");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, CachedResult> memoryEntries;
+    private final Map<String, String> fileDigests;
+    // 缓存指标。
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong redisHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong stores = new AtomicLong();
+    private final AtomicLong bypasses = new AtomicLong();
+    private final AtomicLong redisErrors = new AtomicLong();
+    private final AtomicLong hashNanos = new AtomicLong();
+    private final AtomicLong hashCount = new AtomicLong();
+
+    public InferenceResultCache(ObjectMapper objectMapper,
+                                ModelServerProperties modelServerProperties,
+                                ObjectProvider<StringRedisTemplate> redisTemplateProvider) {
+        this.objectMapper = objectMapper;
+        this.cacheProperties = modelServerProperties.getCache();
+        this.redisTemplate = cacheProperties.isRedisEnabled() ? redisTemplateProvider.getIfAvailable() : null;
+        int maxEntries = Math.max(1, cacheProperties.getMaxEntries());
+        this.memoryEntries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.fileDigests = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > MAX_FILE_DIGESTS;
+            }
+        };
+    }
+
+    /**
+     * 按普通优先级查询缓存，见 {@link #getOrLoad(String, String, Map, InferencePriority, Supplier)}。
+     */
+    public CompletableFuture<Map<String, Object>> getOrLoad(String taskType,
+                                                            String inputPath,
+                                                            Map<String, Object> metadata,
+                                                            Supplier<CompletableFuture<Map<String, Object>>> loader) {
+        return getOrLoad(taskType, inputPath, metadata, InferencePriority.NORMAL, loader);
+    }
+
+    /**
+     * 优先返回缓存结果；未命中时调用 loader 推理，并在成功后写入缓存。
+     *
+     * @param taskType 任务类型
+     * @param inputPath 推理输入文件或目录
+     * @param metadata 参与推理的附加元数据，可为空
+     * @param priority 请求优先级，交互请求在专用线程上计算摘要
+     * @param loader 实际推理调用
+     * @return 推理结果 future；取消时会透传给正在进行的推理
+     */
+    public CompletableFuture<Map<String, Object>> getOrLoad(String taskType,
+                                                            String inputPath,
+                                                            Map<String, Object> metadata,
+                                                            InferencePriority priority,
+                                                            Supplier<CompletableFuture<Map<String, Object>>> loader) {
+        if (!cacheProperties.isEnabled()) {
+            return loader.get();
+        }
+
+        ExecutorService lookupExecutor = priority == InferencePriority.INTERACTIVE ? interactiveExecutor : cacheExecutor;
+        AtomicReference<CompletableFuture<Map<String, Object>>> loadFuture = new AtomicReference<>();
+        CompletableFuture<Map<String, Object>> resultFuture = CompletableFuture
+                .supplyAsync(() -> lookup(taskType, inputPath, metadata), lookupExecutor)
+                .thenCompose(lookup -> {
+                    if (lookup.cachedResult() != null) {
+                        return CompletableFuture.completedFuture(lookup.cachedResult());
+                    }
+                    CompletableFuture<Map<String, Object>> inferenceFuture = loader.get();
+                    loadFuture.set(inferenceFuture);
+                    if (lookup.cacheKey() == null) {
+                        return inferenceFuture;
+                    }
+                    // 在结果交给调用方之前完成序列化，调用方后续修改结果不会影响缓存内容。
+                    return inferenceFuture.thenApply(result -> {
+                        String json = serializeCacheable(result);
+                        if (json != null) {
+                            cacheExecutor.execute(() -> store(lookup.cacheKey(), json));
+                        }
+                        return result;
+                    });
+                });
+        resultFuture.whenComplete((result, error) -> {
+            CompletableFuture<Map<String, Object>> inferenceFuture = loadFuture.get();
+            if (resultFuture.isCancelled() && inferenceFuture != null) {
+                inferenceFuture.cancel(false);
+            }
+        });
+        return resultFuture;
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "inferenceCache";
+    }
+
+    @Override
+    public Map<String, Object> getMetricsSnapshot() {
+        int entryCount;
+        synchronized (memoryEntries) {
+            entryCount = memoryEntries.size();
+        }
+        long hits = memoryHits.get() + redisHits.get();
+        long lookups = hits + misses.get();
+        long hashed = hashCount.get();
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", cacheProperties.isEnabled());
+        metrics.put("redisEnabled", redisTemplate != null);
+        metrics.put("modelVersion", cacheProperties.getModelVersion());
+        metrics.put("entries", entryCount);
+        metrics.put("maxEntries", cacheProperties.getMaxEntries());
+        metrics.put("memoryHits", memoryHits.get());
+        metrics.put("redisHits", redisHits.get());
+        metrics.put("misses", misses.get());
+        metrics.put("hitRatio", lookups == 0 ? 0.0 : Math.round(hits * 10000.0 / lookups) / 10000.0);
+        metrics.put("stores", stores.get());
+        metrics.put("bypasses", bypasses.get());
+        metrics.put("redisErrors", redisErrors.get());
+        metrics.put("averageHashMs", hashed == 0 ? 0.0 : Math.round(hashNanos.get() / 10_000.0 / hashed) / 100.0);
+        return metrics;
+    }
+
+    @Override
+    public void destroy() {
+        interactiveExecutor.shutdown();
+        cacheExecutor.shutdown();
+    }
+
+    /**
+     * 计算缓存键并依次查询内存层和 Redis 层。
+     */
+    private CacheLookup lookup(String taskType, String inputPath, Map<String, Object> metadata) {
+        String cacheKey;
+        try {
+            cacheKey = buildCacheKey(taskType, inputPath, metadata);
+        } catch (Exception exception) {
+            // 输入不可读时不缓存，交给推理链路给出真实错误。
+            bypasses.incrementAndGet();
+            logger.debug("推理缓存键计算失败，跳过缓存: {}", inputPath, exception);
+            return new CacheLookup(null, null);
+        }
+
+        long now = System.currentTimeMillis();
+        synchronized (memoryEntries) {
+            CachedResult cachedResult = memoryEntries.get(cacheKey);
+            if (cachedResult != null && cachedResult.expiresAt() > now) {
+                memoryHits.incrementAndGet();
+                return new CacheLookup(cacheKey, readResult(cachedResult.json()));
+            }
+            if (cachedResult != null) {
+                memoryEntries.remove(cacheKey);
+            }
+        }
+
+        if (redisTemplate != null) {
+            try {
+                String json = redisTemplate.opsForValue().get(REDIS_KEY_PREFIX + cacheKey);
+                if (json != null) {
+                    redisHits.incrementAndGet();
+                    putMemory(cacheKey, json);
+                    return new CacheLookup(cacheKey, readResult(json));
+                }
+            } catch (Exception exception) {
+                redisErrors.incrementAndGet();
+                logger.debug("读取 Redis 推理缓存失败: {}", cacheKey, exception);
+            }
+        }
+
+        misses.incrementAndGet();
+        return new CacheLookup(cacheKey, null);
+    }
+
+    /**
+     * 只有成功结果才序列化入缓存，失败结果返回 null。
+     */
+    private String serializeCacheable(Map<String, Object> result) {
+        if (result == null || result.isEmpty() || result.containsKey("error")) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(result);
+        } catch (Exception exception) {
+            return null;
+        }
+    }
+
+    private void store(String cacheKey, String json) {
+        putMemory(cacheKey, json);
+        stores.incrementAndGet();
+        if (redisTemplate != null) {
+            try {
+                redisTemplate.opsForValue().set(
+                        REDIS_KEY_PREFIX + cacheKey,
+                        json,
+                        Duration.ofSeconds(Math.max(1L, cacheProperties.getTtlSeconds())));
+            } catch (Exception exception) {
+                redisErrors.incrementAndGet();
+                logger.debug("写入 Redis 推理缓存失败: {}", cacheKey, exception);
+            }
+        }
+    }
+
+    private void putMemory(String cacheKey, String json) {
+        long expiresAt = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(Math.max(1L, cacheProperties.getTtlSeconds()));
+        synchronized (memoryEntries) {
+            memoryEntries.put(cacheKey, new CachedResult(json, expiresAt));
+        }
+    }
+
+    /**
+     * 命中时每次都反序列化出新对象，避免调用方修改结果污染缓存。
+     */
+    private Map<String, Object> readResult(String json) {
+        return new HashMap<>(JsonObjectMapReader.read(objectMapper, json));
+    }
+
+    private String buildCacheKey(String taskType, String inputPath, Map<String, Object> metadata) throws Exception {
+        String contentDigest = digestInput(Path.of(inputPath));
+        // 元数据按键排序后序列化，保证相同内容得到相同的键。
+        String metadataJson = objectMapper.writeValueAsString(metadata == null ? Map.of() : new TreeMap<>(metadata));
+        MessageDigest keyDigest = newSha256();
+        keyDigest.update(String.join("|",
+                String.valueOf(cacheProperties.getModelVersion()),
+                String.valueOf(taskType),
+                contentDigest,
+                metadataJson).getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(keyDigest.digest());
+    }
+
+    /**
+     * 计算输入内容摘要；目录按相对路径排序后逐个文件累加。
+     */
+    private String digestInput(Path inputPath) throws IOException {
+        if (!Files.isDirectory(inputPath)) {
+            return digestFile(inputPath);
+        }
+        MessageDigest directoryDigest = newSha256();
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(inputPath)) {
+            files = stream.filter(Files::isRegularFile).sorted().toList();
+        }
+        for (Path file : files) {
+            directoryDigest.update(inputPath.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+            directoryDigest.update(digestFile(file).getBytes(StandardCharsets.UTF_8));
+        }
+        return HexFormat.of().formatHex(directoryDigest.digest());
+    }
+
+    private String digestFile(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        String memoKey = file.toAbsolutePath().normalize() + "|" + attributes.size() + "|"
+                + attributes.lastModifiedTime().toMillis();
+        synchronized (fileDigests) {
+            String memoized = fileDigests.get(memoKey);
+            if (memoized != null) {
+                return memoized;
+            }
+        }
+
+        long startedAt = System.nanoTime();
+        MessageDigest digest = newSha256();
+        byte[] buffer = new byte[HASH_BUFFER_SIZE];
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        String hex = HexFormat.of().formatHex(digest.digest());
+        hashNanos.addAndGet(System.nanoTime() - startedAt);
+        hashCount.incrementAndGet();
+        synchronized (fileDigests) {
+            fileDigests.put(memoKey, hex);
+        }
+        return hex;
+    }
+
+    private MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    private record CacheLookup(String cacheKey, Map<String, Object> cachedResult) {
+    }
+
+    private record CachedResult(String json, long expiresAt) {
+    }
+}
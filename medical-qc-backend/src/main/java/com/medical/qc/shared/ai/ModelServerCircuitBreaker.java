@@ -0,0 +1,185 @@
+package com.medical.qc.shared.ai;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 模型服务熔断器。
+ *
+ * <p>状态流转：</p>
+ * <ul>
+ *     <li>CLOSED：正常放行，按最近 N 次调用统计失败率，超过阈值转为 OPEN。</li>
+ *     <li>OPEN：直接拒绝请求，等待 openDuration 后转为 HALF_OPEN。</li>
+ *     <li>HALF_OPEN：只放行少量试探请求，全部成功则恢复 CLOSED，任一失败重新 OPEN。</li>
+ * </ul>
+ *
+ * <p>这里的失败只指“模型服务不可用”类错误（连不上、超时、连接中断），
+ * 模型服务正常返回的业务错误不计入失败率。</p>
+ */
+public class ModelServerCircuitBreaker {
+
+    /**
+     * 熔断器状态。
+     */
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final ModelServerProperties.BreakerProperties breakerProperties;
+    // 时间来源，测试中可替换为可控时钟。
+    private final LongSupplier clockMillis;
+    // 最近 N 次调用结果的环形缓冲区，true 表示失败。
+    private final boolean[] outcomes;
+    private int outcomeCount;
+    private int outcomeCursor;
+    private int failureCount;
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenInFlight;
+    private int halfOpenSuccesses;
+    // 熔断器指标。
+    private final AtomicLong rejectedCalls = new AtomicLong();
+    private final AtomicLong openTransitions = new AtomicLong();
+
+    public ModelServerCircuitBreaker(ModelServerProperties.BreakerProperties breakerProperties) {
+        this(breakerProperties, System::currentTimeMillis);
+    }
+
+    ModelServerCircuitBreaker(ModelServerProperties.BreakerProperties breakerProperties, LongSupplier clockMillis) {
+        this.breakerProperties = breakerProperties;
+        this.clockMillis = clockMillis;
+        this.outcomes = new boolean[Math.max(1, breakerProperties.getSlidingWindowSize())];
+    }
+
+    /**
+     * 申请一次调用许可；返回 false 时调用方应立即失败。
+     * 拿到许可后必须调用 {@link #onSuccess()}、{@link #onFailure()} 或 {@link #releasePermission()} 之一。
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (!breakerProperties.isEnabled()) {
+            return true;
+        }
+        if (state == State.OPEN) {
+            if (clockMillis.getAsLong() - openedAt < breakerProperties.getOpenDurationMs()) {
+                rejectedCalls.incrementAndGet();
+                return false;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenInFlight >= Math.max(1, breakerProperties.getHalfOpenMaxCalls())) {
+                rejectedCalls.incrementAndGet();
+                return false;
+            }
+            halfOpenInFlight += 1;
+        }
+        return true;
+    }
+
+    /**
+     * 调用成功。
+     */
+    public synchronized void onSuccess() {
+        if (!breakerProperties.isEnabled()) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            halfOpenInFlight = Math.max(0, halfOpenInFlight - 1);
+            halfOpenSuccesses += 1;
+            if (halfOpenSuccesses >= Math.max(1, breakerProperties.getHalfOpenMaxCalls())) {
+                transitionTo(State.CLOSED);
+            }
+            return;
+        }
+        recordOutcome(false);
+    }
+
+    /**
+     * 调用因模型服务不可用而失败。
+     */
+    public synchronized void onFailure() {
+        if (!breakerProperties.isEnabled()) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            // 试探失败说明服务仍未恢复，重新进入熔断。
+            transitionTo(State.OPEN);
+            return;
+        }
+        if (state == State.OPEN) {
+            return;
+        }
+        recordOutcome(true);
+        if (outcomeCount >= Math.max(1, breakerProperties.getMinimumCalls())
+                && failureCount * 100 >= breakerProperties.getFailureRateThreshold() * outcomeCount) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    /**
+     * 许可未被实际使用（例如被并发限制拒绝或调用方取消），归还而不计入结果。
+     */
+    public synchronized void releasePermission() {
+        if (state == State.HALF_OPEN) {
+            halfOpenInFlight = Math.max(0, halfOpenInFlight - 1);
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * 熔断器状态与统计。
+     */
+    public synchronized Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", breakerProperties.isEnabled());
+        metrics.put("state", state.name());
+        metrics.put("windowCalls", outcomeCount);
+        metrics.put("windowFailures", failureCount);
+        metrics.put("failureRate", outcomeCount == 0 ? 0.0 : Math.round(failureCount * 10000.0 / outcomeCount) / 100.0);
+        metrics.put("rejectedCalls", rejectedCalls.get());
+        metrics.put("openTransitions", openTransitions.get());
+        if (state == State.OPEN) {
+            metrics.put("retryAfterMs", Math.max(0L, breakerProperties.getOpenDurationMs() - (clockMillis.getAsLong() - openedAt)));
+        }
+        return metrics;
+    }
+
+    private void recordOutcome(boolean failed) {
+        if (outcomeCount == outcomes.length) {
+            // 窗口已满，先移出最旧的一次结果。
+            if (outcomes[outcomeCursor]) {
+                failureCount -= 1;
+            }
+        } else {
+            outcomeCount += 1;
+        }
+        outcomes[outcomeCursor] = failed;
+        if (failed) {
+            failureCount += 1;
+        }
+        outcomeCursor = (outcomeCursor + 1) % outcomes.length;
+    }
+
+    private void transitionTo(State nextState) {
+        state = nextState;
+        halfOpenInFlight = 0;
+        halfOpenSuccesses = 0;
+        if (nextState == State.OPEN) {
+            openedAt = clockMillis.getAsLong();
+            openTransitions.incrementAndGet();
+        }
+        if (nextState == State.CLOSED) {
+            // 恢复后重新开始统计，避免旧失败立即再次触发熔断。
+            outcomeCount = 0;
+            outcomeCursor = 0;
+            failureCount = 0;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.medical.qc.shared.ai;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 模型服务请求发送抽象。
+ *
+ * <p>单地址连接池与多实例负载均衡器都实现该接口，微批调度器和网关不关心背后有几个实例。</p>
+ */
+public interface ModelServerClient {
+
+    /**
+     * 提交一条请求。
+     *
+     * @param request 请求体，会自动补充 request_id
+     * @param timeoutMs 从提交开始计算的整体超时时间
+     * @return 响应 future；连接失败时以 {@link ModelServerUnavailableException} 结束，超时时以
+     *         {@link java.util.concurrent.TimeoutException} 结束
+     */
+    CompletableFuture<Map<String, Object>> submit(Map<String, Object> request, long timeoutMs);
+
+    /**
+     * 提交一条请求，并在最终响应之前接收模型服务回传的中间事件。
+     *
+     * @param progressListener 中间事件回调，为空时与 {@link #submit(Map, long)} 一致
+     */
+    default CompletableFuture<Map<String, Object>> submit(Map<String, Object> request,
+                                                          long timeoutMs,
+                                                          InferenceProgressListener progressListener) {
+        return submit(request, timeoutMs);
+    }
+}
@@ -0,0 +1,349 @@
+package com.medical.qc.shared.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medical.qc.shared.JsonObjectMapReader;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 连接池中的单条模型服务长连接。
+ *
+ * <p>同一条连接上允许多个请求排队，响应优先按 request_id 关联；
+ * 旧版模型服务不回传 request_id 时按发送顺序回填，与服务端逐条处理的语义一致。
+ * 二进制传输模式下，带文件的请求在上传线程上发送：先发文本头帧，再依次发送文件内容的二进制帧，
+ * 同一连接上的上传互斥进行，保证模型服务按顺序把二进制帧归属到对应请求。</p>
+ *
+ * <p>带 event 字段的消息是推理中间事件，只转给请求注册的进度回调，不结束请求。</p>
+ */
+class ModelServerConnection {
+    // 请求/响应信封中的关联字段名。
+    static final String REQUEST_ID_KEY = "request_id";
+    // 中间事件标记字段，最终结果不带该字段。
+    static final String EVENT_KEY = "event";
+
+    private final long connectionId;
+    private final ObjectMapper objectMapper;
+    private final WebSocketClient client;
+    // 连接就绪 future，建连失败或超时时以异常结束。
+    private final CompletableFuture<ModelServerConnection> openFuture = new CompletableFuture<>();
+    // 在途请求按发送顺序保存，兼顾 request_id 关联与 FIFO 回填。
+    private final LinkedHashMap<String, CompletableFuture<Map<String, Object>>> pendingRequests = new LinkedHashMap<>();
+    // 订阅了中间事件的在途请求。
+    private final Map<String, InferenceProgressListener> progressListeners = new ConcurrentHashMap<>();
+    private final AtomicInteger consecutiveTimeouts = new AtomicInteger();
+    // 连接关闭后回调连接池，由连接池负责驱逐和计数。
+    private final Consumer<ModelServerConnection> closeListener;
+    // 二进制上传线程池，仅 binary 传输模式下非空。
+    private final Executor uploadExecutor;
+    // 同一连接上的文件上传必须整体串行，避免二进制帧交错。
+    private final Object uploadLock = new Object();
+    private volatile boolean closed;
+    private volatile long lastActiveAt = System.currentTimeMillis();
+
+    ModelServerConnection(long connectionId,
+                          URI serverUri,
+                          int connectionLostTimeoutSeconds,
+                          ObjectMapper objectMapper,
+                          Consumer<ModelServerConnection> closeListener,
+                          Executor uploadExecutor) {
+        this.connectionId = connectionId;
+        this.objectMapper = objectMapper;
+        this.closeListener = closeListener;
+        this.uploadExecutor = uploadExecutor;
+        this.client = new WebSocketClient(serverUri) {
+            @Override
+            public void onOpen(ServerHandshake handshakedata) {
+                openFuture.complete(ModelServerConnection.this);
+            }
+
+            @Override
+            public void onMessage(String message) {
+                handleMessage(message);
+            }
+
+            @Override
+            public void onMessage(ByteBuffer bytes) {
+                // 二进制帧只会是模型服务编码后的大数组结果。
+                try {
+                    completeResponse(BinaryFrameTransport.decodeResult(objectMapper, bytes));
+                } catch (RuntimeException exception) {
+                    // 无法解码的帧无法关联请求，交由请求超时处理。
+                }
+            }
+
+            @Override
+            public void onClose(int code, String reason, boolean remote) {
+                handleClose("Connection closed: " + reason);
+            }
+
+            @Override
+            public void onError(Exception exception) {
+                // onError 之后 Java-WebSocket 会继续回调 onClose，这里只处理尚未建连成功的情况。
+                openFuture.completeExceptionally(exception);
+            }
+        };
+        // 由 ping/pong 探活识别半开连接，避免请求长时间挂在已失效的 socket 上。
+        this.client.setConnectionLostTimeout(Math.max(0, connectionLostTimeoutSeconds));
+    }
+
+    /**
+     * 发起非阻塞建连。
+     */
+    CompletableFuture<ModelServerConnection> open() {
+        try {
+            client.connect();
+        } catch (Exception exception) {
+            openFuture.completeExceptionally(exception);
+        }
+        return openFuture;
+    }
+
+    /**
+     * 在当前连接上发送一条已编码的请求。
+     */
+    void dispatch(String requestId, String requestJson, CompletableFuture<Map<String, Object>> responseFuture) {
+        dispatch(requestId, requestJson, responseFuture, List.of(), 0, null);
+    }
+
+    /**
+     * 在当前连接上发送一条请求，并在文本头帧之后按顺序发送文件内容的二进制帧。
+     */
+    void dispatch(String requestId,
+                  String requestJson,
+                  CompletableFuture<Map<String, Object>> responseFuture,
+                  List<BinaryFrameTransport.UploadFile> uploadFiles,
+                  int chunkSizeBytes,
+                  InferenceProgressListener progressListener) {
+        synchronized (pendingRequests) {
+            if (closed) {
+                responseFuture.completeExceptionally(new ModelServerUnavailableException("Connection closed before dispatch"));
+                return;
+            }
+            if (responseFuture.isDone()) {
+                return;
+            }
+            pendingRequests.put(requestId, responseFuture);
+            if (progressListener != null) {
+                progressListeners.put(requestId, progressListener);
+            }
+        }
+        lastActiveAt = System.currentTimeMillis();
+        if (uploadFiles.isEmpty() || uploadExecutor == null) {
+            try {
+                client.send(requestJson);
+            } catch (Exception exception) {
+                failDispatch(requestId, responseFuture, exception);
+            }
+            return;
+        }
+
+        try {
+            uploadExecutor.execute(() -> upload(requestId, requestJson, responseFuture, uploadFiles, chunkSizeBytes));
+        } catch (Exception exception) {
+            removePending(requestId);
+            responseFuture.completeExceptionally(new ModelServerUnavailableException(
+                    "Failed to schedule upload to Python Model Server", exception));
+        }
+    }
+
+    /**
+     * 在上传线程上发送头帧与文件内容；调用方在上传期间放弃时中止后续分块。
+     */
+    private void upload(String requestId,
+                        String requestJson,
+                        CompletableFuture<Map<String, Object>> responseFuture,
+                        List<BinaryFrameTransport.UploadFile> uploadFiles,
+                        int chunkSizeBytes) {
+        synchronized (uploadLock) {
+            try {
+                client.send(requestJson);
+                for (BinaryFrameTransport.UploadFile uploadFile : uploadFiles) {
+                    BinaryFrameTransport.forEachChunk(uploadFile, chunkSizeBytes, chunk -> {
+                        awaitSendBuffer();
+                        client.send(chunk);
+                        lastActiveAt = System.currentTimeMillis();
+                    });
+                }
+            } catch (Exception exception) {
+                // 上传中途失败时服务端的分块状态已不可信，只能断开连接重建。
+                failDispatch(requestId, responseFuture, exception);
+            }
+        }
+    }
+
+    /**
+     * 简单背压：上一块尚未写出前不继续切片，发送队列最多只保留一块数据。
+     */
+    private void awaitSendBuffer() {
+        while (client.isOpen() && client.getConnection().hasBufferedData()) {
+            try {
+                Thread.sleep(1L);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Upload interrupted", exception);
+            }
+        }
+        if (!client.isOpen()) {
+            throw new IllegalStateException("Connection closed during upload");
+        }
+    }
+
+    private void failDispatch(String requestId, CompletableFuture<Map<String, Object>> responseFuture, Exception exception) {
+        removePending(requestId);
+        responseFuture.completeExceptionally(new ModelServerUnavailableException(
+                "Failed to send request to Python Model Server", exception));
+        close();
+    }
+
+    /**
+     * 请求结束后的回收动作；超时请求会累计到连续超时计数中。
+     */
+    void release(String requestId, boolean timedOut, int maxConsecutiveTimeouts) {
+        removePending(requestId);
+        if (!timedOut) {
+            consecutiveTimeouts.set(0);
+            return;
+        }
+        // 连续超时说明服务端可能卡死在这条连接上，主动断开让连接池重建。
+        if (maxConsecutiveTimeouts > 0 && consecutiveTimeouts.incrementAndGet() >= maxConsecutiveTimeouts) {
+            close();
+        }
+    }
+
+    /**
+     * 通知模型服务放弃指定请求；尚未开始推理的请求会被直接移出队列。
+     */
+    void sendCancel(String requestId) {
+        if (!isOpen()) {
+            return;
+        }
+        try {
+            client.send(objectMapper.writeValueAsString(Map.of("cancel", true, REQUEST_ID_KEY, requestId)));
+        } catch (Exception ignore) {
+            // 取消只是尽力而为，发送失败不影响调用方已经拿到的结果。
+        }
+    }
+
+    void close() {
+        try {
+            client.close();
+        } catch (Exception ignore) {
+        }
+        handleClose("Connection evicted");
+    }
+
+    long getConnectionId() {
+        return connectionId;
+    }
+
+    boolean isOpen() {
+        return !closed && client.isOpen();
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    boolean isOpened() {
+        return openFuture.isDone() && !openFuture.isCompletedExceptionally();
+    }
+
+    CompletableFuture<ModelServerConnection> getOpenFuture() {
+        return openFuture;
+    }
+
+    int getPendingCount() {
+        synchronized (pendingRequests) {
+            return pendingRequests.size();
+        }
+    }
+
+    long getLastActiveAt() {
+        return lastActiveAt;
+    }
+
+    private void handleMessage(String message) {
+        completeResponse(new HashMap<>(JsonObjectMapReader.read(objectMapper, message)));
+    }
+
+    private void completeResponse(Map<String, Object> response) {
+        lastActiveAt = System.currentTimeMillis();
+        Object requestId = response.remove(REQUEST_ID_KEY);
+        if (response.containsKey(EVENT_KEY)) {
+            // 中间事件必须带 request_id，无法关联的直接丢弃，不影响 FIFO 回填。
+            InferenceProgressListener progressListener =
+                    requestId == null ? null : progressListeners.get(String.valueOf(requestId));
+            if (progressListener != null) {
+                try {
+                    progressListener.onEvent(response);
+                } catch (RuntimeException exception) {
+                    // 回调异常只影响进度展示，不能打断最终结果的接收。
+                }
+            }
+            return;
+        }
+
+        CompletableFuture<Map<String, Object>> responseFuture;
+        synchronized (pendingRequests) {
+            if (requestId != null) {
+                responseFuture = pendingRequests.remove(String.valueOf(requestId));
+            } else {
+                // 旧版模型服务不回传 request_id，按发送顺序回填最早的在途请求。
+                Iterator<Map.Entry<String, CompletableFuture<Map<String, Object>>>> iterator =
+                        pendingRequests.entrySet().iterator();
+                responseFuture = null;
+                if (iterator.hasNext()) {
+                    responseFuture = iterator.next().getValue();
+                    iterator.remove();
+                }
+            }
+        }
+        if (requestId != null) {
+            progressListeners.remove(String.valueOf(requestId));
+        }
+        if (responseFuture != null) {
+            responseFuture.complete(response);
+        }
+    }
+
+    private void handleClose(String reason) {
+        List<CompletableFuture<Map<String, Object>>> orphanedRequests;
+        synchronized (pendingRequests) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            orphanedRequests = new ArrayList<>(pendingRequests.values());
+            pendingRequests.clear();
+            progressListeners.clear();
+        }
+        // 先通知连接池驱逐，保证调用方收到失败后立即重试时不会再选中这条连接。
+        closeListener.accept(this);
+        openFuture.completeExceptionally(new ModelServerUnavailableException(reason));
+        // 连接断开时在途请求无法再收到响应，按模型服务不可用结束，由熔断器和负载均衡器计入失败。
+        for (CompletableFuture<Map<String, Object>> orphanedRequest : orphanedRequests) {
+            orphanedRequest.completeExceptionally(new ModelServerUnavailableException(reason));
+        }
+    }
+
+    private void removePending(String requestId) {
+        synchronized (pendingRequests) {
+            pendingRequests.remove(requestId);
+            progressListeners.remove(requestId);
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.medical.qc.shared.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 模型服务 WebSocket 长连接池。
+ *
+ * <p>职责：</p>
+ * <ul>
+ *     <li>按需建立并复用固定上限的长连接，避免每次推理都重新握手。</li>
+ *     <li>为每个请求生成 request_id，并把响应关联回调用方。</li>
+ *     <li>连接断开、探活失败或连续超时时驱逐连接，后续请求自动重连。</li>
+ *     <li>binary 传输模式下把请求引用的本地文件随请求以二进制帧发送，模型服务无需共享文件系统。</li>
+ *     <li>调用方订阅中间事件时，请求带上 stream_progress 标记，模型服务才会回传进度与部分结果。</li>
+ * </ul>
+ */
+public class ModelServerConnectionPool implements ModelServerClient, AutoCloseable {
+    // 请求模型服务回传中间事件的标记字段，与 inference_server.py 保持一致。
+    static final String STREAM_PROGRESS_KEY = "stream_progress";
+
+    private final URI serverUri;
+    private final int port;
+    private final ModelServerProperties.PoolProperties poolProperties;
+    private final ModelServerProperties.TransportProperties transportProperties;
+    // 文件上传线程，仅 binary 传输模式下创建。
+    private final ExecutorService uploadExecutor;
+    private final ObjectMapper objectMapper;
+    // 当前存活或建连中的连接，读写都在 this 锁内完成。
+    private final List<ModelServerConnection> connections = new ArrayList<>();
+    private final AtomicLong connectionSequence = new AtomicLong();
+    // 连接池指标。
+    private final AtomicLong totalRequests = new AtomicLong();
+    private final AtomicLong failedRequests = new AtomicLong();
+    private final AtomicLong timedOutRequests = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    // 已驱逐但尚未被新连接替补的数量，用于区分“首次建连”和“重连”。
+    private long pendingReplacements;
+    private volatile boolean shutdown;
+
+    public ModelServerConnectionPool(URI serverUri,
+                                     ModelServerProperties.PoolProperties poolProperties,
+                                     ObjectMapper objectMapper) {
+        this(serverUri, poolProperties, new ModelServerProperties.TransportProperties(), objectMapper);
+    }
+
+    public ModelServerConnectionPool(URI serverUri,
+                                     ModelServerProperties.PoolProperties poolProperties,
+                                     ModelServerProperties.TransportProperties transportProperties,
+                                     ObjectMapper objectMapper) {
+        this.serverUri = serverUri;
+        this.poolProperties = poolProperties;
+        this.transportProperties = transportProperties;
+        this.uploadExecutor = transportProperties.isBinary()
+                ? Executors.newCachedThreadPool(runnable -> {
+                    Thread thread = new Thread(runnable, "model-upload");
+                    thread.setDaemon(true);
+                    return thread;
+                })
+                : null;
+        this.objectMapper = objectMapper;
+        int resolvedPort = serverUri.getPort();
+        if (resolvedPort <= 0) {
+            resolvedPort = "wss".equalsIgnoreCase(serverUri.getScheme()) ? 443 : 80;
+        }
+        this.port = resolvedPort;
+    }
+
+    /**
+     * 提交一条推理请求。
+     *
+     * @param request 请求体，会自动补充 request_id
+     * @param timeoutMs 从提交开始计算的整体超时时间
+     * @return 响应 future；连接失败时以 {@link ModelServerUnavailableException} 结束，超时时以 {@link TimeoutException} 结束。
+     *         超时或被调用方取消时会向模型服务发送 cancel 消息
+     */
+    @Override
+    public CompletableFuture<Map<String, Object>> submit(Map<String, Object> request, long timeoutMs) {
+        return submit(request, timeoutMs, null);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> submit(Map<String, Object> request,
+                                                         long timeoutMs,
+                                                         InferenceProgressListener progressListener) {
+        totalRequests.incrementAndGet();
+        String requestId = UUID.randomUUID().toString();
+        Map<String, Object> envelope = new HashMap<>(request == null ? Map.of() : request);
+        envelope.put(ModelServerConnection.REQUEST_ID_KEY, requestId);
+        if (progressListener != null) {
+            envelope.put(STREAM_PROGRESS_KEY, true);
+        }
+
+        List<BinaryFrameTransport.UploadFile> uploadFiles;
+        String requestJson;
+        try {
+            uploadFiles = transportProperties.isBinary() && !envelope.containsKey("health_check")
+                    ? BinaryFrameTransport.prepareUpload(envelope)
+                    : List.of();
+            requestJson = objectMapper.writeValueAsString(envelope);
+        } catch (Exception exception) {
+            failedRequests.incrementAndGet();
+            return CompletableFuture.failedFuture(exception);
+        }
+
+        CompletableFuture<Map<String, Object>> responseFuture = new CompletableFuture<>();
+        responseFuture.orTimeout(timeoutMs, TimeUnit.MILLISECONDS);
+        acquire().whenComplete((connection, error) -> {
+            if (error != null) {
+                responseFuture.completeExceptionally(new ModelServerUnavailableException(
+                        "Failed to connect to Python Model Server (Port " + port + ")", unwrap(error)));
+                return;
+            }
+            if (responseFuture.isDone()) {
+                // 建连期间调用方已取消或已超时，无需再发送请求。
+                return;
+            }
+            // 不论成功、失败还是超时，都要把请求从连接的在途表里移除。
+            responseFuture.whenComplete((response, requestError) -> {
+                Throwable cause = unwrap(requestError);
+                boolean timedOut = cause instanceof TimeoutException;
+                if (timedOut || cause instanceof CancellationException) {
+                    // 调用方已放弃的请求同步通知模型服务，避免继续占用 GPU。
+                    connection.sendCancel(requestId);
+                }
+                connection.release(requestId, timedOut, poolProperties.getMaxConsecutiveTimeouts());
+            });
+            connection.dispatch(requestId,
+                    requestJson,
+                    responseFuture,
+                    uploadFiles,
+                    transportProperties.getChunkSizeBytes(),
+                    progressListener);
+        });
+        responseFuture.whenComplete((response, error) -> {
+            if (error == null) {
+                return;
+            }
+            failedRequests.incrementAndGet();
+            if (unwrap(error) instanceof TimeoutException) {
+                timedOutRequests.incrementAndGet();
+            }
+        });
+        return responseFuture;
+    }
+
+    /**
+     * 连接池运行指标。
+     */
+    public Map<String, Object> getMetrics() {
+        int openCount = 0;
+        int idleCount = 0;
+        int connectingCount = 0;
+        int inFlight = 0;
+        synchronized (this) {
+            for (ModelServerConnection connection : connections) {
+                int pendingCount = connection.getPendingCount();
+                inFlight += pendingCount;
+                if (connection.isOpen()) {
+                    openCount += 1;
+                    if (pendingCount == 0) {
+                        idleCount += 1;
+                    }
+                } else if (!connection.isOpened()) {
+                    connectingCount += 1;
+                }
+            }
+        }
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("endpoint", serverUri.toString());
+        metrics.put("transport", transportProperties.isBinary() ? "binary" : "path");
+        metrics.put("maxSize", Math.max(1, poolProperties.getSize()));
+        metrics.put("open", openCount);
+        metrics.put("idle", idleCount);
+        metrics.put("connecting", connectingCount);
+        metrics.put("inFlight", inFlight);
+        metrics.put("reconnects", reconnects.get());
+        metrics.put("evictions", evictions.get());
+        metrics.put("totalRequests", totalRequests.get());
+        metrics.put("failedRequests", failedRequests.get());
+        metrics.put("timedOutRequests", timedOutRequests.get());
+        return metrics;
+    }
+
+    /**
+     * 当前在途请求总数。
+     */
+    public int getInFlightCount() {
+        synchronized (this) {
+            return connections.stream().mapToInt(ModelServerConnection::getPendingCount).sum();
+        }
+    }
+
+    public URI getServerUri() {
+        return serverUri;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    @Override
+    public void close() {
+        List<ModelServerConnection> snapshot;
+        synchronized (this) {
+            shutdown = true;
+            snapshot = new ArrayList<>(connections);
+            connections.clear();
+        }
+        for (ModelServerConnection connection : snapshot) {
+            connection.close();
+        }
+        if (uploadExecutor != null) {
+            uploadExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 选出在途请求最少的连接；所有连接都忙且未达上限时新建连接。
+     */
+    private synchronized CompletableFuture<ModelServerConnection> acquire() {
+        if (shutdown) {
+            return CompletableFuture.failedFuture(new ModelServerUnavailableException("Model server connection pool is closed"));
+        }
+
+        connections.removeIf(ModelServerConnection::isClosed);
+        ModelServerConnection leastBusy = connections.stream()
+                .min(Comparator.comparingInt(ModelServerConnection::getPendingCount))
+                .orElse(null);
+        int maxSize = Math.max(1, poolProperties.getSize());
+        if (leastBusy != null && (leastBusy.getPendingCount() == 0 || connections.size() >= maxSize)) {
+            return leastBusy.getOpenFuture();
+        }
+
+        ModelServerConnection connection = new ModelServerConnection(
+                connectionSequence.incrementAndGet(),
+                serverUri,
+                poolProperties.getConnectionLostTimeoutSeconds(),
+                objectMapper,
+                this::evict,
+                uploadExecutor);
+        connections.add(connection);
+        if (pendingReplacements > 0) {
+            pendingReplacements -= 1;
+            reconnects.incrementAndGet();
+        }
+
+        CompletableFuture<ModelServerConnection> openFuture = connection.open();
+        openFuture.orTimeout(Math.max(1L, poolProperties.getConnectTimeoutMs()), TimeUnit.MILLISECONDS)
+                .whenComplete((opened, error) -> {
+                    if (error != null) {
+                        // 建连超时或握手失败的连接直接丢弃，不占用池容量。
+                        connection.close();
+                    }
+                });
+        return openFuture;
+    }
+
+    /**
+     * 连接关闭回调：从池中移除，并为后续重连计数。
+     */
+    private void evict(ModelServerConnection connection) {
+        synchronized (this) {
+            boolean removed = connections.remove(connection);
+            if (!removed || shutdown) {
+                return;
+            }
+            if (connection.isOpened()) {
+                // 只有曾经可用的连接被驱逐才计入重连，建连失败不算。
+                evictions.incrementAndGet();
+                pendingReplacements += 1;
+            }
+        }
+    }
+
+    private Throwable unwrap(Throwable error) {
+        Throwable current = error;
+        while (current instanceof CompletionException && current.getCause() != null) {
+            current = current.getCause();
+        }
+        return current;
+    }
+}
@@ -0,0 +1,297 @@
+package com.medical.qc.shared.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 多实例模型服务负载均衡器。
+ *
+ * <p>每个模型服务地址各自持有一个 {@link ModelServerConnectionPool}，请求按“在途请求数 / 权重”最小的实例路由。
+ * 权重来自周期性 health_check 的响应延迟，响应越慢权重越低；
+ * 健康检查或请求连续连接失败（连不上或推理中途断线，均以 {@link ModelServerUnavailableException} 结束）的实例被移出路由，
+ * 健康检查恢复后重新加入。
+ * 只有一个实例时不做周期检查，行为与直接使用连接池一致。</p>
+ *
+ * <p>逻辑地址可以通过 {@link #reroute(URI, URI)} 原子切换到热备实例：新请求立即改发到新连接池，
+ * 旧连接池随后关闭，其上仍在等待的请求以 {@link ModelServerUnavailableException} 结束。</p>
+ */
+public class ModelServerLoadBalancer implements ModelServerClient, AutoCloseable {
+    // 健康检查延迟的指数平滑系数。
+    private static final double LATENCY_SMOOTHING = 0.3;
+    // 权重下限，避免慢实例被完全饿死。
+    private static final double MIN_WEIGHT = 0.1;
+
+    private final List<Endpoint> endpoints;
+    private final ModelServerProperties modelServerProperties;
+    private final ObjectMapper objectMapper;
+    private final ModelServerProperties.BalancerProperties balancerProperties;
+    // 健康检查线程，只负责发出 health_check，不执行推理。
+    private final ScheduledExecutorService healthScheduler;
+    // 得分相同时轮转起点，避免总是命中第一个实例。
+    private final AtomicInteger roundRobinCursor = new AtomicInteger();
+
+    public ModelServerLoadBalancer(List<URI> endpointUris,
+                                   ModelServerProperties modelServerProperties,
+                                   ObjectMapper objectMapper) {
+        if (endpointUris == null || endpointUris.isEmpty()) {
+            throw new IllegalArgumentException("At least one model server endpoint is required");
+        }
+        this.modelServerProperties = modelServerProperties;
+        this.objectMapper = objectMapper;
+        this.balancerProperties = modelServerProperties.getBalancer();
+        List<Endpoint> createdEndpoints = new ArrayList<>();
+        for (URI endpointUri : endpointUris) {
+            createdEndpoints.add(new Endpoint(endpointUri, createPool(endpointUri)));
+        }
+        this.endpoints = List.copyOf(createdEndpoints);
+
+        if (endpoints.size() > 1) {
+            healthScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "model-server-health");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalMs = Math.max(100L, balancerProperties.getHealthCheckIntervalMs());
+            healthScheduler.scheduleWithFixedDelay(this::checkHealth, 0L, intervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            healthScheduler = null;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> submit(Map<String, Object> request, long timeoutMs) {
+        return submit(request, timeoutMs, null);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> submit(Map<String, Object> request,
+                                                         long timeoutMs,
+                                                         InferenceProgressListener progressListener) {
+        Endpoint endpoint = selectEndpoint();
+        endpoint.outstanding.incrementAndGet();
+        endpoint.routedRequests.incrementAndGet();
+        ModelServerConnectionPool pool = endpoint.pool;
+        CompletableFuture<Map<String, Object>> responseFuture = pool.submit(request, timeoutMs, progressListener);
+        responseFuture.whenComplete((response, error) -> {
+            endpoint.outstanding.decrementAndGet();
+            if (error == null) {
+                endpoint.recordSuccess();
+            } else if (unwrap(error) instanceof ModelServerUnavailableException && pool == endpoint.pool) {
+                // 切换前发往旧实例的失败请求不再计入新实例。
+                // 连接层失败说明实例可能已宕机，被动计入失败次数。
+                endpoint.recordFailure(balancerProperties.getUnhealthyThreshold());
+            }
+        });
+        return responseFuture;
+    }
+
+    /**
+     * 把逻辑地址的流量切换到目标实例。
+     *
+     * <p>先替换连接池再关闭旧池，切换期间的新请求不会落到已失效的实例；未知的逻辑地址直接忽略。</p>
+     */
+    public void reroute(URI logicalUri, URI targetUri) {
+        for (Endpoint endpoint : endpoints) {
+            if (!endpoint.logicalUri.equals(logicalUri)) {
+                continue;
+            }
+            ModelServerConnectionPool previousPool;
+            synchronized (endpoint) {
+                if (endpoint.pool.getServerUri().equals(targetUri)) {
+                    return;
+                }
+                previousPool = endpoint.pool;
+                endpoint.pool = createPool(targetUri);
+                endpoint.resetHealth();
+                endpoint.reroutes.incrementAndGet();
+            }
+            previousPool.close();
+            return;
+        }
+    }
+
+    /**
+     * 负载均衡与各实例连接池指标。
+     */
+    public Map<String, Object> getMetrics() {
+        List<Map<String, Object>> endpointMetrics = new ArrayList<>();
+        double fastestLatency = fastestHealthLatencyMs();
+        for (Endpoint endpoint : endpoints) {
+            Map<String, Object> metrics = new LinkedHashMap<>(endpoint.pool.getMetrics());
+            metrics.put("logicalEndpoint", endpoint.logicalUri.toString());
+            metrics.put("reroutes", endpoint.reroutes.get());
+            metrics.put("healthy", endpoint.healthy);
+            metrics.put("weight", Math.round(endpoint.weight(fastestLatency) * 100.0) / 100.0);
+            metrics.put("outstanding", endpoint.outstanding.get());
+            metrics.put("routedRequests", endpoint.routedRequests.get());
+            metrics.put("consecutiveFailures", endpoint.consecutiveFailures.get());
+            metrics.put("healthLatencyMs", Math.round(endpoint.healthLatencyMs * 100.0) / 100.0);
+            metrics.put("ejections", endpoint.ejections.get());
+            endpointMetrics.add(metrics);
+        }
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("strategy", "least-outstanding");
+        metrics.put("healthyEndpoints", endpoints.stream().filter(endpoint -> endpoint.healthy).count());
+        metrics.put("endpoints", endpointMetrics);
+        return metrics;
+    }
+
+    @Override
+    public void close() {
+        if (healthScheduler != null) {
+            healthScheduler.shutdownNow();
+        }
+        endpoints.forEach(endpoint -> endpoint.pool.close());
+    }
+
+    /**
+     * 在健康实例中选出“在途请求数 / 权重”最小者；全部被摘除时退回全量实例，交由熔断器快速失败。
+     */
+    private Endpoint selectEndpoint() {
+        if (endpoints.size() == 1) {
+            return endpoints.get(0);
+        }
+
+        List<Endpoint> candidates = endpoints.stream().filter(endpoint -> endpoint.healthy).toList();
+        if (candidates.isEmpty()) {
+            candidates = endpoints;
+        }
+        double fastestLatency = fastestHealthLatencyMs();
+        int offset = Math.floorMod(roundRobinCursor.getAndIncrement(), candidates.size());
+        Endpoint selected = null;
+        double selectedScore = Double.MAX_VALUE;
+        for (int index = 0; index < candidates.size(); index++) {
+            Endpoint endpoint = candidates.get((offset + index) % candidates.size());
+            double score = (endpoint.outstanding.get() + 1) / endpoint.weight(fastestLatency);
+            if (score < selectedScore) {
+                selected = endpoint;
+                selectedScore = score;
+            }
+        }
+        return selected;
+    }
+
+    private ModelServerConnectionPool createPool(URI endpointUri) {
+        return new ModelServerConnectionPool(
+                endpointUri, modelServerProperties.getPool(), modelServerProperties.getTransport(), objectMapper);
+    }
+
+    private double fastestHealthLatencyMs() {
+        return endpoints.stream()
+                .filter(endpoint -> endpoint.healthy && endpoint.healthLatencyMs > 0)
+                .mapToDouble(endpoint -> endpoint.healthLatencyMs)
+                .min()
+                .orElse(0.0);
+    }
+
+    /**
+     * 向所有实例发送 health_check，更新健康状态与延迟权重。
+     */
+    private void checkHealth() {
+        for (Endpoint endpoint : endpoints) {
+            long startedAt = System.nanoTime();
+            ModelServerConnectionPool pool = endpoint.pool;
+            pool.submit(Map.of("health_check", true), Math.max(1L, balancerProperties.getHealthCheckTimeoutMs()))
+                    .whenComplete((response, error) -> {
+                        if (pool != endpoint.pool) {
+                            // 检查期间实例已被切换，结果不再代表当前实例。
+                            return;
+                        }
+                        if (error == null && isReady(response)) {
+                            endpoint.recordHealthLatency((System.nanoTime() - startedAt) / 1_000_000.0);
+                            endpoint.recordSuccess();
+                        } else {
+                            endpoint.recordFailure(balancerProperties.getUnhealthyThreshold());
+                        }
+                    });
+        }
+    }
+
+    /**
+     * 与 PythonModelRunner 的启动探活保持同一判定：status=ok 且模型已加载。
+     */
+    private boolean isReady(Map<String, Object> response) {
+        return response != null
+                && "ok".equals(String.valueOf(response.get("status")))
+                && Boolean.TRUE.equals(response.get("model_loaded"));
+    }
+
+    private Throwable unwrap(Throwable error) {
+        Throwable current = error;
+        while (current instanceof CompletionException && current.getCause() != null) {
+            current = current.getCause();
+        }
+        return current;
+    }
+
+    /**
+     * 单个模型服务实例的路由状态。
+     */
+    private static final class Endpoint {
+        // 配置中的逻辑地址；实际连接池可能已切换到热备实例。
+        private final URI logicalUri;
+        private volatile ModelServerConnectionPool pool;
+        private final AtomicLong reroutes = new AtomicLong();
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private final AtomicLong routedRequests = new AtomicLong();
+        private final AtomicLong ejections = new AtomicLong();
+        private volatile boolean healthy = true;
+        private volatile double healthLatencyMs;
+
+        private Endpoint(URI logicalUri, ModelServerConnectionPool pool) {
+            this.logicalUri = logicalUri;
+            this.pool = pool;
+        }
+
+        /**
+         * 切换实例后重新积累健康状态与延迟样本。
+         */
+        private synchronized void resetHealth() {
+            consecutiveFailures.set(0);
+            healthLatencyMs = 0;
+            healthy = true;
+        }
+
+        private void recordSuccess() {
+            consecutiveFailures.set(0);
+            healthy = true;
+        }
+
+        private void recordFailure(int unhealthyThreshold) {
+            if (consecutiveFailures.incrementAndGet() >= Math.max(1, unhealthyThreshold) && healthy) {
+                healthy = false;
+                ejections.incrementAndGet();
+            }
+        }
+
+        private synchronized void recordHealthLatency(double latencyMs) {
+            healthLatencyMs = healthLatencyMs <= 0
+                    ? latencyMs
+                    : healthLatencyMs * (1 - LATENCY_SMOOTHING) + latencyMs * LATENCY_SMOOTHING;
+        }
+
+        /**
+         * 以最快健康实例的延迟为基准，延迟越高权重越低。
+         */
+        private double weight(double fastestLatencyMs) {
+            if (fastestLatencyMs <= 0 || healthLatencyMs <= 0) {
+                return 1.0;
+            }
+            return Math.max(MIN_WEIGHT, Math.min(1.0, fastestLatencyMs / healthLatencyMs));
+        }
+    }
+}
@@ -0,0 +1,632 @@
+package com.medical.qc.shared.ai;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Python 模型服务连接配置。
+ *
+ * <p>沿用 {@code python.model_server.*} 配置前缀，url 与历史配置保持兼容。
+ * 多实例部署时可以直接配置 urls 列表，或配置 workers 让 url 端口起连续展开为多个本机实例。</p>
+ */
+@Component
+@ConfigurationProperties(prefix = "python.model-server")
+public class ModelServerProperties {
+    // 模型服务 WebSocket 地址。
+    private String url = "ws://localhost:8765";
+    // 多个模型服务地址；非空时优先于 url。
+    private List<String> urls = new ArrayList<>();
+    // 按 url 端口连续展开的本机实例数量，仅在 urls 为空时生效。
+    private int workers = 1;
+    // 长连接池配置。
+    private final PoolProperties pool = new PoolProperties();
+    // 体数据推理微批配置。
+    private final BatchProperties batch = new BatchProperties();
+    // 推理结果缓存配置。
+    private final CacheProperties cache = new CacheProperties();
+    // 熔断器配置。
+    private final BreakerProperties breaker = new BreakerProperties();
+    // 自适应并发限制配置。
+    private final LimiterProperties limiter = new LimiterProperties();
+    // 并发限制排队阶段的优先级调度配置。
+    private final SchedulerProperties scheduler = new SchedulerProperties();
+    // 多实例负载均衡与健康检查配置。
+    private final BalancerProperties balancer = new BalancerProperties();
+    // 本机模型服务进程的热备与自动重启配置。
+    private final SupervisorProperties supervisor = new SupervisorProperties();
+    // 请求输入与结果的传输方式配置。
+    private final TransportProperties transport = new TransportProperties();
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public List<String> getUrls() {
+        return urls;
+    }
+
+    public void setUrls(List<String> urls) {
+        this.urls = urls;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public PoolProperties getPool() {
+        return pool;
+    }
+
+    public BatchProperties getBatch() {
+        return batch;
+    }
+
+    public CacheProperties getCache() {
+        return cache;
+    }
+
+    public BreakerProperties getBreaker() {
+        return breaker;
+    }
+
+    public LimiterProperties getLimiter() {
+        return limiter;
+    }
+
+    public SchedulerProperties getScheduler() {
+        return scheduler;
+    }
+
+    public BalancerProperties getBalancer() {
+        return balancer;
+    }
+
+    public SupervisorProperties getSupervisor() {
+        return supervisor;
+    }
+
+    public TransportProperties getTransport() {
+        return transport;
+    }
+
+    /**
+     * 解析最终生效的模型服务地址列表。
+     *
+     * <p>urls 非空时按原样返回；否则以 url 为第一个实例，端口依次加一展开 workers 个实例。</p>
+     *
+     * @return 至少包含一个地址的列表
+     * @throws IllegalArgumentException url 非法且需要展开端口时抛出
+     */
+    public List<String> resolveEndpointUrls() {
+        List<String> configuredUrls = urls == null ? List.of() : urls.stream()
+                .filter(item -> item != null && !item.isBlank())
+                .map(String::trim)
+                .toList();
+        if (!configuredUrls.isEmpty()) {
+            return configuredUrls;
+        }
+        if (workers <= 1) {
+            return List.of(url);
+        }
+
+        URI baseUri = URI.create(url);
+        if (baseUri.getHost() == null || baseUri.getPort() <= 0) {
+            throw new IllegalArgumentException("python.model_server.workers 需要 url 显式指定主机与端口: " + url);
+        }
+        List<String> endpointUrls = new ArrayList<>();
+        for (int index = 0; index < workers; index++) {
+            endpointUrls.add(baseUri.getScheme() + "://" + baseUri.getHost() + ":" + (baseUri.getPort() + index)
+                    + (baseUri.getRawPath() == null ? "" : baseUri.getRawPath()));
+        }
+        return endpointUrls;
+    }
+
+    /**
+     * 长连接池配置。
+     */
+    public static class PoolProperties {
+        // 每个模型服务地址最多保持的长连接数量。
+        private int size = 4;
+        // 建连超时时间。
+        private long connectTimeoutMs = 5000L;
+        // WebSocket ping/pong 探活周期，超过该时间无响应即判定连接失效。
+        private int connectionLostTimeoutSeconds = 30;
+        // 单条连接连续超时达到该次数后主动驱逐并重建。
+        private int maxConsecutiveTimeouts = 2;
+
+        // 以下访问器供配置绑定和连接池读取。
+        public int getSize() {
+            return size;
+        }
+
+        public void setSize(int size) {
+            this.size = size;
+        }
+
+        public long getConnectTimeoutMs() {
+            return connectTimeoutMs;
+        }
+
+        public void setConnectTimeoutMs(long connectTimeoutMs) {
+            this.connectTimeoutMs = connectTimeoutMs;
+        }
+
+        public int getConnectionLostTimeoutSeconds() {
+            return connectionLostTimeoutSeconds;
+        }
+
+        public void setConnectionLostTimeoutSeconds(int connectionLostTimeoutSeconds) {
+            this.connectionLostTimeoutSeconds = connectionLostTimeoutSeconds;
+        }
+
+        public int getMaxConsecutiveTimeouts() {
+            return maxConsecutiveTimeouts;
+        }
+
+        public void setMaxConsecutiveTimeouts(int maxConsecutiveTimeouts) {
+            this.maxConsecutiveTimeouts = maxConsecutiveTimeouts;
+        }
+    }
+
+    /**
+     * 体数据推理微批配置。
+     */
+    public static class BatchProperties {
+        // 是否按 task_type 合并请求；关闭后逐条发送。
+        private boolean enabled = true;
+        // 首个请求入队后最多等待多久凑批。
+        private long windowMs = 20L;
+        // 单批最多合并的请求数，达到上限立即发送。
+        private int maxSize = 4;
+
+        // 以下访问器供配置绑定和批量调度器读取。
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getWindowMs() {
+            return windowMs;
+        }
+
+        public void setWindowMs(long windowMs) {
+            this.windowMs = windowMs;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+    }
+
+    /**
+     * 推理结果缓存配置。
+     */
+    public static class CacheProperties {
+        // 是否按输入内容缓存推理结果。
+        private boolean enabled = true;
+        // 模型版本号，模型权重更新后需要调整以让旧缓存失效。
+        private String modelVersion = "1";
+        // 内存层最多保留的结果条数。
+        private int maxEntries = 256;
+        // 结果有效期，内存层与 Redis 层共用。
+        private long ttlSeconds = 86_400L;
+        // 是否启用 Redis 共享层，便于多实例之间复用结果。
+        private boolean redisEnabled = false;
+
+        // 以下访问器供配置绑定和缓存组件读取。
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getModelVersion() {
+            return modelVersion;
+        }
+
+        public void setModelVersion(String modelVersion) {
+            this.modelVersion = modelVersion;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public long getTtlSeconds() {
+            return ttlSeconds;
+        }
+
+        public void setTtlSeconds(long ttlSeconds) {
+            this.ttlSeconds = ttlSeconds;
+        }
+
+        public boolean isRedisEnabled() {
+            return redisEnabled;
+        }
+
+        public void setRedisEnabled(boolean redisEnabled) {
+            this.redisEnabled = redisEnabled;
+        }
+    }
+
+    /**
+     * 熔断器配置。
+     */
+    public static class BreakerProperties {
+        // 是否启用熔断。
+        private boolean enabled = true;
+        // 统计失败率的滑动窗口大小（最近 N 次调用）。
+        private int slidingWindowSize = 20;
+        // 窗口内至少有这么多次调用才计算失败率。
+        private int minimumCalls = 5;
+        // 失败率达到该百分比即打开熔断器。
+        private int failureRateThreshold = 50;
+        // 熔断打开后多久进入半开状态试探。
+        private long openDurationMs = 15_000L;
+        // 半开状态允许同时放行的试探请求数。
+        private int halfOpenMaxCalls = 2;
+
+        // 以下访问器供配置绑定和熔断器读取。
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getSlidingWindowSize() {
+            return slidingWindowSize;
+        }
+
+        public void setSlidingWindowSize(int slidingWindowSize) {
+            this.slidingWindowSize = slidingWindowSize;
+        }
+
+        public int getMinimumCalls() {
+            return minimumCalls;
+        }
+
+        public void setMinimumCalls(int minimumCalls) {
+            this.minimumCalls = minimumCalls;
+        }
+
+        public int getFailureRateThreshold() {
+            return failureRateThreshold;
+        }
+
+        public void setFailureRateThreshold(int failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+        }
+
+        public long getOpenDurationMs() {
+            return openDurationMs;
+        }
+
+        public void setOpenDurationMs(long openDurationMs) {
+            this.openDurationMs = openDurationMs;
+        }
+
+        public int getHalfOpenMaxCalls() {
+            return halfOpenMaxCalls;
+        }
+
+        public void setHalfOpenMaxCalls(int halfOpenMaxCalls) {
+            this.halfOpenMaxCalls = halfOpenMaxCalls;
+        }
+    }
+
+    /**
+     * 自适应并发限制配置。
+     */
+    public static class LimiterProperties {
+        // 是否启用并发限制。
+        private boolean enabled = true;
+        // 初始、最小与最大并发上限。
+        private int initialLimit = 8;
+        private int minLimit = 1;
+        private int maxLimit = 64;
+        // 超过上限后允许排队等待的请求数，队列满时直接拒绝。
+        private int maxQueueSize = 256;
+        // 单个请求在队列中的最长等待时间。
+        private long maxQueueWaitMs = 60_000L;
+        // 延迟超过空载基线的倍数后开始收缩并发上限。
+        private double latencyTolerance = 2.0;
+        // 延迟恶化时的乘性收缩系数；请求超时时上限直接减半。
+        private double backoffRatio = 0.9;
+
+        // 以下访问器供配置绑定和限流器读取。
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getInitialLimit() {
+            return initialLimit;
+        }
+
+        public void setInitialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+        }
+
+        public int getMinLimit() {
+            return minLimit;
+        }
+
+        public void setMinLimit(int minLimit) {
+            this.minLimit = minLimit;
+        }
+
+        public int getMaxLimit() {
+            return maxLimit;
+        }
+
+        public void setMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+        }
+
+        public int getMaxQueueSize() {
+            return maxQueueSize;
+        }
+
+        public void setMaxQueueSize(int maxQueueSize) {
+            this.maxQueueSize = maxQueueSize;
+        }
+
+        public long getMaxQueueWaitMs() {
+            return maxQueueWaitMs;
+        }
+
+        public void setMaxQueueWaitMs(long maxQueueWaitMs) {
+            this.maxQueueWaitMs = maxQueueWaitMs;
+        }
+
+        public double getLatencyTolerance() {
+            return latencyTolerance;
+        }
+
+        public void setLatencyTolerance(double latencyTolerance) {
+            this.latencyTolerance = latencyTolerance;
+        }
+
+        public double getBackoffRatio() {
+            return backoffRatio;
+        }
+
+        public void setBackoffRatio(double backoffRatio) {
+            this.backoffRatio = backoffRatio;
+        }
+    }
+
+    /**
+     * 推理优先级调度配置。
+     */
+    public static class SchedulerProperties {
+        // 各优先级在并发许可排队时的权重，积压时按权重比例分配许可。
+        private int interactiveWeight = 8;
+        private int normalWeight = 4;
+        private int bulkWeight = 1;
+        // 排队超过该时间的请求不论优先级都优先放行，避免低优先级饿死。
+        private long starvationThresholdMs = 10_000L;
+
+        // 以下访问器供配置绑定和调度队列读取。
+        public int getInteractiveWeight() {
+            return interactiveWeight;
+        }
+
+        public void setInteractiveWeight(int interactiveWeight) {
+            this.interactiveWeight = interactiveWeight;
+        }
+
+        public int getNormalWeight() {
+            return normalWeight;
+        }
+
+        public void setNormalWeight(int normalWeight) {
+            this.normalWeight = normalWeight;
+        }
+
+        public int getBulkWeight() {
+            return bulkWeight;
+        }
+
+        public void setBulkWeight(int bulkWeight) {
+            this.bulkWeight = bulkWeight;
+        }
+
+        public long getStarvationThresholdMs() {
+            return starvationThresholdMs;
+        }
+
+        public void setStarvationThresholdMs(long starvationThresholdMs) {
+            this.starvationThresholdMs = starvationThresholdMs;
+        }
+
+        /**
+         * 读取指定优先级的权重，非法配置按 1 处理。
+         */
+        public int weightOf(InferencePriority priority) {
+            int weight = switch (priority) {
+                case INTERACTIVE -> interactiveWeight;
+                case NORMAL -> normalWeight;
+                case BULK -> bulkWeight;
+            };
+            return Math.max(1, weight);
+        }
+    }
+
+    /**
+     * 多实例负载均衡配置。
+     */
+    public static class BalancerProperties {
+        // 健康检查周期；只有一个实例时不做周期检查。
+        private long healthCheckIntervalMs = 5000L;
+        // 单次健康检查的响应等待上限。
+        private long healthCheckTimeoutMs = 3000L;
+        // 连续失败达到该次数后把实例移出路由，健康检查恢复后重新加入。
+        private int unhealthyThreshold = 2;
+
+        // 以下访问器供配置绑定和负载均衡器读取。
+        public long getHealthCheckIntervalMs() {
+            return healthCheckIntervalMs;
+        }
+
+        public void setHealthCheckIntervalMs(long healthCheckIntervalMs) {
+            this.healthCheckIntervalMs = healthCheckIntervalMs;
+        }
+
+        public long getHealthCheckTimeoutMs() {
+            return healthCheckTimeoutMs;
+        }
+
+        public void setHealthCheckTimeoutMs(long healthCheckTimeoutMs) {
+            this.healthCheckTimeoutMs = healthCheckTimeoutMs;
+        }
+
+        public int getUnhealthyThreshold() {
+            return unhealthyThreshold;
+        }
+
+        public void setUnhealthyThreshold(int unhealthyThreshold) {
+            this.unhealthyThreshold = unhealthyThreshold;
+        }
+    }
+
+    /**
+     * 本机模型服务进程监督配置。
+     */
+    public static class SupervisorProperties {
+        // 是否启用进程监督；热备进程会额外占用一份显存，默认关闭。
+        private boolean enabled = false;
+        // 热备实例地址，须为本机且不与主实例重复；为空时只做失败重启，不做热备切换。
+        private String standbyUrl = "";
+        // 对主实例与热备实例的健康检查周期。
+        private long healthCheckIntervalMs = 2000L;
+        // 连续健康检查失败达到该次数后判定实例失效。
+        private int failureThreshold = 3;
+        // 重启失败后的退避时间，从初始值起每次翻倍直到上限。
+        private long restartInitialBackoffMs = 1000L;
+        private long restartMaxBackoffMs = 60_000L;
+        // 重启后等待模型加载完成的上限。
+        private long readyTimeoutMs = 120_000L;
+
+        // 以下访问器供配置绑定和进程监督器读取。
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getStandbyUrl() {
+            return standbyUrl;
+        }
+
+        public void setStandbyUrl(String standbyUrl) {
+            this.standbyUrl = standbyUrl;
+        }
+
+        public long getHealthCheckIntervalMs() {
+            return healthCheckIntervalMs;
+        }
+
+        public void setHealthCheckIntervalMs(long healthCheckIntervalMs) {
+            this.healthCheckIntervalMs = healthCheckIntervalMs;
+        }
+
+        public int getFailureThreshold() {
+            return failureThreshold;
+        }
+
+        public void setFailureThreshold(int failureThreshold) {
+            this.failureThreshold = failureThreshold;
+        }
+
+        public long getRestartInitialBackoffMs() {
+            return restartInitialBackoffMs;
+        }
+
+        public void setRestartInitialBackoffMs(long restartInitialBackoffMs) {
+            this.restartInitialBackoffMs = restartInitialBackoffMs;
+        }
+
+        public long getRestartMaxBackoffMs() {
+            return restartMaxBackoffMs;
+        }
+
+        public void setRestartMaxBackoffMs(long restartMaxBackoffMs) {
+            this.restartMaxBackoffMs = restartMaxBackoffMs;
+        }
+
+        public long getReadyTimeoutMs() {
+            return readyTimeoutMs;
+        }
+
+        public void setReadyTimeoutMs(long readyTimeoutMs) {
+            this.readyTimeoutMs = readyTimeoutMs;
+        }
+    }
+
+    /**
+     * 请求输入与结果的传输方式配置。
+     */
+    public static class TransportProperties {
+        // path：只发送文件路径，模型服务需与后端共享文件系统；binary：通过 WebSocket 二进制帧发送文件内容。
+        private String mode = "path";
+        // binary 模式下单个二进制帧承载的文件字节数。
+        private int chunkSizeBytes = 1024 * 1024;
+
+        // 以下访问器供配置绑定和连接池读取。
+        public String getMode() {
+            return mode;
+        }
+
+        public void setMode(String mode) {
+            this.mode = mode;
+        }
+
+        public int getChunkSizeBytes() {
+            return chunkSizeBytes;
+        }
+
+        public void setChunkSizeBytes(int chunkSizeBytes) {
+            this.chunkSizeBytes = chunkSizeBytes;
+        }
+
+        /**
+         * 是否启用二进制帧传输。
+         */
+        public boolean isBinary() {
+            return "binary".equalsIgnoreCase(mode == null ? "" : mode.trim());
+        }
+    }
+}
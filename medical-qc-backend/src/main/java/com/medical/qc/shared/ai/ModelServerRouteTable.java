@@ -0,0 +1,67 @@
+package com.medical.qc.shared.ai;
+
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 模型服务路由表。
+ *
+ * <p>配置中的模型服务地址是逻辑地址，实际承载流量的进程可能被切换到热备实例。
+ * 进程托管方（{@link com.medical.qc.config.PythonModelRunner} 的监督器）在主实例失效时调用
+ * {@link #switchRoute(URI, URI)}，已注册的监听方（负载均衡器）随即把该逻辑地址的新请求改发到目标地址。</p>
+ */
+@Component
+public class ModelServerRouteTable {
+    private final ConcurrentMap<URI, URI> routes = new ConcurrentHashMap<>();
+    private final List<RouteListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 逻辑地址当前对应的实际地址，未切换过时返回自身。
+     */
+    public URI resolve(URI logicalUri) {
+        return routes.getOrDefault(logicalUri, logicalUri);
+    }
+
+    /**
+     * 把逻辑地址的流量切到目标地址，并同步通知监听方。
+     */
+    public void switchRoute(URI logicalUri, URI targetUri) {
+        URI previousUri = routes.put(logicalUri, targetUri);
+        if (targetUri.equals(previousUri == null ? logicalUri : previousUri)) {
+            return;
+        }
+        listeners.forEach(listener -> listener.onRouteChanged(logicalUri, targetUri));
+    }
+
+    public void addListener(RouteListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(RouteListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * 当前生效的路由，只包含发生过切换的逻辑地址。
+     */
+    public Map<String, String> snapshot() {
+        Map<String, String> snapshot = new LinkedHashMap<>();
+        routes.forEach((logicalUri, targetUri) -> snapshot.put(logicalUri.toString(), targetUri.toString()));
+        return snapshot;
+    }
+
+    /**
+     * 路由变更回调。
+     */
+    @FunctionalInterface
+    public interface RouteListener {
+        void onRouteChanged(URI logicalUri, URI targetUri);
+    }
+}
@@ -0,0 +1,17 @@
+package com.medical.qc.shared.ai;
+
+/**
+ * 模型服务不可用异常。
+ *
+ * <p>用于区分“连不上模型服务”和“模型推理本身失败”，上层据此决定是否重试。</p>
+ */
+public class ModelServerUnavailableException extends RuntimeException {
+
+    public ModelServerUnavailableException(String message) {
+        super(message);
+    }
+
+    public ModelServerUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,223 +1,371 @@
 package com.medical.qc.shared.ai;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.medical.qc.shared.JsonObjectMapReader;
-import org.java_websocket.client.WebSocketClient;
-import org.java_websocket.handshake.ServerHandshake;
-import org.springframework.beans.factory.annotation.Value;
+import com.medical.qc.shared.metrics.RuntimeMetricsSource;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.stereotype.Component;
 
 import java.net.URI;
 import java.util.Collections;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 /**
  * 基于 Python WebSocket 服务的 AI 推理网关实现。
+ *
+ * <p>所有推理请求复用 {@link ModelServerConnectionPool} 中的长连接，不再逐次握手；
+ * 配置多个模型服务实例时由 {@link ModelServerLoadBalancer} 按在途请求数与健康状态路由；
+ * 请求先查 {@link InferenceResultCache}，未命中的体数据推理再经 {@link InferenceBatchDispatcher} 按 task_type 合并。
+ * 真正发往模型服务前统一经过 {@link ModelServerCircuitBreaker} 与 {@link AdaptiveConcurrencyLimiter}：
+ * 模型服务不可用时快速失败，不再排队重试；排队时按 {@link InferencePriority} 加权公平放行。
+ * 同步接口只是对异步接口的等待封装。缓存命中时没有中间事件，调用方直接收到最终结果。</p>
  */
 @Component
-public class PythonWebSocketAiGateway implements AiGateway {
-    // Jackson 用于把请求/响应在 JSON 与 Map 之间转换。
-    private final ObjectMapper objectMapper;
+public class PythonWebSocketAiGateway implements AiGateway, RuntimeMetricsSource, DisposableBean {
+    // 脑出血单图推理与体数据推理的响应等待上限。
+    private static final long HEMORRHAGE_TIMEOUT_MS = 60_000L;
+    private static final long VOLUME_TIMEOUT_MS = 120_000L;
+    // 请求优先级字段，模型服务据此决定推理排队顺序。
+    static final String PRIORITY_KEY = "priority";
 
-    @Value("${python.model_server.url:ws://localhost:8765}")
-    private String modelServerUrl;
+    // 模型服务地址非法时负载均衡器为空，所有调用直接返回错误结果。
+    private final ModelServerLoadBalancer loadBalancer;
+    // 体数据推理按 task_type 微批合并后再交给负载均衡器。
+    private final InferenceBatchDispatcher batchDispatcher;
+    // 相同输入重复推理时直接返回缓存结果。
+    private final InferenceResultCache inferenceResultCache;
+    // 模型服务连续不可用时熔断，直接快速失败。
+    private final ModelServerCircuitBreaker circuitBreaker;
+    // 按延迟与超时自适应调整同时发往模型服务的请求数。
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    // 逻辑地址到实际实例的路由，热备切换时由监督器更新。
+    private final ModelServerRouteTable routeTable;
+    private final ModelServerRouteTable.RouteListener routeListener;
 
-    public PythonWebSocketAiGateway(ObjectMapper objectMapper) {
-        this.objectMapper = objectMapper;
+    public PythonWebSocketAiGateway(ObjectMapper objectMapper,
+                                    ModelServerProperties modelServerProperties,
+                                    InferenceResultCache inferenceResultCache,
+                                    ModelServerRouteTable routeTable) {
+        this.inferenceResultCache = inferenceResultCache;
+        this.circuitBreaker = new ModelServerCircuitBreaker(modelServerProperties.getBreaker());
+        this.concurrencyLimiter = new AdaptiveConcurrencyLimiter(
+                modelServerProperties.getLimiter(), modelServerProperties.getScheduler());
+        this.loadBalancer = createLoadBalancer(objectMapper, modelServerProperties);
+        this.routeTable = routeTable;
+        // 监督器把失效实例切换到热备时，负载均衡器随之改发请求。
+        this.routeListener = loadBalancer == null ? null : loadBalancer::reroute;
+        if (routeListener != null) {
+            routeTable.addListener(routeListener);
+        }
+        this.batchDispatcher = loadBalancer == null
+                ? null
+                : new InferenceBatchDispatcher(loadBalancer, modelServerProperties.getBatch());
     }
 
     @Override
     public Map<String, Object> analyzeHemorrhage(String imagePath) {
-        // 模型服务地址来自配置，默认连本机 8765 端口。
-        URI serverUri;
-        try {
-            serverUri = new URI(modelServerUrl);
-        } catch (Exception exception) {
-            return Collections.singletonMap("error", "Invalid python.model_server.url");
-        }
+        return awaitResult(analyzeHemorrhageAsync(imagePath), "Connection interrupted");
+    }
 
-        int port = serverUri.getPort();
-        if (port <= 0) {
-            port = "wss".equalsIgnoreCase(serverUri.getScheme()) ? 443 : 80;
+    @Override
+    public CompletableFuture<Map<String, Object>> analyzeHemorrhageAsync(String imagePath) {
+        if (loadBalancer == null) {
+            return CompletableFuture.completedFuture(Collections.singletonMap("error", "Invalid python.model_server.url"));
         }
 
-        // 启动阶段 Python 模型服务可能尚未就绪，因此允许有限次重试。
-        int connectAttempts = 6;
-        long connectBackoffMs = 1000;
+        // 脑出血检测由页面同步等待，默认按交互优先级排队；优先级须在调用线程上读取。
+        InferencePriority priority = InferencePriority.currentOr(InferencePriority.INTERACTIVE);
+        Map<String, Object> request = new HashMap<>();
+        request.put("task_type", "hemorrhage");
+        request.put("image_path", imagePath);
+        request.put(PRIORITY_KEY, priority.protocolValue());
 
-        for (int attempt = 1; attempt <= connectAttempts; attempt++) {
-            CompletableFuture<String> future = new CompletableFuture<>();
-            WebSocketClient client = null;
-            try {
-                client = new WebSocketClient(serverUri) {
-                    @Override
-                    public void onOpen(ServerHandshake handshakedata) {
-                        // WebSocket 建立后立即发送图片路径请求。
-                        Map<String, String> request = new HashMap<>();
-                        request.put("task_type", "hemorrhage");
-                        request.put("image_path", imagePath);
-                        try {
-                            send(objectMapper.writeValueAsString(request));
-                        } catch (Exception exception) {
-                            future.completeExceptionally(exception);
-                        }
-                    }
-
-                    @Override
-                    public void onMessage(String message) {
-                        // 模型服务返回结果后完成 future，并关闭连接。
-                        future.complete(message);
-                        close();
-                    }
-
-                    @Override
-                    public void onClose(int code, String reason, boolean remote) {
-                        if (!future.isDone()) {
-                            future.completeExceptionally(new RuntimeException("Connection closed: " + reason));
-                        }
-                    }
-
-                    @Override
-                    public void onError(Exception exception) {
-                        future.completeExceptionally(exception);
-                    }
-                };
-
-                if (!client.connectBlocking(5, TimeUnit.SECONDS)) {
-                    if (attempt == connectAttempts) {
-                        return Collections.singletonMap("error",
-                                "Failed to connect to Python Model Server (Port " + port + ")");
-                    }
-                    // 短暂退避后继续重试，给 Python 服务留出启动时间。
-                    Thread.sleep(connectBackoffMs);
-                    continue;
-                }
+        // 模型服务未就绪时直接返回错误，由熔断器统计失败，不在请求线程上退避重试。
+        return inferenceResultCache.getOrLoad("hemorrhage", imagePath, null, priority, () -> toResultFuture(
+                submitGuarded("hemorrhage", priority, () -> loadBalancer.submit(request, HEMORRHAGE_TIMEOUT_MS)),
+                "Analysis timed out (Check if Python server is running)"));
+    }
 
-                String resultJson = future.get(60, TimeUnit.SECONDS);
-                return JsonObjectMapReader.read(objectMapper, resultJson);
-            } catch (InterruptedException exception) {
-                // 线程被中断时要恢复中断标记，避免吞掉上层取消信号。
-                Thread.currentThread().interrupt();
-                return Collections.singletonMap("error", "Connection interrupted");
-            } catch (java.util.concurrent.TimeoutException exception) {
-                return Collections.singletonMap("error", "Analysis timed out (Check if Python server is running)");
-            } catch (Exception exception) {
-                return Collections.singletonMap("error", exception.getMessage());
-            } finally {
-                if (client != null) {
-                    try {
-                        // 无论成功失败都关闭连接，避免 WebSocket 句柄泄露。
-                        client.close();
-                    } catch (Exception ignore) {
-                    }
-                }
-            }
-        }
+    @Override
+    public Map<String, Object> analyzeHeadQuality(String volumePath) {
+        return awaitResult(analyzeHeadQualityAsync(volumePath), "Head CT plain QC inference interrupted");
+    }
 
-        return Collections.singletonMap("error", "Failed to connect to Python Model Server (Port " + port + ")");
+    @Override
+    public CompletableFuture<Map<String, Object>> analyzeHeadQualityAsync(String volumePath) {
+        return analyzeHeadQualityAsync(volumePath, null);
     }
 
     @Override
-    public Map<String, Object> analyzeHeadQuality(String volumePath) {
-        return analyzeVolumeTask("head", volumePath, null, "Head CT plain QC inference interrupted", "Head CT plain QC inference timed out");
+    public CompletableFuture<Map<String, Object>> analyzeHeadQualityAsync(String volumePath,
+                                                                         InferenceProgressListener progressListener) {
+        return analyzeVolumeTaskAsync("head", volumePath, null, progressListener, "Head CT plain QC inference timed out");
     }
 
     @Override
     public Map<String, Object> analyzeChestNonContrast(String volumePath) {
-        return analyzeVolumeTask("chest-non-contrast", volumePath, null, "Chest non contrast QC inference interrupted", "Chest non contrast QC inference timed out");
+        return awaitResult(analyzeChestNonContrastAsync(volumePath), "Chest non contrast QC inference interrupted");
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> analyzeChestNonContrastAsync(String volumePath) {
+        return analyzeChestNonContrastAsync(volumePath, null);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> analyzeChestNonContrastAsync(String volumePath,
+                                                                              InferenceProgressListener progressListener) {
+        return analyzeVolumeTaskAsync(
+                "chest-non-contrast", volumePath, null, progressListener, "Chest non contrast QC inference timed out");
     }
 
     @Override
     public Map<String, Object> analyzeChestContrast(String inputPath, Map<String, Object> metadata) {
-        return analyzeVolumeTask("chest-contrast", inputPath, metadata, "Chest contrast QC inference interrupted", "Chest contrast QC inference timed out");
+        return awaitResult(analyzeChestContrastAsync(inputPath, metadata), "Chest contrast QC inference interrupted");
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> analyzeChestContrastAsync(String inputPath, Map<String, Object> metadata) {
+        return analyzeVolumeTaskAsync("chest-contrast", inputPath, metadata, null, "Chest contrast QC inference timed out");
     }
 
     @Override
     public Map<String, Object> analyzeCoronaryCta(String inputPath, Map<String, Object> metadata) {
-        return analyzeVolumeTask("coronary-cta", inputPath, metadata, "Coronary CTA QC inference interrupted", "Coronary CTA QC inference timed out");
+        return awaitResult(analyzeCoronaryCtaAsync(inputPath, metadata), "Coronary CTA QC inference interrupted");
     }
 
-    private Map<String, Object> analyzeVolumeTask(String taskType,
-                                                  String volumePath,
-                                                  Map<String, Object> metadata,
-                                                  String interruptedMessage,
-                                                  String timeoutMessage) {
-        URI serverUri;
-        try {
-            serverUri = new URI(modelServerUrl);
-        } catch (Exception exception) {
-            return Collections.singletonMap("error", "Invalid python.model_server.url");
+    @Override
+    public CompletableFuture<Map<String, Object>> analyzeCoronaryCtaAsync(String inputPath, Map<String, Object> metadata) {
+        return analyzeVolumeTaskAsync("coronary-cta", inputPath, metadata, null, "Coronary CTA QC inference timed out");
+    }
+
+    @Override
+    public int getInferenceCapacity() {
+        return concurrencyLimiter.getLimit();
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "aiGateway";
+    }
+
+    @Override
+    public Map<String, Object> getMetricsSnapshot() {
+        if (loadBalancer == null) {
+            return Map.of("error", "Invalid python.model_server.url");
+        }
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("loadBalancer", loadBalancer.getMetrics());
+        metrics.put("batching", batchDispatcher.getMetrics());
+        metrics.put("circuitBreaker", circuitBreaker.getMetrics());
+        metrics.put("concurrencyLimiter", concurrencyLimiter.getMetrics());
+        return metrics;
+    }
+
+    @Override
+    public void destroy() {
+        if (batchDispatcher != null) {
+            batchDispatcher.close();
         }
+        if (loadBalancer != null) {
+            routeTable.removeListener(routeListener);
+            loadBalancer.close();
+        }
+    }
 
-        int port = serverUri.getPort();
-        if (port <= 0) {
-            port = "wss".equalsIgnoreCase(serverUri.getScheme()) ? 443 : 80;
+    private CompletableFuture<Map<String, Object>> analyzeVolumeTaskAsync(String taskType,
+                                                                         String volumePath,
+                                                                         Map<String, Object> metadata,
+                                                                         InferenceProgressListener progressListener,
+                                                                         String timeoutMessage) {
+        if (loadBalancer == null) {
+            return CompletableFuture.completedFuture(Collections.singletonMap("error", "Invalid python.model_server.url"));
         }
 
-        CompletableFuture<String> future = new CompletableFuture<>();
-        WebSocketClient client = null;
-        try {
-            client = new WebSocketClient(serverUri) {
-                @Override
-                public void onOpen(ServerHandshake handshakedata) {
-                    Map<String, Object> request = new HashMap<>();
-                    request.put("task_type", taskType);
-                    request.put("volume_path", volumePath);
-                    request.put("input_path", volumePath);
-                    if (metadata != null && !metadata.isEmpty()) {
-                        request.putAll(metadata);
-                    }
-                    try {
-                        send(objectMapper.writeValueAsString(request));
-                    } catch (Exception exception) {
-                        future.completeExceptionally(exception);
-                    }
-                }
+        // 缓存加载在独立线程上执行，优先级须在调用线程上提前读取。
+        InferencePriority priority = InferencePriority.currentOr(InferencePriority.NORMAL);
+        Map<String, Object> request = new HashMap<>();
+        request.put("task_type", taskType);
+        request.put("volume_path", volumePath);
+        request.put("input_path", volumePath);
+        if (metadata != null && !metadata.isEmpty()) {
+            request.putAll(metadata);
+        }
+        request.put(PRIORITY_KEY, priority.protocolValue());
 
-                @Override
-                public void onMessage(String message) {
-                    future.complete(message);
-                    close();
-                }
+        return inferenceResultCache.getOrLoad(taskType, volumePath, metadata, priority, () ->
+                toResultFuture(
+                        submitGuarded(taskType, priority,
+                                () -> batchDispatcher.submit(taskType, request, VOLUME_TIMEOUT_MS, progressListener)),
+                        timeoutMessage));
+    }
 
-                @Override
-                public void onClose(int code, String reason, boolean remote) {
-                    if (!future.isDone()) {
-                        future.completeExceptionally(new RuntimeException("Connection closed: " + reason));
-                    }
-                }
+    /**
+     * 经熔断器与并发限制器放行后再发出模型调用，并按调用结果更新两者状态。
+     *
+     * <p>熔断打开或排队超限时立即以 {@link ModelServerUnavailableException} 失败；
+     * 只有连接失败和超时计入熔断失败率，模型服务正常返回的 error 结果视为服务可用。</p>
+     */
+    private CompletableFuture<Map<String, Object>> submitGuarded(String taskType,
+                                                                 InferencePriority priority,
+                                                                 Supplier<CompletableFuture<Map<String, Object>>> call) {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            return CompletableFuture.failedFuture(
+                    new ModelServerUnavailableException("Model server unavailable: circuit breaker is open"));
+        }
 
-                @Override
-                public void onError(Exception exception) {
-                    future.completeExceptionally(exception);
+        CompletableFuture<Map<String, Object>> guardedFuture = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<Map<String, Object>>> callFuture = new AtomicReference<>();
+        CompletableFuture<AdaptiveConcurrencyLimiter.Permit> permitFuture = concurrencyLimiter.acquire(priority);
+        permitFuture.whenComplete((permit, error) -> {
+            if (error != null) {
+                // 未真正调用模型服务，熔断许可原样归还。
+                circuitBreaker.releasePermission();
+                guardedFuture.completeExceptionally(unwrap(error));
+                return;
+            }
+            if (guardedFuture.isDone()) {
+                permit.release(taskType, AdaptiveConcurrencyLimiter.Outcome.IGNORED);
+                circuitBreaker.releasePermission();
+                return;
+            }
+            CompletableFuture<Map<String, Object>> responseFuture;
+            try {
+                responseFuture = call.get();
+            } catch (RuntimeException exception) {
+                // 请求未能发出（如分发器已关闭），两份许可都要归还，否则限流名额和半开探测名额会一直被占住。
+                permit.release(taskType, AdaptiveConcurrencyLimiter.Outcome.IGNORED);
+                circuitBreaker.releasePermission();
+                guardedFuture.completeExceptionally(exception);
+                return;
+            }
+            callFuture.set(responseFuture);
+            responseFuture.whenComplete((response, responseError) -> {
+                Throwable cause = responseError == null ? null : unwrap(responseError);
+                recordOutcome(taskType, permit, cause);
+                if (cause == null) {
+                    guardedFuture.complete(response);
+                } else {
+                    guardedFuture.completeExceptionally(cause);
+                }
+            });
+            // 发出请求前调用方可能已取消，这里补一次透传。
+            if (guardedFuture.isCancelled()) {
+                responseFuture.cancel(false);
+            }
+        });
+        guardedFuture.whenComplete((result, error) -> {
+            if (guardedFuture.isCancelled()) {
+                permitFuture.cancel(false);
+                CompletableFuture<Map<String, Object>> responseFuture = callFuture.get();
+                if (responseFuture != null) {
+                    responseFuture.cancel(false);
                 }
-            };
+            }
+        });
+        return guardedFuture;
+    }
 
-            if (!client.connectBlocking(5, TimeUnit.SECONDS)) {
-                return Collections.singletonMap("error",
-                        "Failed to connect to Python Model Server (Port " + port + ")");
+    /**
+     * 把一次模型调用的结果反馈给熔断器和并发限制器。
+     */
+    private void recordOutcome(String taskType, AdaptiveConcurrencyLimiter.Permit permit, Throwable cause) {
+        if (cause == null) {
+            circuitBreaker.onSuccess();
+            permit.release(taskType, AdaptiveConcurrencyLimiter.Outcome.SUCCESS);
+        } else if (cause instanceof TimeoutException) {
+            circuitBreaker.onFailure();
+            permit.release(taskType, AdaptiveConcurrencyLimiter.Outcome.DROPPED);
+        } else if (cause instanceof ModelServerUnavailableException) {
+            circuitBreaker.onFailure();
+            permit.release(taskType, AdaptiveConcurrencyLimiter.Outcome.IGNORED);
+        } else {
+            // 取消或其他未拿到结果的异常既不能说明服务可用，也不能说明不可用，熔断许可原样归还。
+            circuitBreaker.releasePermission();
+            permit.release(taskType, AdaptiveConcurrencyLimiter.Outcome.IGNORED);
+        }
+    }
+
+    /**
+     * 把连接池 future 转换为“总是以结果映射完成”的 future，并把调用方取消透传到底层请求。
+     */
+    private CompletableFuture<Map<String, Object>> toResultFuture(CompletableFuture<Map<String, Object>> responseFuture,
+                                                                  String timeoutMessage) {
+        CompletableFuture<Map<String, Object>> resultFuture = responseFuture.handle((response, error) ->
+                error == null ? response : toErrorResult(unwrap(error), timeoutMessage));
+        resultFuture.whenComplete((result, error) -> {
+            if (resultFuture.isCancelled()) {
+                responseFuture.cancel(false);
             }
+        });
+        return resultFuture;
+    }
 
-            String resultJson = future.get(120, TimeUnit.SECONDS);
-            return JsonObjectMapReader.read(objectMapper, resultJson);
+    /**
+     * 同步接口统一在这里等待异步结果；线程被中断时取消底层请求。
+     */
+    private Map<String, Object> awaitResult(CompletableFuture<Map<String, Object>> resultFuture,
+                                            String interruptedMessage) {
+        try {
+            return resultFuture.get();
         } catch (InterruptedException exception) {
+            // 线程被中断时要恢复中断标记，避免吞掉上层取消信号。
+            resultFuture.cancel(false);
             Thread.currentThread().interrupt();
             return Collections.singletonMap("error", interruptedMessage);
-        } catch (java.util.concurrent.TimeoutException exception) {
+        } catch (CancellationException | ExecutionException exception) {
+            // 结果 future 已把失败统一转换成 error 映射，这里只会遇到外部取消等少数情况。
+            return toErrorResult(unwrap(exception), interruptedMessage);
+        }
+    }
+
+    /**
+     * 把连接池异常转换为历史约定的 error 结果映射。
+     */
+    private Map<String, Object> toErrorResult(Throwable cause, String timeoutMessage) {
+        if (cause instanceof CancellationException) {
+            return Collections.singletonMap("error", "Analysis cancelled");
+        }
+        if (cause instanceof TimeoutException) {
             return Collections.singletonMap("error", timeoutMessage);
-        } catch (Exception exception) {
-            return Collections.singletonMap("error", exception.getMessage());
-        } finally {
-            if (client != null) {
-                try {
-                    client.close();
-                } catch (Exception ignore) {
+        }
+        return Collections.singletonMap("error", cause == null ? "Unknown model server error" : cause.getMessage());
+    }
+
+    private Throwable unwrap(Throwable error) {
+        Throwable current = error;
+        while ((current instanceof CompletionException || current instanceof ExecutionException)
+                && current.getCause() != null) {
+            current = current.getCause();
+        }
+        return current;
+    }
+
+    private ModelServerLoadBalancer createLoadBalancer(ObjectMapper objectMapper,
+                                                       ModelServerProperties modelServerProperties) {
+        // 模型服务地址来自配置，默认连本机 8765 端口；任一地址非法都视为配置错误。
+        try {
+            List<URI> endpointUris = new ArrayList<>();
+            for (String endpointUrl : modelServerProperties.resolveEndpointUrls()) {
+                URI serverUri = new URI(endpointUrl);
+                if (serverUri.getHost() == null) {
+                    return null;
                 }
+                endpointUris.add(serverUri);
             }
+            return new ModelServerLoadBalancer(endpointUris, modelServerProperties, objectMapper);
+        } catch (Exception exception) {
+            return null;
         }
     }
 }
-
@@ -0,0 +1,217 @@
+package com.medical.qc.shared.ai;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 按优先级加权公平出队的等待队列。
+ *
+ * <p>每个优先级一条 FIFO 队列。入队时按“虚拟开始时间 + 1/权重”计算完成标签，出队时取各队首中标签最小者，
+ * 积压时各优先级获得的出队次数与权重成正比；空闲后重新入队的优先级从当前虚拟时间起算，不能囤积额度。
+ * 队首等待超过饥饿阈值时不再比较标签，直接放行等待最久者。</p>
+ *
+ * <p>非线程安全，由调用方在自己的锁内使用。</p>
+ */
+final class WeightedFairQueue<T> {
+    // 等待时间直方图的桶上界（毫秒），最后一个桶收纳更长的等待。
+    private static final long[] WAIT_BUCKETS_MS = {10, 50, 100, 250, 500, 1000, 2500, 5000, 10_000, 30_000, 60_000};
+
+    private final ModelServerProperties.SchedulerProperties schedulerProperties;
+    private final int maxQueueSizePerClass;
+    private final LongSupplier nanoClock;
+    private final Map<InferencePriority, ClassQueue<T>> queues = new EnumMap<>(InferencePriority.class);
+    // 全局虚拟时间，等于最近一次出队条目的开始标签。
+    private double virtualTime;
+
+    WeightedFairQueue(ModelServerProperties.SchedulerProperties schedulerProperties, int maxQueueSizePerClass) {
+        this(schedulerProperties, maxQueueSizePerClass, System::nanoTime);
+    }
+
+    WeightedFairQueue(ModelServerProperties.SchedulerProperties schedulerProperties,
+                      int maxQueueSizePerClass,
+                      LongSupplier nanoClock) {
+        this.schedulerProperties = schedulerProperties;
+        this.maxQueueSizePerClass = maxQueueSizePerClass;
+        this.nanoClock = nanoClock;
+        for (InferencePriority priority : InferencePriority.values()) {
+            queues.put(priority, new ClassQueue<>());
+        }
+    }
+
+    /**
+     * 入队。
+     *
+     * @return 该优先级队列已满时返回 false；各优先级容量独立，批量积压不会挤占交互请求的排队位置
+     */
+    boolean offer(T item, InferencePriority priority) {
+        ClassQueue<T> queue = queues.get(priority);
+        if (queue.entries.size() >= maxQueueSizePerClass) {
+            queue.rejected += 1;
+            return false;
+        }
+        double startTag = Math.max(virtualTime, queue.lastFinishTag);
+        double finishTag = startTag + 1.0 / schedulerProperties.weightOf(priority);
+        queue.lastFinishTag = finishTag;
+        queue.entries.addLast(new Entry<>(item, startTag, finishTag, nanoClock.getAsLong()));
+        queue.enqueued += 1;
+        return true;
+    }
+
+    /**
+     * 出队下一个应当放行的条目，队列为空时返回 null。
+     */
+    T poll() {
+        long now = nanoClock.getAsLong();
+        long starvationNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, schedulerProperties.getStarvationThresholdMs()));
+        InferencePriority selected = null;
+        Entry<T> selectedEntry = null;
+        boolean starving = false;
+        for (Map.Entry<InferencePriority, ClassQueue<T>> candidate : queues.entrySet()) {
+            Entry<T> head = candidate.getValue().entries.peekFirst();
+            if (head == null) {
+                continue;
+            }
+            boolean headStarving = starvationNanos > 0 && now - head.enqueuedAtNanos >= starvationNanos;
+            boolean better;
+            if (selectedEntry == null) {
+                better = true;
+            } else if (headStarving || starving) {
+                // 存在饥饿条目时按等待时长放行，最久者优先。
+                better = headStarving && (!starving || head.enqueuedAtNanos < selectedEntry.enqueuedAtNanos);
+            } else {
+                better = head.finishTag < selectedEntry.finishTag;
+            }
+            if (better) {
+                selected = candidate.getKey();
+                selectedEntry = head;
+                starving = headStarving;
+            }
+        }
+        if (selectedEntry == null) {
+            return null;
+        }
+
+        ClassQueue<T> queue = queues.get(selected);
+        queue.entries.pollFirst();
+        virtualTime = Math.max(virtualTime, selectedEntry.startTag);
+        queue.recordWait(now - selectedEntry.enqueuedAtNanos);
+        if (starving && hasEarlierFinishTag(selectedEntry)) {
+            queue.promoted += 1;
+        }
+        return selectedEntry.item;
+    }
+
+    /**
+     * 移除已超时或被取消的条目。
+     */
+    boolean remove(T item) {
+        for (ClassQueue<T> queue : queues.values()) {
+            if (queue.entries.removeIf(entry -> entry.item == item)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean isEmpty() {
+        return queues.values().stream().allMatch(queue -> queue.entries.isEmpty());
+    }
+
+    int size() {
+        return queues.values().stream().mapToInt(queue -> queue.entries.size()).sum();
+    }
+
+    /**
+     * 各优先级的队列深度、等待时间直方图与分位数估计。
+     */
+    Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        for (Map.Entry<InferencePriority, ClassQueue<T>> entry : queues.entrySet()) {
+            ClassQueue<T> queue = entry.getValue();
+            Map<String, Object> classMetrics = new LinkedHashMap<>();
+            classMetrics.put("weight", schedulerProperties.weightOf(entry.getKey()));
+            classMetrics.put("queueDepth", queue.entries.size());
+            classMetrics.put("enqueued", queue.enqueued);
+            classMetrics.put("dequeued", queue.dequeued);
+            classMetrics.put("rejected", queue.rejected);
+            classMetrics.put("promotedByAging", queue.promoted);
+            classMetrics.put("maxWaitMs", Math.round(queue.maxWaitNanos / 1_000_000.0));
+            classMetrics.put("p50WaitMs", queue.percentileUpperBoundMs(0.50));
+            classMetrics.put("p99WaitMs", queue.percentileUpperBoundMs(0.99));
+            classMetrics.put("waitHistogramMs", queue.histogram());
+            metrics.put(entry.getKey().protocolValue(), classMetrics);
+        }
+        return metrics;
+    }
+
+    /**
+     * 是否还有其他队首的完成标签更早，即本次出队是由饥饿提升而非标签顺序决定的。
+     */
+    private boolean hasEarlierFinishTag(Entry<T> dequeued) {
+        return queues.values().stream()
+                .map(queue -> queue.entries.peekFirst())
+                .anyMatch(head -> head != null && head.finishTag < dequeued.finishTag);
+    }
+
+    private record Entry<T>(T item, double startTag, double finishTag, long enqueuedAtNanos) {
+    }
+
+    /**
+     * 单个优先级的队列与统计。
+     */
+    private static final class ClassQueue<T> {
+        private final Deque<Entry<T>> entries = new ArrayDeque<>();
+        private final long[] waitBuckets = new long[WAIT_BUCKETS_MS.length + 1];
+        private double lastFinishTag;
+        private long enqueued;
+        private long dequeued;
+        private long rejected;
+        private long promoted;
+        private long maxWaitNanos;
+
+        private void recordWait(long waitNanos) {
+            dequeued += 1;
+            maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+            long waitMs = TimeUnit.NANOSECONDS.toMillis(waitNanos);
+            int bucket = 0;
+            while (bucket < WAIT_BUCKETS_MS.length && waitMs > WAIT_BUCKETS_MS[bucket]) {
+                bucket += 1;
+            }
+            waitBuckets[bucket] += 1;
+        }
+
+        /**
+         * 以所在桶的上界估计分位数；落在最后一个桶时返回观测到的最大等待。
+         */
+        private long percentileUpperBoundMs(double quantile) {
+            if (dequeued == 0) {
+                return 0L;
+            }
+            long threshold = (long) Math.ceil(dequeued * quantile);
+            long cumulative = 0L;
+            for (int bucket = 0; bucket < waitBuckets.length; bucket++) {
+                cumulative += waitBuckets[bucket];
+                if (cumulative >= threshold) {
+                    return bucket < WAIT_BUCKETS_MS.length
+                            ? WAIT_BUCKETS_MS[bucket]
+                            : Math.round(maxWaitNanos / 1_000_000.0);
+                }
+            }
+            return Math.round(maxWaitNanos / 1_000_000.0);
+        }
+
+        private Map<String, Long> histogram() {
+            Map<String, Long> histogram = new LinkedHashMap<>();
+            for (int bucket = 0; bucket < WAIT_BUCKETS_MS.length; bucket++) {
+                histogram.put("le" + WAIT_BUCKETS_MS[bucket], waitBuckets[bucket]);
+            }
+            histogram.put("gt" + WAIT_BUCKETS_MS[WAIT_BUCKETS_MS.length - 1], waitBuckets[WAIT_BUCKETS_MS.length]);
+            return histogram;
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.medical.qc.shared.messaging;
 
+import java.util.List;
+import java.util.Map;
+
 /**
  * 统一消息总线抽象。
  */
@@ -14,5 +17,42 @@ public interface MessageBus {
      * @return true 表示成功投递到消息基础设施，false 表示未投递成功
      */
     boolean send(String destination, Object payload);
-}
 
+    /**
+     * 发送消息并附带字符串消息头，消费者可按消息头做 JMS 选择器路由。
+     * 默认忽略消息头，仅发送消息体。
+     *
+     * @param destination 目标地址
+     * @param payload 消息体
+     * @param headers 消息头
+     * @return true 表示成功投递到消息基础设施，false 表示未投递成功
+     */
+    default boolean send(String destination, Object payload, Map<String, String> headers) {
+        return send(destination, payload);
+    }
+
+    /**
+     * 向同一目标地址按顺序批量发送消息。
+     * 默认逐条发送，遇到第一条失败即停止；实现类可在一个会话和生产者内完成整批发送。
+     *
+     * @param destination 目标地址
+     * @param envelopes 按发送顺序排列的消息
+     * @return 从头开始连续发送成功的条数，调用方据此判断哪些消息已投递
+     */
+    default int sendBatch(String destination, List<Envelope> envelopes) {
+        int sent = 0;
+        for (Envelope envelope : envelopes) {
+            if (!send(destination, envelope.payload(), envelope.headers())) {
+                break;
+            }
+            sent += 1;
+        }
+        return sent;
+    }
+
+    /**
+     * 批量发送中的单条消息：消息体与字符串消息头。
+     */
+    record Envelope(Object payload, Map<String, String> headers) {
+    }
+}
@@ -1,14 +1,24 @@
 package com.medical.qc.shared.messaging;
 
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.context.annotation.Primary;
 import org.springframework.jms.JmsException;
 import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.support.JmsUtils;
+import org.springframework.jms.support.converter.MessageConverter;
+import org.springframework.jms.support.converter.SimpleMessageConverter;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
+import java.util.List;
+import java.util.Map;
+
 /**
  * 基于 Spring JMS 的消息总线实现。
  */
@@ -41,5 +51,82 @@ public class SpringJmsMessageBus implements MessageBus {
             return false;
         }
     }
-}
 
+    @Override
+    public boolean send(String destination, Object payload, Map<String, String> headers) {
+        if (headers == null || headers.isEmpty()) {
+            return send(destination, payload);
+        }
+        if (!StringUtils.hasText(destination)) {
+            return false;
+        }
+
+        try {
+            // 消息头写为 JMS 字符串属性，供消费端选择器按属性过滤。
+            jmsTemplate.convertAndSend(destination, payload, message -> {
+                for (Map.Entry<String, String> header : headers.entrySet()) {
+                    if (header.getValue() != null) {
+                        message.setStringProperty(header.getKey(), header.getValue());
+                    }
+                }
+                return message;
+            });
+            return true;
+        } catch (JmsException exception) {
+            logger.warn("消息发送失败，destination={}", destination, exception);
+            return false;
+        }
+    }
+
+    /**
+     * 在一个会话和一个生产者内发送整批消息，避免逐条发送时反复获取连接、创建会话与生产者；
+     * 会话为事务型时整批一次提交。中途失败时停止发送，已发送的部分照常提交。
+     */
+    @Override
+    public int sendBatch(String destination, List<Envelope> envelopes) {
+        if (!StringUtils.hasText(destination) || envelopes == null || envelopes.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            Integer sent = jmsTemplate.execute(session -> sendInSession(session, destination, envelopes), true);
+            return sent == null ? 0 : sent;
+        } catch (JmsException exception) {
+            logger.warn("批量消息发送失败，destination={}, size={}", destination, envelopes.size(), exception);
+            return 0;
+        }
+    }
+
+    private int sendInSession(Session session, String destination, List<Envelope> envelopes) throws JMSException {
+        MessageConverter messageConverter = jmsTemplate.getMessageConverter() == null
+                ? new SimpleMessageConverter()
+                : jmsTemplate.getMessageConverter();
+        MessageProducer producer = session.createProducer(jmsTemplate.getDestinationResolver()
+                .resolveDestinationName(session, destination, jmsTemplate.isPubSubDomain()));
+        int sent = 0;
+        try {
+            for (Envelope envelope : envelopes) {
+                Message message = messageConverter.toMessage(envelope.payload(), session);
+                if (envelope.headers() != null) {
+                    for (Map.Entry<String, String> header : envelope.headers().entrySet()) {
+                        if (header.getValue() != null) {
+                            message.setStringProperty(header.getKey(), header.getValue());
+                        }
+                    }
+                }
+                if (jmsTemplate.isExplicitQosEnabled()) {
+                    producer.send(message, jmsTemplate.getDeliveryMode(), jmsTemplate.getPriority(), jmsTemplate.getTimeToLive());
+                } else {
+                    producer.send(message);
+                }
+                sent += 1;
+            }
+        } catch (JMSException exception) {
+            logger.warn("批量消息发送中断，destination={}, sent={}/{}", destination, sent, envelopes.size(), exception);
+        } finally {
+            JmsUtils.closeMessageProducer(producer);
+        }
+        JmsUtils.commitIfNecessary(session);
+        return sent;
+    }
+}
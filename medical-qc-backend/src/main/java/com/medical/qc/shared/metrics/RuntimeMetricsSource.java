@@ -0,0 +1,25 @@
+package com.medical.qc.shared.metrics;
+
+import java.util.Map;
+
+/**
+ * 运行期指标来源。
+ *
+ * <p>连接池、调度器等基础组件实现该接口后，会被管理员运行指标接口统一汇总输出。</p>
+ */
+public interface RuntimeMetricsSource {
+
+    /**
+     * 指标分组名称，作为汇总结果中的键。
+     *
+     * @return 分组名称
+     */
+    String getMetricsName();
+
+    /**
+     * 当前指标快照。
+     *
+     * @return 可直接序列化为 JSON 的指标映射
+     */
+    Map<String, Object> getMetricsSnapshot();
+}
@@ -0,0 +1,20 @@
+-- Flyway V20
+-- 目标：
+-- 1. 新增质控任务投递 outbox 表，与 qc_tasks 在同一事务内写入
+-- 2. 由后台中继批量投递到 ActiveMQ，至少投递一次；broker 长时间不可用时转本地执行
+
+CREATE TABLE IF NOT EXISTS `qc_task_outbox` (
+  `id` bigint NOT NULL AUTO_INCREMENT,
+  `task_no` varchar(64) NOT NULL,
+  `task_type_code` varchar(50) DEFAULT NULL,
+  `destination` varchar(200) NOT NULL,
+  `payload_json` json NOT NULL,
+  `publish_status` varchar(20) NOT NULL DEFAULT 'PENDING' COMMENT '投递状态：PENDING/PUBLISHED/LOCAL/INVALID',
+  `attempt_count` int NOT NULL DEFAULT 0,
+  `last_error` varchar(500) DEFAULT NULL,
+  `created_at` datetime(3) DEFAULT CURRENT_TIMESTAMP(3),
+  `published_at` datetime(3) DEFAULT NULL,
+  PRIMARY KEY (`id`),
+  KEY `idx_qc_task_outbox_status_id` (`publish_status`, `id`),
+  KEY `idx_qc_task_outbox_task_no` (`task_no`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='质控任务投递 outbox 表';
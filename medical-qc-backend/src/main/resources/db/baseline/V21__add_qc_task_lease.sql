@@ -0,0 +1,9 @@
+-- Flyway V21
+-- 目标：
+-- 1. 为统一质控任务补充执行租约与恢复次数字段
+-- 2. 执行节点定期续租；租约过期的 PROCESSING 任务由恢复扫描器按 idx_qc_tasks_status_created 分批重新派发，
+--    认领（回到 PENDING）与 outbox 记录在同一事务内写入；PENDING 任务由 outbox 中继负责投递
+
+ALTER TABLE `qc_tasks`
+  ADD COLUMN `lease_expires_at` datetime(3) DEFAULT NULL COMMENT '执行租约到期时间，执行节点心跳续租' AFTER `completed_at`,
+  ADD COLUMN `recovery_count` int NOT NULL DEFAULT 0 COMMENT '租约过期后被恢复扫描器重新派发的次数' AFTER `lease_expires_at`;
@@ -0,0 +1,7 @@
+-- Flyway V22
+-- 目标：
+-- 1. 为任务准入控制统计提交人 PENDING 积压补充 (task_status, submitted_by) 索引
+-- 2. 全局积压统计同样命中该索引前缀，不再回表扫描 created_at 范围
+
+ALTER TABLE `qc_tasks`
+  ADD KEY `idx_qc_tasks_status_submitter` (`task_status`, `submitted_by`);
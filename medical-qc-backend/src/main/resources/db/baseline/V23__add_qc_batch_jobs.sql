@@ -0,0 +1,46 @@
+-- Flyway V23
+-- 目标：
+-- 1. 新增 PACS 批量质控作业表，记录日期范围、调度时间、执行租约与断点
+-- 2. 作业按 (study_date, id) 顺序分块扫描 PACS 缓存表，为各缓存表补充对应索引
+
+CREATE TABLE IF NOT EXISTS `qc_batch_jobs` (
+  `id` bigint NOT NULL AUTO_INCREMENT,
+  `job_no` varchar(64) NOT NULL,
+  `task_type_code` varchar(50) NOT NULL,
+  `start_date` date NOT NULL,
+  `end_date` date NOT NULL,
+  `job_status` varchar(20) NOT NULL DEFAULT 'PENDING' COMMENT '作业状态：PENDING/RUNNING/PAUSED/COMPLETED/CANCELLED',
+  `submitted_by` bigint DEFAULT NULL,
+  `scheduled_at` datetime(3) NOT NULL COMMENT '最早开始执行时间，支持延后执行',
+  `total_count` int NOT NULL DEFAULT 0 COMMENT '创建作业时日期范围内的检查数',
+  `dispatched_count` int NOT NULL DEFAULT 0 COMMENT '已创建质控任务的检查数',
+  `failed_count` int NOT NULL DEFAULT 0 COMMENT '校验失败未创建任务的检查数',
+  `checkpoint_study_date` date DEFAULT NULL COMMENT '断点：最后处理的检查日期',
+  `checkpoint_study_id` bigint DEFAULT NULL COMMENT '断点：最后处理的 PACS 缓存记录 ID',
+  `last_error` varchar(500) DEFAULT NULL,
+  `lease_owner` varchar(64) DEFAULT NULL COMMENT '当前执行节点',
+  `lease_expires_at` datetime(3) DEFAULT NULL COMMENT '执行租约到期时间',
+  `resumed_at` datetime(3) DEFAULT NULL COMMENT '本轮开始或恢复执行的时间，用于计算吞吐',
+  `resumed_processed_count` int NOT NULL DEFAULT 0 COMMENT '本轮开始时已处理的检查数',
+  `started_at` datetime(3) DEFAULT NULL,
+  `completed_at` datetime(3) DEFAULT NULL,
+  `created_at` datetime(3) DEFAULT CURRENT_TIMESTAMP(3),
+  `updated_at` datetime(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_qc_batch_jobs_job_no` (`job_no`),
+  KEY `idx_qc_batch_jobs_status_scheduled` (`job_status`, `scheduled_at`),
+  CONSTRAINT `qc_batch_jobs_ibfk_1` FOREIGN KEY (`submitted_by`) REFERENCES `users` (`id`) ON DELETE SET NULL,
+  CONSTRAINT `qc_batch_jobs_ibfk_2` FOREIGN KEY (`task_type_code`) REFERENCES `qc_task_types` (`code`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='PACS 批量质控作业表';
+
+ALTER TABLE `head_pacs_study_cache`
+  ADD KEY `idx_head_pacs_study_date_id` (`study_date`, `id`);
+
+ALTER TABLE `chest_non_contrast_pacs_study_cache`
+  ADD KEY `idx_chest_nc_pacs_study_date_id` (`study_date`, `id`);
+
+ALTER TABLE `chest_contrast_pacs_study_cache`
+  ADD KEY `idx_chest_c_pacs_study_date_id` (`study_date`, `id`);
+
+ALTER TABLE `coronary_cta_pacs_study_cache`
+  ADD KEY `idx_coronary_cta_pacs_study_date_id` (`study_date`, `id`);
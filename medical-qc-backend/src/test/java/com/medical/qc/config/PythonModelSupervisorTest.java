@@ -0,0 +1,133 @@
+package com.medical.qc.config;
+
+import com.medical.qc.shared.ai.ModelServerProperties;
+import com.medical.qc.shared.ai.ModelServerRouteTable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * PythonModelSupervisor 单元测试。
+ * 校验主实例失效后切换到热备、失效实例重启为新热备，以及重启失败时的退避重试。
+ */
+class PythonModelSupervisorTest {
+    private static final URI PRIMARY_URI = URI.create("ws://localhost:8765");
+    private static final URI STANDBY_URI = URI.create("ws://localhost:8770");
+
+    private final ModelServerRouteTable routeTable = new ModelServerRouteTable();
+    private final FakeProcessControl processControl = new FakeProcessControl();
+    private PythonModelSupervisor supervisor;
+
+    @AfterEach
+    void tearDown() {
+        if (supervisor != null) {
+            supervisor.stop();
+        }
+    }
+
+    @Test
+    void failedPrimaryShouldSwitchToStandbyAndRestartAsNewStandby() throws Exception {
+        List<URI> switchedTargets = new CopyOnWriteArrayList<>();
+        routeTable.addListener((logicalUri, targetUri) -> switchedTargets.add(targetUri));
+        supervisor = new PythonModelSupervisor(properties(STANDBY_URI.toString()), routeTable);
+        processControl.healthy.add(PRIMARY_URI);
+
+        supervisor.start(processControl, primaries());
+        awaitMetric("standby", metrics -> String.valueOf(metrics.get("standby")).contains("STANDBY"));
+
+        processControl.healthy.remove(PRIMARY_URI);
+        awaitMetric("failovers", metrics -> Long.valueOf(1L).equals(metrics.get("failovers")));
+
+        // 流量切到热备，失效的主实例重启后成为新的热备。
+        assertThat(routeTable.resolve(PRIMARY_URI)).isEqualTo(STANDBY_URI);
+        assertThat(switchedTargets).containsExactly(STANDBY_URI);
+        awaitMetric("standby", metrics -> String.valueOf(metrics.get("standby")).contains(PRIMARY_URI + ", state=STANDBY"));
+        assertThat(supervisor.getMetricsSnapshot().get("restarts")).isEqualTo(2L);
+    }
+
+    @Test
+    void restartShouldBackOffUntilProcessBecomesReady() throws Exception {
+        supervisor = new PythonModelSupervisor(properties(""), routeTable);
+        processControl.healthy.add(PRIMARY_URI);
+        supervisor.start(processControl, primaries());
+
+        // 没有热备时原地重启，前两次拉起失败后按退避重试。
+        processControl.failingStarts.set(2);
+        processControl.healthy.remove(PRIMARY_URI);
+        awaitMetric("restarts", metrics -> Long.valueOf(1L).equals(metrics.get("restarts")));
+
+        Map<String, Object> metrics = supervisor.getMetricsSnapshot();
+        assertThat(metrics).containsEntry("restartFailures", 2L).containsEntry("failovers", 0L);
+        assertThat(routeTable.resolve(PRIMARY_URI)).isEqualTo(PRIMARY_URI);
+    }
+
+    private Map<URI, Process> primaries() {
+        Map<URI, Process> primaries = new HashMap<>();
+        primaries.put(PRIMARY_URI, null);
+        return primaries;
+    }
+
+    private ModelServerProperties properties(String standbyUrl) {
+        ModelServerProperties properties = new ModelServerProperties();
+        properties.getSupervisor().setEnabled(true);
+        properties.getSupervisor().setStandbyUrl(standbyUrl);
+        properties.getSupervisor().setHealthCheckIntervalMs(100L);
+        properties.getSupervisor().setFailureThreshold(1);
+        properties.getSupervisor().setRestartInitialBackoffMs(10L);
+        properties.getSupervisor().setRestartMaxBackoffMs(20L);
+        properties.getSupervisor().setReadyTimeoutMs(100L);
+        return properties;
+    }
+
+    private void awaitMetric(String name, Predicate<Map<String, Object>> condition)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (System.currentTimeMillis() < deadline && !condition.test(supervisor.getMetricsSnapshot())) {
+            Thread.sleep(20L);
+        }
+        assertThat(condition.test(supervisor.getMetricsSnapshot()))
+                .as("metric %s: %s", name, supervisor.getMetricsSnapshot())
+                .isTrue();
+    }
+
+    /**
+     * 用健康地址集合模拟进程存活，start 成功即视为该地址恢复健康。
+     */
+    private static final class FakeProcessControl implements ModelServerProcessControl {
+        private final Set<URI> healthy = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger failingStarts = new AtomicInteger();
+
+        @Override
+        public Process start(URI serverUri) {
+            if (failingStarts.getAndUpdate(count -> Math.max(0, count - 1)) == 0) {
+                healthy.add(serverUri);
+            }
+            return null;
+        }
+
+        @Override
+        public boolean isHealthy(URI serverUri) {
+            return healthy.contains(serverUri);
+        }
+
+        @Override
+        public boolean awaitReady(URI serverUri, long timeoutMs) {
+            return healthy.contains(serverUri);
+        }
+
+        @Override
+        public void stop(Process process) {
+        }
+    }
+}
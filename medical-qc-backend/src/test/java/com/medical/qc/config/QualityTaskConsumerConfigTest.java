@@ -0,0 +1,80 @@
+package com.medical.qc.config;
+
+import com.medical.qc.messaging.MockQualityTaskConsumer;
+import com.medical.qc.messaging.MockQualityTaskMessage;
+import com.medical.qc.modules.qctask.application.MockQualityTaskServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.jms.config.SimpleJmsListenerEndpoint;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 质控任务消费者注册测试。
+ * 校验按任务类型拆分的监听端点、选择器与预取参数，以及在途名额在任务结束后才归还。
+ */
+class QualityTaskConsumerConfigTest {
+
+    @Test
+    void configuredTaskTypesShouldGetDedicatedEndpoints() {
+        ActiveMqProperties properties = new ActiveMqProperties();
+        properties.getConsumer().getConcurrency().put("head", "4-8");
+        properties.getConsumer().getConcurrency().put("coronary-cta", "2-4");
+        properties.getConsumer().setPrefetch(1);
+
+        List<SimpleJmsListenerEndpoint> endpoints = QualityTaskConsumerConfig.buildEndpoints(properties);
+
+        assertThat(endpoints).extracting(SimpleJmsListenerEndpoint::getId).containsExactly(
+                "qc-mock-quality-task-head",
+                "qc-mock-quality-task-coronary-cta",
+                "qc-mock-quality-task-default");
+        assertThat(endpoints.get(0).getSelector()).isEqualTo("taskType = 'head'");
+        assertThat(endpoints.get(0).getConcurrency()).isEqualTo("4-8");
+        assertThat(endpoints.get(1).getConcurrency()).isEqualTo("2-4");
+        // 兜底端点只接收未单独配置的任务类型，避免与专属端点重复消费。
+        assertThat(endpoints.get(2).getSelector())
+                .isEqualTo("taskType IS NULL OR taskType NOT IN ('head', 'coronary-cta')");
+        assertThat(endpoints.get(2).getConcurrency()).isEqualTo("1-2");
+        assertThat(endpoints).allSatisfy(endpoint -> assertThat(endpoint.getDestination())
+                .isEqualTo("qc.mock.quality.task?consumer.prefetchSize=1"));
+    }
+
+    @Test
+    void maxConcurrencyShouldBoundInFlightTasksPerEndpoint() {
+        assertThat(QualityTaskConsumerConfig.maxConcurrency("2-4")).isEqualTo(4);
+        assertThat(QualityTaskConsumerConfig.maxConcurrency("3")).isEqualTo(3);
+        assertThat(QualityTaskConsumerConfig.maxConcurrency(" ")).isEqualTo(1);
+    }
+
+    @Test
+    void consumerShouldHoldPermitUntilTaskCompletes() {
+        MockQualityTaskServiceImpl taskService = mock(MockQualityTaskServiceImpl.class);
+        CompletableFuture<Void> running = new CompletableFuture<>();
+        when(taskService.processTask(any())).thenReturn(running);
+        MockQualityTaskConsumer consumer = new MockQualityTaskConsumer(taskService);
+        Semaphore permits = new Semaphore(1);
+
+        consumer.consume(new MockQualityTaskMessage(), permits);
+
+        // 监听方法已返回，但任务未结束前名额不归还，同类型的下一条消息不会被取走。
+        assertThat(permits.availablePermits()).isZero();
+        running.complete(null);
+        assertThat(permits.availablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    void withoutTaskTypeConcurrencyOnlyDefaultEndpointShouldConsumeEverything() {
+        ActiveMqProperties properties = new ActiveMqProperties();
+
+        List<SimpleJmsListenerEndpoint> endpoints = QualityTaskConsumerConfig.buildEndpoints(properties);
+
+        assertThat(endpoints).hasSize(1);
+        assertThat(endpoints.get(0).getSelector()).isNull();
+    }
+}
@@ -1,5 +1,7 @@
 package com.medical.qc.modules.qctask.application.support;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medical.qc.config.VolumeStatsCacheProperties;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
@@ -16,7 +18,8 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 
 class CoronaryCtaRuleAnalyzerTest {
-    private final CoronaryCtaRuleAnalyzer analyzer = new CoronaryCtaRuleAnalyzer();
+    private final CoronaryCtaRuleAnalyzer analyzer = new CoronaryCtaRuleAnalyzer(
+            new NiftiVolumeStatsCache(new VolumeStatsCacheProperties(), new ObjectMapper()));
 
     @TempDir
     Path tempDir;
@@ -60,6 +60,7 @@ class MockQualityTaskViewAssemblerTest {
         // 轮询地址必须与前端质量任务中心使用的接口保持一致。
         assertThat(response.get("taskId")).isEqualTo("task-001");
         assertThat(response.get("pollingUrl")).isEqualTo("/api/v1/quality/tasks/task-001");
+        assertThat(response.get("eventsUrl")).isEqualTo("/api/v1/quality/tasks/task-001/events");
         assertThat(response.get("message")).isEqualTo("质控任务已提交，请轮询任务结果接口");
     }
 }
@@ -0,0 +1,126 @@
+package com.medical.qc.modules.qctask.application.support;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * NIfTI 压缩随机访问索引测试。
+ * 校验任意区间读取与原始数据一致、附属文件复用与失效重建，以及统计引擎经索引读取的结果与未压缩文件一致。
+ */
+class NiftiGzipIndexTest {
+    private static final int CHUNK_BYTES = 8 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void readShouldReturnSameBytesAsUncompressedVolume() throws IOException {
+        byte[] volume = buildVolume();
+        Path gzipPath = writeGzip(volume);
+        Random random = new Random(11);
+
+        try (NiftiGzipIndex index = NiftiGzipIndex.open(gzipPath, CHUNK_BYTES)) {
+            assertThat(index.uncompressedSize()).isEqualTo(volume.length);
+            assertThat(index.chunkCount()).isEqualTo((volume.length + CHUNK_BYTES - 1) / CHUNK_BYTES);
+            for (int attempt = 0; attempt < 200; attempt++) {
+                int position = random.nextInt(volume.length);
+                int length = Math.min(volume.length - position, random.nextInt(3 * CHUNK_BYTES));
+                assertThat(index.read(position, length))
+                        .isEqualTo(Arrays.copyOfRange(volume, position, position + length));
+            }
+            assertThatThrownBy(() -> index.read(volume.length - 1L, 2)).isInstanceOf(EOFException.class);
+        }
+    }
+
+    @Test
+    void sidecarShouldBeReusedAndRebuiltWhenSourceChanges() throws IOException {
+        Path gzipPath = writeGzip(buildVolume());
+        Path sidecarPath = NiftiGzipIndex.sidecarPath(gzipPath);
+
+        NiftiGzipIndex.open(gzipPath, CHUNK_BYTES).close();
+        FileTime builtAt = FileTime.fromMillis(1_000L);
+        Files.setLastModifiedTime(sidecarPath, builtAt);
+        NiftiGzipIndex.open(gzipPath, CHUNK_BYTES).close();
+        assertThat(Files.getLastModifiedTime(sidecarPath)).isEqualTo(builtAt);
+
+        Files.setLastModifiedTime(gzipPath, FileTime.fromMillis(Files.getLastModifiedTime(gzipPath).toMillis() + 5_000L));
+        NiftiGzipIndex.open(gzipPath, CHUNK_BYTES).close();
+        assertThat(Files.getLastModifiedTime(sidecarPath)).isNotEqualTo(builtAt);
+    }
+
+    @Test
+    void corruptSidecarShouldBeRebuilt() throws IOException {
+        byte[] volume = buildVolume();
+        Path gzipPath = writeGzip(volume);
+        Files.write(NiftiGzipIndex.sidecarPath(gzipPath), new byte[] {1, 2, 3});
+
+        try (NiftiGzipIndex index = NiftiGzipIndex.open(gzipPath, CHUNK_BYTES)) {
+            assertThat(index.read(0L, volume.length)).isEqualTo(volume);
+        }
+    }
+
+    @Test
+    void indexedStatsShouldMatchUncompressedVolume() throws IOException {
+        byte[] volume = buildVolume();
+        Path niftiPath = Files.write(tempDir.resolve("volume.nii"), volume);
+        Path gzipPath = writeGzip(volume);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (NiftiVolumeStatsEngine.Mode mode : NiftiVolumeStatsEngine.Mode.values()) {
+                NiftiSampleStats mapped = NiftiVolumeStatsEngine.compute(niftiPath, mode, pool);
+                NiftiSampleStats indexed = NiftiVolumeStatsEngine.compute(gzipPath, mode, pool, CHUNK_BYTES);
+                assertThat(indexed).isEqualTo(mapped);
+            }
+            assertThat(NiftiGzipIndex.sidecarPath(gzipPath)).exists();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private byte[] buildVolume() {
+        int width = 96;
+        int height = 64;
+        int depth = 24;
+        int voxelCount = width * height * depth;
+        Random random = new Random(7);
+        ByteBuffer buffer = ByteBuffer.allocate(352 + voxelCount * 2).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(0, 348);
+        buffer.putShort(40, (short) 3);
+        buffer.putShort(42, (short) width);
+        buffer.putShort(44, (short) height);
+        buffer.putShort(46, (short) depth);
+        buffer.putShort(70, (short) 4);
+        buffer.putShort(72, (short) 16);
+        buffer.putFloat(108, 352.0F);
+        buffer.putFloat(112, 1.0F);
+        buffer.putFloat(116, -1024.0F);
+        for (int index = 0; index < voxelCount; index++) {
+            buffer.putShort(352 + index * 2, (short) (900 + random.nextInt(400)));
+        }
+        return buffer.array();
+    }
+
+    private Path writeGzip(byte[] content) throws IOException {
+        Path gzipPath = tempDir.resolve("volume.nii.gz");
+        try (OutputStream outputStream = new GZIPOutputStream(Files.newOutputStream(gzipPath))) {
+            outputStream.write(content);
+        }
+        return gzipPath;
+    }
+}
@@ -0,0 +1,123 @@
+package com.medical.qc.modules.qctask.application.support;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * NIfTI 采样统计读取器测试。
+ * 校验内存映射、压缩流与压缩索引三条路径采样同一组体素、统计一致，压缩索引只在显式启用时写入，以及截断文件的报错。
+ */
+class NiftiSampleStatsReaderTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void mappedReadShouldMatchGzipStreamRead() throws IOException {
+        // 64 × 64 × 40 超过默认样本上限，采样步长为 3，覆盖按步长定位的路径。
+        byte[] volume = buildVolume(64, 64, 40, ByteOrder.LITTLE_ENDIAN);
+        Path niftiPath = Files.write(tempDir.resolve("volume.nii"), volume);
+        Path gzipPath = writeGzip(tempDir.resolve("volume.nii.gz"), volume);
+
+        NiftiSampleStats mapped = NiftiSampleStatsReader.read(niftiPath);
+        NiftiSampleStats streamed = NiftiSampleStatsReader.read(gzipPath);
+
+        assertThat(mapped).isEqualTo(streamed);
+        assertThat(mapped.sampledVoxelCount()).isEqualTo((64L * 64L * 40L + 2L) / 3L);
+        assertThat(mapped.maxHu()).isEqualTo(311.0D);
+    }
+
+    @Test
+    void gzipIndexShouldOnlyBeWrittenWhenEnabled() throws IOException {
+        // 随机体素使压缩后仍超过默认检查点间隔，启用时会真正建立索引。
+        byte[] volume = buildVolume(128, 128, 140, ByteOrder.LITTLE_ENDIAN);
+        byte[] noise = new byte[volume.length - 352];
+        new Random(7L).nextBytes(noise);
+        System.arraycopy(noise, 0, volume, 352, noise.length);
+        Path gzipPath = writeGzip(tempDir.resolve("large.nii.gz"), volume);
+        assertThat(Files.size(gzipPath)).isGreaterThanOrEqualTo(NiftiGzipIndex.DEFAULT_CHUNK_BYTES);
+
+        NiftiVolumeStats streamed = NiftiSampleStatsReader.readVolumeStats(gzipPath);
+        assertThat(NiftiGzipIndex.sidecarPath(gzipPath)).doesNotExist();
+
+        NiftiVolumeStats indexed = NiftiSampleStatsReader.readVolumeStats(gzipPath, true);
+        assertThat(NiftiGzipIndex.sidecarPath(gzipPath)).exists();
+        assertThat(indexed.sampleStats()).isEqualTo(streamed.sampleStats());
+    }
+
+    @Test
+    void indexedGzipReadShouldMatchMappedRead() throws IOException {
+        byte[] volume = buildVolume(64, 64, 40, ByteOrder.LITTLE_ENDIAN);
+        Path niftiPath = Files.write(tempDir.resolve("indexed.nii"), volume);
+        Path gzipPath = writeGzip(tempDir.resolve("indexed.nii.gz"), volume);
+
+        // 1 KiB 检查点使窗口跨越多个块，覆盖预读窗口与体素序号的对齐。
+        NiftiVolumeStats indexed = NiftiSampleStatsReader.readVolumeStats(gzipPath, 1024);
+        NiftiVolumeStats mapped = NiftiSampleStatsReader.readVolumeStats(niftiPath);
+
+        assertThat(indexed.sampleStats()).isEqualTo(mapped.sampleStats());
+        assertThat(indexed.histogram()).isEqualTo(mapped.histogram());
+        assertThat(NiftiGzipIndex.sidecarPath(gzipPath)).exists();
+    }
+
+    @Test
+    void mappedReadShouldHonourBigEndianVolumes() throws IOException {
+        Path littleEndian = Files.write(tempDir.resolve("little.nii"), buildVolume(32, 32, 8, ByteOrder.LITTLE_ENDIAN));
+        Path bigEndian = Files.write(tempDir.resolve("big.nii"), buildVolume(32, 32, 8, ByteOrder.BIG_ENDIAN));
+
+        assertThat(NiftiSampleStatsReader.read(bigEndian)).isEqualTo(NiftiSampleStatsReader.read(littleEndian));
+    }
+
+    @Test
+    void mappedReadShouldRejectTruncatedVoxelData() throws IOException {
+        byte[] volume = buildVolume(16, 16, 4, ByteOrder.LITTLE_ENDIAN);
+        byte[] truncated = Arrays.copyOf(volume, volume.length - 10);
+        Path niftiPath = Files.write(tempDir.resolve("truncated.nii"), truncated);
+
+        assertThatThrownBy(() -> NiftiSampleStatsReader.read(niftiPath))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("提前结束");
+    }
+
+    private byte[] buildVolume(int width, int height, int depth, ByteOrder byteOrder) {
+        int voxelCount = width * height * depth;
+        ByteBuffer buffer = ByteBuffer.allocate(352 + voxelCount * 2).order(byteOrder);
+        buffer.putInt(0, 348);
+        buffer.putShort(40, (short) 3);
+        buffer.putShort(42, (short) width);
+        buffer.putShort(44, (short) height);
+        buffer.putShort(46, (short) depth);
+        buffer.putShort(70, (short) 4);
+        buffer.putShort(72, (short) 16);
+        buffer.putFloat(80, 0.7F);
+        buffer.putFloat(84, 0.7F);
+        buffer.putFloat(88, 1.0F);
+        buffer.putFloat(108, 352.0F);
+        buffer.putFloat(112, 1.0F);
+        buffer.putFloat(116, -1024.0F);
+        for (int index = 0; index < voxelCount; index++) {
+            int slice = index / (width * height);
+            buffer.putShort(352 + index * 2, (short) (900 + slice * 5 + (index % 7) * 40));
+        }
+        return buffer.array();
+    }
+
+    private Path writeGzip(Path outputPath, byte[] content) throws IOException {
+        try (OutputStream outputStream = new GZIPOutputStream(Files.newOutputStream(outputPath))) {
+            outputStream.write(content);
+        }
+        return outputPath;
+    }
+}
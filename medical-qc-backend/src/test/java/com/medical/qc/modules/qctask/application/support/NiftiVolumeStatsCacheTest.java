@@ -0,0 +1,120 @@
+package com.medical.qc.modules.qctask.application.support;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medical.qc.config.VolumeStatsCacheProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 体数据统计缓存测试。
+ * 校验内存命中、服务重启后经附属文件命中、文件变化后重新计算、关闭附属文件时不落盘以及全量统计模式。
+ */
+class NiftiVolumeStatsCacheTest {
+    private final VolumeStatsCacheProperties properties = new VolumeStatsCacheProperties();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void repeatedReadShouldHitMemory() throws IOException {
+        Path niftiPath = writeVolume(tempDir.resolve("volume.nii"), (short) 1200);
+        NiftiVolumeStatsCache cache = new NiftiVolumeStatsCache(properties, objectMapper);
+
+        NiftiSampleStats first = cache.getSampleStats(niftiPath);
+        NiftiSampleStats second = cache.getSampleStats(niftiPath);
+
+        assertThat(second).isEqualTo(first).isEqualTo(NiftiSampleStatsReader.read(niftiPath));
+        assertThat(cache.getMetricsSnapshot())
+                .containsEntry("computations", 1L)
+                .containsEntry("memoryHits", 1L);
+    }
+
+    @Test
+    void newInstanceShouldReuseSidecar() throws IOException {
+        Path niftiPath = writeVolume(tempDir.resolve("volume.nii"), (short) 1200);
+        NiftiVolumeStats computed = new NiftiVolumeStatsCache(properties, objectMapper).getVolumeStats(niftiPath);
+        assertThat(NiftiVolumeStatsCache.sidecarPath(niftiPath)).exists();
+
+        NiftiVolumeStatsCache restarted = new NiftiVolumeStatsCache(properties, objectMapper);
+
+        // 直方图随附属文件恢复，百分位无需重新扫描体素。
+        assertThat(restarted.getVolumeStats(niftiPath)).isEqualTo(computed);
+        assertThat(restarted.getMetricsSnapshot())
+                .containsEntry("sidecarHits", 1L)
+                .containsEntry("computations", 0L);
+    }
+
+    @Test
+    void changedVolumeShouldBeRecomputed() throws IOException {
+        Path niftiPath = writeVolume(tempDir.resolve("volume.nii"), (short) 1200);
+        NiftiVolumeStatsCache cache = new NiftiVolumeStatsCache(properties, objectMapper);
+        NiftiSampleStats original = cache.getSampleStats(niftiPath);
+
+        writeVolume(niftiPath, (short) 1500);
+        Files.setLastModifiedTime(niftiPath, FileTime.fromMillis(Files.getLastModifiedTime(niftiPath).toMillis() + 5_000L));
+        NiftiSampleStats updated = cache.getSampleStats(niftiPath);
+
+        assertThat(updated.maxHu()).isGreaterThan(original.maxHu());
+        assertThat(cache.getMetricsSnapshot()).containsEntry("computations", 2L);
+    }
+
+    @Test
+    void disabledSidecarShouldNotWriteFiles() throws IOException {
+        properties.setSidecarEnabled(false);
+        Path niftiPath = writeVolume(tempDir.resolve("volume.nii"), (short) 1200);
+
+        new NiftiVolumeStatsCache(properties, objectMapper).getSampleStats(niftiPath);
+
+        assertThat(NiftiVolumeStatsCache.sidecarPath(niftiPath)).doesNotExist();
+    }
+
+    @Test
+    void exactModeShouldUseEngineAndIgnoreSampledSidecar() throws IOException {
+        Path niftiPath = writeVolume(tempDir.resolve("volume.nii"), (short) 1200);
+        new NiftiVolumeStatsCache(properties, objectMapper).getVolumeStats(niftiPath);
+        properties.setMode("exact");
+
+        NiftiVolumeStatsCache exactCache = new NiftiVolumeStatsCache(properties, objectMapper);
+
+        // 采样模式写入的附属文件不被全量模式复用。
+        assertThat(exactCache.getVolumeStats(niftiPath))
+                .isEqualTo(NiftiVolumeStatsEngine.computeVolumeStats(niftiPath, NiftiVolumeStatsEngine.Mode.EXACT));
+        assertThat(exactCache.getMetricsSnapshot())
+                .containsEntry("mode", "EXACT")
+                .containsEntry("sidecarHits", 0L)
+                .containsEntry("computations", 1L);
+    }
+
+    private Path writeVolume(Path outputPath, short peakValue) throws IOException {
+        int width = 8;
+        int height = 8;
+        int depth = 4;
+        int voxelCount = width * height * depth;
+        ByteBuffer buffer = ByteBuffer.allocate(352 + voxelCount * 2).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(0, 348);
+        buffer.putShort(40, (short) 3);
+        buffer.putShort(42, (short) width);
+        buffer.putShort(44, (short) height);
+        buffer.putShort(46, (short) depth);
+        buffer.putShort(70, (short) 4);
+        buffer.putShort(72, (short) 16);
+        buffer.putFloat(108, 352.0F);
+        buffer.putFloat(112, 1.0F);
+        buffer.putFloat(116, -1024.0F);
+        for (int index = 0; index < voxelCount; index++) {
+            buffer.putShort(352 + index * 2, (short) (900 + (index % 5) * 30));
+        }
+        buffer.putShort(352, peakValue);
+        return Files.write(outputPath, buffer.array());
+    }
+}
@@ -0,0 +1,195 @@
+package com.medical.qc.modules.qctask.application.support;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * NIfTI 分层并行统计引擎测试。
+ * 校验精确模式与逐体素计算一致、int32 体素不丢精度、结果不随并行度和压缩方式变化、直方图覆盖全部体素，以及采样模式与采样读取器采同一组体素。
+ */
+class NiftiVolumeStatsEngineTest {
+    private static final int WIDTH = 64;
+    private static final int HEIGHT = 48;
+    private static final int DEPTH = 40;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void exactModeShouldCoverEveryVoxel() throws IOException {
+        short[] voxels = buildVoxels();
+        Path niftiPath = Files.write(tempDir.resolve("volume.nii"), buildVolume(voxels));
+
+        NiftiSampleStats stats = NiftiVolumeStatsEngine.compute(niftiPath, NiftiVolumeStatsEngine.Mode.EXACT);
+
+        double sum = 0.0D;
+        double max = Double.NEGATIVE_INFINITY;
+        long highDensity = 0L;
+        for (short voxel : voxels) {
+            double huValue = voxel - 1024.0D;
+            sum += huValue;
+            max = Math.max(max, huValue);
+            highDensity += huValue >= 250.0D ? 1L : 0L;
+        }
+        double mean = sum / voxels.length;
+        double squaredDeviation = 0.0D;
+        for (short voxel : voxels) {
+            squaredDeviation += Math.pow(voxel - 1024.0D - mean, 2);
+        }
+
+        assertThat(stats.sampledVoxelCount()).isEqualTo(voxels.length);
+        assertThat(stats.meanHu()).isCloseTo(mean, within(1e-3D));
+        assertThat(stats.stdHu()).isCloseTo(Math.sqrt(squaredDeviation / (voxels.length - 1)), within(1e-3D));
+        assertThat(stats.maxHu()).isEqualTo(max);
+        assertThat(stats.highDensityRatio()).isCloseTo((double) highDensity / voxels.length, within(1e-3D));
+    }
+
+    @Test
+    void exactModeShouldNotDependOnParallelismOrCompression() throws IOException {
+        byte[] volume = buildVolume(buildVoxels());
+        Path niftiPath = Files.write(tempDir.resolve("volume.nii"), volume);
+        Path gzipPath = tempDir.resolve("volume.nii.gz");
+        try (OutputStream outputStream = new GZIPOutputStream(Files.newOutputStream(gzipPath))) {
+            outputStream.write(volume);
+        }
+
+        ForkJoinPool singleThreadPool = new ForkJoinPool(1);
+        ForkJoinPool parallelPool = new ForkJoinPool(4);
+        try {
+            NiftiSampleStats sequential = NiftiVolumeStatsEngine.compute(niftiPath, NiftiVolumeStatsEngine.Mode.EXACT, singleThreadPool);
+            NiftiSampleStats parallel = NiftiVolumeStatsEngine.compute(niftiPath, NiftiVolumeStatsEngine.Mode.EXACT, parallelPool);
+            NiftiSampleStats compressed = NiftiVolumeStatsEngine.compute(gzipPath, NiftiVolumeStatsEngine.Mode.EXACT, parallelPool);
+
+            assertThat(parallel).isEqualTo(sequential);
+            assertThat(compressed).isEqualTo(sequential);
+        } finally {
+            singleThreadPool.shutdown();
+            parallelPool.shutdown();
+        }
+    }
+
+    @Test
+    void sampledModeShouldSampleSameVoxelsAsReader() throws IOException {
+        Path niftiPath = Files.write(tempDir.resolve("volume.nii"), buildVolume(buildVoxels()));
+
+        NiftiSampleStats readerStats = NiftiSampleStatsReader.read(niftiPath);
+        NiftiSampleStats engineStats = NiftiVolumeStatsEngine.compute(niftiPath, NiftiVolumeStatsEngine.Mode.SAMPLED);
+
+        assertThat(engineStats.sampledVoxelCount()).isEqualTo(readerStats.sampledVoxelCount());
+        assertThat(engineStats.maxHu()).isEqualTo(readerStats.maxHu());
+        assertThat(engineStats.highDensityRatio()).isEqualTo(readerStats.highDensityRatio());
+        assertThat(engineStats.meanAbsoluteSliceShift()).isEqualTo(readerStats.meanAbsoluteSliceShift());
+        // 合并顺序不同，均值与标准差只允许舍入误差。
+        assertThat(engineStats.meanHu()).isCloseTo(readerStats.meanHu(), within(1e-3D));
+        assertThat(engineStats.stdHu()).isCloseTo(readerStats.stdHu(), within(1e-3D));
+    }
+
+    @Test
+    void exactModeHistogramShouldCountEveryVoxel() throws IOException {
+        short[] voxels = buildVoxels();
+        Path niftiPath = Files.write(tempDir.resolve("volume.nii"), buildVolume(voxels));
+
+        NiftiVolumeStats volumeStats = NiftiVolumeStatsEngine.computeVolumeStats(niftiPath, NiftiVolumeStatsEngine.Mode.EXACT);
+
+        double[] sortedHu = new double[voxels.length];
+        for (int index = 0; index < voxels.length; index++) {
+            sortedHu[index] = voxels[index] - 1024.0D;
+        }
+        Arrays.sort(sortedHu);
+        HuHistogram histogram = volumeStats.histogram();
+        assertThat(histogram.count()).isEqualTo(voxels.length);
+        // 阈值落在分箱边界上，高密度占比与逐体素计数一致。
+        assertThat(histogram.fractionAtOrAbove(250.0D)).isEqualTo(volumeStats.sampleStats().highDensityRatio());
+        // 百分位误差不超过一个分箱宽度。
+        assertThat(volumeStats.percentileHu(99.0D))
+                .isCloseTo(sortedHu[(int) Math.ceil(voxels.length * 0.99D) - 1], within(HuHistogram.BIN_WIDTH_HU));
+    }
+
+    @Test
+    void sampledModeHistogramShouldMatchReader() throws IOException {
+        Path niftiPath = Files.write(tempDir.resolve("volume.nii"), buildVolume(buildVoxels()));
+
+        NiftiVolumeStats readerStats = NiftiSampleStatsReader.readVolumeStats(niftiPath);
+        NiftiVolumeStats engineStats = NiftiVolumeStatsEngine.computeVolumeStats(niftiPath, NiftiVolumeStatsEngine.Mode.SAMPLED);
+
+        assertThat(engineStats.histogram()).isEqualTo(readerStats.histogram());
+        assertThat(engineStats.percentileHu(95.0D)).isEqualTo(readerStats.percentileHu(95.0D));
+    }
+
+    private short[] buildVoxels() {
+        short[] voxels = new short[WIDTH * HEIGHT * DEPTH];
+        for (int index = 0; index < voxels.length; index++) {
+            int slice = index / (WIDTH * HEIGHT);
+            voxels[index] = (short) (900 + slice * 7 + (index % 11) * 45);
+        }
+        return voxels;
+    }
+
+    @Test
+    void exactModeShouldKeepInt32PrecisionAboveFloatMantissa() throws IOException {
+        int width = 16;
+        int height = 16;
+        int depth = 8;
+        int voxelCount = width * height * depth;
+        ByteBuffer buffer = ByteBuffer.allocate(352 + voxelCount * 4).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(0, 348);
+        buffer.putShort(40, (short) 3);
+        buffer.putShort(42, (short) width);
+        buffer.putShort(44, (short) height);
+        buffer.putShort(46, (short) depth);
+        buffer.putShort(70, (short) 8);
+        buffer.putShort(72, (short) 32);
+        buffer.putFloat(108, 352.0F);
+        buffer.putFloat(112, 1.0F);
+        buffer.putFloat(116, -16_777_000.0F);
+        for (int index = 0; index < voxelCount; index++) {
+            // 原始值超过 2^24，float 换算会把 249 / 251 HU 舍入到相邻偶数，越过 250 HU 阈值。
+            buffer.putInt(352 + index * 4, 16_777_249 + index % 3);
+        }
+        Path niftiPath = Files.write(tempDir.resolve("int32.nii"), buffer.array());
+
+        NiftiSampleStats stats = NiftiVolumeStatsEngine.compute(niftiPath, NiftiVolumeStatsEngine.Mode.EXACT);
+
+        long highDensity = 0L;
+        for (int index = 0; index < voxelCount; index++) {
+            highDensity += index % 3 == 0 ? 0L : 1L;
+        }
+        assertThat(stats.maxHu()).isEqualTo(251.0D);
+        assertThat(stats.highDensityRatio()).isEqualTo(NiftiSampleStatsReader.round((double) highDensity / voxelCount));
+        assertThat(stats).isEqualTo(NiftiSampleStatsReader.read(niftiPath));
+    }
+
+    private byte[] buildVolume(short[] voxels) {
+        ByteBuffer buffer = ByteBuffer.allocate(352 + voxels.length * 2).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(0, 348);
+        buffer.putShort(40, (short) 3);
+        buffer.putShort(42, (short) WIDTH);
+        buffer.putShort(44, (short) HEIGHT);
+        buffer.putShort(46, (short) DEPTH);
+        buffer.putShort(70, (short) 4);
+        buffer.putShort(72, (short) 16);
+        buffer.putFloat(80, 0.7F);
+        buffer.putFloat(84, 0.7F);
+        buffer.putFloat(88, 1.0F);
+        buffer.putFloat(108, 352.0F);
+        buffer.putFloat(112, 1.0F);
+        buffer.putFloat(116, -1024.0F);
+        for (int index = 0; index < voxels.length; index++) {
+            buffer.putShort(352 + index * 2, voxels[index]);
+        }
+        return buffer.array();
+    }
+}
@@ -0,0 +1,165 @@
+package com.medical.qc.modules.qctask.application.support;
+
+import com.medical.qc.config.BatchQcJobProperties;
+import com.medical.qc.modules.pacs.application.support.TaskScopedPacsStudyStorageService;
+import com.medical.qc.modules.pacs.model.PacsStudyCache;
+import com.medical.qc.modules.unified.application.support.UnifiedBatchJobWriteService;
+import com.medical.qc.modules.unified.application.support.UnifiedQualityTaskWriteService;
+import com.medical.qc.modules.unified.persistence.entity.UnifiedQcBatchJob;
+import com.medical.qc.shared.ai.AiGateway;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * PACS 批量质控作业调度器测试。
+ * 校验按模型服务容量节流、从断点分块派发、作业暂停后停止派发以及扫描结束后完成作业。
+ */
+class QualityBatchJobRunnerTest {
+    private final BatchQcJobProperties properties = new BatchQcJobProperties();
+    private final UnifiedBatchJobWriteService batchJobWriteService = mock(UnifiedBatchJobWriteService.class);
+    private final UnifiedQualityTaskWriteService taskWriteService = mock(UnifiedQualityTaskWriteService.class);
+    private final TaskScopedPacsStudyStorageService pacsStorageService = mock(TaskScopedPacsStudyStorageService.class);
+    private final AiGateway aiGateway = mock(AiGateway.class);
+    private final List<String> submittedExamIds = new CopyOnWriteArrayList<>();
+
+    @Test
+    void runShouldLimitChunkToRemainingModelCapacity() {
+        properties.setOutstandingPerInferenceSlot(2);
+        when(aiGateway.getInferenceCapacity()).thenReturn(4);
+        // 容量 4 × 2 = 8，已有 5 个未完成任务，本轮只能再派发 3 个。
+        when(taskWriteService.countUnfinishedTasks()).thenReturn(5L);
+        UnifiedQcBatchJob job = job(1L, null, null);
+        runnableJob(job);
+        when(pacsStorageService.listStudiesAfter(eq("head"), any(), any(), isNull(), isNull(), eq(3)))
+                .thenReturn(List.of(study(11L, "ACC-11"), study(12L, "ACC-12"), study(13L, "ACC-13")));
+        when(batchJobWriteService.advanceCheckpoint(any(), anyString(), any(), any(), anyBoolean(), any(), any(), any()))
+                .thenReturn(true);
+        QualityBatchJobRunner runner = createRunner();
+
+        int dispatched = runner.runOnce();
+
+        assertThat(dispatched).isEqualTo(3);
+        assertThat(submittedExamIds).containsExactly("ACC-11", "ACC-12", "ACC-13");
+        verify(batchJobWriteService).advanceCheckpoint(
+                eq(1L), anyString(), any(), eq(13L), eq(true), isNull(), any(), any());
+    }
+
+    @Test
+    void runShouldSkipWhenModelCapacityIsExhausted() {
+        properties.setMaxOutstandingTasks(8);
+        when(taskWriteService.countUnfinishedTasks()).thenReturn(8L);
+        QualityBatchJobRunner runner = createRunner();
+
+        assertThat(runner.runOnce()).isZero();
+        assertThat(runner.getMetricsSnapshot()).containsEntry("throttledRounds", 1L);
+        verify(batchJobWriteService, never()).findRunnableJobs(anyString(), any(), anyInt());
+    }
+
+    @Test
+    void runShouldResumeFromCheckpointAndStopWhenJobIsPaused() {
+        UnifiedQcBatchJob job = job(1L, LocalDate.of(2026, 3, 2), 20L);
+        runnableJob(job);
+        when(pacsStorageService.listStudiesAfter(eq("head"), any(), any(), eq(LocalDate.of(2026, 3, 2)), eq(20L), anyInt()))
+                .thenReturn(List.of(study(21L, "ACC-21"), study(22L, "ACC-22")));
+        // 第一条推进断点成功；第二条推进时作业已被暂停，任务创建随事务回滚。
+        when(batchJobWriteService.advanceCheckpoint(any(), anyString(), any(), eq(21L), anyBoolean(), any(), any(), any()))
+                .thenReturn(true);
+        when(batchJobWriteService.advanceCheckpoint(any(), anyString(), any(), eq(22L), anyBoolean(), any(), any(), any()))
+                .thenReturn(false);
+        QualityBatchJobRunner runner = createRunner();
+
+        int dispatched = runner.runOnce();
+
+        assertThat(dispatched).isEqualTo(1);
+        assertThat(runner.getMetricsSnapshot()).containsEntry("interruptions", 1L);
+    }
+
+    @Test
+    void invalidStudyShouldBeSkippedAndRecorded() {
+        UnifiedQcBatchJob job = job(1L, null, null);
+        runnableJob(job);
+        PacsStudyCache invalid = study(31L, "ACC-31");
+        invalid.setPatientName(null);
+        when(pacsStorageService.listStudiesAfter(any(), any(), any(), any(), any(), anyInt()))
+                .thenReturn(List.of(invalid, study(32L, "ACC-32")));
+        when(batchJobWriteService.advanceCheckpoint(any(), anyString(), any(), any(), anyBoolean(), any(), any(), any()))
+                .thenReturn(true);
+        QualityBatchJobRunner runner = createRunner();
+
+        int dispatched = runner.runOnce();
+
+        assertThat(dispatched).isEqualTo(1);
+        verify(batchJobWriteService).advanceCheckpoint(
+                eq(1L), anyString(), any(), eq(31L), eq(false), eq("ACC-31: 患者姓名不能为空"), any(), any());
+        assertThat(runner.getMetricsSnapshot()).containsEntry("studiesFailed", 1L);
+    }
+
+    @Test
+    void jobShouldCompleteWhenNoStudiesRemain() {
+        UnifiedQcBatchJob job = job(1L, LocalDate.of(2026, 3, 3), 40L);
+        runnableJob(job);
+        when(pacsStorageService.listStudiesAfter(any(), any(), any(), any(), any(), anyInt())).thenReturn(List.of());
+        when(batchJobWriteService.completeJob(eq(1L), anyString(), any())).thenReturn(true);
+        QualityBatchJobRunner runner = createRunner();
+
+        runner.runOnce();
+
+        assertThat(runner.getMetricsSnapshot()).containsEntry("jobsCompleted", 1L);
+    }
+
+    private QualityBatchJobRunner createRunner() {
+        QualityBatchJobRunner runner = new QualityBatchJobRunner(
+                properties, batchJobWriteService, taskWriteService, pacsStorageService, aiGateway);
+        runner.bind((job, study, checkpointAction) -> {
+            // 模拟任务服务：先校验，再在任务落库事务内推进断点。
+            if (study.getPatientName() == null) {
+                throw new IllegalArgumentException("患者姓名不能为空");
+            }
+            checkpointAction.run();
+            submittedExamIds.add(study.getAccessionNumber());
+        });
+        return runner;
+    }
+
+    private void runnableJob(UnifiedQcBatchJob job) {
+        when(batchJobWriteService.findRunnableJobs(anyString(), any(), anyInt())).thenReturn(List.of(job));
+        when(batchJobWriteService.claimJob(eq(job), anyString(), any(), any())).thenReturn(true);
+    }
+
+    private UnifiedQcBatchJob job(Long id, LocalDate checkpointStudyDate, Long checkpointStudyId) {
+        UnifiedQcBatchJob job = new UnifiedQcBatchJob();
+        job.setId(id);
+        job.setJobNo("job-" + id);
+        job.setTaskTypeCode("head");
+        job.setStartDate(LocalDate.of(2026, 3, 1));
+        job.setEndDate(LocalDate.of(2026, 3, 31));
+        job.setSubmittedBy(7L);
+        job.setCheckpointStudyDate(checkpointStudyDate);
+        job.setCheckpointStudyId(checkpointStudyId);
+        return job;
+    }
+
+    private PacsStudyCache study(Long id, String accessionNumber) {
+        PacsStudyCache study = new PacsStudyCache();
+        study.setId(id);
+        study.setAccessionNumber(accessionNumber);
+        study.setPatientName("患者" + id);
+        study.setStudyDate(LocalDate.of(2026, 3, 2));
+        return study;
+    }
+}
@@ -0,0 +1,127 @@
+package com.medical.qc.modules.qctask.application.support;
+
+import com.medical.qc.common.exception.TooManyRequestsException;
+import com.medical.qc.config.TaskAdmissionProperties;
+import com.medical.qc.modules.unified.application.support.UnifiedQualityTaskWriteService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 质控任务准入控制测试。
+ * 校验提交人令牌桶耗尽后的拒绝与重试等待、各提交人互不影响、PENDING 积压上限、批量部分准入以及回滚后归还令牌。
+ */
+class QualityTaskAdmissionControlTest {
+    private final TaskAdmissionProperties properties = new TaskAdmissionProperties();
+    private final UnifiedQualityTaskWriteService writeService = mock(UnifiedQualityTaskWriteService.class);
+
+    @Test
+    void userBucketShouldRejectAfterBurstWithRetryAfter() {
+        properties.setUserCapacity(2);
+        properties.setUserRefillPerMinute(1);
+        QualityTaskAdmissionControl admissionControl = new QualityTaskAdmissionControl(properties, writeService, redisProvider());
+
+        admissionControl.admit(7L, "head");
+        admissionControl.admit(7L, "head");
+
+        // 每分钟只补充一个令牌，第三次提交需要等待约一分钟。
+        assertThatThrownBy(() -> admissionControl.admit(7L, "head"))
+                .isInstanceOf(TooManyRequestsException.class)
+                .satisfies(error -> assertThat(((TooManyRequestsException) error).getRetryAfterSeconds()).isBetween(55L, 60L));
+        // 其他提交人使用独立的令牌桶。
+        admissionControl.admit(8L, "head");
+        assertThat(admissionControl.getMetricsSnapshot())
+                .containsEntry("admitted", 3L)
+                .containsEntry("rateLimited", 1L);
+    }
+
+    @Test
+    void rejectedRequestShouldNotConsumeOtherBuckets() {
+        properties.setUserCapacity(1);
+        properties.setUserRefillPerMinute(1);
+        properties.setGlobalCapacity(2);
+        properties.setGlobalRefillPerMinute(1);
+        QualityTaskAdmissionControl admissionControl = new QualityTaskAdmissionControl(properties, writeService, redisProvider());
+
+        admissionControl.admit(7L, "head");
+        assertThatThrownBy(() -> admissionControl.admit(7L, "head")).isInstanceOf(TooManyRequestsException.class);
+
+        // 被提交人令牌桶拒绝的请求没有扣减全局令牌，其他提交人仍可提交。
+        admissionControl.admit(8L, "head");
+    }
+
+    @Test
+    void backlogLimitShouldCountAdmittedTasksWithinCacheWindow() {
+        properties.setMaxPendingPerUser(2);
+        properties.setPendingCountCacheMs(60_000L);
+        when(writeService.countPendingTasks(any())).thenReturn(1L);
+        QualityTaskAdmissionControl admissionControl = new QualityTaskAdmissionControl(properties, writeService, redisProvider());
+
+        admissionControl.admit(7L, "head");
+
+        // 数据库中已有 1 个积压任务，本节点刚准入的任务在缓存期内计入积压。
+        assertThatThrownBy(() -> admissionControl.admit(7L, "head"))
+                .isInstanceOf(TooManyRequestsException.class)
+                .hasMessageContaining("待处理质控任务已达上限");
+        verify(writeService, times(1)).countPendingTasks(7L);
+        assertThat(admissionControl.getMetricsSnapshot()).containsEntry("backlogRejected", 1L);
+    }
+
+    @Test
+    void admitUpToShouldGrantRemainingTokensInOneCall() {
+        properties.setUserCapacity(3);
+        properties.setUserRefillPerMinute(1);
+        QualityTaskAdmissionControl admissionControl = new QualityTaskAdmissionControl(properties, writeService, redisProvider());
+
+        // 申请 5 个只准入桶内剩余的 3 个，令牌耗尽后再申请整体拒绝。
+        assertThat(admissionControl.admitUpTo(7L, "head", 5)).isEqualTo(3);
+        assertThatThrownBy(() -> admissionControl.admitUpTo(7L, "head", 2)).isInstanceOf(TooManyRequestsException.class);
+        assertThat(admissionControl.getMetricsSnapshot())
+                .containsEntry("admitted", 3L)
+                .containsEntry("rateLimited", 1L);
+    }
+
+    @Test
+    void refundShouldReturnTokensAndPendingCount() {
+        properties.setUserCapacity(2);
+        properties.setUserRefillPerMinute(1);
+        properties.setMaxPendingPerUser(3);
+        properties.setPendingCountCacheMs(60_000L);
+        when(writeService.countPendingTasks(any())).thenReturn(1L);
+        QualityTaskAdmissionControl admissionControl = new QualityTaskAdmissionControl(properties, writeService, redisProvider());
+
+        assertThat(admissionControl.admitUpTo(7L, "head", 2)).isEqualTo(2);
+        // 提交事务回滚后归还令牌和积压计数，同一提交人可以立即重新提交。
+        admissionControl.refund(7L, "head", 2);
+
+        assertThat(admissionControl.admitUpTo(7L, "head", 2)).isEqualTo(2);
+        assertThat(admissionControl.getMetricsSnapshot()).containsEntry("refunded", 2L);
+    }
+
+    @Test
+    void admitShouldSkipAllChecksWhenDisabled() {
+        properties.setEnabled(false);
+        properties.setUserCapacity(1);
+        QualityTaskAdmissionControl admissionControl = new QualityTaskAdmissionControl(properties, writeService, redisProvider());
+
+        admissionControl.admit(7L, "head");
+        admissionControl.admit(7L, "head");
+
+        verify(writeService, times(0)).countPendingTasks(any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private ObjectProvider<StringRedisTemplate> redisProvider() {
+        ObjectProvider<StringRedisTemplate> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(null);
+        return provider;
+    }
+}
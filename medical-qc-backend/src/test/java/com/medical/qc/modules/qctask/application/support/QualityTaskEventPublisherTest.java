@@ -0,0 +1,61 @@
+package com.medical.qc.modules.qctask.application.support;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 质控任务事件推送器测试。
+ */
+class QualityTaskEventPublisherTest {
+
+    private final QualityTaskEventPublisher publisher = new QualityTaskEventPublisher();
+
+    @AfterEach
+    void tearDown() {
+        publisher.destroy();
+    }
+
+    @Test
+    void shouldPublishOnlyToSubscribersOfTheSameTask() throws InterruptedException {
+        publisher.subscribe("task-001");
+        publisher.subscribe("task-002");
+
+        publisher.publish("task-001", QualityTaskEventPublisher.EVENT_PROGRESS, Map.of("progress", 30));
+        // 没有订阅者的任务直接忽略，不计入发送次数。
+        publisher.publish("task-003", QualityTaskEventPublisher.EVENT_PROGRESS, Map.of("progress", 30));
+
+        awaitMetric("publishedEvents", 1L);
+        assertThat(publisher.getMetricsSnapshot())
+                .containsEntry("subscribedTasks", 2)
+                .containsEntry("activeSubscribers", 2)
+                .containsEntry("failedSends", 0L);
+    }
+
+    @Test
+    void shouldReleaseSubscriptionsAfterFinalEvent() throws InterruptedException {
+        publisher.subscribe("task-001");
+        publisher.subscribe("task-001");
+
+        publisher.publishFinal("task-001", Map.of("status", "SUCCESS"));
+
+        awaitMetric("subscribedTasks", 0);
+        assertThat(publisher.getMetricsSnapshot())
+                .containsEntry("publishedEvents", 2L)
+                .containsEntry("subscriptions", 2L);
+        // 终态之后的事件不再有接收方。
+        publisher.publish("task-001", QualityTaskEventPublisher.EVENT_PROGRESS, Map.of("progress", 100));
+        assertThat(publisher.getMetricsSnapshot()).containsEntry("publishedEvents", 2L);
+    }
+
+    private void awaitMetric(String name, Object expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (System.currentTimeMillis() < deadline && !expected.equals(publisher.getMetricsSnapshot().get(name))) {
+            Thread.sleep(10L);
+        }
+        assertThat(publisher.getMetricsSnapshot()).containsEntry(name, expected);
+    }
+}
@@ -0,0 +1,147 @@
+package com.medical.qc.modules.qctask.application.support;
+
+import com.medical.qc.config.TaskExecutorProperties;
+import com.medical.qc.messaging.MockQualityTaskMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 本地质控任务执行引擎测试。
+ * 校验有界队列的拒绝策略，以及停机时未完成任务的续跑登记与恢复。
+ */
+class QualityTaskExecutionEngineTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final CountDownLatch releaseLatch = new CountDownLatch(1);
+    private final List<String> rejectedTaskIds = new CopyOnWriteArrayList<>();
+    private final List<String> recoveredTaskIds = new CopyOnWriteArrayList<>();
+    private final List<String> processedTaskIds = new CopyOnWriteArrayList<>();
+    private QualityTaskExecutionEngine engine;
+
+    @AfterEach
+    void tearDown() {
+        releaseLatch.countDown();
+        if (engine != null) {
+            engine.shutdownGracefully();
+        }
+    }
+
+    @Test
+    void fullQueueShouldFailTaskWhenPolicyIsFail() throws Exception {
+        engine = createEngine("fail", 1);
+        engine.submit(message("task-001"));
+        awaitProcessed(1);
+        engine.submit(message("task-002"));
+        // 线程被占用、队列已满，第三个任务按 fail 策略直接交给拒绝回调。
+        engine.submit(message("task-003"));
+
+        assertThat(rejectedTaskIds).containsExactly("task-003");
+        assertThat(engine.getMetricsSnapshot())
+                .containsEntry("rejected", 1L)
+                .containsEntry("queueDepth", 1)
+                .containsEntry("activeThreads", 1);
+    }
+
+    @Test
+    void fullQueueShouldDeferTaskWhenPolicyIsDefer() throws Exception {
+        engine = createEngine("defer", 1);
+        engine.submit(message("task-001"));
+        awaitProcessed(1);
+        engine.submit(message("task-002"));
+        engine.submit(message("task-003"));
+
+        assertThat(rejectedTaskIds).isEmpty();
+        assertThat(engine.getMetricsSnapshot()).containsEntry("deferrals", 1L);
+
+        releaseLatch.countDown();
+        // 线程空出后延后的任务重新入队并执行。
+        awaitProcessed(3);
+        assertThat(processedTaskIds).containsExactlyInAnyOrder("task-001", "task-002", "task-003");
+    }
+
+    @Test
+    void shutdownShouldJournalUnfinishedTasksAndRecoverThemOnNextStart() throws Exception {
+        engine = createEngine("defer", 4);
+        engine.submit(message("task-001"));
+        awaitProcessed(1);
+        engine.submit(message("task-002"));
+
+        engine.shutdownGracefully();
+
+        Path journal = tempDir.resolve("unfinished.txt");
+        assertThat(Files.readAllLines(journal, StandardCharsets.UTF_8))
+                .containsExactlyInAnyOrder("task-001", "task-002");
+
+        QualityTaskExecutionEngine restartedEngine = createEngine("defer", 4);
+        restartedEngine.run(null);
+
+        assertThat(recoveredTaskIds).containsExactlyInAnyOrder("task-001", "task-002");
+        assertThat(journal).doesNotExist();
+        restartedEngine.shutdownGracefully();
+    }
+
+    private QualityTaskExecutionEngine createEngine(String rejectionPolicy, int queueCapacity) {
+        TaskExecutorProperties properties = new TaskExecutorProperties();
+        properties.setThreads(1);
+        properties.setQueueCapacity(queueCapacity);
+        properties.setRejectionPolicy(rejectionPolicy);
+        properties.setDeferDelayMs(50L);
+        properties.setShutdownTimeoutMs(200L);
+        properties.setJournalPath(tempDir.resolve("unfinished.txt").toString());
+        QualityTaskExecutionEngine createdEngine = new QualityTaskExecutionEngine(properties);
+        createdEngine.bind(new QualityTaskExecutionEngine.TaskHandler() {
+            @Override
+            public CompletableFuture<Void> process(MockQualityTaskMessage message) {
+                processedTaskIds.add(message.getTaskId());
+                // 模拟预处理阶段占住执行线程。
+                try {
+                    releaseLatch.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+                return CompletableFuture.completedFuture(null);
+            }
+
+            @Override
+            public void reject(MockQualityTaskMessage message, String reason) {
+                rejectedTaskIds.add(message.getTaskId());
+            }
+
+            @Override
+            public void recover(String taskId) {
+                recoveredTaskIds.add(taskId);
+            }
+        });
+        return createdEngine;
+    }
+
+    private MockQualityTaskMessage message(String taskId) {
+        MockQualityTaskMessage message = new MockQualityTaskMessage();
+        message.setTaskId(taskId);
+        message.setMetadata(Map.of());
+        return message;
+    }
+
+    private void awaitProcessed(int expectedCount) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (processedTaskIds.size() < expectedCount && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        assertThat(processedTaskIds).hasSize(expectedCount);
+    }
+}
@@ -0,0 +1,92 @@
+package com.medical.qc.modules.qctask.application.support;
+
+import com.medical.qc.config.TaskIdempotencyProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 质控任务提交幂等索引测试。
+ * 校验按文件内容与客户端幂等键生成键、窗口期内返回已有任务以及提交失败后的释放。
+ */
+class QualityTaskIdempotencyIndexTest {
+    private final TaskIdempotencyProperties properties = new TaskIdempotencyProperties();
+
+    @Test
+    void sameExamAndFileContentShouldResolveToSameKey() throws Exception {
+        QualityTaskIdempotencyIndex index = new QualityTaskIdempotencyIndex(properties, redisProvider());
+
+        String first = index.resolveKey(null, 7L, "head", "local", "EXAM-001", file("scan.nii", "volume-a"));
+        String second = index.resolveKey(null, 7L, "head", "local", "EXAM-001", file("copy.nii", "volume-a"));
+        String otherContent = index.resolveKey(null, 7L, "head", "local", "EXAM-001", file("scan.nii", "volume-b"));
+        String otherUser = index.resolveKey(null, 8L, "head", "local", "EXAM-001", file("scan.nii", "volume-a"));
+
+        // 文件名不参与识别，只看内容；不同用户之间互不影响。
+        assertThat(second).isEqualTo(first);
+        assertThat(otherContent).isNotEqualTo(first);
+        assertThat(otherUser).isNotEqualTo(first);
+    }
+
+    @Test
+    void clientKeyShouldTakePrecedenceOverFileContent() throws Exception {
+        QualityTaskIdempotencyIndex index = new QualityTaskIdempotencyIndex(properties, redisProvider());
+
+        String first = index.resolveKey("submit-42", 7L, "head", "local", "EXAM-001", file("scan.nii", "volume-a"));
+        String second = index.resolveKey("submit-42", 7L, "head", "local", "EXAM-002", file("scan.nii", "volume-b"));
+
+        assertThat(second).isEqualTo(first);
+    }
+
+    @Test
+    void claimShouldReturnExistingTaskWithinWindow() {
+        QualityTaskIdempotencyIndex index = new QualityTaskIdempotencyIndex(properties, redisProvider());
+
+        assertThat(index.claim("key-1", "task-001")).isNull();
+        assertThat(index.claim("key-1", "task-002")).isEqualTo("task-001");
+        assertThat(index.getMetricsSnapshot())
+                .containsEntry("claims", 1L)
+                .containsEntry("duplicates", 1L);
+    }
+
+    @Test
+    void releaseShouldAllowResubmissionAfterFailure() {
+        QualityTaskIdempotencyIndex index = new QualityTaskIdempotencyIndex(properties, redisProvider());
+        index.claim("key-1", "task-001");
+
+        // 只有占用者本身能释放，其他任务号的释放请求被忽略。
+        index.release("key-1", "task-999");
+        assertThat(index.claim("key-1", "task-002")).isEqualTo("task-001");
+
+        index.release("key-1", "task-001");
+        assertThat(index.claim("key-1", "task-003")).isNull();
+    }
+
+    @Test
+    void resolveKeyShouldReturnNullWhenDisabled() throws Exception {
+        properties.setEnabled(false);
+        QualityTaskIdempotencyIndex index = new QualityTaskIdempotencyIndex(properties, redisProvider());
+
+        String key = index.resolveKey(null, 7L, "head", "local", "EXAM-001", file("scan.nii", "volume-a"));
+
+        assertThat(key).isNull();
+        assertThat(index.claim(key, "task-001")).isNull();
+    }
+
+    private MockMultipartFile file(String filename, String content) {
+        return new MockMultipartFile("file", filename, "application/octet-stream", content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @SuppressWarnings("unchecked")
+    private ObjectProvider<StringRedisTemplate> redisProvider() {
+        ObjectProvider<StringRedisTemplate> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(null);
+        return provider;
+    }
+}
@@ -0,0 +1,211 @@
+package com.medical.qc.modules.qctask.application.support;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medical.qc.config.ActiveMqProperties;
+import com.medical.qc.messaging.MockQualityTaskMessage;
+import com.medical.qc.modules.unified.persistence.entity.UnifiedQcTaskOutbox;
+import com.medical.qc.modules.unified.persistence.mapper.UnifiedQcTaskOutboxMapper;
+import com.medical.qc.shared.messaging.MessageBus;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 质控任务 outbox 中继测试。
+ * 校验提交时的同事务写入、认领失败时不写入派发记录、整批写入与整批投递、中继按行锁认领记录并按间隔采样积压数、
+ * broker 不可用时的本地降级，以及续跑时取回原始消息。
+ */
+class QualityTaskOutboxRelayTest {
+    private final ActiveMqProperties activeMqProperties = new ActiveMqProperties();
+    private final UnifiedQcTaskOutboxMapper outboxMapper = mock(UnifiedQcTaskOutboxMapper.class);
+    private final MessageBus messageBus = mock(MessageBus.class);
+    private final QualityTaskExecutionEngine taskExecutionEngine = mock(QualityTaskExecutionEngine.class);
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    @Test
+    void dispatchShouldWriteTaskAndOutboxInOneTransaction() {
+        QualityTaskOutboxRelay relay = createRelay();
+        AtomicBoolean persisted = new AtomicBoolean();
+
+        relay.dispatch(message("task-001"), () -> persisted.set(true));
+
+        // 提交线程只落库，不直接访问 broker。
+        assertThat(persisted).isTrue();
+        verify(transactionManager).commit(any());
+        verify(outboxMapper).insert(any(UnifiedQcTaskOutbox.class));
+        verify(messageBus, never()).send(anyString(), any(), anyMap());
+    }
+
+    @Test
+    void dispatchIfShouldSkipOutboxWhenClaimFails() {
+        activeMqProperties.setEnabled(false);
+        QualityTaskOutboxRelay relay = createRelay();
+
+        boolean dispatched = relay.dispatchIf(message("task-001"), () -> false);
+
+        // 认领被其他节点抢先时不留派发记录，也不提交本地执行。
+        assertThat(dispatched).isFalse();
+        verify(outboxMapper, never()).insert(any(UnifiedQcTaskOutbox.class));
+        verify(taskExecutionEngine, never()).submit(any(MockQualityTaskMessage.class));
+    }
+
+    @Test
+    void dispatchShouldRunLocallyWhenMessagingIsDisabled() {
+        activeMqProperties.setEnabled(false);
+        QualityTaskOutboxRelay relay = createRelay();
+
+        relay.dispatch(message("task-001"), null);
+
+        // 本地执行的任务也留存消息原文，续跑时据此恢复提交元数据。
+        verify(taskExecutionEngine).submit(any(MockQualityTaskMessage.class));
+        verify(outboxMapper).insert(argThat((UnifiedQcTaskOutbox row) -> "LOCAL".equals(row.getPublishStatus())));
+        verify(messageBus, never()).send(anyString(), any(), anyMap());
+    }
+
+    @Test
+    void loadDispatchedMessageShouldRestoreOriginalMetadata() throws Exception {
+        QualityTaskOutboxRelay relay = createRelay();
+        UnifiedQcTaskOutbox stored = row(1L, "task-001", LocalDateTime.now());
+        MockQualityTaskMessage original = message("task-001");
+        original.setMetadata(Map.of("flow_rate", 4.5, "heart_rate", 62));
+        stored.setPayloadJson(objectMapper.writeValueAsString(original));
+        when(outboxMapper.selectOne(any())).thenReturn(stored);
+
+        MockQualityTaskMessage restored = relay.loadDispatchedMessage("task-001");
+
+        assertThat(restored.getMetadata()).containsEntry("flow_rate", 4.5).containsEntry("heart_rate", 62);
+    }
+
+    @Test
+    void dispatchAllShouldWriteWholeBatchInOneTransaction() {
+        QualityTaskOutboxRelay relay = createRelay();
+        AtomicBoolean persisted = new AtomicBoolean();
+
+        relay.dispatchAll(List.of(message("task-001"), message("task-002")), () -> persisted.set(true));
+
+        // 整批 outbox 记录按 JDBC 批处理写入一次，与任务落库同事务提交。
+        assertThat(persisted).isTrue();
+        verify(transactionManager).commit(any());
+        verify(jdbcTemplate).batchUpdate(anyString(), argThat((List<Object[]> args) -> args.size() == 2));
+        verify(outboxMapper, never()).insert(any(UnifiedQcTaskOutbox.class));
+        assertThat(relay.getMetricsSnapshot()).containsEntry("appended", 2L);
+    }
+
+    @Test
+    void relayShouldPublishPendingRowsAsOneBatchAndRecordLag() throws Exception {
+        QualityTaskOutboxRelay relay = createRelay();
+        when(outboxMapper.selectList(any())).thenReturn(List.of(
+                row(1L, "task-001", LocalDateTime.now()),
+                row(2L, "task-002", LocalDateTime.now())));
+        when(outboxMapper.update(any(), any())).thenReturn(2);
+        when(outboxMapper.selectCount(any())).thenReturn(0L);
+        when(messageBus.sendBatch(anyString(), anyList())).thenReturn(2);
+
+        relay.relayOnce();
+
+        verify(messageBus).sendBatch(
+                eq("qc.mock.quality.task"),
+                argThat(envelopes -> envelopes.size() == 2
+                        && envelopes.get(0).headers().equals(Map.of(MockQualityTaskMessage.TASK_TYPE_HEADER, "head"))));
+        // 两条记录用一条 UPDATE 标记为已投递。
+        verify(outboxMapper).update(any(), any());
+        verify(messageBus, never()).send(anyString(), any(), anyMap());
+        assertThat(relay.getMetricsSnapshot()).containsEntry("published", 2L);
+        verify(taskExecutionEngine, never()).submit(any(MockQualityTaskMessage.class));
+    }
+
+    @Test
+    void relayShouldClaimRowsWithSkipLockedAndSamplePendingCount() throws Exception {
+        QualityTaskOutboxRelay relay = createRelay();
+        when(outboxMapper.selectList(any())).thenReturn(List.of(row(1L, "task-001", LocalDateTime.now().minusSeconds(5))));
+        when(outboxMapper.update(any(), any())).thenReturn(1);
+        when(outboxMapper.selectCount(any())).thenReturn(1L);
+        when(messageBus.sendBatch(anyString(), anyList())).thenReturn(1);
+
+        relay.relayOnce();
+        relay.relayOnce();
+
+        // 多副本中继时被其他节点锁定的记录直接跳过，选取与标记在同一事务内完成。
+        verify(outboxMapper, times(2)).selectList(argThat(wrapper ->
+                wrapper.getSqlSegment().contains("FOR UPDATE SKIP LOCKED")));
+        verify(transactionManager, times(2)).commit(any());
+        // 积压总数按间隔采样，最早积压时长由本批记录得出，不再额外查询。
+        verify(outboxMapper, times(1)).selectCount(any());
+        verify(outboxMapper, never()).selectOne(any());
+        assertThat((Long) relay.getMetricsSnapshot().get("oldestPendingAgeMs")).isGreaterThanOrEqualTo(4000L);
+    }
+
+    @Test
+    void relayShouldFallBackToLocalEngineWhenBrokerStaysUnavailable() throws Exception {
+        activeMqProperties.getOutbox().setLocalFallbackAfterMs(1000L);
+        QualityTaskOutboxRelay relay = createRelay();
+        when(outboxMapper.selectList(any())).thenReturn(List.of(
+                row(1L, "task-001", LocalDateTime.now().minusSeconds(10)),
+                row(2L, "task-002", LocalDateTime.now())));
+        when(outboxMapper.update(any(), any())).thenReturn(1);
+        when(outboxMapper.selectCount(any())).thenReturn(1L);
+        when(messageBus.sendBatch(anyString(), anyList())).thenReturn(0);
+
+        relay.relayOnce();
+
+        // 超过降级时限的记录转本地执行，未超时的保留等待下一轮重试。
+        verify(taskExecutionEngine).submit(argThat(
+                message -> "task-001".equals(message.getTaskId())));
+        assertThat(relay.getMetricsSnapshot())
+                .containsEntry("localFallbacks", 1L)
+                .containsEntry("sendFailures", 1L)
+                .containsEntry("pending", 1L);
+    }
+
+    private QualityTaskOutboxRelay createRelay() {
+        return new QualityTaskOutboxRelay(
+                activeMqProperties,
+                outboxMapper,
+                messageBus,
+                taskExecutionEngine,
+                objectMapper,
+                transactionManager,
+                jdbcTemplate);
+    }
+
+    private UnifiedQcTaskOutbox row(Long id, String taskId, LocalDateTime createdAt) throws Exception {
+        UnifiedQcTaskOutbox row = new UnifiedQcTaskOutbox();
+        row.setId(id);
+        row.setTaskNo(taskId);
+        row.setTaskTypeCode("head");
+        row.setDestination("qc.mock.quality.task");
+        row.setPayloadJson(objectMapper.writeValueAsString(message(taskId)));
+        row.setPublishStatus("PENDING");
+        row.setAttemptCount(0);
+        row.setCreatedAt(createdAt);
+        return row;
+    }
+
+    private MockQualityTaskMessage message(String taskId) {
+        MockQualityTaskMessage message = new MockQualityTaskMessage();
+        message.setTaskId(taskId);
+        message.setTaskType("head");
+        message.setMetadata(Map.of());
+        return message;
+    }
+}
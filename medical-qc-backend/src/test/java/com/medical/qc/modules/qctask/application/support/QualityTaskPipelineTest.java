@@ -0,0 +1,116 @@
+package com.medical.qc.modules.qctask.application.support;
+
+import com.medical.qc.config.TaskPipelineProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 质控任务分阶段流水线测试。
+ * 校验推理等待期间下一个任务可以预处理、流水线已满时的背压、名额归还以及结果装配异常的传递。
+ */
+class QualityTaskPipelineTest {
+    private final TaskPipelineProperties properties = new TaskPipelineProperties();
+    private QualityTaskPipeline pipeline;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (pipeline != null) {
+            pipeline.destroy();
+        }
+    }
+
+    @Test
+    void nextTaskShouldPrepareWhileCurrentTaskWaitsForInference() throws Exception {
+        properties.setPrepareThreads(1);
+        pipeline = new QualityTaskPipeline(properties);
+        CompletableFuture<Runnable> firstInference = new CompletableFuture<>();
+        CountDownLatch secondPrepared = new CountDownLatch(1);
+        List<String> persisted = new CopyOnWriteArrayList<>();
+
+        CompletableFuture<Void> first = pipeline.submit(() -> firstInference, error -> persisted.add("first"));
+        CompletableFuture<Void> second = pipeline.submit(() -> {
+            secondPrepared.countDown();
+            return CompletableFuture.completedFuture(() -> { });
+        }, error -> persisted.add("second"));
+
+        // 单个预处理线程在第一个任务等待推理时已经空出，第二个任务可以完成全部阶段。
+        assertThat(secondPrepared.await(2, TimeUnit.SECONDS)).isTrue();
+        second.get(2, TimeUnit.SECONDS);
+        assertThat(first).isNotDone();
+
+        firstInference.complete(() -> { });
+        first.get(2, TimeUnit.SECONDS);
+        assertThat(persisted).containsExactly("second", "first");
+        @SuppressWarnings("unchecked")
+        Map<String, Object> prepareMetrics = (Map<String, Object>) pipeline.getMetricsSnapshot().get("prepare");
+        assertThat(prepareMetrics).containsEntry("completed", 2L);
+    }
+
+    @Test
+    void submitShouldThrowAfterAdmissionTimeoutWithoutCallingPersistStage() {
+        properties.setMaxInFlight(1);
+        properties.setAdmissionTimeoutMs(50L);
+        pipeline = new QualityTaskPipeline(properties);
+        CompletableFuture<Runnable> blockedInference = new CompletableFuture<>();
+        AtomicReference<Throwable> rejectedError = new AtomicReference<>();
+
+        pipeline.submit(() -> blockedInference, error -> { });
+
+        // 等待超时只抛出拒绝异常，不进入落库回调，任务状态由调用方保持不变。
+        assertThatThrownBy(() -> pipeline.submit(() -> CompletableFuture.completedFuture(() -> { }), rejectedError::set))
+                .isInstanceOf(RejectedExecutionException.class);
+        assertThat(rejectedError.get()).isNull();
+        assertThat(pipeline.getMetricsSnapshot())
+                .containsEntry("inFlight", 1)
+                .containsEntry("admissionTimeouts", 1L);
+        blockedInference.complete(() -> { });
+    }
+
+    @Test
+    void releasedAdmissionShouldReturnPermitOnce() {
+        properties.setMaxInFlight(1);
+        pipeline = new QualityTaskPipeline(properties);
+
+        QualityTaskPipeline.Admission admission = pipeline.admit();
+        admission.release();
+        admission.release();
+
+        assertThat(pipeline.getMetricsSnapshot()).containsEntry("inFlight", 0);
+        assertThatThrownBy(() -> pipeline.submit(admission, () -> null, error -> { }))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void persistStageShouldReceiveAssemblyAndPreparationErrors() throws Exception {
+        pipeline = new QualityTaskPipeline(properties);
+        AtomicReference<Throwable> assemblyError = new AtomicReference<>();
+        AtomicReference<Throwable> preparationError = new AtomicReference<>();
+
+        pipeline.submit(
+                () -> CompletableFuture.completedFuture(() -> {
+                    throw new IllegalStateException("结果结构不合法");
+                }),
+                assemblyError::set).get(2, TimeUnit.SECONDS);
+        pipeline.submit(
+                () -> {
+                    throw new IllegalArgumentException("影像文件不存在");
+                },
+                preparationError::set).get(2, TimeUnit.SECONDS);
+
+        assertThat(assemblyError.get()).hasMessage("结果结构不合法");
+        assertThat(preparationError.get()).hasMessage("影像文件不存在");
+        assertThat(pipeline.getMetricsSnapshot()).containsEntry("inFlight", 0);
+    }
+}
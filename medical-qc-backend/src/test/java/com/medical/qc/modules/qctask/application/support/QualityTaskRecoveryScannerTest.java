@@ -0,0 +1,158 @@
+package com.medical.qc.modules.qctask.application.support;
+
+import com.medical.qc.config.TaskRecoveryProperties;
+import com.medical.qc.modules.unified.application.support.UnifiedQualityTaskWriteService;
+import com.medical.qc.modules.unified.persistence.entity.UnifiedQcTask;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 质控任务恢复扫描器测试。
+ * 校验过期任务的认领、单次恢复上限、派发失败时认领随之回滚，以及超过最大恢复次数后的失败处理。
+ */
+class QualityTaskRecoveryScannerTest {
+    private final TaskRecoveryProperties properties = new TaskRecoveryProperties();
+    private final UnifiedQualityTaskWriteService writeService = mock(UnifiedQualityTaskWriteService.class);
+    private final List<String> recoveredTaskIds = new CopyOnWriteArrayList<>();
+    private final List<String> failedTaskIds = new CopyOnWriteArrayList<>();
+
+    @Test
+    void scanShouldRecoverClaimedTasksAndSkipConflicts() {
+        QualityTaskRecoveryScanner scanner = createScanner();
+        UnifiedQcTask claimed = task(1L, "task-001", 0);
+        UnifiedQcTask takenByOtherNode = task(2L, "task-002", 0);
+        when(writeService.findLeaseExpiredTasks(any(), any(), any(), anyInt()))
+                .thenReturn(List.of(claimed, takenByOtherNode));
+        when(writeService.claimExpiredTask(eq(claimed), any())).thenReturn(true);
+        when(writeService.claimExpiredTask(eq(takenByOtherNode), any())).thenReturn(false);
+
+        int handled = scanner.scanOnce();
+
+        assertThat(handled).isEqualTo(1);
+        assertThat(recoveredTaskIds).containsExactly("task-001");
+        assertThat(scanner.getMetricsSnapshot()).containsEntry("claimConflicts", 1L);
+    }
+
+    @Test
+    void scanShouldStopAtMaxRecoveriesPerScan() {
+        properties.setBatchSize(2);
+        properties.setMaxRecoveriesPerScan(3);
+        QualityTaskRecoveryScanner scanner = createScanner();
+        when(writeService.findLeaseExpiredTasks(any(), any(), any(), eq(2)))
+                .thenReturn(List.of(task(1L, "task-001", 0), task(2L, "task-002", 0)));
+        when(writeService.findLeaseExpiredTasks(any(), any(), any(), eq(1)))
+                .thenReturn(List.of(task(3L, "task-003", 0)));
+        when(writeService.claimExpiredTask(any(), any())).thenReturn(true);
+
+        int handled = scanner.scanOnce();
+
+        // 第二批只取剩余额度，单次扫描恢复数不超过上限。
+        assertThat(handled).isEqualTo(3);
+        assertThat(recoveredTaskIds).containsExactly("task-001", "task-002", "task-003");
+    }
+
+    @Test
+    void taskExceedingMaxAttemptsShouldBeFailed() {
+        properties.setMaxAttempts(3);
+        QualityTaskRecoveryScanner scanner = createScanner();
+        when(writeService.findLeaseExpiredTasks(any(), any(), any(), anyInt()))
+                .thenReturn(List.of(task(1L, "task-001", 3)));
+        when(writeService.holdExpiredTask(any(), any(), any())).thenReturn(true);
+
+        scanner.scanOnce();
+
+        assertThat(failedTaskIds).containsExactly("task-001");
+        assertThat(recoveredTaskIds).isEmpty();
+        // 标记失败前只延长租约，不把任务放回 PENDING。
+        verify(writeService, never()).claimExpiredTask(any(), any());
+    }
+
+    @Test
+    void failedDispatchShouldNotCountAsRecovered() {
+        QualityTaskRecoveryScanner scanner = new QualityTaskRecoveryScanner(properties, writeService);
+        scanner.bind(new QualityTaskRecoveryScanner.RecoveryHandler() {
+            @Override
+            public Collection<String> runningTaskIds() {
+                return List.of();
+            }
+
+            @Override
+            public boolean recover(String taskId, BooleanSupplier claim) {
+                claim.getAsBoolean();
+                // 模拟认领后 outbox 写入失败，整个派发事务回滚。
+                throw new IllegalStateException("outbox unavailable");
+            }
+
+            @Override
+            public void fail(String taskId, String reason) {
+                failedTaskIds.add(taskId);
+            }
+        });
+        when(writeService.findLeaseExpiredTasks(any(), any(), any(), anyInt()))
+                .thenReturn(List.of(task(1L, "task-001", 0)));
+        when(writeService.claimExpiredTask(any(), any())).thenReturn(true);
+
+        int handled = scanner.scanOnce();
+
+        assertThat(handled).isEqualTo(1);
+        assertThat(scanner.getMetricsSnapshot())
+                .containsEntry("recovered", 0L)
+                .containsEntry("errors", 1L);
+    }
+
+    @Test
+    void acquireLeaseShouldBypassDatabaseWhenRecoveryIsDisabled() {
+        properties.setEnabled(false);
+        QualityTaskRecoveryScanner scanner = createScanner();
+
+        assertThat(scanner.acquireLease(1L)).isTrue();
+        verify(writeService, never()).acquireTaskLease(any(), any(), any());
+    }
+
+    private QualityTaskRecoveryScanner createScanner() {
+        QualityTaskRecoveryScanner scanner = new QualityTaskRecoveryScanner(properties, writeService);
+        scanner.bind(new QualityTaskRecoveryScanner.RecoveryHandler() {
+            @Override
+            public Collection<String> runningTaskIds() {
+                return List.of();
+            }
+
+            @Override
+            public boolean recover(String taskId, BooleanSupplier claim) {
+                if (!claim.getAsBoolean()) {
+                    return false;
+                }
+                recoveredTaskIds.add(taskId);
+                return true;
+            }
+
+            @Override
+            public void fail(String taskId, String reason) {
+                failedTaskIds.add(taskId);
+            }
+        });
+        return scanner;
+    }
+
+    private UnifiedQcTask task(Long id, String taskNo, int recoveryCount) {
+        UnifiedQcTask task = new UnifiedQcTask();
+        task.setId(id);
+        task.setTaskNo(taskNo);
+        task.setTaskStatus("PROCESSING");
+        task.setRecoveryCount(recoveryCount);
+        return task;
+    }
+}
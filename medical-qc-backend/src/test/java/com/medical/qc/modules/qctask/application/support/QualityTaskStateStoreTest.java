@@ -0,0 +1,127 @@
+package com.medical.qc.modules.qctask.application.support;
+
+import com.medical.qc.config.TaskStateStoreProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 质控任务状态存储测试。
+ * 校验本地读写、终态后的进度更新被丢弃、Redis 编解码、近端缓存、提交节点读到执行节点推进后的状态以及提交回滚后的清理。
+ */
+class QualityTaskStateStoreTest {
+    private final TaskStateStoreProperties properties = new TaskStateStoreProperties();
+
+    @Test
+    void compareAndSetShouldRejectProgressAfterTerminalState() {
+        QualityTaskStateStore store = new QualityTaskStateStore(properties, redisProvider(null));
+        store.put(state("task-001", "PROCESSING", 40));
+        store.put(state("task-001", "SUCCESS", 40));
+
+        boolean written = store.compareAndSet("PROCESSING", state("task-001", "PROCESSING", 80));
+
+        assertThat(written).isFalse();
+        assertThat(store.get("task-001").status()).isEqualTo("SUCCESS");
+        assertThat(store.get("task-001").toView()).containsEntry("progress", 100);
+        assertThat(store.getMetricsSnapshot()).containsEntry("casConflicts", 1L);
+    }
+
+    @Test
+    void getShouldReturnNullForUnknownTask() {
+        QualityTaskStateStore store = new QualityTaskStateStore(properties, redisProvider(null));
+
+        assertThat(store.get("missing")).isNull();
+        assertThat(store.getMetricsSnapshot()).containsEntry("misses", 1L);
+    }
+
+    @Test
+    void encodeAndDecodeShouldRoundTripCompactFields() {
+        QualityTaskState original = new QualityTaskState(
+                "task-002", "head", 7L, "FAILED", null, "inference", "模型超时", 1234L);
+        List<String> args = QualityTaskStateStore.encode("PROCESSING", 600_000L, original);
+
+        Map<Object, Object> fields = new HashMap<>();
+        for (int index = 2; index < args.size(); index += 2) {
+            fields.put(args.get(index), args.get(index + 1));
+        }
+
+        assertThat(args.subList(0, 2)).containsExactly("PROCESSING", "600000");
+        assertThat(QualityTaskStateStore.decode("task-002", fields)).isEqualTo(original);
+        assertThat(QualityTaskStateStore.decode("task-002", Map.of())).isNull();
+    }
+
+    @Test
+    void getShouldReuseRemoteStateWithinNearCacheTtl() {
+        properties.setRedisEnabled(true);
+        properties.setNearCacheTtlMs(60_000L);
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        @SuppressWarnings("unchecked")
+        HashOperations<String, Object, Object> hashOperations = mock(HashOperations.class);
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.entries(QualityTaskStateStore.REDIS_KEY_PREFIX + "task-003"))
+                .thenReturn(Map.of("y", "head", "u", "7", "s", "PROCESSING", "p", "30", "t", "1"));
+        QualityTaskStateStore store = new QualityTaskStateStore(properties, redisProvider(redisTemplate));
+
+        QualityTaskState first = store.get("task-003");
+        QualityTaskState second = store.get("task-003");
+
+        assertThat(first.progress()).isEqualTo(30);
+        assertThat(second).isEqualTo(first);
+        verify(hashOperations, times(1)).entries(QualityTaskStateStore.REDIS_KEY_PREFIX + "task-003");
+        assertThat(store.getMetricsSnapshot()).containsEntry("redisHits", 1L).containsEntry("localHits", 1L);
+    }
+
+    @Test
+    void submittedPendingStateShouldBeRefreshedFromExecutingNode() throws Exception {
+        properties.setRedisEnabled(true);
+        properties.setNearCacheTtlMs(1L);
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        @SuppressWarnings("unchecked")
+        HashOperations<String, Object, Object> hashOperations = mock(HashOperations.class);
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.entries(QualityTaskStateStore.REDIS_KEY_PREFIX + "task-004"))
+                .thenReturn(Map.of("y", "head", "u", "1", "s", "PROCESSING", "p", "60", "t", "2"));
+        QualityTaskStateStore store = new QualityTaskStateStore(properties, redisProvider(redisTemplate));
+        // 提交节点写入 PENDING，任务随后由另一节点执行。
+        store.put(state("task-004", "PENDING", 0));
+        Thread.sleep(5L);
+
+        QualityTaskState polled = store.get("task-004");
+
+        assertThat(polled.status()).isEqualTo("PROCESSING");
+        assertThat(polled.progress()).isEqualTo(60);
+    }
+
+    @Test
+    void removedStateShouldNoLongerBeReturned() {
+        QualityTaskStateStore store = new QualityTaskStateStore(properties, redisProvider(null));
+        store.put(state("task-005", "PENDING", 0));
+
+        // 提交事务回滚后清理提前写入的状态，轮询回退到数据库。
+        store.remove("task-005");
+
+        assertThat(store.get("task-005")).isNull();
+    }
+
+    @SuppressWarnings("unchecked")
+    private ObjectProvider<StringRedisTemplate> redisProvider(StringRedisTemplate redisTemplate) {
+        ObjectProvider<StringRedisTemplate> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(redisTemplate);
+        return provider;
+    }
+
+    private QualityTaskState state(String taskId, String status, Integer progress) {
+        return new QualityTaskState(taskId, "head", 1L, status, progress, null, null, System.currentTimeMillis());
+    }
+}
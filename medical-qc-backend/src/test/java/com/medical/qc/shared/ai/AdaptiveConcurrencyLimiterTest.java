@@ -0,0 +1,75 @@
+package com.medical.qc.shared.ai;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * AdaptiveConcurrencyLimiter 单元测试。
+ * 校验排队、拒绝以及超时后的上限收缩。
+ */
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    void queuedRequestShouldReceivePermitWhenSlotIsReleased() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(limiterProperties(1, 1));
+        AdaptiveConcurrencyLimiter.Permit firstPermit = limiter.acquire().get();
+
+        CompletableFuture<AdaptiveConcurrencyLimiter.Permit> queuedPermit = limiter.acquire();
+        assertThat(queuedPermit).isNotDone();
+
+        firstPermit.release("head", AdaptiveConcurrencyLimiter.Outcome.IGNORED);
+
+        assertThat(queuedPermit).isCompleted();
+        assertThat(limiter.getMetrics()).containsEntry("inFlight", 1).containsEntry("queueDepth", 0);
+    }
+
+    @Test
+    void shouldRejectWhenQueueIsFull() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(limiterProperties(1, 1));
+        limiter.acquire().get();
+        limiter.acquire();
+
+        // 排队已满时直接失败，而不是无限堆积请求。
+        assertThatThrownBy(() -> limiter.acquire().get())
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(ModelServerUnavailableException.class);
+        assertThat(limiter.getMetrics()).containsEntry("rejected", 1L);
+    }
+
+    @Test
+    void interactiveRequestShouldOvertakeQueuedBulkRequests() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+                limiterProperties(1, 4), new ModelServerProperties.SchedulerProperties());
+        AdaptiveConcurrencyLimiter.Permit firstPermit = limiter.acquire(InferencePriority.BULK).get();
+        CompletableFuture<AdaptiveConcurrencyLimiter.Permit> bulkPermit = limiter.acquire(InferencePriority.BULK);
+        CompletableFuture<AdaptiveConcurrencyLimiter.Permit> interactivePermit = limiter.acquire(InferencePriority.INTERACTIVE);
+
+        firstPermit.release("head", AdaptiveConcurrencyLimiter.Outcome.IGNORED);
+
+        // 后到的交互请求先拿到许可，批量积压不拖慢页面同步等待的推理。
+        assertThat(interactivePermit).isCompleted();
+        assertThat(bulkPermit).isNotDone();
+    }
+
+    @Test
+    void timeoutShouldHalveLimit() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(limiterProperties(8, 4));
+
+        limiter.acquire().get().release("head", AdaptiveConcurrencyLimiter.Outcome.DROPPED);
+
+        assertThat(limiter.getLimit()).isEqualTo(4);
+        assertThat(limiter.getMetrics()).containsEntry("limitDecreases", 1L);
+    }
+
+    private ModelServerProperties.LimiterProperties limiterProperties(int initialLimit, int maxQueueSize) {
+        ModelServerProperties.LimiterProperties properties = new ModelServerProperties.LimiterProperties();
+        properties.setInitialLimit(initialLimit);
+        properties.setMaxQueueSize(maxQueueSize);
+        return properties;
+    }
+}
@@ -0,0 +1,76 @@
+package com.medical.qc.shared.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * BinaryFrameTransport 单元测试。
+ * 校验文件内容按二进制帧上传，以及二进制结果帧还原为数组。
+ */
+class BinaryFrameTransportTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void binaryTransportShouldUploadFileContentInsteadOfPath() throws Exception {
+        byte[] volumeBytes = new byte[10_000];
+        new Random(7).nextBytes(volumeBytes);
+        Path volumePath = Files.write(tempDir.resolve("head.nii.gz"), volumeBytes);
+
+        ModelServerProperties.TransportProperties transportProperties = new ModelServerProperties.TransportProperties();
+        transportProperties.setMode("binary");
+        transportProperties.setChunkSizeBytes(4096);
+        FakeModelServer server = new FakeModelServer().startAndWait();
+        try (ModelServerConnectionPool pool = new ModelServerConnectionPool(
+                server.getUri(), new ModelServerProperties.PoolProperties(), transportProperties, new ObjectMapper())) {
+            Map<String, Object> response = pool.submit(Map.of(
+                    "task_type", "head",
+                    "volume_path", volumePath.toString(),
+                    "input_path", volumePath.toString()), 5000).get(5, TimeUnit.SECONDS);
+
+            // 同一文件只上传一次，路径字段被替换为引用，模型服务收到的是完整文件内容。
+            assertThat(response)
+                    .containsEntry("echo", "head")
+                    .containsEntry("volume_path", "binary://f0")
+                    .containsEntry("input_path", "binary://f0")
+                    .containsEntry("uploaded_size", volumeBytes.length);
+            assertThat(server.getUploadedContents()).hasSize(1);
+            assertThat(server.getUploadedContents().get(0)).isEqualTo(volumeBytes);
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    void decodeResultShouldRestoreShapedArrays() {
+        String header = "{\"request_id\":\"r-1\",\"score\":0.5,\"binary_fields\":["
+                + "{\"key\":\"slice_scores\",\"item\":null,\"dtype\":\"f4\",\"shape\":[2,2],\"offset\":0,\"length\":16}]}";
+        byte[] headerBytes = header.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer frame = ByteBuffer.allocate(4 + headerBytes.length + 16);
+        frame.putInt(headerBytes.length).put(headerBytes);
+        frame.order(ByteOrder.LITTLE_ENDIAN).putFloat(1.0f).putFloat(2.0f).putFloat(3.0f).putFloat(4.0f);
+        frame.flip();
+
+        Map<String, Object> result = BinaryFrameTransport.decodeResult(new ObjectMapper(), frame);
+
+        assertThat(result)
+                .containsEntry("request_id", "r-1")
+                .containsEntry("score", 0.5)
+                .doesNotContainKey("binary_fields");
+        assertThat(result.get("slice_scores")).isEqualTo(List.of(List.of(1.0f, 2.0f), List.of(3.0f, 4.0f)));
+    }
+}
@@ -0,0 +1,259 @@
+package com.medical.qc.shared.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medical.qc.shared.JsonObjectMapReader;
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+
+import java.net.InetSocketAddress;
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 测试用的模型服务替身。
+ *
+ * <p>收到请求后原样回显负载并带回 request_id；请求里的 delay_ms 字段用于模拟推理耗时，
+ * 便于构造乱序响应和超时场景。指定单次前向耗时后，所有请求改为在单线程上串行处理，
+ * 模拟 GPU 每次前向固定开销，批量帧与单条请求耗时相同。
+ * health_check 请求立即返回就绪状态，只计数不计入收到的请求列表。
+ * 带 binary_upload 清单的请求会等收齐后续二进制帧后再回显，并附带 uploaded_size。
+ * 带 stream_progress 的请求在最终结果前先回一条 progress 与一条 partial 中间事件，批量帧按子项各回一组。</p>
+ */
+class FakeModelServer extends WebSocketServer {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ScheduledExecutorService replyExecutor = Executors.newScheduledThreadPool(4);
+    // 串行“GPU”线程与单次前向耗时，0 表示不启用串行模式。
+    private final ExecutorService gpuExecutor = Executors.newSingleThreadExecutor();
+    private final long forwardPassMs;
+    private final AtomicInteger forwardPasses = new AtomicInteger();
+    private final CountDownLatch startedLatch = new CountDownLatch(1);
+    // 记录累计建立的连接数和收到的全部请求，供断言使用。
+    private final AtomicInteger acceptedConnections = new AtomicInteger();
+    private final List<Map<String, Object>> receivedRequests = new CopyOnWriteArrayList<>();
+    private final AtomicInteger healthChecks = new AtomicInteger();
+    // 二进制上传：每条连接当前正在接收的请求，以及已收齐的文件内容。
+    private final Map<WebSocket, PendingUpload> pendingUploads = new ConcurrentHashMap<>();
+    private final List<byte[]> uploadedContents = new CopyOnWriteArrayList<>();
+
+    FakeModelServer() {
+        this(0L);
+    }
+
+    FakeModelServer(long forwardPassMs) {
+        super(new InetSocketAddress("localhost", 0));
+        this.forwardPassMs = forwardPassMs;
+        setReuseAddr(true);
+    }
+
+    /**
+     * 启动并等待端口就绪。
+     */
+    FakeModelServer startAndWait() throws InterruptedException {
+        start();
+        startedLatch.await(5, TimeUnit.SECONDS);
+        return this;
+    }
+
+    URI getUri() {
+        return URI.create("ws://localhost:" + getPort());
+    }
+
+    int getAcceptedConnections() {
+        return acceptedConnections.get();
+    }
+
+    List<Map<String, Object>> getReceivedRequests() {
+        return receivedRequests;
+    }
+
+    List<byte[]> getUploadedContents() {
+        return uploadedContents;
+    }
+
+    int getHealthChecks() {
+        return healthChecks.get();
+    }
+
+    int getForwardPasses() {
+        return forwardPasses.get();
+    }
+
+    /**
+     * 从服务端主动断开全部连接，模拟模型服务重启。
+     */
+    void dropAllConnections() {
+        for (WebSocket connection : getConnections()) {
+            connection.close();
+        }
+    }
+
+    void shutdown() throws InterruptedException {
+        replyExecutor.shutdownNow();
+        gpuExecutor.shutdownNow();
+        stop(1000);
+    }
+
+    @Override
+    public void onOpen(WebSocket conn, ClientHandshake handshake) {
+        acceptedConnections.incrementAndGet();
+    }
+
+    @Override
+    public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+    }
+
+    @Override
+    public void onMessage(WebSocket conn, String message) {
+        Map<String, Object> request = JsonObjectMapReader.read(objectMapper, message);
+        if (Boolean.TRUE.equals(request.get("health_check"))) {
+            healthChecks.incrementAndGet();
+            Map<String, Object> response = new HashMap<>();
+            response.put("status", "ok");
+            response.put("model_loaded", true);
+            response.put("request_id", request.get("request_id"));
+            try {
+                conn.send(objectMapper.writeValueAsString(response));
+            } catch (Exception ignore) {
+            }
+            return;
+        }
+        receivedRequests.add(request);
+        if (Boolean.TRUE.equals(request.get("cancel"))) {
+            return;
+        }
+        if (request.get("binary_upload") instanceof List<?> manifest) {
+            long totalSize = 0L;
+            for (Object entry : manifest) {
+                totalSize += ((Number) ((Map<?, ?>) entry).get("size")).longValue();
+            }
+            pendingUploads.put(conn, new PendingUpload(request, totalSize));
+            return;
+        }
+        if (forwardPassMs > 0) {
+            gpuExecutor.submit(() -> {
+                try {
+                    Thread.sleep(forwardPassMs);
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                forwardPasses.incrementAndGet();
+                reply(conn, request);
+            });
+            return;
+        }
+        long delayMs = request.get("delay_ms") instanceof Number number ? number.longValue() : 0L;
+        replyExecutor.schedule(() -> reply(conn, request), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void onMessage(WebSocket conn, ByteBuffer message) {
+        PendingUpload upload = pendingUploads.get(conn);
+        if (upload == null) {
+            return;
+        }
+        byte[] chunk = new byte[message.remaining()];
+        message.get(chunk);
+        upload.content.write(chunk, 0, chunk.length);
+        if (upload.content.size() >= upload.totalSize) {
+            pendingUploads.remove(conn);
+            uploadedContents.add(upload.content.toByteArray());
+            Map<String, Object> request = new HashMap<>(upload.request);
+            request.put("uploaded_size", upload.content.size());
+            reply(conn, request);
+        }
+    }
+
+    @Override
+    public void onError(WebSocket conn, Exception exception) {
+    }
+
+    @Override
+    public void onStart() {
+        startedLatch.countDown();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void reply(WebSocket conn, Map<String, Object> request) {
+        if (!conn.isOpen()) {
+            return;
+        }
+        if (Boolean.TRUE.equals(request.get("stream_progress"))) {
+            sendProgressEvents(conn, request);
+        }
+        Map<String, Object> response;
+        if (request.get("batch") instanceof List<?> batch) {
+            // 批量帧按顺序返回 results，每条结果回显所属 task_type。
+            List<Map<String, Object>> results = new ArrayList<>();
+            for (Object item : batch) {
+                Map<String, Object> itemResult = new HashMap<>((Map<String, Object>) item);
+                itemResult.put("echo", request.get("task_type"));
+                results.add(itemResult);
+            }
+            response = new HashMap<>();
+            response.put("results", results);
+            response.put("request_id", request.get("request_id"));
+        } else {
+            response = new HashMap<>(request);
+            response.put("echo", request.get("task_type"));
+        }
+        try {
+            conn.send(objectMapper.writeValueAsString(response));
+        } catch (Exception ignore) {
+        }
+    }
+
+    private void sendProgressEvents(WebSocket conn, Map<String, Object> request) {
+        int itemCount = request.get("batch") instanceof List<?> batch ? batch.size() : 0;
+        for (int index = 0; index < Math.max(1, itemCount); index++) {
+            Map<String, Object> progressEvent = new HashMap<>();
+            progressEvent.put("event", "progress");
+            progressEvent.put("stage", "inference");
+            progressEvent.put("progress", 50);
+            progressEvent.put("request_id", request.get("request_id"));
+            Map<String, Object> partialEvent = new HashMap<>();
+            partialEvent.put("event", "partial");
+            partialEvent.put("stage", "qc_items");
+            partialEvent.put("progress", 90);
+            partialEvent.put("qc_item", Map.of("name", "item-" + index));
+            partialEvent.put("request_id", request.get("request_id"));
+            if (itemCount > 0) {
+                progressEvent.put("batch_index", index);
+                partialEvent.put("batch_index", index);
+            }
+            try {
+                conn.send(objectMapper.writeValueAsString(progressEvent));
+                conn.send(objectMapper.writeValueAsString(partialEvent));
+            } catch (Exception ignore) {
+            }
+        }
+    }
+
+    /**
+     * 正在接收二进制分块的请求。
+     */
+    private static final class PendingUpload {
+        private final Map<String, Object> request;
+        private final long totalSize;
+        private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+
+        private PendingUpload(Map<String, Object> request, long totalSize) {
+            this.request = request;
+            this.totalSize = totalSize;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.medical.qc.shared.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * InferenceBatchDispatcher 单元测试。
+ * 使用串行前向的模型服务替身，校验批量拆分正确性和吞吐提升。
+ */
+class InferenceBatchDispatcherTest {
+    // 替身服务每次前向固定耗时，批量与单条请求成本相同。
+    private static final long FORWARD_PASS_MS = 100L;
+    private static final int REQUEST_COUNT = 8;
+
+    private final List<AutoCloseable> resources = new ArrayList<>();
+    private final List<FakeModelServer> servers = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (AutoCloseable resource : resources) {
+            resource.close();
+        }
+        for (FakeModelServer server : servers) {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    void submitShouldSplitBatchedReplyBackToCallers() throws Exception {
+        FakeModelServer server = startServer();
+        InferenceBatchDispatcher dispatcher = createDispatcher(server, true, 4);
+
+        List<CompletableFuture<Map<String, Object>>> futures = new ArrayList<>();
+        for (int index = 0; index < 4; index++) {
+            futures.add(dispatcher.submit("head", Map.of("task_type", "head", "volume_path", "/data/" + index), 5000));
+        }
+
+        // 每个调用方拿回的是自己那一条的结果，顺序与提交顺序一致。
+        for (int index = 0; index < 4; index++) {
+            assertThat(futures.get(index).get(5, TimeUnit.SECONDS))
+                    .containsEntry("volume_path", "/data/" + index)
+                    .containsEntry("echo", "head");
+        }
+        assertThat(server.getForwardPasses()).isEqualTo(1);
+        assertThat(server.getReceivedRequests()).hasSize(1);
+        assertThat(server.getReceivedRequests().get(0)).containsEntry("task_type", "head").containsKey("batch");
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> headMetrics = (Map<String, Object>) ((Map<String, Object>) dispatcher.getMetrics()
+                .get("taskTypes")).get("head");
+        assertThat(headMetrics).containsEntry("batches", 1L).containsEntry("requests", 4L).containsEntry("largestBatch", 4L);
+    }
+
+    @Test
+    void submitShouldRouteBatchedProgressEventsByIndex() throws Exception {
+        FakeModelServer server = startServer();
+        InferenceBatchDispatcher dispatcher = createDispatcher(server, true, 2);
+
+        List<Map<String, Object>> firstEvents = new CopyOnWriteArrayList<>();
+        List<Map<String, Object>> secondEvents = new CopyOnWriteArrayList<>();
+        CompletableFuture<Map<String, Object>> first =
+                dispatcher.submit("head", Map.of("task_type", "head", "volume_path", "/data/0"), 5000, firstEvents::add);
+        CompletableFuture<Map<String, Object>> second =
+                dispatcher.submit("head", Map.of("task_type", "head", "volume_path", "/data/1"), 5000, secondEvents::add);
+
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        // 同批两条请求各自只收到属于自己的事件，batch_index 已剥离。
+        assertThat(firstEvents).hasSize(2).allSatisfy(event -> assertThat(event).doesNotContainKey("batch_index"));
+        assertThat(firstEvents.get(1)).containsEntry("qc_item", Map.of("name", "item-0"));
+        assertThat(secondEvents).hasSize(2);
+        assertThat(secondEvents.get(1)).containsEntry("qc_item", Map.of("name", "item-1"));
+        assertThat(server.getReceivedRequests()).hasSize(1);
+    }
+
+    @Test
+    void submitShouldNotMixDifferentTaskTypes() throws Exception {
+        FakeModelServer server = startServer();
+        InferenceBatchDispatcher dispatcher = createDispatcher(server, true, 4);
+
+        CompletableFuture<Map<String, Object>> head = dispatcher.submit("head", Map.of("task_type", "head"), 5000);
+        CompletableFuture<Map<String, Object>> chest =
+                dispatcher.submit("chest-non-contrast", Map.of("task_type", "chest-non-contrast"), 5000);
+
+        // 窗口内只有一条的 task_type 按普通单条请求发送。
+        assertThat(head.get(5, TimeUnit.SECONDS)).containsEntry("echo", "head").doesNotContainKey("batch");
+        assertThat(chest.get(5, TimeUnit.SECONDS)).containsEntry("echo", "chest-non-contrast");
+        assertThat(server.getForwardPasses()).isEqualTo(2);
+    }
+
+    @Test
+    void batchingShouldImproveThroughputAgainstSerialModelServer() throws Exception {
+        long unbatchedElapsed = runConcurrentRequests(createDispatcher(startServer(), false, 4));
+        long batchedElapsed = runConcurrentRequests(createDispatcher(startServer(), true, 4));
+
+        // 逐条发送需要 8 次前向，按 4 条合批只需 2 次前向。
+        assertThat(unbatchedElapsed).isGreaterThanOrEqualTo(REQUEST_COUNT * FORWARD_PASS_MS);
+        assertThat(batchedElapsed).isLessThan(unbatchedElapsed / 2);
+    }
+
+    private long runConcurrentRequests(InferenceBatchDispatcher dispatcher) throws Exception {
+        // 先建立好连接，避免把握手耗时算进吞吐对比。
+        dispatcher.submit("warmup", Map.of("task_type", "warmup"), 5000).get(5, TimeUnit.SECONDS);
+
+        long startedAt = System.nanoTime();
+        List<CompletableFuture<Map<String, Object>>> futures = new ArrayList<>();
+        for (int index = 0; index < REQUEST_COUNT; index++) {
+            futures.add(dispatcher.submit("head", Map.of("task_type", "head", "index", index), 10_000));
+        }
+        for (int index = 0; index < REQUEST_COUNT; index++) {
+            assertThat(futures.get(index).get(10, TimeUnit.SECONDS)).containsEntry("index", index);
+        }
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+    }
+
+    private FakeModelServer startServer() throws InterruptedException {
+        FakeModelServer server = new FakeModelServer(FORWARD_PASS_MS).startAndWait();
+        servers.add(server);
+        return server;
+    }
+
+    private InferenceBatchDispatcher createDispatcher(FakeModelServer server, boolean enabled, int maxSize) {
+        ModelServerConnectionPool pool = new ModelServerConnectionPool(
+                server.getUri(),
+                new ModelServerProperties.PoolProperties(),
+                new ObjectMapper());
+        ModelServerProperties.BatchProperties batchProperties = new ModelServerProperties.BatchProperties();
+        batchProperties.setEnabled(enabled);
+        batchProperties.setMaxSize(maxSize);
+        batchProperties.setWindowMs(20L);
+        InferenceBatchDispatcher dispatcher = new InferenceBatchDispatcher(pool, batchProperties);
+        resources.add(dispatcher);
+        resources.add(pool);
+        return dispatcher;
+    }
+}
@@ -0,0 +1,166 @@
+package com.medical.qc.shared.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * InferenceResultCache 单元测试。
+ * 校验按内容命中、元数据参与缓存键、失败结果不入缓存，以及交互请求不排在批量请求的查询之后。
+ */
+class InferenceResultCacheTest {
+    @TempDir
+    Path tempDir;
+
+    private InferenceResultCache cache;
+    private final AtomicInteger loadCount = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        @SuppressWarnings("unchecked")
+        ObjectProvider<StringRedisTemplate> redisTemplateProvider = mock(ObjectProvider.class);
+        cache = new InferenceResultCache(new ObjectMapper(), new ModelServerProperties(), redisTemplateProvider);
+    }
+
+    @Test
+    void getOrLoadShouldReturnCachedResultForSameContent() throws Exception {
+        Path first = writeVolume("first.nii", "volume-content");
+        // 不同路径、相同内容的文件应命中同一条缓存。
+        Path copy = writeVolume("copy.nii", "volume-content");
+
+        Map<String, Object> firstResult = load("head", first, null, Map.of("qcStatus", "合格"));
+        firstResult.put("patient_name", "调用方修改");
+        awaitStores(1);
+        Map<String, Object> cachedResult = load("head", copy, null, Map.of("qcStatus", "不合格"));
+
+        // 命中时返回首次推理结果的独立副本，不受调用方修改影响。
+        assertThat(loadCount).hasValue(1);
+        assertThat(cachedResult).containsEntry("qcStatus", "合格").doesNotContainKey("patient_name");
+        assertThat(cache.getMetricsSnapshot()).containsEntry("memoryHits", 1L).containsEntry("misses", 1L);
+    }
+
+    @Test
+    void getOrLoadShouldMissWhenContentOrMetadataChanges() throws Exception {
+        Path volume = writeVolume("volume.nii", "v1");
+        load("coronary-cta", volume, Map.of("heart_rate", 60), Map.of("qcStatus", "合格"));
+        awaitStores(1);
+
+        load("coronary-cta", volume, Map.of("heart_rate", 75), Map.of("qcStatus", "合格"));
+        load("chest-contrast", volume, Map.of("heart_rate", 60), Map.of("qcStatus", "合格"));
+        Files.writeString(volume, "v2-longer");
+        load("coronary-cta", volume, Map.of("heart_rate", 60), Map.of("qcStatus", "合格"));
+
+        // 元数据、任务类型或文件内容任一变化都必须重新推理。
+        assertThat(loadCount).hasValue(4);
+    }
+
+    @Test
+    void getOrLoadShouldNotCacheErrorResults() throws Exception {
+        Path volume = writeVolume("volume.nii", "content");
+
+        load("head", volume, null, Map.of("error", "Head CT plain QC inference timed out"));
+        load("head", volume, null, Map.of("error", "Head CT plain QC inference timed out"));
+
+        assertThat(loadCount).hasValue(2);
+        assertThat(cache.getMetricsSnapshot()).containsEntry("stores", 0L);
+    }
+
+    @Test
+    void interactiveLookupShouldNotWaitBehindBulkLookups() throws Exception {
+        CountDownLatch bulkLookupsStarted = new CountDownLatch(2);
+        CountDownLatch releaseBulk = new CountDownLatch(1);
+        AtomicInteger redisReads = new AtomicInteger();
+        @SuppressWarnings("unchecked")
+        ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+        // 前两次 Redis 读取阻塞，占满共享查询线程，模拟批量重跑积压的摘要与查询。
+        when(valueOperations.get(anyString())).thenAnswer(invocation -> {
+            if (redisReads.incrementAndGet() <= 2) {
+                bulkLookupsStarted.countDown();
+                releaseBulk.await(5, TimeUnit.SECONDS);
+            }
+            return null;
+        });
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        @SuppressWarnings("unchecked")
+        ObjectProvider<StringRedisTemplate> redisTemplateProvider = mock(ObjectProvider.class);
+        when(redisTemplateProvider.getIfAvailable()).thenReturn(redisTemplate);
+        ModelServerProperties properties = new ModelServerProperties();
+        properties.getCache().setRedisEnabled(true);
+        InferenceResultCache redisCache = new InferenceResultCache(new ObjectMapper(), properties, redisTemplateProvider);
+
+        List<CompletableFuture<Map<String, Object>>> bulkFutures = new ArrayList<>();
+        try {
+            for (int index = 0; index < 2; index++) {
+                Path volume = writeVolume("bulk-" + index + ".nii", "bulk-" + index);
+                bulkFutures.add(redisCache.getOrLoad("head", volume.toString(), null, InferencePriority.BULK,
+                        () -> CompletableFuture.completedFuture(new HashMap<>(Map.of("qcStatus", "合格")))));
+            }
+            assertThat(bulkLookupsStarted.await(5, TimeUnit.SECONDS)).isTrue();
+            Path image = writeVolume("interactive.png", "interactive");
+
+            Map<String, Object> interactiveResult = redisCache.getOrLoad(
+                            "hemorrhage",
+                            image.toString(),
+                            null,
+                            InferencePriority.INTERACTIVE,
+                            () -> CompletableFuture.completedFuture(new HashMap<>(Map.of("hemorrhage", false))))
+                    .get(2, TimeUnit.SECONDS);
+
+            assertThat(interactiveResult).containsEntry("hemorrhage", false);
+        } finally {
+            releaseBulk.countDown();
+        }
+        for (CompletableFuture<Map<String, Object>> bulkFuture : bulkFutures) {
+            assertThat(bulkFuture.get(5, TimeUnit.SECONDS)).containsEntry("qcStatus", "合格");
+        }
+        redisCache.destroy();
+    }
+
+    private Map<String, Object> load(String taskType,
+                                     Path volume,
+                                     Map<String, Object> metadata,
+                                     Map<String, Object> modelResult) throws Exception {
+        return cache.getOrLoad(taskType, volume.toString(), metadata, () -> {
+            loadCount.incrementAndGet();
+            return CompletableFuture.completedFuture(new HashMap<>(modelResult));
+        }).get(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 写缓存在后台线程完成，断言命中前先等待写入落地。
+     */
+    private void awaitStores(long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!Long.valueOf(expected).equals(cache.getMetricsSnapshot().get("stores"))
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private Path writeVolume(String fileName, String content) throws Exception {
+        Path volume = tempDir.resolve(fileName);
+        Files.writeString(volume, content);
+        return volume;
+    }
+}
@@ -0,0 +1,84 @@
+package com.medical.qc.shared.ai;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ModelServerCircuitBreaker 单元测试。
+ * 使用可控时钟校验 CLOSED、OPEN、HALF_OPEN 之间的状态流转。
+ */
+class ModelServerCircuitBreakerTest {
+    private final AtomicLong clock = new AtomicLong(1_000L);
+    private ModelServerCircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        ModelServerProperties.BreakerProperties properties = new ModelServerProperties.BreakerProperties();
+        properties.setSlidingWindowSize(10);
+        properties.setMinimumCalls(4);
+        properties.setFailureRateThreshold(50);
+        properties.setOpenDurationMs(5_000L);
+        properties.setHalfOpenMaxCalls(2);
+        circuitBreaker = new ModelServerCircuitBreaker(properties, clock::get);
+    }
+
+    @Test
+    void shouldOpenWhenFailureRateExceedsThreshold() {
+        recordCalls(2, true);
+        recordCalls(1, false);
+        // 调用次数未达到最小统计量前不熔断。
+        assertThat(circuitBreaker.getState()).isEqualTo(ModelServerCircuitBreaker.State.CLOSED);
+
+        recordCalls(1, true);
+
+        assertThat(circuitBreaker.getState()).isEqualTo(ModelServerCircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+        assertThat(circuitBreaker.getMetrics()).containsEntry("rejectedCalls", 1L).containsKey("retryAfterMs");
+    }
+
+    @Test
+    void shouldCloseAfterSuccessfulHalfOpenProbes() {
+        recordCalls(4, true);
+        clock.addAndGet(5_000L);
+
+        // 熔断时长到期后只放行 halfOpenMaxCalls 个试探请求。
+        assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+        assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+        assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+        assertThat(circuitBreaker.getState()).isEqualTo(ModelServerCircuitBreaker.State.HALF_OPEN);
+
+        circuitBreaker.onSuccess();
+        circuitBreaker.onSuccess();
+
+        assertThat(circuitBreaker.getState()).isEqualTo(ModelServerCircuitBreaker.State.CLOSED);
+        assertThat(circuitBreaker.getMetrics()).containsEntry("windowCalls", 0);
+    }
+
+    @Test
+    void shouldReopenWhenHalfOpenProbeFails() {
+        recordCalls(4, true);
+        clock.addAndGet(5_000L);
+        assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+
+        circuitBreaker.onFailure();
+
+        assertThat(circuitBreaker.getState()).isEqualTo(ModelServerCircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+        assertThat(circuitBreaker.getMetrics()).containsEntry("openTransitions", 2L);
+    }
+
+    private void recordCalls(int count, boolean failed) {
+        for (int index = 0; index < count; index++) {
+            assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+            if (failed) {
+                circuitBreaker.onFailure();
+            } else {
+                circuitBreaker.onSuccess();
+            }
+        }
+    }
+}
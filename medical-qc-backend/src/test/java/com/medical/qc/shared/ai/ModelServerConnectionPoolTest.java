@@ -0,0 +1,133 @@
+package com.medical.qc.shared.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * ModelServerConnectionPool 单元测试。
+ * 校验长连接复用、request_id 乱序关联、中间事件分发以及断线重连。
+ */
+class ModelServerConnectionPoolTest {
+    private FakeModelServer server;
+    private ModelServerConnectionPool pool;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new FakeModelServer().startAndWait();
+        ModelServerProperties.PoolProperties poolProperties = new ModelServerProperties.PoolProperties();
+        poolProperties.setSize(2);
+        pool = new ModelServerConnectionPool(server.getUri(), poolProperties, new ObjectMapper());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        pool.close();
+        server.shutdown();
+    }
+
+    @Test
+    void submitShouldReuseConnectionsWithinPoolSize() throws Exception {
+        // 连续发出多批请求，连接数不应超过池上限，也不应每次请求都重新握手。
+        for (int round = 0; round < 5; round++) {
+            List<CompletableFuture<Map<String, Object>>> futures = new ArrayList<>();
+            for (int index = 0; index < 4; index++) {
+                futures.add(pool.submit(Map.of("task_type", "head", "delay_ms", 20), 5000));
+            }
+            for (CompletableFuture<Map<String, Object>> future : futures) {
+                assertThat(future.get(5, TimeUnit.SECONDS)).containsEntry("echo", "head");
+            }
+        }
+
+        assertThat(server.getAcceptedConnections()).isBetween(1, 2);
+        assertThat(server.getReceivedRequests()).hasSize(20)
+                .allSatisfy(request -> assertThat(request).containsKey("request_id"));
+        awaitMetric("inFlight", 0);
+        assertThat(pool.getMetrics()).containsEntry("totalRequests", 20L);
+    }
+
+    @Test
+    void submitShouldCorrelateOutOfOrderResponsesByRequestId() throws Exception {
+        // 同一连接上先发慢请求再发快请求，快请求先返回时也要回到正确的调用方。
+        ModelServerProperties.PoolProperties singleConnection = new ModelServerProperties.PoolProperties();
+        singleConnection.setSize(1);
+        try (ModelServerConnectionPool singlePool =
+                     new ModelServerConnectionPool(server.getUri(), singleConnection, new ObjectMapper())) {
+            CompletableFuture<Map<String, Object>> slow =
+                    singlePool.submit(Map.of("task_type", "slow", "delay_ms", 300), 5000);
+            CompletableFuture<Map<String, Object>> fast =
+                    singlePool.submit(Map.of("task_type", "fast"), 5000);
+
+            assertThat(fast.get(5, TimeUnit.SECONDS)).containsEntry("echo", "fast").doesNotContainKey("request_id");
+            assertThat(slow.isDone()).isFalse();
+            assertThat(slow.get(5, TimeUnit.SECONDS)).containsEntry("echo", "slow");
+        }
+    }
+
+    @Test
+    void submitShouldDeliverProgressEventsBeforeFinalResponse() throws Exception {
+        List<Map<String, Object>> events = new CopyOnWriteArrayList<>();
+        CompletableFuture<Map<String, Object>> future =
+                pool.submit(Map.of("task_type", "head"), 5000, events::add);
+
+        // 中间事件只交给回调，不会提前结束请求；事件先于最终结果到达。
+        assertThat(future.get(5, TimeUnit.SECONDS)).containsEntry("echo", "head").doesNotContainKey("event");
+        assertThat(events).extracting(event -> event.get("event")).containsExactly("progress", "partial");
+        assertThat(events.get(1)).containsEntry("qc_item", Map.of("name", "item-0"));
+        assertThat(server.getReceivedRequests().get(0)).containsEntry("stream_progress", true);
+
+        // 未订阅中间事件的请求不带标记，模型服务按旧协议只回最终结果。
+        pool.submit(Map.of("task_type", "head"), 5000).get(5, TimeUnit.SECONDS);
+        assertThat(server.getReceivedRequests().get(1)).doesNotContainKey("stream_progress");
+    }
+
+    @Test
+    void submitShouldReconnectAfterServerDropsConnection() throws Exception {
+        assertThat(pool.submit(Map.of("task_type", "head"), 5000).get(5, TimeUnit.SECONDS))
+                .containsEntry("echo", "head");
+
+        // 服务端断开后，在途请求失败，下一次请求应自动建立新连接。
+        CompletableFuture<Map<String, Object>> orphaned = pool.submit(Map.of("task_type", "head", "delay_ms", 500), 5000);
+        Thread.sleep(100);
+        server.dropAllConnections();
+        assertThatThrownBy(() -> orphaned.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class);
+
+        assertThat(pool.submit(Map.of("task_type", "chest-non-contrast"), 5000).get(5, TimeUnit.SECONDS))
+                .containsEntry("echo", "chest-non-contrast");
+        assertThat(server.getAcceptedConnections()).isEqualTo(2);
+        assertThat(pool.getMetrics()).containsEntry("evictions", 1L).containsEntry("reconnects", 1L);
+    }
+
+    @Test
+    void submitShouldFailWithTimeoutWhenServerDoesNotReply() throws Exception {
+        CompletableFuture<Map<String, Object>> future = pool.submit(Map.of("task_type", "head", "delay_ms", 2000), 200);
+
+        // 超时以 TimeoutException 结束，并计入超时指标。
+        assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(TimeoutException.class);
+        awaitMetric("timedOutRequests", 1L);
+    }
+
+    /**
+     * 指标在 future 回调里累加，可能略晚于调用方拿到结果，这里短暂轮询。
+     */
+    private void awaitMetric(String name, Object expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!expected.equals(pool.getMetrics().get(name)) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(pool.getMetrics()).containsEntry(name, expected);
+    }
+}
@@ -0,0 +1,161 @@
+package com.medical.qc.shared.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ModelServerLoadBalancer 单元测试。
+ * 校验多实例之间按在途请求数分流、宕机实例被健康检查摘除，以及推理中途断线的实例被被动摘除。
+ */
+class ModelServerLoadBalancerTest {
+    private FakeModelServer firstServer;
+    private FakeModelServer secondServer;
+    private ModelServerLoadBalancer loadBalancer;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        firstServer = new FakeModelServer().startAndWait();
+        secondServer = new FakeModelServer().startAndWait();
+        ModelServerProperties properties = new ModelServerProperties();
+        properties.getBalancer().setHealthCheckIntervalMs(100L);
+        properties.getBalancer().setHealthCheckTimeoutMs(500L);
+        properties.getBalancer().setUnhealthyThreshold(1);
+        loadBalancer = new ModelServerLoadBalancer(
+                List.of(firstServer.getUri(), secondServer.getUri()),
+                properties,
+                new ObjectMapper());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        loadBalancer.close();
+        firstServer.shutdown();
+        secondServer.shutdown();
+    }
+
+    @Test
+    void shouldSpreadConcurrentRequestsAcrossEndpoints() throws Exception {
+        List<CompletableFuture<Map<String, Object>>> futures = new ArrayList<>();
+        for (int index = 0; index < 8; index++) {
+            futures.add(loadBalancer.submit(Map.of("task_type", "head", "delay_ms", 300), 5000));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+        // 同时在途的请求按最少在途数路由，两个实例应各分到一半。
+        assertThat(firstServer.getReceivedRequests()).hasSize(4);
+        assertThat(secondServer.getReceivedRequests()).hasSize(4);
+    }
+
+    @Test
+    void shouldEjectEndpointThatFailsHealthCheck() throws Exception {
+        URI stoppedUri = secondServer.getUri();
+        secondServer.shutdown();
+        awaitHealthyEndpoints(1L);
+
+        for (int index = 0; index < 4; index++) {
+            assertThat(loadBalancer.submit(Map.of("task_type", "head"), 2000).get(3, TimeUnit.SECONDS))
+                    .containsEntry("echo", "head");
+        }
+
+        // 被摘除的实例不再接收业务请求，全部流量落到健康实例。
+        assertThat(firstServer.getReceivedRequests()).hasSize(4);
+        assertThat(loadBalancer.getMetrics().get("endpoints").toString())
+                .contains(stoppedUri.toString())
+                .contains("healthy=false");
+    }
+
+    @Test
+    void droppedConnectionShouldPassivelyEjectEndpoint() throws Exception {
+        ModelServerProperties properties = new ModelServerProperties();
+        // 健康检查间隔足够长，摘除只能来自业务请求的被动计数。
+        properties.getBalancer().setHealthCheckIntervalMs(60_000L);
+        properties.getBalancer().setUnhealthyThreshold(1);
+        ModelServerLoadBalancer passiveBalancer = new ModelServerLoadBalancer(
+                List.of(firstServer.getUri(), secondServer.getUri()),
+                properties,
+                new ObjectMapper());
+        try {
+            List<CompletableFuture<Map<String, Object>>> futures = List.of(
+                    passiveBalancer.submit(Map.of("task_type", "head", "delay_ms", 3000), 10_000),
+                    passiveBalancer.submit(Map.of("task_type", "head", "delay_ms", 3000), 10_000));
+            awaitReceivedRequests(firstServer, 1);
+            awaitReceivedRequests(secondServer, 1);
+
+            // 推理中途断线，在途请求以服务不可用结束并计入该实例的失败次数。
+            secondServer.dropAllConnections();
+
+            long unavailable = 0L;
+            for (CompletableFuture<Map<String, Object>> future : futures) {
+                try {
+                    future.get(5, TimeUnit.SECONDS);
+                } catch (ExecutionException exception) {
+                    assertThat(exception.getCause()).isInstanceOf(ModelServerUnavailableException.class);
+                    unavailable++;
+                }
+            }
+            assertThat(unavailable).isEqualTo(1L);
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> endpoints = (List<Map<String, Object>>) passiveBalancer.getMetrics().get("endpoints");
+            assertThat(endpoints)
+                    .filteredOn(endpoint -> secondServer.getUri().toString().equals(endpoint.get("logicalEndpoint")))
+                    .singleElement()
+                    .satisfies(endpoint -> assertThat(endpoint)
+                            .containsEntry("healthy", false)
+                            .containsEntry("ejections", 1L));
+        } finally {
+            passiveBalancer.close();
+        }
+    }
+
+    @Test
+    void rerouteShouldSendNewRequestsToReplacementEndpoint() throws Exception {
+        FakeModelServer standbyServer = new FakeModelServer().startAndWait();
+        try {
+            loadBalancer.reroute(firstServer.getUri(), standbyServer.getUri());
+            firstServer.shutdown();
+
+            for (int index = 0; index < 4; index++) {
+                loadBalancer.submit(Map.of("task_type", "head"), 2000).get(3, TimeUnit.SECONDS);
+            }
+
+            // 切换后逻辑地址不变，请求改由热备实例承载。
+            assertThat(firstServer.getReceivedRequests()).isEmpty();
+            assertThat(standbyServer.getReceivedRequests().size() + secondServer.getReceivedRequests().size()).isEqualTo(4);
+            assertThat(standbyServer.getReceivedRequests()).isNotEmpty();
+            assertThat(loadBalancer.getMetrics().get("endpoints").toString())
+                    .contains("logicalEndpoint=" + firstServer.getUri())
+                    .contains("reroutes=1");
+        } finally {
+            standbyServer.shutdown();
+        }
+    }
+
+    private void awaitReceivedRequests(FakeModelServer server, int expectedCount) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (server.getReceivedRequests().size() < expectedCount && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(server.getReceivedRequests()).hasSizeGreaterThanOrEqualTo(expectedCount);
+    }
+
+    private void awaitHealthyEndpoints(long expectedCount) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!Long.valueOf(expectedCount).equals(loadBalancer.getMetrics().get("healthyEndpoints"))
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(loadBalancer.getMetrics()).containsEntry("healthyEndpoints", expectedCount);
+    }
+}
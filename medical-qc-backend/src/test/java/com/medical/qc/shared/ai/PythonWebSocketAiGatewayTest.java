@@ -0,0 +1,117 @@
+package com.medical.qc.shared.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * PythonWebSocketAiGateway 单元测试。
+ * 校验异步推理结果、同步封装、取消信号透传到模型服务，以及推理中途断线计入熔断。
+ */
+class PythonWebSocketAiGatewayTest {
+    private FakeModelServer server;
+    private PythonWebSocketAiGateway gateway;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new FakeModelServer().startAndWait();
+        ModelServerProperties properties = new ModelServerProperties();
+        properties.setUrl(server.getUri().toString());
+        @SuppressWarnings("unchecked")
+        ObjectProvider<StringRedisTemplate> redisTemplateProvider = mock(ObjectProvider.class);
+        InferenceResultCache inferenceResultCache =
+                new InferenceResultCache(new ObjectMapper(), properties, redisTemplateProvider);
+        gateway = new PythonWebSocketAiGateway(
+                new ObjectMapper(), properties, inferenceResultCache, new ModelServerRouteTable());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        gateway.destroy();
+        server.shutdown();
+    }
+
+    @Test
+    void asyncAnalysisShouldCompleteWithModelResult() throws Exception {
+        CompletableFuture<Map<String, Object>> future = gateway.analyzeHeadQualityAsync("/data/head.nii.gz");
+
+        // 请求体沿用 task_type + volume_path 协议，响应里的 request_id 不会泄露给业务层。
+        assertThat(future.get(5, TimeUnit.SECONDS))
+                .containsEntry("echo", "head")
+                .containsEntry("volume_path", "/data/head.nii.gz")
+                .doesNotContainKey("request_id");
+    }
+
+    @Test
+    void syncAnalysisShouldReuseAsyncPath() {
+        Map<String, Object> result = gateway.analyzeChestContrast("/data/chest.zip", Map.of("flow_rate", 4.5));
+
+        assertThat(result).containsEntry("echo", "chest-contrast").containsEntry("flow_rate", 4.5);
+    }
+
+    @Test
+    void cancellingFutureShouldNotifyModelServer() throws Exception {
+        CompletableFuture<Map<String, Object>> future =
+                gateway.analyzeCoronaryCtaAsync("/data/cta.zip", Map.of("delay_ms", 2000));
+        awaitReceivedRequests(1);
+
+        // 调用方放弃结果后，模型服务应收到同一 request_id 的 cancel 消息。
+        future.cancel(false);
+        awaitReceivedRequests(2);
+
+        Map<String, Object> inferenceRequest = server.getReceivedRequests().get(0);
+        Map<String, Object> cancelRequest = server.getReceivedRequests().get(1);
+        assertThat(cancelRequest)
+                .containsEntry("cancel", true)
+                .containsEntry("request_id", inferenceRequest.get("request_id"));
+    }
+
+    @Test
+    void droppedConnectionDuringInferenceShouldOpenBreaker() throws Exception {
+        ModelServerProperties properties = new ModelServerProperties();
+        properties.setUrl(server.getUri().toString());
+        properties.getBreaker().setSlidingWindowSize(1);
+        properties.getBreaker().setMinimumCalls(1);
+        @SuppressWarnings("unchecked")
+        ObjectProvider<StringRedisTemplate> redisTemplateProvider = mock(ObjectProvider.class);
+        PythonWebSocketAiGateway strictGateway = new PythonWebSocketAiGateway(
+                new ObjectMapper(),
+                properties,
+                new InferenceResultCache(new ObjectMapper(), properties, redisTemplateProvider),
+                new ModelServerRouteTable());
+        try {
+            CompletableFuture<Map<String, Object>> future =
+                    strictGateway.analyzeCoronaryCtaAsync("/data/crash.zip", Map.of("delay_ms", 5000));
+            awaitReceivedRequests(1);
+
+            // 模型服务在推理中途断开，在途请求按服务不可用失败，计入熔断失败率。
+            server.dropAllConnections();
+
+            assertThat(future.get(5, TimeUnit.SECONDS)).containsKey("error");
+            @SuppressWarnings("unchecked")
+            Map<String, Object> breakerMetrics =
+                    (Map<String, Object>) strictGateway.getMetricsSnapshot().get("circuitBreaker");
+            assertThat(breakerMetrics).containsEntry("state", "OPEN");
+        } finally {
+            strictGateway.destroy();
+        }
+    }
+
+    private void awaitReceivedRequests(int expectedCount) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (server.getReceivedRequests().size() < expectedCount && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(server.getReceivedRequests()).hasSizeGreaterThanOrEqualTo(expectedCount);
+    }
+}
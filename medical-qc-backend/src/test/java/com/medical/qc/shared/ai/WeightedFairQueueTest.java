@@ -0,0 +1,103 @@
+package com.medical.qc.shared.ai;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * WeightedFairQueue 单元测试。
+ * 校验按权重出队、防饥饿提升、分优先级容量与等待时间统计。
+ */
+class WeightedFairQueueTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void backlogShouldDrainInProportionToWeights() {
+        WeightedFairQueue<String> queue = new WeightedFairQueue<>(schedulerProperties(60_000L), 100, clock::get);
+        for (int index = 0; index < 20; index++) {
+            queue.offer("interactive-" + index, InferencePriority.INTERACTIVE);
+            queue.offer("bulk-" + index, InferencePriority.BULK);
+        }
+
+        List<String> firstNine = new ArrayList<>();
+        for (int index = 0; index < 9; index++) {
+            firstNine.add(queue.poll());
+        }
+
+        // 权重 8:1，前 9 次出队中批量请求只占 1 次，但不会被完全挤出。
+        assertThat(firstNine).filteredOn(item -> item.startsWith("bulk")).hasSize(1);
+        assertThat(firstNine).filteredOn(item -> item.startsWith("interactive")).hasSize(8);
+    }
+
+    @Test
+    void idlePriorityShouldNotAccumulateCredit() {
+        WeightedFairQueue<String> queue = new WeightedFairQueue<>(schedulerProperties(60_000L), 100, clock::get);
+        for (int index = 0; index < 8; index++) {
+            queue.offer("interactive-" + index, InferencePriority.INTERACTIVE);
+        }
+        for (int index = 0; index < 8; index++) {
+            queue.poll();
+        }
+
+        // 批量请求长时间没有排队，重新入队后从当前虚拟时间起算，不能一次性抢走积攒的额度。
+        for (int index = 0; index < 3; index++) {
+            queue.offer("bulk-" + index, InferencePriority.BULK);
+        }
+        queue.offer("interactive-late", InferencePriority.INTERACTIVE);
+
+        assertThat(List.of(queue.poll(), queue.poll())).contains("interactive-late");
+    }
+
+    @Test
+    void starvingRequestShouldBePromotedRegardlessOfPriority() {
+        WeightedFairQueue<String> queue = new WeightedFairQueue<>(schedulerProperties(1_000L), 100, clock::get);
+        queue.offer("bulk-old", InferencePriority.BULK);
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1_500L));
+        queue.offer("interactive-new", InferencePriority.INTERACTIVE);
+
+        assertThat(queue.poll()).isEqualTo("bulk-old");
+        assertThat(classMetrics(queue, "bulk")).containsEntry("promotedByAging", 1L);
+    }
+
+    @Test
+    void capacityShouldBeAccountedPerPriority() {
+        WeightedFairQueue<String> queue = new WeightedFairQueue<>(schedulerProperties(60_000L), 1, clock::get);
+
+        assertThat(queue.offer("bulk-1", InferencePriority.BULK)).isTrue();
+        assertThat(queue.offer("bulk-2", InferencePriority.BULK)).isFalse();
+        // 批量队列已满不影响交互请求入队。
+        assertThat(queue.offer("interactive-1", InferencePriority.INTERACTIVE)).isTrue();
+        assertThat(classMetrics(queue, "bulk")).containsEntry("rejected", 1L).containsEntry("queueDepth", 1);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void waitTimeShouldBeRecordedInHistogram() {
+        WeightedFairQueue<String> queue = new WeightedFairQueue<>(schedulerProperties(60_000L), 10, clock::get);
+        queue.offer("normal-1", InferencePriority.NORMAL);
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(200L));
+        queue.poll();
+
+        Map<String, Object> normalMetrics = classMetrics(queue, "normal");
+        assertThat(normalMetrics).containsEntry("dequeued", 1L).containsEntry("p99WaitMs", 250L);
+        assertThat((Map<String, Long>) normalMetrics.get("waitHistogramMs")).containsEntry("le250", 1L);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> classMetrics(WeightedFairQueue<String> queue, String priority) {
+        return (Map<String, Object>) queue.getMetrics().get(priority);
+    }
+
+    private ModelServerProperties.SchedulerProperties schedulerProperties(long starvationThresholdMs) {
+        ModelServerProperties.SchedulerProperties properties = new ModelServerProperties.SchedulerProperties();
+        properties.setStarvationThresholdMs(starvationThresholdMs);
+        return properties;
+    }
+}
@@ -3,15 +3,22 @@ package com.medical.qc.shared.messaging;
 import org.junit.jupiter.api.Test;
 import org.springframework.jms.JmsException;
 import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.core.MessagePostProcessor;
+import org.springframework.jms.core.SessionCallback;
+
+import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 
 /**
  * SpringJmsMessageBus 单元测试。
- * 校验 JMS 成功发送和异常降级两个分支。
+ * 校验 JMS 成功发送、异常降级以及批量发送的失败返回。
  */
 class SpringJmsMessageBusTest {
 
@@ -42,4 +49,32 @@ class SpringJmsMessageBusTest {
         // 失败分支返回 false，便于上层业务决定是否重试。
         assertThat(sent).isFalse();
     }
+
+    @Test
+    void sendWithHeadersShouldAttachMessagePostProcessor() {
+        JmsTemplate jmsTemplate = mock(JmsTemplate.class);
+        SpringJmsMessageBus messageBus = new SpringJmsMessageBus(jmsTemplate);
+
+        boolean sent = messageBus.send("qc.mock.quality.task", "payload", Map.of("taskType", "head"));
+
+        // 带消息头发送时通过后处理器写入 JMS 属性，供消费端选择器路由。
+        assertThat(sent).isTrue();
+        verify(jmsTemplate).convertAndSend(eq("qc.mock.quality.task"), eq("payload"), any(MessagePostProcessor.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void sendBatchShouldReturnZeroWhenSessionCannotBeOpened() {
+        JmsTemplate jmsTemplate = mock(JmsTemplate.class);
+        doThrow(new JmsException("broker down") {
+        }).when(jmsTemplate).execute(any(SessionCallback.class), eq(true));
+        SpringJmsMessageBus messageBus = new SpringJmsMessageBus(jmsTemplate);
+
+        int sent = messageBus.sendBatch("qc.mock.quality.task", List.of(
+                new MessageBus.Envelope("payload-1", Map.of("taskType", "head")),
+                new MessageBus.Envelope("payload-2", Map.of("taskType", "head"))));
+
+        // 整批未发出时返回 0，调用方保留全部记录等待下一轮。
+        assertThat(sent).isZero();
+    }
 }
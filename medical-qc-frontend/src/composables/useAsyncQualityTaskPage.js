@@ -1,10 +1,12 @@
 import { reactive, ref, onBeforeUnmount } from 'vue'
 import { ElMessage } from 'element-plus'
-import { exportQualityTaskReport, getQualityTask } from '@/modules/qctask/api/qualityApi'
+import { exportQualityTaskReport, getQualityTask, getQualityTaskStatus, subscribeQualityTaskEvents } from '@/modules/qctask/api/qualityApi'
 
 // 轮询频率与超时统一在组合函数层收敛，供各质控页面复用。
 const POLL_INTERVAL_MS = 1000
 const POLL_TIMEOUT_MS = 60000
+// 事件流等待终态的上限，超过后关闭连接并回退到轮询。
+const EVENT_STREAM_TIMEOUT_MS = 10 * 60 * 1000
 
 // 异步休眠工具，配合任务轮询使用。
 const sleep = (ms) => new Promise((resolve) => setTimeout(resolve, ms))
@@ -30,8 +32,8 @@ const nowText = () => new Date().toLocaleString('zh-CN', { hour12: false })
  * - 上传弹窗状态
  * - 本地上传 / PACS 模式切换
  * - 任务提交
- * - 自动轮询
- * - 前端模拟进度与日志
+ * - 订阅任务事件流（不支持或断线时回退为自动轮询）
+ * - 前端模拟进度、服务端真实进度与日志
  */
 export const useAsyncQualityTaskPage = (options) => {
   const {
@@ -82,6 +84,7 @@ export const useAsyncQualityTaskPage = (options) => {
   let destroyed = false
   let activeRunToken = 0
   let lastPolledStatus = ''
+  let activeEventSource = null
 
   // 清理进度条定时器，避免重复开多个 interval。
   const clearProgressTimer = () => {
@@ -216,42 +219,138 @@ export const useAsyncQualityTaskPage = (options) => {
     applyResultPayload(taskDetail?.result || {})
   }
 
-  // 轮询后端任务详情接口，直到 SUCCESS / FAILED / TIMEOUT。
+  const closeEventSource = () => {
+    if (activeEventSource) {
+      activeEventSource.close()
+      activeEventSource = null
+    }
+  }
+
+  // 事件流与轮询共用的状态变化日志。
+  const applyStatusChange = (currentStatus) => {
+    taskStatus.value = currentStatus
+    if (currentStatus === lastPolledStatus) {
+      return
+    }
+    if (currentStatus === 'PENDING') {
+      addLog(pendingStatusMessage)
+    } else if (currentStatus === 'PROCESSING') {
+      addLog(processingStatusMessage)
+      currentAnalysisStep.value = '云端处理'
+      analyzeProgress.value = Math.max(analyzeProgress.value, 92)
+    }
+    lastPolledStatus = currentStatus
+  }
+
+  // 服务端推送的真实推理进度只前进不后退，已得出的质控项先行展示。
+  const applyServerProgress = (payload = {}) => {
+    if (typeof payload.progress === 'number') {
+      analyzeProgress.value = Math.max(analyzeProgress.value, Math.min(99, payload.progress))
+    }
+    if (payload.progressStage) {
+      currentAnalysisStep.value = `云端处理：${payload.progressStage}`
+    }
+    if (payload.qcItem) {
+      qcItems.value = [...qcItems.value, payload.qcItem]
+      addLog(`已完成质控项：${payload.qcItem.name || '未命名'}`)
+    } else if (Array.isArray(payload.partialQcItems) && payload.partialQcItems.length > qcItems.value.length) {
+      qcItems.value = [...payload.partialQcItems]
+    }
+  }
+
+  /**
+   * 通过事件流等待任务终态。
+   *
+   * @returns {Promise<string>} 'final' 表示收到终态，'fallback' 表示需要回退到轮询，'stale' 表示本次运行已失效
+   */
+  const waitTaskEvents = (taskId, runToken) => new Promise((resolve) => {
+    lastPolledStatus = ''
+    let settled = false
+    let timeoutHandle = null
+    const settle = (outcome) => {
+      if (settled) {
+        return
+      }
+      settled = true
+      clearTimeout(timeoutHandle)
+      closeEventSource()
+      resolve(outcome)
+    }
+    const isStale = () => destroyed || runToken !== activeRunToken
+
+    const source = subscribeQualityTaskEvents(taskId, {
+      snapshot: (payload) => {
+        if (isStale()) {
+          settle('stale')
+          return
+        }
+        applyStatusChange(payload.status || '')
+        applyServerProgress(payload)
+        if (payload.status === 'SUCCESS' || payload.status === 'FAILED') {
+          settle('final')
+        }
+      },
+      status: (payload) => {
+        if (!isStale()) {
+          applyStatusChange(payload.status || '')
+        }
+      },
+      progress: (payload) => {
+        if (!isStale()) {
+          applyServerProgress(payload)
+        }
+      },
+      partial: (payload) => {
+        if (!isStale()) {
+          applyServerProgress(payload)
+        }
+      },
+      final: () => settle(isStale() ? 'stale' : 'final'),
+      // 连接失败或服务端提前关闭时回退到轮询，由轮询读取最终状态。
+      error: () => settle(isStale() ? 'stale' : 'fallback')
+    })
+    if (!source) {
+      settle('fallback')
+      return
+    }
+    activeEventSource = source
+    timeoutHandle = setTimeout(() => settle('fallback'), EVENT_STREAM_TIMEOUT_MS)
+  })
+
+  // 轮询后端任务状态接口，直到 SUCCESS / FAILED / TIMEOUT。
   const pollTaskUntilComplete = async (taskId, runToken) => {
     const startTime = Date.now()
     lastPolledStatus = ''
 
     while (!destroyed && runToken === activeRunToken) {
-      // 每轮都从服务端取最新任务状态与结果，避免只依赖前端本地状态。
-      const taskDetail = await getQualityTask(taskId)
+      // 每轮只取轻量状态与进度，进入成功终态后再读取一次完整详情。
+      const taskStatus = await getQualityTaskStatus(taskId)
       if (destroyed || runToken !== activeRunToken) {
         return false
       }
 
-      const currentStatus = taskDetail?.status || ''
-      taskStatus.value = currentStatus
-      if (currentStatus !== lastPolledStatus) {
-        // 状态变化时才追加日志，避免轮询日志刷屏。
-        if (currentStatus === 'PENDING') {
-          addLog(pendingStatusMessage)
-        } else if (currentStatus === 'PROCESSING') {
-          addLog(processingStatusMessage)
-          currentAnalysisStep.value = '云端处理'
-          analyzeProgress.value = Math.max(analyzeProgress.value, 92)
-        }
-        lastPolledStatus = currentStatus
-      }
+      const currentStatus = taskStatus?.status || ''
+      // 状态变化时才追加日志，避免轮询日志刷屏。
+      applyStatusChange(currentStatus)
 
       if (currentStatus === 'SUCCESS') {
+        const taskDetail = taskStatus?.result ? taskStatus : await getQualityTask(taskId)
+        if (destroyed || runToken !== activeRunToken) {
+          return false
+        }
         applyTaskResult(taskDetail)
         return true
       }
 
       if (currentStatus === 'FAILED') {
-        taskError.value = taskDetail?.errorMessage || '任务处理失败'
+        taskError.value = taskStatus?.errorMessage || '任务处理失败'
         currentAnalysisStep.value = '失败'
         addLog(taskError.value)
-        throw new Error(taskDetail?.errorMessage || '任务处理失败')
+        throw new Error(taskStatus?.errorMessage || '任务处理失败')
+      }
+
+      if (currentStatus === 'PROCESSING') {
+        applyServerProgress(taskStatus)
       }
 
       if (Date.now() - startTime >= POLL_TIMEOUT_MS) {
@@ -306,6 +405,11 @@ export const useAsyncQualityTaskPage = (options) => {
       analyzeProgress.value = Math.max(analyzeProgress.value, 20)
       currentAnalysisStep.value = '等待云端处理'
 
+      // 优先订阅事件流等待终态；收到终态后只需再读取一次详情，事件流不可用时回退到轮询。
+      const eventOutcome = await waitTaskEvents(taskId, runToken)
+      if (eventOutcome === 'stale') {
+        return
+      }
       const completed = await pollTaskUntilComplete(taskId, runToken)
       if (completed && showSuccessToast) {
         ElMessage.success(reanalyzeSuccessMessage)
@@ -460,6 +564,7 @@ export const useAsyncQualityTaskPage = (options) => {
     destroyed = true
     activeRunToken += 1
     clearProgressTimer()
+    closeEventSource()
   })
 
   return {
@@ -103,6 +103,33 @@ export const detectChestContrast = (payload) => submitQualityTask('/quality/ches
 // 冠脉 CTA 质控任务提交入口。
 export const detectCoronaryCTA = (payload) => submitQualityTask('/quality/coronary-cta/detect', payload, '提交冠脉 CTA 质控任务失败')
 
+// 订阅质控任务事件流，推送 snapshot / status / progress / partial / final 事件。
+// 返回 EventSource 实例，调用方负责在终态或组件卸载时 close。
+export const subscribeQualityTaskEvents = (taskId, handlers = {}) => {
+  if (typeof window === 'undefined' || typeof window.EventSource === 'undefined') {
+    return null
+  }
+  const baseUrl = (import.meta.env.VITE_API_BASE_URL || '') + '/api/v1'
+  const source = new EventSource(`${baseUrl}${QUALITY_TASK_POLL_PREFIX}${taskId}/events`, { withCredentials: true })
+  const parse = (event) => {
+    try {
+      return JSON.parse(event.data)
+    } catch {
+      return {}
+    }
+  }
+  ;['snapshot', 'status', 'progress', 'partial', 'final'].forEach((eventName) => {
+    const handler = handlers[eventName]
+    if (handler) {
+      source.addEventListener(eventName, (event) => handler(parse(event)))
+    }
+  })
+  if (handlers.error) {
+    source.onerror = handlers.error
+  }
+  return source
+}
+
 // 根据任务 ID 轮询异步质控结果。
 export const getQualityTask = async (taskId) => {
   try {
@@ -112,6 +139,15 @@ export const getQualityTask = async (taskId) => {
   }
 }
 
+// 轮询异步质控任务状态与进度，终态后再读取一次详情获取完整结果。
+export const getQualityTaskStatus = async (taskId) => {
+  try {
+    return await request.get(`${QUALITY_TASK_POLL_PREFIX}${taskId}/status`)
+  } catch (error) {
+    throw parseRequestError(error, '查询质控任务状态失败')
+  }
+}
+
 // 获取质控任务中心分页列表。
 export const getQualityTaskPage = async (params = {}) => {
   try {
@@ -148,6 +184,33 @@ export const batchRetryQualityTasks = async (payload = {}) => {
   }
 }
 
+// 创建 PACS 批量质控作业，按检查日期范围分块创建任务。
+export const createQualityBatchJob = async (payload = {}) => {
+  try {
+    return await request.post('/quality/batch-jobs', payload)
+  } catch (error) {
+    throw parseRequestError(error, '创建批量质控作业失败')
+  }
+}
+
+// 查询批量质控作业列表，包含进度、吞吐与预计剩余时间。
+export const getQualityBatchJobs = async () => {
+  try {
+    return await request.get('/quality/batch-jobs')
+  } catch (error) {
+    throw parseRequestError(error, '获取批量质控作业失败')
+  }
+}
+
+// 暂停、继续或取消批量质控作业。
+export const controlQualityBatchJob = async (jobId, action) => {
+  try {
+    return await request.post(`/quality/batch-jobs/${jobId}/${action}`)
+  } catch (error) {
+    throw parseRequestError(error, '更新批量质控作业状态失败')
+  }
+}
+
 // 修复历史任务中的质控结论、异常项和 mock 标记。
 export const repairQualityTasks = async (payload = {}) => {
   try {